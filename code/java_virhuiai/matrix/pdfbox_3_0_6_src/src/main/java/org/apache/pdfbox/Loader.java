@@ -30,6 +30,7 @@ import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.pdfparser.FDFParser;
 import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdfparser.RandomAccessReadMappedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.pdmodel.fdf.FDFDocument;
@@ -41,6 +42,12 @@ import org.apache.pdfbox.util.XMLUtil;
  */
 public class Loader
 {
+    /**
+     * Makes the methods loading a PDF from a {@link File} use a {@link RandomAccessReadMappedFile} instead of a
+     * {@link RandomAccessReadBufferedFile} to read the file if set to "true", i.e. the file is memory mapped and
+     * its data isn't copied onto the heap.
+     */
+    public static final String SYSPROP_MEMORY_MAPPED_FILES = "org.apache.pdfbox.loader.memoryMappedFiles";
 
     private Loader()
     {
@@ -334,7 +341,8 @@ public class Loader
      * Parses a PDF.
      * 
      * @param file file to be loaded. {@link RandomAccessReadBufferedFile} is used to read the
-     * file.
+     * file, or {@link RandomAccessReadMappedFile} in case system property {@link #SYSPROP_MEMORY_MAPPED_FILES} is
+     * set to "true".
      * @param password password to be used for decryption
      * @param keyStore key store to be used for decryption when using public key security
      * @param alias alias to be used for decryption when using public key security
@@ -352,8 +360,12 @@ public class Loader
         try
         {
             // RandomAccessRead is not closed here, may be needed for signing
-            raFile = new RandomAccessReadBufferedFile(file);
-            return Loader.loadPDF(raFile, password, keyStore, alias, streamCacheCreateFunction);
+            raFile = Boolean.getBoolean(SYSPROP_MEMORY_MAPPED_FILES) ? new RandomAccessReadMappedFile(file)
+                    : new RandomAccessReadBufferedFile(file);
+            PDFParser parser = new PDFParser(raFile, password, keyStore, alias, streamCacheCreateFunction);
+            // identifies the file within the xref index cache
+            parser.setSourceLastModified(file.lastModified());
+            return parser.parse();
         }
         catch (IOException ioe)
         {
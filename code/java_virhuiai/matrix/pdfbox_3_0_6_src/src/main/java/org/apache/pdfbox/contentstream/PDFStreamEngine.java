@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
@@ -63,6 +64,7 @@ import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
 import org.apache.pdfbox.util.Matrix;
 import org.apache.pdfbox.util.Vector;
+import org.apache.pdfbox.contentstream.operator.OperandList;
 import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.contentstream.operator.OperatorName;
 import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
@@ -92,6 +94,10 @@ public abstract class PDFStreamEngine
     // 操作符处理器映射表 - 存储所有可用的操作符处理器
     private final Map<String, OperatorProcessor> operators = new HashMap<>();
 
+    // 按操作符索引缓存的操作符处理器 - 避免对每个操作符查找映射表
+    private static final int MAX_CACHED_OPERATOR_INDEX = 1024;
+    private OperatorProcessor[] processorsByIndex = new OperatorProcessor[64];
+
     // 图形状态栈 - 用于保存和恢复图形状态
     private Deque<PDGraphicsState> graphicsStack = new ArrayDeque<>();
 
@@ -129,6 +135,45 @@ public abstract class PDFStreamEngine
     public final void addOperator(OperatorProcessor op)
     {
         operators.put(op.getName(), op);
+        Arrays.fill(processorsByIndex, null);
+    }
+
+    /**
+     * Returns the processor of the given operator. The processors are cached in an array indexed by
+     * {@link Operator#getIndex()}, so that the map of the processors is only used once per operator.
+     *
+     * @param operator the operator
+     * @return the processor or null if the operator isn't supported
+     * 
+     * 返回给定操作符的处理器
+     * 处理器按操作符索引缓存在数组中，每个操作符只查找一次映射表
+     */
+    private OperatorProcessor getOperatorProcessor(Operator operator)
+    {
+        int index = operator.getIndex();
+        if (index < 0 || index >= MAX_CACHED_OPERATOR_INDEX)
+        {
+            return operators.get(operator.getName());
+        }
+        if (index < processorsByIndex.length)
+        {
+            OperatorProcessor processor = processorsByIndex[index];
+            if (processor != null)
+            {
+                return processor;
+            }
+        }
+        OperatorProcessor processor = operators.get(operator.getName());
+        if (processor != null)
+        {
+            if (index >= processorsByIndex.length)
+            {
+                processorsByIndex = Arrays.copyOf(processorsByIndex,
+                        Math.min(MAX_CACHED_OPERATOR_INDEX, Math.max(index + 1, processorsByIndex.length * 2)));
+            }
+            processorsByIndex[index] = processor;
+        }
+        return processor;
     }
 
     /**
@@ -595,9 +640,10 @@ public abstract class PDFStreamEngine
      */
     private void processStreamOperators(PDContentStream contentStream) throws IOException
     {
-        List<COSBase> arguments = new ArrayList<>();
+        // numbers are kept as primitives until an operator processor requests them as COSNumber
+        OperandList arguments = new OperandList();
         PDFStreamParser parser = new PDFStreamParser(contentStream);
-        Object token = parser.parseNextToken();
+        Object token = parser.parseNextToken(arguments);
 
         boolean isFirstOperator = true;
         boolean oldShouldProcessColorOperators = shouldProcessColorOperators;
@@ -626,7 +672,7 @@ public abstract class PDFStreamEngine
                 {
                     arguments.add((COSBase) token);
                 }
-                token = parser.parseNextToken();
+                token = parser.parseNextToken(arguments);
             }
         }
         finally
@@ -1023,8 +1069,7 @@ public abstract class PDFStreamEngine
      */
     protected void processOperator(Operator operator, List<COSBase> operands) throws IOException
     {
-        String name = operator.getName();
-        OperatorProcessor processor = operators.get(name);
+        OperatorProcessor processor = getOperatorProcessor(operator);
         if (processor != null)
         {
             try
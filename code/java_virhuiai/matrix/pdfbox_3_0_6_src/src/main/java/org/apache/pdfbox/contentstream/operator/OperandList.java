@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream.operator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+
+/**
+ * The operands of a content stream operator. Numbers are stored as primitives, the corresponding {@link COSNumber}
+ * is only created if the operand is requested by {@link #get(int)}. Operator processors use
+ * {@link #getFloat(int)} and {@link #isNumber(int)} to read numbers without creating any objects.
+ *
+ * <p>The list is filled by {@link PDFStreamParser#parseNextToken(OperandList)} and reused for all operators of a
+ * content stream, so that it must not be kept by an operator processor.</p>
+ */
+public final class OperandList extends AbstractList<COSBase> implements RandomAccess
+{
+    private static final byte OBJECT = 0;
+    private static final byte INTEGER = 1;
+    private static final byte FLOAT = 2;
+
+    private COSBase[] objects = new COSBase[8];
+    private byte[] types = new byte[8];
+    // the value of an integer or the bits of a float
+    private long[] values = new long[8];
+    private int size = 0;
+
+    @Override
+    public COSBase get(int index)
+    {
+        checkIndex(index);
+        COSBase object = objects[index];
+        if (object == null && types[index] != OBJECT)
+        {
+            object = types[index] == INTEGER ? COSInteger.get(values[index])
+                    : new COSFloat(Float.intBitsToFloat((int) values[index]));
+            objects[index] = object;
+        }
+        return object;
+    }
+
+    @Override
+    public COSBase set(int index, COSBase element)
+    {
+        COSBase previous = get(index);
+        objects[index] = element;
+        types[index] = OBJECT;
+        return previous;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean add(COSBase element)
+    {
+        int index = grow();
+        objects[index] = element;
+        types[index] = OBJECT;
+        return true;
+    }
+
+    /**
+     * Appends an integer operand.
+     *
+     * @param value the value of the operand
+     */
+    public void addInteger(long value)
+    {
+        int index = grow();
+        types[index] = INTEGER;
+        values[index] = value;
+    }
+
+    /**
+     * Appends a real operand.
+     *
+     * @param value the value of the operand
+     */
+    public void addFloat(float value)
+    {
+        int index = grow();
+        types[index] = FLOAT;
+        values[index] = Float.floatToRawIntBits(value);
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Tells whether the operand at the given index is a number.
+     *
+     * @param index the index of the operand
+     * @return true if the operand is a number
+     */
+    public boolean isNumber(int index)
+    {
+        checkIndex(index);
+        return types[index] != OBJECT || objects[index] instanceof COSNumber;
+    }
+
+    /**
+     * Tells whether all operands are numbers.
+     *
+     * @return true if all operands are numbers
+     */
+    public boolean isNumbers()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (types[i] == OBJECT && !(objects[i] instanceof COSNumber))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of a number operand as float.
+     *
+     * @param index the index of the operand
+     * @return the value of the operand
+     * @throws ClassCastException if the operand isn't a number, see {@link #isNumber(int)}
+     */
+    public float getFloat(int index)
+    {
+        checkIndex(index);
+        switch (types[index])
+        {
+            case INTEGER:
+                return values[index];
+            case FLOAT:
+                return Float.intBitsToFloat((int) values[index]);
+            default:
+                return ((COSNumber) objects[index]).floatValue();
+        }
+    }
+
+    private int grow()
+    {
+        if (size == objects.length)
+        {
+            int capacity = size * 2;
+            objects = Arrays.copyOf(objects, capacity);
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        modCount++;
+        return size++;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
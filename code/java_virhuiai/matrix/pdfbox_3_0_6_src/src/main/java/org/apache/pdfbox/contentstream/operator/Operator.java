@@ -20,6 +20,7 @@ import org.apache.pdfbox.cos.COSDictionary;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An Operator in a PDF content stream.
@@ -29,21 +30,27 @@ import java.util.concurrent.ConcurrentMap;
 public final class Operator
 {
     private final String theOperator;
+    private final int index;
     private byte[] imageData;
     private COSDictionary imageParameters;
 
     /** map for singleton operator objects; use {@link ConcurrentHashMap} for better scalability with multiple threads */
     private static final ConcurrentMap<String,Operator> operators = new ConcurrentHashMap<>();
 
+    /** the next index of a cached operator */
+    private static final AtomicInteger nextIndex = new AtomicInteger();
+
     /**
      * Constructor.
      *
      * @param aOperator The operator that this object will represent.
+     * @param index The index of the operator, -1 if it isn't cached.
      * @throws IllegalArgumentException if the operator starts with "/".
      */
-    private Operator(String aOperator)
+    private Operator(String aOperator, int index)
     {
         theOperator = aOperator;
+        this.index = index;
         if( aOperator.startsWith( "/" ) )
         {
             throw new IllegalArgumentException( "Operators are not allowed to start with / '" + aOperator + "'" );
@@ -64,7 +71,7 @@ public final class Operator
                 || OperatorName.BEGIN_INLINE_IMAGE.equals(operator))
         {
             //we can't cache the ID operators.
-            operation = new Operator( operator );
+            operation = new Operator( operator, -1 );
         }
         else
         {
@@ -72,12 +79,9 @@ public final class Operator
             if( operation == null )
             {
                 // another thread may has already added an operator of this kind
-                // make sure that we get the same operator
-                operation = operators.putIfAbsent( operator, new Operator( operator ) );
-                if ( operation == null )
-                {
-                    operation = operators.get( operator );
-                }
+                // make sure that we get the same operator, which has a unique index
+                operation = operators.computeIfAbsent(operator,
+                        key -> new Operator(key, nextIndex.getAndIncrement()));
             }
         }
 
@@ -94,6 +98,18 @@ public final class Operator
         return theOperator;
     }
 
+    /**
+     * Returns the index of this operator. All cached operators are numbered consecutively, so that the index can be
+     * used to look up the processor of an operator in an array instead of a map. The index of the uncached inline
+     * image operators is -1.
+     *
+     * @return the index of the operator or -1 if the operator isn't cached
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
     /**
      * This will print a string rep of this class.
      *
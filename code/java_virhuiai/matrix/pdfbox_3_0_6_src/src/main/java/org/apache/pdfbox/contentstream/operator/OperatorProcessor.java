@@ -17,6 +17,7 @@
 package org.apache.pdfbox.contentstream.operator;
 
 import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.contentstream.PDFStreamEngine;
 
 import java.util.List;
@@ -76,6 +77,44 @@ public abstract class OperatorProcessor
      */
     public boolean checkArrayTypesClass(List<COSBase> operands, Class<?> clazz)
     {
+        if (clazz == COSNumber.class && operands instanceof OperandList)
+        {
+            // don't create the COSNumber objects of primitive operands
+            return ((OperandList) operands).isNumbers();
+        }
         return operands.stream().allMatch(clazz::isInstance);
     }
+
+    /**
+     * Check whether the operand at the given index is a number.
+     *
+     * @param operands The operands list.
+     * @param index The index of the operand.
+     * @return true if the operand is a number
+     */
+    protected static boolean isNumber(List<COSBase> operands, int index)
+    {
+        if (operands instanceof OperandList)
+        {
+            return ((OperandList) operands).isNumber(index);
+        }
+        return operands.get(index) instanceof COSNumber;
+    }
+
+    /**
+     * Returns the value of the number operand at the given index. Primitive operands of an {@link OperandList} are
+     * read without creating a {@link COSNumber}.
+     *
+     * @param operands The operands list.
+     * @param index The index of the operand, which must be a number.
+     * @return the value of the operand
+     */
+    protected static float floatValue(List<COSBase> operands, int index)
+    {
+        if (operands instanceof OperandList)
+        {
+            return ((OperandList) operands).getFloat(index);
+        }
+        return ((COSNumber) operands.get(index)).floatValue();
+    }
 }
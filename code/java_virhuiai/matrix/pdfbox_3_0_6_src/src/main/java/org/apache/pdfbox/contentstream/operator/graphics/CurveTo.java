@@ -54,17 +54,10 @@ public class CurveTo extends GraphicsOperatorProcessor
         {
             return;
         }
-        COSNumber x1 = (COSNumber)operands.get(0);
-        COSNumber y1 = (COSNumber)operands.get(1);
-        COSNumber x2 = (COSNumber)operands.get(2);
-        COSNumber y2 = (COSNumber)operands.get(3);
-        COSNumber x3 = (COSNumber)operands.get(4);
-        COSNumber y3 = (COSNumber)operands.get(5);
-
         PDFGraphicsStreamEngine context = getGraphicsContext();
-        Point2D.Float point1 = context.transformedPoint(x1.floatValue(), y1.floatValue());
-        Point2D.Float point2 = context.transformedPoint(x2.floatValue(), y2.floatValue());
-        Point2D.Float point3 = context.transformedPoint(x3.floatValue(), y3.floatValue());
+        Point2D.Float point1 = context.transformedPoint(floatValue(operands, 0), floatValue(operands, 1));
+        Point2D.Float point2 = context.transformedPoint(floatValue(operands, 2), floatValue(operands, 3));
+        Point2D.Float point3 = context.transformedPoint(floatValue(operands, 4), floatValue(operands, 5));
 
         if (context.getCurrentPoint() == null)
         {
@@ -54,16 +54,11 @@ public class CurveToReplicateInitialPoint extends GraphicsOperatorProcessor
         {
             return;
         }
-        COSNumber x2 = (COSNumber)operands.get(0);
-        COSNumber y2 = (COSNumber)operands.get(1);
-        COSNumber x3 = (COSNumber)operands.get(2);
-        COSNumber y3 = (COSNumber)operands.get(3);
-
         PDFGraphicsStreamEngine context = getGraphicsContext();
         Point2D currentPoint = context.getCurrentPoint();
 
-        Point2D.Float point2 = context.transformedPoint(x2.floatValue(), y2.floatValue());
-        Point2D.Float point3 = context.transformedPoint(x3.floatValue(), y3.floatValue());
+        Point2D.Float point2 = context.transformedPoint(floatValue(operands, 0), floatValue(operands, 1));
+        Point2D.Float point3 = context.transformedPoint(floatValue(operands, 2), floatValue(operands, 3));
 
         if (currentPoint == null)
         {
@@ -25,7 +25,6 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
 import org.apache.pdfbox.contentstream.operator.MissingOperandException;
 import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.contentstream.operator.OperatorName;
 
@@ -50,22 +49,13 @@ public class LineTo extends GraphicsOperatorProcessor
         {
             throw new MissingOperandException(operator, operands);
         }
-        COSBase base0 = operands.get(0);
-        if (!(base0 instanceof COSNumber))
-        {
-            return;
-        }
-        COSBase base1 = operands.get(1);
-        if (!(base1 instanceof COSNumber))
+        if (!isNumber(operands, 0) || !isNumber(operands, 1))
         {
             return;
         }
         // append straight line segment from the current point to the point
-        COSNumber x = (COSNumber) base0;
-        COSNumber y = (COSNumber) base1;
-
         PDFGraphicsStreamEngine context = getGraphicsContext();
-        Point2D.Float pos = context.transformedPoint(x.floatValue(), y.floatValue());
+        Point2D.Float pos = context.transformedPoint(floatValue(operands, 0), floatValue(operands, 1));
 
         if (context.getCurrentPoint() == null)
         {
@@ -24,7 +24,6 @@ import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
 import org.apache.pdfbox.contentstream.operator.MissingOperandException;
 
 import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.contentstream.operator.OperatorName;
 
@@ -47,20 +46,12 @@ public final class MoveTo extends GraphicsOperatorProcessor
         {
             throw new MissingOperandException(operator, operands);
         }
-        COSBase base0 = operands.get(0);
-        if (!(base0 instanceof COSNumber))
+        if (!isNumber(operands, 0) || !isNumber(operands, 1))
         {
             return;
         }
-        COSBase base1 = operands.get(1);
-        if (!(base1 instanceof COSNumber))
-        {
-            return;
-        }
-        COSNumber x = (COSNumber) base0;
-        COSNumber y = (COSNumber) base1;
         PDFGraphicsStreamEngine context = getGraphicsContext();
-        Point2D.Float pos = context.transformedPoint(x.floatValue(), y.floatValue());
+        Point2D.Float pos = context.transformedPoint(floatValue(operands, 0), floatValue(operands, 1));
         context.moveTo(pos.x, pos.y);
     }
 
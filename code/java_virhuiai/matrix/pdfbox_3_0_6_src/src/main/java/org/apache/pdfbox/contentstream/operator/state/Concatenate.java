@@ -54,15 +54,9 @@ public class Concatenate extends OperatorProcessor
         }
         
         // concatenate matrix to current transformation matrix
-        COSNumber a = (COSNumber) arguments.get(0);
-        COSNumber b = (COSNumber) arguments.get(1);
-        COSNumber c = (COSNumber) arguments.get(2);
-        COSNumber d = (COSNumber) arguments.get(3);
-        COSNumber e = (COSNumber) arguments.get(4);
-        COSNumber f = (COSNumber) arguments.get(5);
-
-        Matrix matrix = new Matrix(a.floatValue(), b.floatValue(), c.floatValue(),
-                                   d.floatValue(), e.floatValue(), f.floatValue());
+        Matrix matrix = new Matrix(floatValue(arguments, 0), floatValue(arguments, 1),
+                floatValue(arguments, 2), floatValue(arguments, 3),
+                floatValue(arguments, 4), floatValue(arguments, 5));
 
         getContext().getGraphicsState().getCurrentTransformationMatrix().concatenate(matrix);
     }
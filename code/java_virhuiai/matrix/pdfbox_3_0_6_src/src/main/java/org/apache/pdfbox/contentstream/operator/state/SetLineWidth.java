@@ -51,8 +51,7 @@ public class SetLineWidth extends OperatorProcessor
         {
             return;
         }
-        COSNumber width = (COSNumber) arguments.get(0);
-        getContext().getGraphicsState().setLineWidth(width.floatValue());
+        getContext().getGraphicsState().setLineWidth(floatValue(arguments, 0));
     }
 
     @Override
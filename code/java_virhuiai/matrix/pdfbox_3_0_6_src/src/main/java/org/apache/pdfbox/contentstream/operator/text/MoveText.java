@@ -26,7 +26,6 @@ import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.contentstream.operator.OperatorName;
 import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
 import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.util.Matrix;
 
 /**
@@ -58,20 +57,12 @@ public class MoveText extends OperatorProcessor
             return;
         }        
         
-        COSBase base0 = arguments.get(0);
-        COSBase base1 = arguments.get(1);
-        if (!(base0 instanceof COSNumber))
+        if (!isNumber(arguments, 0) || !isNumber(arguments, 1))
         {
             return;
         }
-        if (!(base1 instanceof COSNumber))
-        {
-            return;
-        }
-        COSNumber x = (COSNumber) base0;
-        COSNumber y = (COSNumber) base1;
 
-        Matrix matrix = new Matrix(1, 0, 0, 1, x.floatValue(), y.floatValue());
+        Matrix matrix = new Matrix(1, 0, 0, 1, floatValue(arguments, 0), floatValue(arguments, 1));
         textLineMatrix.concatenate(matrix);
         context.setTextMatrix(textLineMatrix.clone());
     }
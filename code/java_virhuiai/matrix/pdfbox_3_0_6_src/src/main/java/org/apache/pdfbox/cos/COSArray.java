@@ -32,7 +32,7 @@ import org.apache.pdfbox.pdmodel.common.COSObjectable;
  */
 public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInfo
 {
-    private final List<COSBase> objects = new ArrayList<>();
+    private List<COSBase> objects = new ArrayList<>();
     private final COSUpdateState updateState;
 
     /**
@@ -73,12 +73,12 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
                 && object.getKey() != null)
         {
             COSObject cosObject = new COSObject(object, object.getKey());
-            objects.add(cosObject);
+            modifiableObjects().add(cosObject);
             getUpdateState().update(cosObject);
         }
         else
         {
-            objects.add(object);
+            modifiableObjects().add(object);
             getUpdateState().update(object);
         }
     }
@@ -112,12 +112,12 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
                 && object.getKey() != null)
         {
             COSObject cosObject = new COSObject(object, object.getKey());
-            objects.add(i, cosObject);
+            modifiableObjects().add(i, cosObject);
             getUpdateState().update(cosObject);
         }
         else
         {
-            objects.add(i, object);
+            modifiableObjects().add(i, object);
             getUpdateState().update(object);
         }
     }
@@ -127,7 +127,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public void clear()
     {
-        objects.clear();
+        objects = new ArrayList<>();
         getUpdateState().update();
     }
 
@@ -138,7 +138,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public void removeAll( Collection<COSBase> objectsList )
     {
-        objects.removeAll( objectsList );
+        modifiableObjects().removeAll( objectsList );
         getUpdateState().update();
     }
 
@@ -149,7 +149,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public void retainAll( Collection<COSBase> objectsList )
     {
-        if (objects.retainAll(objectsList))
+        if (modifiableObjects().retainAll(objectsList))
         {
             getUpdateState().update();
         }
@@ -162,7 +162,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public void addAll( Collection<COSBase> objectsList )
     {
-        if (objects.addAll(objectsList))
+        if (modifiableObjects().addAll(objectsList))
         {
             getUpdateState().update(objectsList);
         }
@@ -177,7 +177,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
     {
         if( objectList != null )
         {
-            if (objects.addAll(objectList.objects))
+            if (modifiableObjects().addAll(objectList.objects))
             {
                 getUpdateState().update(objectList);
             }
@@ -193,7 +193,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public void addAll( int i, Collection<COSBase> objectList )
     {
-        if (objects.addAll(i, objectList))
+        if (modifiableObjects().addAll(i, objectList))
         {
             getUpdateState().update(objectList);
         }
@@ -212,12 +212,12 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
                 && object.getKey() != null)
         {
             COSObject cosObject = new COSObject(object, object.getKey());
-            objects.set(index, cosObject);
+            modifiableObjects().set(index, cosObject);
             getUpdateState().update(cosObject);
         }
         else
         {
-            objects.set(index, object);
+            modifiableObjects().set(index, object);
             getUpdateState().update(object);
         }
     }
@@ -230,7 +230,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public void set( int index, int intVal )
     {
-        objects.set( index, COSInteger.get(intVal));
+        modifiableObjects().set( index, COSInteger.get(intVal));
         getUpdateState().update();
     }
 
@@ -307,7 +307,14 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
     public int getInt( int index, int defaultValue )
     {
         int retval = defaultValue;
-        if ( index < size() )
+        if (objects instanceof PackedNumberList)
+        {
+            if (index < size())
+            {
+                retval = ((PackedNumberList) objects).getInt(index);
+            }
+        }
+        else if ( index < size() )
         {
             Object obj = objects.get( index );
             if( obj instanceof COSNumber )
@@ -437,7 +444,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public COSBase remove( int i )
     {
-        COSBase removedEntry = objects.remove( i );
+        COSBase removedEntry = modifiableObjects().remove( i );
         getUpdateState().update();
         return removedEntry;
     }
@@ -452,7 +459,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public boolean remove( COSBase o )
     {
-        boolean removed = objects.remove(o);
+        boolean removed = modifiableObjects().remove(o);
         if (removed)
         {
             getUpdateState().update();
@@ -619,6 +626,10 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
      */
     public float[] toFloatArray()
     {
+        if (objects instanceof PackedNumberList)
+        {
+            return ((PackedNumberList) objects).toFloatArray();
+        }
         float[] retval = new float[size()];
         for (int i = 0; i < retval.length; i++)
         {
@@ -628,6 +639,61 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
         return retval;
     }
 
+    /**
+     * This will take an COSArray of numbers and convert it to an int[]. Real numbers are truncated like by
+     * {@link COSNumber#intValue()}.
+     *
+     * @return This COSArray as an array of int numbers.
+     */
+    public int[] toIntArray()
+    {
+        if (objects instanceof PackedNumberList)
+        {
+            return ((PackedNumberList) objects).toIntArray();
+        }
+        int[] retval = new int[size()];
+        for (int i = 0; i < retval.length; i++)
+        {
+            COSBase base = getObject(i);
+            retval[i] = base instanceof COSNumber ? ((COSNumber) base).intValue() : 0;
+        }
+        return retval;
+    }
+
+    /**
+     * Stores the elements of this array as primitives if it consists of direct numbers only. The array uses a fraction
+     * of the memory afterwards, {@link #toFloatArray()}, {@link #toIntArray()} and {@link #getInt(int)} read the numbers
+     * without creating any objects. The {@link COSNumber} of an element is created when it is requested by
+     * {@link #get(int)}. The array is converted back when it is modified. This is done by the parser for large arrays
+     * of numbers.
+     *
+     * @return true if the array is compact, false if it contains any other objects
+     */
+    public boolean compactNumbers()
+    {
+        if (!(objects instanceof PackedNumberList))
+        {
+            PackedNumberList packed = PackedNumberList.of(objects);
+            if (packed == null)
+            {
+                return false;
+            }
+            objects = packed;
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether the elements of this array are stored as primitives, see {@link #compactNumbers()}. All elements
+     * of such an array are numbers.
+     *
+     * @return true if the array is compact
+     */
+    public boolean isCompact()
+    {
+        return objects instanceof PackedNumberList;
+    }
+
     /**
      * Clear the current contents of the COSArray and set it with the float[].
      *
@@ -764,6 +830,16 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
         return retval;
     }
     
+    // a compact array is converted to a list of objects before it is modified
+    private List<COSBase> modifiableObjects()
+    {
+        if (objects instanceof PackedNumberList)
+        {
+            objects = ((PackedNumberList) objects).toObjectList();
+        }
+        return objects;
+    }
+
     /**
      * Returns the current {@link COSUpdateState} of this {@link COSArray}.
      *
@@ -819,6 +895,11 @@ public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInf
                 indirectObjects.add(key);
             }
         }
+        if (objects instanceof PackedNumberList)
+        {
+            // numbers only
+            return;
+        }
 
         for (COSBase cosBase : objects)
         {
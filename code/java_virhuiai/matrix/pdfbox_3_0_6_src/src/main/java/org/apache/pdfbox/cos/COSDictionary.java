@@ -22,7 +22,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -53,9 +52,10 @@ public class COSDictionary extends COSBase implements COSUpdateInfo
     private static final String PATH_SEPARATOR = "/";
 
     /**
-     * The name-value pairs of this dictionary. The pairs are kept in the order they were added to the dictionary.
+     * The name-value pairs of this dictionary. The pairs are kept in the order they were added to the dictionary. Small
+     * dictionaries, which are the vast majority, are stored in a flat array instead of a hash map.
      */
-    protected Map<COSName, COSBase> items = new LinkedHashMap<>();
+    protected Map<COSName, COSBase> items = new CompactLinkedMap<>();
     private final COSUpdateState updateState;
 
     /**
@@ -19,10 +19,12 @@ package org.apache.pdfbox.cos;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -53,18 +55,19 @@ public class COSDocument extends COSBase implements Closeable
      * are also stored in COSDictionary objects that map a name to a specific object.
      */
     private final Map<COSObjectKey, COSObject> objectPool =
-        new HashMap<>();
+        new ConcurrentHashMap<>();
 
     /**
      * Maps object and generation id to object byte offsets.
      */
     private final Map<COSObjectKey, Long> xrefTable =
-        new HashMap<>();
+        new ConcurrentHashMap<>();
 
     /**
-     * List containing all streams which are created when creating a new pdf.
+     * Queue containing all streams which are created when creating a new pdf. Streams may be created on several
+     * threads, e.g. when images are encoded in parallel.
      */
-    private final List<COSStream> streams = new ArrayList<>();
+    private final Queue<COSStream> streams = new ConcurrentLinkedQueue<>();
     
     /**
      * Document trailer dictionary.
@@ -194,6 +197,7 @@ public class COSDocument extends COSBase implements Closeable
     {
         COSStream stream = new COSStream(streamCache,
                 parser.createRandomAccessReadView(startPosition, streamLength));
+        stream.setConcurrentReads(parser.isConcurrentDereferencingSupported());
         dictionary.forEach(stream::setItem);
         stream.setKey(dictionary.getKey());
         return stream;
@@ -471,6 +475,22 @@ public class COSDocument extends COSBase implements Closeable
             firstException = IOUtils.closeAndLogException(stream, LOG, "COSStream", firstException);
         }
 
+        if (parser != null)
+        {
+            try
+            {
+                parser.documentClosed();
+            }
+            catch (IOException exception)
+            {
+                LOG.warn("Error while releasing the resources of the parser", exception);
+                if (firstException == null)
+                {
+                    firstException = exception;
+                }
+            }
+        }
+
         if (streamCache != null)
         {
             firstException = IOUtils.closeAndLogException(streamCache, LOG, "Stream Cache",
@@ -495,6 +515,36 @@ public class COSDocument extends COSBase implements Closeable
         return closed;
     }
 
+    /**
+     * Indicates if the objects of this document may be dereferenced and read by several threads at the same time,
+     * see {@link ICOSParser#isConcurrentDereferencingSupported()}.
+     *
+     * @return true if the document was parsed by a parser supporting concurrent dereferencing
+     */
+    public boolean isConcurrentDereferencingSupported()
+    {
+        return parser != null && parser.isConcurrentDereferencingSupported();
+    }
+
+    /**
+     * Returns the number of indirect objects which were materialized, i.e. parsed or created, so far. Objects which
+     * are only referenced but weren't dereferenced yet aren't counted.
+     *
+     * @return the number of materialized objects
+     */
+    public int getMaterializedObjectCount()
+    {
+        int count = 0;
+        for (COSObject object : objectPool.values())
+        {
+            if (!object.isObjectNull())
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * This will get an object from the pool.
      *
@@ -46,12 +46,13 @@ public class COSFloat extends COSNumber
     }
 
     /**
-     * An internal constructor to avoid formatting for the predefined constants.
+     * An internal constructor to avoid formatting for the predefined constants and to keep the source text of the
+     * numbers of packed arrays.
      *
      * @param aFloat
      * @param valueString
      */
-    private COSFloat(float aFloat, String valueString)
+    COSFloat(float aFloat, String valueString)
     {
         value = aFloat;
         valueAsString = valueString;
@@ -201,18 +202,28 @@ public class COSFloat extends COSNumber
      * Builds, if needed, and returns the string representation of the current value.
      * @return current value as string.
      */
-    private String formatString()
+    String formatString()
     {
         if (valueAsString == null)
         {
-            String s = String.valueOf(value);
-            boolean simpleFormat = s.indexOf('E') < 0;
-            valueAsString = simpleFormat ? s
-                    : new BigDecimal(s).stripTrailingZeros().toPlainString();
+            valueAsString = format(value);
         }
         return valueAsString;
     }
 
+    /**
+     * Returns the string representation of the given value, which is written if there isn't any source text.
+     *
+     * @param value the value
+     * @return the value as string
+     */
+    static String format(float value)
+    {
+        String s = String.valueOf(value);
+        boolean simpleFormat = s.indexOf('E') < 0;
+        return simpleFormat ? s : new BigDecimal(s).stripTrailingZeros().toPlainString();
+    }
+
     /**
      * Visitor pattern double dispatch method.
      *
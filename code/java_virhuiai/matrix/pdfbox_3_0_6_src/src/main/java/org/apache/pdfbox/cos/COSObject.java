@@ -30,7 +30,7 @@ import org.apache.commons.logging.LogFactory;
 public class COSObject extends COSBase implements COSUpdateInfo
 {
     private COSBase baseObject;
-    private ICOSParser parser;
+    private volatile ICOSParser parser;
     private boolean isDereferenced = false;
     private final COSUpdateState updateState;
     
@@ -107,6 +107,20 @@ public class COSObject extends COSBase implements COSUpdateInfo
      * @return The encapsulated object.
      */
     public COSBase getObject()
+    {
+        ICOSParser currentParser = parser;
+        if (currentParser != null && currentParser.isConcurrentDereferencingSupported())
+        {
+            // other threads have to wait until the object is dereferenced instead of getting null
+            synchronized (this)
+            {
+                return dereferenceObject();
+            }
+        }
+        return dereferenceObject();
+    }
+
+    private COSBase dereferenceObject()
     {
         if (!isDereferenced && parser != null)
         {
@@ -55,6 +55,8 @@ public class COSStream extends COSDictionary implements Closeable
     private boolean isWriting;
     // random access view to be read from
     private RandomAccessReadView randomAccessReadView;
+    // true if the data may be read by several threads at the same time
+    private boolean concurrentReads;
     
     private static final Log LOG = LogFactory.getLog(COSStream.class);
     
@@ -98,6 +100,18 @@ public class COSStream extends COSDictionary implements Closeable
         setInt(COSName.LENGTH, (int) randomAccessReadView.length());
     }
 
+    /**
+     * Sets whether the data of this stream may be read by several threads at the same time. The view of a parsed
+     * stream supports this by itself, but data which replaced it, e.g. after the decryption of the stream, is read
+     * from a buffer which is shared by all input streams.
+     *
+     * @param concurrentReads true if the data may be read by several threads
+     */
+    void setConcurrentReads(boolean concurrentReads)
+    {
+        this.concurrentReads = concurrentReads;
+    }
+
     /**
      * Throws if the random access backing store has been closed. Helpful for catching cases where
      * a user tries to use a COSStream which has outlived its COSDocument.
@@ -149,6 +163,10 @@ public class COSStream extends COSDictionary implements Closeable
                         "Create InputStream called without data being written before to stream.");
             }
         }
+        else if (concurrentReads)
+        {
+            return new SynchronizedRandomAccessInputStream(randomAccess);
+        }
         else
         {
             return new RandomAccessInputStream(randomAccess);
@@ -431,4 +449,55 @@ public class COSStream extends COSDictionary implements Closeable
     {
         return randomAccess != null || randomAccessReadView != null;
     }
+
+    /**
+     * An input stream which seeks and reads within one lock of the given buffer, so that several input streams of the
+     * same buffer can be read by different threads.
+     */
+    private static final class SynchronizedRandomAccessInputStream extends RandomAccessInputStream
+    {
+        private final RandomAccess buffer;
+
+        SynchronizedRandomAccessInputStream(RandomAccess buffer)
+        {
+            super(buffer);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            synchronized (buffer)
+            {
+                return super.available();
+            }
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            synchronized (buffer)
+            {
+                return super.read();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            synchronized (buffer)
+            {
+                return super.read(b, off, len);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            synchronized (buffer)
+            {
+                return super.skip(n);
+            }
+        }
+    }
 }
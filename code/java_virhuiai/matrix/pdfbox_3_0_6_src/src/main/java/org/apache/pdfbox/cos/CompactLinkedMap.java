@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A map which keeps the insertion order like a {@link LinkedHashMap}, but stores up to {@link #MAX_ARRAY_SIZE} entries
+ * in a flat array of keys and values, which are looked up linearly. Most dictionaries of a PDF have only a few entries,
+ * the array uses a fraction of the memory of a hash map with its entry objects. The entries are moved to a
+ * {@link LinkedHashMap} when the map grows beyond that size.
+ *
+ * <p>
+ * The views of the map support removal like the ones of a hash map, their iterators are fail-fast. The map isn't
+ * thread safe.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class CompactLinkedMap<K, V> extends AbstractMap<K, V>
+{
+    /**
+     * The maximum number of entries stored in the array.
+     */
+    static final int MAX_ARRAY_SIZE = 8;
+
+    private static final Object[] EMPTY = {};
+
+    // what the iterators of the array return
+    private static final int KEYS = 0;
+    private static final int VALUES = 1;
+    private static final int ENTRIES = 2;
+
+    // keys and values alternately, null if the entries are stored in the hash map
+    private Object[] table = EMPTY;
+    private int size = 0;
+    private LinkedHashMap<K, V> map = null;
+    private int modCount = 0;
+
+    /**
+     * Creates an empty map.
+     */
+    CompactLinkedMap()
+    {
+    }
+
+    @Override
+    public int size()
+    {
+        return map != null ? map.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return map != null ? map.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        if (map != null)
+        {
+            return map.containsValue(value);
+        }
+        for (int i = 1; i < size * 2; i += 2)
+        {
+            if (value == null ? table[i] == null : value.equals(table[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key)
+    {
+        if (map != null)
+        {
+            return map.get(key);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (V) table[index + 1] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value)
+    {
+        if (map != null)
+        {
+            return map.put(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0)
+        {
+            V previous = (V) table[index + 1];
+            table[index + 1] = value;
+            return previous;
+        }
+        if (size == MAX_ARRAY_SIZE)
+        {
+            toHashMap(size + 1);
+            return map.put(key, value);
+        }
+        if (size * 2 == table.length)
+        {
+            table = Arrays.copyOf(table, Math.max(4, size * 4));
+        }
+        table[size * 2] = key;
+        table[size * 2 + 1] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other)
+    {
+        if (map == null)
+        {
+            int maxSize = size + other.size();
+            if (maxSize > MAX_ARRAY_SIZE)
+            {
+                toHashMap(maxSize);
+            }
+            else if (maxSize * 2 > table.length)
+            {
+                table = Arrays.copyOf(table, maxSize * 2);
+            }
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : other.entrySet())
+        {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key)
+    {
+        if (map != null)
+        {
+            return map.remove(key);
+        }
+        int index = indexOf(key);
+        if (index < 0)
+        {
+            return null;
+        }
+        V previous = (V) table[index + 1];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        map = null;
+        table = EMPTY;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action)
+    {
+        if (map != null)
+        {
+            map.forEach(action);
+            return;
+        }
+        int expectedModCount = modCount;
+        for (int i = 0; i < size * 2; i += 2)
+        {
+            action.accept((K) table[i], (V) table[i + 1]);
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public Set<K> keySet()
+    {
+        return new AbstractSet<K>()
+        {
+            @Override
+            public Iterator<K> iterator()
+            {
+                return map != null ? map.keySet().iterator() : new ArrayIterator<>(KEYS);
+            }
+
+            @Override
+            public int size()
+            {
+                return CompactLinkedMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key)
+            {
+                return containsKey(key);
+            }
+
+            @Override
+            public void clear()
+            {
+                CompactLinkedMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return map != null ? map.values().iterator() : new ArrayIterator<>(VALUES);
+            }
+
+            @Override
+            public int size()
+            {
+                return CompactLinkedMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object value)
+            {
+                return containsValue(value);
+            }
+
+            @Override
+            public void clear()
+            {
+                CompactLinkedMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<K, V>>()
+        {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator()
+            {
+                return map != null ? map.entrySet().iterator() : new ArrayIterator<>(ENTRIES);
+            }
+
+            @Override
+            public int size()
+            {
+                return CompactLinkedMap.this.size();
+            }
+
+            @Override
+            public void clear()
+            {
+                CompactLinkedMap.this.clear();
+            }
+        };
+    }
+
+    private int indexOf(Object key)
+    {
+        for (int i = 0; i < size * 2; i += 2)
+        {
+            Object current = table[i];
+            if (current == key || (key != null && key.equals(current)))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index)
+    {
+        System.arraycopy(table, index + 2, table, index, size * 2 - index - 2);
+        size--;
+        table[size * 2] = null;
+        table[size * 2 + 1] = null;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void toHashMap(int expectedSize)
+    {
+        LinkedHashMap<K, V> hashMap = new LinkedHashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+        for (int i = 0; i < size * 2; i += 2)
+        {
+            hashMap.put((K) table[i], (V) table[i + 1]);
+        }
+        map = hashMap;
+        table = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Iterates over the keys, values or entries of the array.
+     */
+    private final class ArrayIterator<E> implements Iterator<E>
+    {
+        private final int kind;
+        private int next = 0;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        private ArrayIterator(int kind)
+        {
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (map != null)
+            {
+                // the entries were moved to the hash map, the array is gone
+                throw new ConcurrentModificationException();
+            }
+            return next < size * 2;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next()
+        {
+            checkForComodification();
+            if (next >= size * 2)
+            {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += 2;
+            switch (kind)
+            {
+                case KEYS:
+                    return (E) table[last];
+                case VALUES:
+                    return (E) table[last + 1];
+                default:
+                    return (E) new ArrayEntry(last);
+            }
+        }
+
+        @Override
+        public void remove()
+        {
+            if (last < 0)
+            {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification()
+        {
+            if (modCount != expectedModCount || map != null)
+            {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * An entry of the array. The value is looked up by key if the entry was moved by a removal.
+     */
+    private final class ArrayEntry implements Map.Entry<K, V>
+    {
+        private final K key;
+        private final int index;
+
+        @SuppressWarnings("unchecked")
+        private ArrayEntry(int index)
+        {
+            this.key = (K) table[index];
+            this.index = index;
+        }
+
+        @Override
+        public K getKey()
+        {
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue()
+        {
+            if (map == null && index < size * 2 && table[index] == key)
+            {
+                return (V) table[index + 1];
+            }
+            return get(key);
+        }
+
+        @Override
+        public V setValue(V value)
+        {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Map.Entry))
+            {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            V value = getValue();
+            return (key == null ? other.getKey() == null : key.equals(other.getKey()))
+                    && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            V value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + getValue();
+        }
+    }
+}
@@ -43,4 +43,25 @@ public interface ICOSParser
     RandomAccessReadView createRandomAccessReadView(long startPosition, long streamLength)
             throws IOException;
 
+    /**
+     * Indicates if the parser is able to dereference objects from several threads at the same time. If so, each
+     * COSObject guards its own dereferencing instead of relying on the parser being used by one thread only.
+     * 
+     * @return true if objects may be dereferenced concurrently
+     */
+    default boolean isConcurrentDereferencingSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Releases the resources which the parser holds to dereference objects. This is called when the document is
+     * closed, objects aren't dereferenced afterwards.
+     * 
+     * @throws IOException if a resource couldn't be released
+     */
+    default void documentClosed() throws IOException
+    {
+    }
+
 }
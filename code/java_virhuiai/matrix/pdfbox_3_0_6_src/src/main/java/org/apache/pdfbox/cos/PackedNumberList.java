@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * The elements of an array which consists of numbers only, stored as primitives. Large number arrays like the widths
+ * of a font or the values of a function need a fraction of the memory of a list of {@link COSNumber} objects.
+ *
+ * <p>
+ * The {@link COSNumber} of an element is created when it is requested by {@link #get(int)} and kept, so that the same
+ * object is returned by subsequent calls. Iterators don't keep the numbers they create. Numbers are read without
+ * creating any objects by {@link #getInt(int)}, {@link #getFloat(int)}, {@link #toIntArray()} and
+ * {@link #toFloatArray()}. The source text of a float is kept if it differs from the formatted value, e.g. if it has
+ * more digits than a float, so that the array is written as it was read.
+ * </p>
+ *
+ * <p>
+ * The numbers are created and kept with compare-and-set, so that threads reading a shared array get the same object
+ * for an element. Removal isn't thread safe.
+ * </p>
+ *
+ * <p>
+ * The list supports removal only, {@link COSArray} replaces it with a list of objects before adding an element.
+ * </p>
+ */
+final class PackedNumberList extends AbstractList<COSBase> implements RandomAccess
+{
+    // the value of an integer or the bits of a float
+    private final int[] values;
+    // the indices of the floats, null if all numbers are integers
+    private final long[] floats;
+    // the source text of the floats which differs from their formatted value, null if there isn't any
+    private final String[] texts;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PackedNumberList, AtomicReferenceArray> OBJECTS =
+            AtomicReferenceFieldUpdater.newUpdater(PackedNumberList.class, AtomicReferenceArray.class, "objects");
+
+    // the requested numbers, allocated on first request
+    private volatile AtomicReferenceArray<COSBase> objects;
+    private int size;
+
+    private PackedNumberList(int[] values, long[] floats, String[] texts)
+    {
+        this.values = values;
+        this.floats = floats;
+        this.texts = texts;
+        this.size = values.length;
+    }
+
+    /**
+     * Packs the given numbers.
+     *
+     * @param list the elements of an array
+     * @return the packed numbers, or null if there is an element which isn't a number or an integer which doesn't fit
+     * into an int
+     */
+    static PackedNumberList of(List<COSBase> list)
+    {
+        int[] values = new int[list.size()];
+        long[] floats = null;
+        String[] texts = null;
+        for (int i = 0; i < values.length; i++)
+        {
+            COSBase base = list.get(i);
+            if (base instanceof COSInteger)
+            {
+                COSInteger integer = (COSInteger) base;
+                long value = integer.longValue();
+                if (!integer.isValid() || value != (int) value)
+                {
+                    return null;
+                }
+                values[i] = (int) value;
+            }
+            else if (base instanceof COSFloat)
+            {
+                if (floats == null)
+                {
+                    floats = new long[(values.length + 63) >>> 6];
+                }
+                floats[i >>> 6] |= 1L << i;
+                float value = ((COSFloat) base).floatValue();
+                values[i] = Float.floatToRawIntBits(value);
+                String text = ((COSFloat) base).formatString();
+                if (!text.equals(COSFloat.format(value)))
+                {
+                    if (texts == null)
+                    {
+                        texts = new String[values.length];
+                    }
+                    texts[i] = text;
+                }
+            }
+            else
+            {
+                return null;
+            }
+        }
+        return new PackedNumberList(values, floats, texts);
+    }
+
+    @Override
+    public COSBase get(int index)
+    {
+        checkIndex(index);
+        AtomicReferenceArray<COSBase> cache = getObjects();
+        COSBase object = cache.get(index);
+        if (object == null)
+        {
+            object = create(index);
+            if (!cache.compareAndSet(index, null, object))
+            {
+                // another thread created the number first
+                object = cache.get(index);
+            }
+        }
+        return object;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public COSBase remove(int index)
+    {
+        COSBase previous = get(index);
+        int moved = size - index - 1;
+        System.arraycopy(values, index + 1, values, index, moved);
+        AtomicReferenceArray<COSBase> cache = objects;
+        for (int i = index; i < size - 1; i++)
+        {
+            cache.set(i, cache.get(i + 1));
+        }
+        if (texts != null)
+        {
+            System.arraycopy(texts, index + 1, texts, index, moved);
+            texts[size - 1] = null;
+        }
+        if (floats != null)
+        {
+            for (int i = index; i < size - 1; i++)
+            {
+                setFloat(i, isFloat(i + 1));
+            }
+        }
+        size--;
+        cache.set(size, null);
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public Iterator<COSBase> iterator()
+    {
+        return new Iterator<COSBase>()
+        {
+            private int next = 0;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next < size;
+            }
+
+            @Override
+            public COSBase next()
+            {
+                checkForComodification();
+                if (next >= size)
+                {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                AtomicReferenceArray<COSBase> cache = objects;
+                COSBase object = cache != null ? cache.get(last) : null;
+                return object != null ? object : create(last);
+            }
+
+            @Override
+            public void remove()
+            {
+                if (last < 0)
+                {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                PackedNumberList.this.remove(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+
+            private void checkForComodification()
+            {
+                if (modCount != expectedModCount)
+                {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the value of an element as int.
+     *
+     * @param index the index of the element
+     * @return the value, floats are truncated like by {@link COSFloat#intValue()}
+     */
+    int getInt(int index)
+    {
+        checkIndex(index);
+        return isFloat(index) ? (int) Float.intBitsToFloat(values[index]) : values[index];
+    }
+
+    /**
+     * Returns the value of an element as float.
+     *
+     * @param index the index of the element
+     * @return the value
+     */
+    float getFloat(int index)
+    {
+        checkIndex(index);
+        return isFloat(index) ? Float.intBitsToFloat(values[index]) : values[index];
+    }
+
+    /**
+     * Returns the values of all elements as int.
+     *
+     * @return the values, floats are truncated like by {@link COSFloat#intValue()}
+     */
+    int[] toIntArray()
+    {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = isFloat(i) ? (int) Float.intBitsToFloat(values[i]) : values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values of all elements as float.
+     *
+     * @return the values
+     */
+    float[] toFloatArray()
+    {
+        float[] result = new float[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = isFloat(i) ? Float.intBitsToFloat(values[i]) : values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the elements as a modifiable list of objects. The numbers which were requested before are kept.
+     *
+     * @return a new list of the elements
+     */
+    List<COSBase> toObjectList()
+    {
+        List<COSBase> list = new ArrayList<>(Math.max(10, size));
+        for (int i = 0; i < size; i++)
+        {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    private AtomicReferenceArray<COSBase> getObjects()
+    {
+        AtomicReferenceArray<COSBase> cache = objects;
+        if (cache == null)
+        {
+            OBJECTS.compareAndSet(this, null, new AtomicReferenceArray<COSBase>(values.length));
+            cache = objects;
+        }
+        return cache;
+    }
+
+    private COSBase create(int index)
+    {
+        if (!isFloat(index))
+        {
+            return COSInteger.get(values[index]);
+        }
+        float value = Float.intBitsToFloat(values[index]);
+        String text = texts != null ? texts[index] : null;
+        return text != null ? new COSFloat(value, text) : new COSFloat(value);
+    }
+
+    private boolean isFloat(int index)
+    {
+        return floats != null && (floats[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void setFloat(int index, boolean isFloat)
+    {
+        if (isFloat)
+        {
+            floats[index >>> 6] |= 1L << index;
+        }
+        else
+        {
+            floats[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
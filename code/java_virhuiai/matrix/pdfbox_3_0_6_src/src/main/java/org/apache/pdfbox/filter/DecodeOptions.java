@@ -37,6 +37,7 @@ public class DecodeOptions
     private int subsamplingOffsetX = 0;
     private int subsamplingOffsetY = 0;
     private boolean filterSubsampled = false;
+    private long decodedRowLength = 0;
 
     /**
      * Constructs an empty DecodeOptions instance
@@ -189,6 +190,29 @@ public class DecodeOptions
         this.subsamplingOffsetY = ssOffsetY;
     }
 
+    /**
+     * The number of bytes of a decoded row of the image, or 0 if it isn't known.
+     *
+     * @return the length of a decoded row in bytes
+     */
+    public long getDecodedRowLength()
+    {
+        return decodedRowLength;
+    }
+
+    /**
+     * Sets the number of bytes of a decoded row of the image. Filters which can't apply the source
+     * region, e.g. the Flate filter, use it to stop decoding after the last row of the region. The
+     * flag returned by {@link #isFilterSubsampled()} isn't set by those filters, so that the caller
+     * still has to clip and subsample the decoded rows.
+     *
+     * @param decodedRowLength the length of a decoded row in bytes, or 0 if it isn't known
+     */
+    public void setDecodedRowLength(long decodedRowLength)
+    {
+        this.decodedRowLength = decodedRowLength;
+    }
+
     /**
      * Flag used by the filter to specify if it performed subsampling.
      *
@@ -255,6 +279,12 @@ public class DecodeOptions
             throw new UnsupportedOperationException("This instance may not be modified.");
         }
 
+        @Override
+        public void setDecodedRowLength(long decodedRowLength)
+        {
+            throw new UnsupportedOperationException("This instance may not be modified.");
+        }
+
         @Override
         void setFilterSubsampled(boolean filterSubsampled)
         {
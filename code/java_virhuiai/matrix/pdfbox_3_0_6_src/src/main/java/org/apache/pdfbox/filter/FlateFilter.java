@@ -16,12 +16,17 @@
  */
 package org.apache.pdfbox.filter;
 
+import java.awt.Rectangle;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.io.IOUtils;
 
 /**
@@ -48,6 +53,62 @@ final class FlateFilter extends Filter
         return new DecodeResult(parameters);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * If this is the last filter of an image and the options provide the source region and the
+     * length of a decoded row, the stream is only inflated up to the last row of the region.
+     * </p>
+     */
+    @Override
+    public DecodeResult decode(InputStream encoded, OutputStream decoded,
+            COSDictionary parameters, int index, DecodeOptions options) throws IOException
+    {
+        long limit = getDecodedLengthLimit(parameters, index, options);
+        if (limit < 0)
+        {
+            return decode(encoded, decoded, parameters, index);
+        }
+        final COSDictionary decodeParams = getDecodeParams(parameters, index);
+
+        try (FlateFilterDecoderStream decoderStream = new FlateFilterDecoderStream(encoded))
+        {
+            LimitedOutputStream limited = new LimitedOutputStream(decoded, limit);
+            OutputStream wrapPredictor = Predictor.wrapPredictor(limited, decodeParams);
+            byte[] buffer = new byte[4096];
+            int n;
+            while (!limited.isFull() && (n = decoderStream.read(buffer)) != -1)
+            {
+                wrapPredictor.write(buffer, 0, n);
+            }
+            wrapPredictor.flush();
+        }
+        return new DecodeResult(parameters);
+    }
+
+    /**
+     * Returns the number of decoded bytes up to the last row of the source region, or -1 if the
+     * whole stream has to be decoded.
+     */
+    private static long getDecodedLengthLimit(COSDictionary parameters, int index,
+            DecodeOptions options)
+    {
+        Rectangle region = options.getSourceRegion();
+        long rowLength = options.getDecodedRowLength();
+        if (region == null || rowLength <= 0)
+        {
+            return -1;
+        }
+        // the rows are only known after the last filter
+        COSBase filters = parameters.getDictionaryObject(COSName.F, COSName.FILTER);
+        if (filters instanceof COSArray && index != ((COSArray) filters).size() - 1)
+        {
+            return -1;
+        }
+        return ((long) region.y + region.height) * rowLength;
+    }
+
     
     @Override
     protected void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
@@ -62,4 +123,44 @@ final class FlateFilter extends Filter
         encoded.flush();
         deflater.end();
     }
+
+    /**
+     * Writes up to the given number of bytes and discards the remaining ones.
+     */
+    private static final class LimitedOutputStream extends FilterOutputStream
+    {
+        private long remaining;
+
+        private LimitedOutputStream(OutputStream out, long limit)
+        {
+            super(out);
+            remaining = limit;
+        }
+
+        private boolean isFull()
+        {
+            return remaining <= 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            if (remaining > 0)
+            {
+                out.write(b);
+                remaining--;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            int count = (int) Math.min(len, remaining);
+            if (count > 0)
+            {
+                out.write(b, off, count);
+                remaining -= count;
+            }
+        }
+    }
 }
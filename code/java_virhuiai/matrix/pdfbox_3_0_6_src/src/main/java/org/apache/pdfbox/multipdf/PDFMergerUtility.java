@@ -18,6 +18,7 @@ package org.apache.pdfbox.multipdf;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -78,6 +79,7 @@ import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlin
 import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
 import org.apache.pdfbox.pdmodel.interactive.form.PDField;
 import org.apache.pdfbox.pdmodel.interactive.viewerpreferences.PDViewerPreferences;
+import org.apache.pdfbox.util.ParallelUtil;
 
 /**
  * This class will take a list of pdf documents and merge them, saving the
@@ -101,6 +103,7 @@ public class PDFMergerUtility
 
     private DocumentMergeMode documentMergeMode = DocumentMergeMode.PDFBOX_LEGACY_MODE;
     private AcroFormMergeMode acroFormMergeMode = AcroFormMergeMode.PDFBOX_LEGACY_MODE;
+    private int parallelism = 1;
     
     /**
      * The mode to use when merging documents:
@@ -115,12 +118,19 @@ public class PDFMergerUtility
      * <li>{@link DocumentMergeMode#PDFBOX_LEGACY_MODE} Keeps all files open until the
      *      merge has been completed. This is  currently necessary to merge documents
      *      containing a Structure Tree.
+     * <li>{@link DocumentMergeMode#STREAMING_MODE} Merges the same elements as
+     *      OPTIMIZE_RESOURCES_MODE, but writes the pages of each source document to the destination
+     *      as soon as the source has been processed, so that the memory used doesn't depend on the
+     *      number of source documents. The source documents are loaded and cloned by
+     *      {@link #setParallelism(int) several threads}. The destination is written without
+     *      compressed object streams.
      * </ul>
      */
     public enum DocumentMergeMode
     {
         OPTIMIZE_RESOURCES_MODE,
-        PDFBOX_LEGACY_MODE
+        PDFBOX_LEGACY_MODE,
+        STREAMING_MODE
     }
     
     /**
@@ -198,6 +208,35 @@ public class PDFMergerUtility
         this.documentMergeMode = theDocumentMergeMode;
     }
 
+    /**
+     * Get the number of threads used to load and clone the source documents in
+     * {@link DocumentMergeMode#STREAMING_MODE}.
+     *
+     * @return the number of threads
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Set the number of threads used to load and clone the source documents in
+     * {@link DocumentMergeMode#STREAMING_MODE}. At most twice as many source documents are held in
+     * memory at the same time. The default is 1, i.e. a single thread loads the sources while the
+     * calling thread writes the destination.
+     *
+     * @param parallelism the number of threads
+     * @throws IllegalArgumentException if the number of threads is less than 1
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
     /**
      * Get the name of the destination file.
      *
@@ -370,6 +409,14 @@ public class PDFMergerUtility
         {
             optimizedMergeDocuments(streamCacheCreateFunction, compressParameters);
         }
+        else if (documentMergeMode == DocumentMergeMode.STREAMING_MODE)
+        {
+            if (destinationStream == null && destinationFileName == null)
+            {
+                throw new IllegalStateException("Neither a destination file name nor a destination stream is set");
+            }
+            streamingMergeDocuments(streamCacheCreateFunction);
+        }
     }
     
     private void optimizedMergeDocuments(StreamCacheCreateFunction streamCacheCreateFunction,
@@ -396,23 +443,7 @@ public class PDFMergerUtility
                     }
                     for (PDPage page : sourceDoc.getPages())
                     {
-                        PDPage newPage = new PDPage(cloner.cloneForNewDocument(page.getCOSObject()));
-                        newPage.setCropBox(page.getCropBox());
-                        newPage.setMediaBox(page.getMediaBox());
-                        newPage.setRotation(page.getRotation());
-                        PDResources resources = page.getResources();
-                        if (resources != null)
-                        {
-                            // this is smart enough to just create references for resources that are used on multiple
-                            // pages
-                            newPage.setResources(new PDResources(
-                                    cloner.cloneForNewDocument(resources.getCOSObject())));
-                        }
-                        else
-                        {
-                            newPage.setResources(new PDResources());
-                        }
-                        destinationPageTree.add(newPage);
+                        destinationPageTree.add(clonePage(cloner, page));
                     }
                 }
                 finally
@@ -433,6 +464,129 @@ public class PDFMergerUtility
     }
     
     
+    private PDPage clonePage(PDFCloneUtility cloner, PDPage page) throws IOException
+    {
+        PDPage newPage = new PDPage(cloner.cloneForNewDocument(page.getCOSObject()));
+        newPage.setCropBox(page.getCropBox());
+        newPage.setMediaBox(page.getMediaBox());
+        newPage.setRotation(page.getRotation());
+        PDResources resources = page.getResources();
+        if (resources != null)
+        {
+            // this is smart enough to just create references for resources that are used on multiple
+            // pages
+            newPage.setResources(new PDResources(
+                    cloner.cloneForNewDocument(resources.getCOSObject())));
+        }
+        else
+        {
+            newPage.setResources(new PDResources());
+        }
+        return newPage;
+    }
+
+    private void streamingMergeDocuments(StreamCacheCreateFunction streamCacheCreateFunction)
+            throws IOException
+    {
+        StreamCacheCreateFunction strmCacheFunc = streamCacheCreateFunction != null ? streamCacheCreateFunction
+                : IOUtils.createMemoryOnlyStreamCache();
+        OutputStream output = destinationStream;
+        try
+        {
+            if (output == null)
+            {
+                output = new FileOutputStream(destinationFileName);
+            }
+            StreamingPageWriter writer = new StreamingPageWriter(output);
+            float[] version = { 1.4f };
+            ParallelUtil.forEachOrdered("PDFMergerUtility", parallelism, sources.size(),
+                    index ->
+                    {
+                        Object sourceObject = sources.get(index);
+                        return () -> cloneSource(sourceObject, strmCacheFunc);
+                    }, (index, clonedSource) ->
+                    {
+                        try
+                        {
+                            writer.writePages(clonedSource.pages);
+                            version[0] = Math.max(version[0], clonedSource.version);
+                        }
+                        finally
+                        {
+                            IOUtils.closeQuietly(clonedSource.document);
+                        }
+                    }, clonedSource -> IOUtils.closeQuietly(clonedSource.document));
+            writer.finish(version[0] > 1.4f ? String.valueOf(version[0]) : null,
+                    destinationDocumentInformation != null
+                            ? destinationDocumentInformation.getCOSObject() : null,
+                    destinationMetadata != null ? destinationMetadata.getCOSObject() : null);
+        }
+        finally
+        {
+            if (destinationStream == null)
+            {
+                IOUtils.closeQuietly(output);
+            }
+        }
+    }
+
+    /**
+     * Loads the given source and clones its pages into a new document, used by the threads of the
+     * streaming merge. The source is closed before returning.
+     */
+    private ClonedSource cloneSource(Object sourceObject, StreamCacheCreateFunction streamCacheCreateFunction)
+            throws IOException
+    {
+        PDDocument destination = new PDDocument(streamCacheCreateFunction);
+        try (PDDocument sourceDoc = loadSource(sourceObject, streamCacheCreateFunction))
+        {
+            PDFCloneUtility cloner = new PDFCloneUtility(destination);
+            PDPageTree pages = sourceDoc.getPages();
+            List<COSDictionary> clonedPages = new ArrayList<>(pages.getCount());
+            for (PDPage page : pages)
+            {
+                clonedPages.add(clonePage(cloner, page).getCOSObject());
+            }
+            return new ClonedSource(destination, clonedPages, sourceDoc.getVersion());
+        }
+        catch (IOException | RuntimeException e)
+        {
+            IOUtils.closeQuietly(destination);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the given source of the streaming merge, which is either a file or a RandomAccessRead, using the given
+     * stream cache. The other modes load their sources as before.
+     */
+    private static PDDocument loadSource(Object sourceObject, StreamCacheCreateFunction streamCacheCreateFunction)
+            throws IOException
+    {
+        if (sourceObject instanceof File)
+        {
+            return Loader.loadPDF((File) sourceObject, streamCacheCreateFunction);
+        }
+        return Loader.loadPDF((RandomAccessRead) sourceObject, streamCacheCreateFunction);
+    }
+
+    /**
+     * The pages of a source document cloned into a new document.
+     */
+    private static final class ClonedSource
+    {
+        private final PDDocument document;
+        private final List<COSDictionary> pages;
+        private final float version;
+
+        private ClonedSource(PDDocument document, List<COSDictionary> pages, float version)
+        {
+            this.document = document;
+            this.pages = pages;
+            this.version = version;
+        }
+    }
+
     /**
      * Merge the list of source documents, saving the result in the destination file.
      *
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.multipdf;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,6 +34,7 @@ import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
@@ -89,11 +91,34 @@ public class Splitter
     private Map<PDPageDestination,PDPage> destToFixMap;
     private Set<String> idSet;
     private Set<COSName> roleSet;
+    private Map<Integer, COSObjectable> srcNumberTreeAsMap; // parent tree of the source, read once per split
 
     private int currentPageNumber;
 
     private StreamCacheCreateFunction streamCacheCreateFunction = null;
 
+    // streaming mode: the destination documents are written as soon as they are complete
+    private OutputStreamCreateFunction outputStreamCreateFunction;
+    private int writtenDocumentCount;
+
+    /**
+     * Function to create the output stream of a split document, see
+     * {@link Splitter#split(PDDocument, OutputStreamCreateFunction)}.
+     */
+    @FunctionalInterface
+    public interface OutputStreamCreateFunction
+    {
+        /**
+         * Creates the output stream of the split document with the given index. The splitter closes the stream after
+         * the document has been written.
+         *
+         * @param index the 0-based index of the split document
+         * @return the output stream
+         * @throws IOException if the output stream can't be created
+         */
+        OutputStream create(int index) throws IOException;
+    }
+
     /**
      * @return the current function to be used to create an instance of stream cache.
      */
@@ -135,6 +160,7 @@ public class Splitter
         destToFixMap = new HashMap<>();
         idSet = new HashSet<>();
         roleSet = new HashSet<>();
+        srcNumberTreeAsMap = null;
 
         processPages();
 
@@ -150,6 +176,86 @@ public class Splitter
         return destinationDocuments;
     }
 
+    /**
+     * This will take a document and split it into several other documents, which are written to the output streams
+     * created by the given function as soon as they are complete. Only the split document which is currently
+     * created is held in memory, so that the memory used doesn't depend on the number of split documents. The split
+     * documents share the objects of the source document which aren't changed by the splitter, they are closed after
+     * they have been written.
+     *
+     * <p>The split documents are written one at a time by the calling thread, as
+     * {@link org.apache.pdfbox.pdfwriter.COSWriter} assigns object keys to the shared objects it writes.</p>
+     *
+     * <p>The source document must not be closed or modified until this method returns.</p>
+     *
+     * @param document The document to split.
+     * @param outputStreamCreateFunction The function creating the output stream of each split document.
+     *
+     * @return the number of split documents
+     *
+     * @throws IOException If there is an IOError
+     */
+    public int split(PDDocument document, OutputStreamCreateFunction outputStreamCreateFunction)
+            throws IOException
+    {
+        currentPageNumber = 0;
+        currentDestinationDocument = null;
+        sourceDocument = document;
+        destToFixMap = new HashMap<>();
+        idSet = new HashSet<>();
+        roleSet = new HashSet<>();
+        srcNumberTreeAsMap = null;
+        this.outputStreamCreateFunction = outputStreamCreateFunction;
+        writtenDocumentCount = 0;
+        try
+        {
+            processPages();
+            if (currentDestinationDocument != null)
+            {
+                writeDestinationDocument();
+            }
+            return writtenDocumentCount;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(currentDestinationDocument);
+            currentDestinationDocument = null;
+            this.outputStreamCreateFunction = null;
+        }
+    }
+
+    /**
+     * Finishes the current destination document in streaming mode and writes it.
+     *
+     * @throws IOException If the document can't be written.
+     */
+    private void writeDestinationDocument() throws IOException
+    {
+        PDDocument destinationDocument = currentDestinationDocument;
+        cloneStructureTree(destinationDocument);
+        fixDestinations(destinationDocument);
+        // the following documents don't contain any of the pages of this one
+        destToFixMap.clear();
+        idSet.clear();
+        roleSet.clear();
+        currentDestinationDocument = null;
+
+        OutputStream output;
+        try
+        {
+            output = outputStreamCreateFunction.create(writtenDocumentCount++);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            IOUtils.closeQuietly(destinationDocument);
+            throw e;
+        }
+        try (PDDocument closedDocument = destinationDocument; OutputStream closedOutput = output)
+        {
+            closedDocument.save(closedOutput);
+        }
+    }
+
     /**
      * Replace the page destinations, if the source and destination pages are in the target
      * document. This must be called after all pages (and its annotations) are processed.
@@ -207,8 +313,10 @@ public class Splitter
         dstStructureTreeRoot.setK(k2);
 
         // transfer ParentTree using the map because the dictionaries are all found in the /K structure.
-        PDNumberTreeNode srcParentTree = srcStructureTreeRoot.getParentTree();
-        Map<Integer, COSObjectable> srcNumberTreeAsMap = PDFMergerUtility.getNumberTreeAsMap(srcParentTree);
+        if (srcNumberTreeAsMap == null)
+        {
+            srcNumberTreeAsMap = PDFMergerUtility.getNumberTreeAsMap(srcStructureTreeRoot.getParentTree());
+        }
         Map<Integer, COSObjectable> dstNumberTreeAsMap = new LinkedHashMap<>();
         for (int p = 0; p < dstPageTree.getCount(); ++p)
         {
@@ -706,7 +814,20 @@ public class Splitter
      */
     private void createNewDocumentIfNecessary() throws IOException
     {
-        if (splitAtPage(currentPageNumber) || currentDestinationDocument == null)
+        if (outputStreamCreateFunction != null)
+        {
+            if (splitAtPage(currentPageNumber) || currentDestinationDocument == null)
+            {
+                if (currentDestinationDocument != null)
+                {
+                    writeDestinationDocument();
+                }
+                currentDestinationDocument = createNewDocument();
+                pageDictMap = new HashMap<>();
+                annotDictMap = new HashMap<>();
+            }
+        }
+        else if (splitAtPage(currentPageNumber) || currentDestinationDocument == null)
         {
             currentDestinationDocument = createNewDocument();
             destinationDocuments.add(currentDestinationDocument);
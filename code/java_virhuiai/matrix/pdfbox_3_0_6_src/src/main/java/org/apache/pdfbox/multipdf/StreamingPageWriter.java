@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.multipdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdfwriter.COSStandardOutputStream;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+
+/**
+ * Writes the pages of merged documents to an output stream as soon as they are available. In contrast to
+ * {@link COSWriter} only the object numbers of the pages are kept until the end, the objects of a source document
+ * are forgotten after its pages have been written, so that the memory used doesn't depend on the number of merged documents.
+ *
+ * <p>The pages have to be cloned, i.e. they must not contain indirect references of a source document. Pages, streams
+ * and dictionaries which are referenced more than once are written as indirect objects, all other dictionaries and
+ * arrays are written as direct objects. The result uses a classic cross reference table without compression and
+ * encryption.</p>
+ */
+final class StreamingPageWriter
+{
+    private static final Log LOG = LogFactory.getLog(StreamingPageWriter.class);
+
+    private static final byte[] HEADER = "%PDF-1.4".getBytes(StandardCharsets.US_ASCII);
+    private static final long CATALOG_NUMBER = 1;
+    private static final long PAGES_NUMBER = 2;
+
+    private final COSStandardOutputStream output;
+    private final COSDictionary pagesRoot = new COSDictionary();
+
+    // the offsets of all written objects, indexed by the object number
+    private long[] offsets = new long[1024];
+    private long nextNumber = PAGES_NUMBER + 1;
+
+    // the object numbers of the pages
+    private long[] pageNumbers = new long[256];
+    private int pageCount = 0;
+
+    // the object numbers of the objects of the current source
+    private Map<COSBase, Long> objectNumbers = new IdentityHashMap<>();
+    // the number of references to the dictionaries and arrays of the current source
+    private Map<COSBase, Integer> referenceCounts = new IdentityHashMap<>();
+    private final Deque<COSBase> objectsToWrite = new ArrayDeque<>();
+    private final Set<COSArray> arraysInProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Constructor, writes the header of the pdf.
+     *
+     * @param outputStream the output stream of the merged pdf
+     * @throws IOException if the header can't be written
+     */
+    StreamingPageWriter(OutputStream outputStream) throws IOException
+    {
+        output = new COSStandardOutputStream(outputStream);
+        output.write(HEADER);
+        output.writeEOL();
+        output.write(COSWriter.COMMENT);
+        output.write(COSWriter.GARBAGE);
+        output.writeEOL();
+    }
+
+    /**
+     * Writes the given pages of a source document including all the objects they reference. The parent of the pages
+     * is replaced with the root of the page tree of the merged pdf. Afterwards the objects of the source are
+     * forgotten, i.e. the pages of different sources don't share any objects.
+     *
+     * @param pages the cloned page dictionaries of a source document
+     * @throws IOException if the pages can't be written
+     */
+    void writePages(List<COSDictionary> pages) throws IOException
+    {
+        // replace the parents first, as pages may reference each other, e.g. by link annotations
+        for (COSDictionary page : pages)
+        {
+            page.setItem(COSName.PARENT, pagesRoot);
+            referenceCounts.put(page, 1);
+        }
+        for (COSDictionary page : pages)
+        {
+            countChildReferences(page);
+        }
+        for (COSDictionary page : pages)
+        {
+            long number = getObjectNumber(page);
+            writeObjects();
+            if (pageCount == pageNumbers.length)
+            {
+                pageNumbers = Arrays.copyOf(pageNumbers, pageCount * 2);
+            }
+            pageNumbers[pageCount++] = number;
+        }
+        objectNumbers = new IdentityHashMap<>();
+        referenceCounts = new IdentityHashMap<>();
+    }
+
+    /**
+     * Writes the page tree, the catalog, the cross reference table and the trailer.
+     *
+     * @param version the version of the merged pdf
+     * @param info the document information, may be null
+     * @param metadata the metadata stream, may be null
+     * @throws IOException if the data can't be written
+     */
+    void finish(String version, COSDictionary info, COSStream metadata) throws IOException
+    {
+        // the kids are written directly to avoid creating an array with the references of all pages
+        setOffset(PAGES_NUMBER);
+        writeObjectStart(PAGES_NUMBER);
+        output.write(COSWriter.DICT_OPEN);
+        COSName.TYPE.writePDF(output);
+        output.write(COSWriter.SPACE);
+        COSName.PAGES.writePDF(output);
+        output.writeEOL();
+        COSName.COUNT.writePDF(output);
+        output.write(COSWriter.SPACE);
+        COSInteger.get(pageCount).writePDF(output);
+        output.writeEOL();
+        COSName.KIDS.writePDF(output);
+        output.write(COSWriter.SPACE);
+        output.write(COSWriter.ARRAY_OPEN);
+        for (int i = 0; i < pageCount; i++)
+        {
+            writeReference(pageNumbers[i]);
+            if (i % 10 == 9)
+            {
+                output.writeEOL();
+            }
+            else
+            {
+                output.write(COSWriter.SPACE);
+            }
+        }
+        output.write(COSWriter.ARRAY_CLOSE);
+        output.writeEOL();
+        output.write(COSWriter.DICT_CLOSE);
+        writeObjectEnd();
+
+        COSDictionary catalog = new COSDictionary();
+        catalog.setItem(COSName.TYPE, COSName.CATALOG);
+        catalog.setItem(COSName.PAGES, pagesRoot);
+        if (version != null)
+        {
+            catalog.setItem(COSName.VERSION, COSName.getPDFName(version));
+        }
+        if (metadata != null)
+        {
+            catalog.setItem(COSName.METADATA, metadata);
+        }
+        countChildReferences(catalog);
+        if (info != null)
+        {
+            countChildReferences(info);
+        }
+        objectNumbers.put(catalog, CATALOG_NUMBER);
+        objectsToWrite.add(catalog);
+        long infoNumber = info != null ? getObjectNumber(info) : 0;
+        writeObjects();
+
+        long startxref = output.getPos();
+        output.write(COSWriter.XREF);
+        output.writeEOL();
+        output.write(("0 " + nextNumber).getBytes(StandardCharsets.ISO_8859_1));
+        output.writeEOL();
+        output.write("0000000000 65535 f".getBytes(StandardCharsets.ISO_8859_1));
+        output.writeCRLF();
+        for (long number = 1; number < nextNumber; number++)
+        {
+            output.write(String.format("%010d 00000 n", offsets[(int) number])
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            output.writeCRLF();
+        }
+
+        output.write(COSWriter.TRAILER);
+        output.writeEOL();
+        output.write(COSWriter.DICT_OPEN);
+        COSName.SIZE.writePDF(output);
+        output.write(COSWriter.SPACE);
+        COSInteger.get(nextNumber).writePDF(output);
+        output.writeEOL();
+        COSName.ROOT.writePDF(output);
+        output.write(COSWriter.SPACE);
+        writeReference(CATALOG_NUMBER);
+        output.writeEOL();
+        if (infoNumber != 0)
+        {
+            COSName.INFO.writePDF(output);
+            output.write(COSWriter.SPACE);
+            writeReference(infoNumber);
+            output.writeEOL();
+        }
+        output.write(COSWriter.DICT_CLOSE);
+        output.writeEOL();
+        output.write(COSWriter.STARTXREF);
+        output.writeEOL();
+        output.write(String.valueOf(startxref).getBytes(StandardCharsets.ISO_8859_1));
+        output.writeEOL();
+        output.write(COSWriter.EOF);
+        output.writeEOL();
+        output.flush();
+    }
+
+    /**
+     * Returns the object number of the given object. A new number is assigned to objects which weren't written yet
+     * and the object is added to the objects to be written.
+     */
+    private long getObjectNumber(COSBase object)
+    {
+        Long number = objectNumbers.get(object);
+        if (number == null)
+        {
+            number = nextNumber++;
+            objectNumbers.put(object, number);
+            objectsToWrite.add(object);
+        }
+        return number;
+    }
+
+    /**
+     * Counts the references to the dictionaries and arrays reachable from the given object, so that dictionaries which
+     * are referenced only once can be written as direct objects. Direct arrays are written for every reference, so
+     * that their elements are counted for every reference as well.
+     */
+    private void countChildReferences(COSBase object)
+    {
+        Iterable<COSBase> values;
+        if (object instanceof COSDictionary)
+        {
+            values = ((COSDictionary) object).getValues();
+        }
+        else if (object instanceof COSArray)
+        {
+            if (!arraysInProgress.add((COSArray) object))
+            {
+                return;
+            }
+            values = (COSArray) object;
+        }
+        else
+        {
+            return;
+        }
+        for (COSBase value : values)
+        {
+            if (value instanceof COSObject)
+            {
+                value = ((COSObject) value).getObject();
+            }
+            if ((value instanceof COSDictionary || value instanceof COSArray) && value != pagesRoot
+                    && (referenceCounts.merge(value, 1, Integer::sum) == 1 || value instanceof COSArray))
+            {
+                countChildReferences(value);
+            }
+        }
+        if (object instanceof COSArray)
+        {
+            arraysInProgress.remove(object);
+        }
+    }
+
+    private void writeObjects() throws IOException
+    {
+        while (!objectsToWrite.isEmpty())
+        {
+            COSBase object = objectsToWrite.removeFirst();
+            long number = objectNumbers.get(object);
+            setOffset(number);
+            writeObjectStart(number);
+            if (object instanceof COSStream)
+            {
+                writeStream((COSStream) object);
+            }
+            else
+            {
+                writeDirect(object);
+            }
+            writeObjectEnd();
+        }
+    }
+
+    private void setOffset(long number)
+    {
+        if (number >= offsets.length)
+        {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, (int) number + 1));
+        }
+        offsets[(int) number] = output.getPos();
+    }
+
+    private void writeObjectStart(long number) throws IOException
+    {
+        output.write(String.valueOf(number).getBytes(StandardCharsets.ISO_8859_1));
+        output.write(COSWriter.SPACE);
+        output.write('0');
+        output.write(COSWriter.SPACE);
+        output.write(COSWriter.OBJ);
+        output.writeEOL();
+    }
+
+    private void writeObjectEnd() throws IOException
+    {
+        output.writeEOL();
+        output.write(COSWriter.ENDOBJ);
+        output.writeEOL();
+    }
+
+    private void writeReference(long number) throws IOException
+    {
+        output.write(String.valueOf(number).getBytes(StandardCharsets.ISO_8859_1));
+        output.write(COSWriter.SPACE);
+        output.write('0');
+        output.write(COSWriter.SPACE);
+        output.write(COSWriter.REFERENCE);
+    }
+
+    private void writeStream(COSStream stream) throws IOException
+    {
+        writeDictionary(stream);
+        output.write(COSWriter.STREAM);
+        output.writeCRLF();
+        if (stream.hasData())
+        {
+            try (InputStream input = stream.createRawInputStream())
+            {
+                IOUtils.copy(input, output);
+            }
+        }
+        output.writeCRLF();
+        output.write(COSWriter.ENDSTREAM);
+    }
+
+    /**
+     * Writes a value within an object, i.e. a reference for indirect objects.
+     */
+    private void writeValue(COSBase value) throws IOException
+    {
+        if (value instanceof COSObject)
+        {
+            value = ((COSObject) value).getObject();
+        }
+        if (value == pagesRoot)
+        {
+            writeReference(PAGES_NUMBER);
+        }
+        else if (value instanceof COSStream || (value instanceof COSDictionary
+                && (objectNumbers.containsKey(value) || referenceCounts.getOrDefault(value, 0) != 1)))
+        {
+            writeReference(getObjectNumber(value));
+        }
+        else
+        {
+            writeDirect(value);
+        }
+    }
+
+    private void writeDirect(COSBase value) throws IOException
+    {
+        if (value instanceof COSDictionary)
+        {
+            writeDictionary((COSDictionary) value);
+        }
+        else if (value instanceof COSArray)
+        {
+            writeArray((COSArray) value);
+        }
+        else if (value instanceof COSString)
+        {
+            COSWriter.writeString((COSString) value, output);
+        }
+        else if (value instanceof COSName)
+        {
+            ((COSName) value).writePDF(output);
+        }
+        else if (value instanceof COSInteger)
+        {
+            ((COSInteger) value).writePDF(output);
+        }
+        else if (value instanceof COSFloat)
+        {
+            ((COSFloat) value).writePDF(output);
+        }
+        else if (value instanceof COSBoolean)
+        {
+            ((COSBoolean) value).writePDF(output);
+        }
+        else
+        {
+            COSNull.NULL.writePDF(output);
+        }
+    }
+
+    private void writeDictionary(COSDictionary dictionary) throws IOException
+    {
+        output.write(COSWriter.DICT_OPEN);
+        output.writeEOL();
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet())
+        {
+            COSBase value = entry.getValue();
+            if (value != null)
+            {
+                entry.getKey().writePDF(output);
+                output.write(COSWriter.SPACE);
+                writeValue(value);
+                output.writeEOL();
+            }
+        }
+        output.write(COSWriter.DICT_CLOSE);
+    }
+
+    private void writeArray(COSArray array) throws IOException
+    {
+        if (!arraysInProgress.add(array))
+        {
+            LOG.warn("Array contains itself, replaced by null");
+            COSNull.NULL.writePDF(output);
+            return;
+        }
+        output.write(COSWriter.ARRAY_OPEN);
+        for (int i = 0; i < array.size(); i++)
+        {
+            if (i > 0)
+            {
+                if (i % 10 == 0)
+                {
+                    output.writeEOL();
+                }
+                else
+                {
+                    output.write(COSWriter.SPACE);
+                }
+            }
+            writeValue(array.get(i));
+        }
+        output.write(COSWriter.ARRAY_CLOSE);
+        arraysInProgress.remove(array);
+    }
+}
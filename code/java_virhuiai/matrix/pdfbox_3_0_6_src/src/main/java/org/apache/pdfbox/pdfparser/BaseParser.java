@@ -70,6 +70,9 @@ public abstract class BaseParser
     private static final int MAX_RECURSION_DEPTH = 500;
     private static final String MAX_RECUSRION_MSG = //
             "Reached maximum recursion depth " + Integer.toString(MAX_RECURSION_DEPTH);
+
+    // the minimum size of an array of numbers which is stored as primitives
+    private static final int MIN_COMPACT_ARRAY_SIZE = 8;
     
     private int recursionDepth = 0;
 
@@ -834,6 +837,11 @@ public abstract class BaseParser
 	        // read ']'
 	        source.read();
 	        skipSpaces();
+	        if (po.size() >= MIN_COMPACT_ARRAY_SIZE)
+	        {
+	            // store large arrays of numbers like widths as primitives
+	            po.compactNumbers();
+	        }
 	        return po;
         }
         finally
@@ -19,15 +19,21 @@ package org.apache.pdfbox.pdfparser;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -44,6 +50,7 @@ import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.cos.ICOSParser;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.io.RandomAccessReadView;
 import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.pdfparser.XrefTrailerResolver.XRefType;
@@ -55,6 +62,7 @@ import org.apache.pdfbox.pdmodel.encryption.ProtectionPolicy;
 import org.apache.pdfbox.pdmodel.encryption.PublicKeyDecryptionMaterial;
 import org.apache.pdfbox.pdmodel.encryption.SecurityHandler;
 import org.apache.pdfbox.pdmodel.encryption.StandardDecryptionMaterial;
+import org.apache.pdfbox.util.ParallelUtil;
 import org.apache.pdfbox.util.StringUtil;
 
 /**
@@ -79,6 +87,9 @@ public class COSParser extends BaseParser implements ICOSParser
     private static final byte[] ENDOBJ = new byte[] { E, N, D, O, B, J };
 
     private static final long MINIMUM_SEARCH_OFFSET = 6;
+
+    // the maximum number of objects whose offsets are checked before a cached xref index is used
+    private static final int XREF_INDEX_SAMPLE_SIZE = 32;
     
     private static final int X = 'x';
 
@@ -98,6 +109,30 @@ public class COSParser extends BaseParser implements ICOSParser
     public static final String SYSPROP_EOFLOOKUPRANGE =
             "org.apache.pdfbox.pdfparser.nonSequentialPDFParser.eofLookupRange";
 
+    /**
+     * Enables the concurrent resolution of indirect objects if set to "true".
+     * 
+     * @see #setConcurrentObjectResolution(boolean)
+     */
+    public static final String SYSPROP_CONCURRENT_OBJECT_RESOLUTION =
+            "org.apache.pdfbox.pdfparser.concurrentObjectResolution";
+
+    /**
+     * The directory of an {@link XrefIndexCache} used by all parsers, if set.
+     * 
+     * @see #setXrefIndexCache(XrefIndexCache)
+     */
+    public static final String SYSPROP_XREF_INDEX_DIRECTORY =
+            "org.apache.pdfbox.pdfparser.xrefIndexDirectory";
+
+    /**
+     * Enables the parallel decryption of the object streams of encrypted documents if set to "true".
+     * 
+     * @see #setParallelDecryption(boolean)
+     */
+    public static final String SYSPROP_PARALLEL_DECRYPTION =
+            "org.apache.pdfbox.pdfparser.parallelDecryption";
+
     /**
      * How many trailing bytes to read for EOF marker.
      */
@@ -124,6 +159,9 @@ public class COSParser extends BaseParser implements ICOSParser
     protected boolean initialParseDone = false;
 
     private boolean trailerWasRebuild = false;
+
+    private XrefIndexCache xrefIndexCache = null;
+    private long sourceLastModified = -1;
     
     private BruteForceParser bruteForceParser = null;
     private PDEncryption encryption = null;
@@ -132,13 +170,44 @@ public class COSParser extends BaseParser implements ICOSParser
      * Intermediate cache. Contains all objects of already read compressed object streams. Objects are removed after
      * dereferencing them.
      */
-    private final Map<Long, Map<COSObjectKey, COSBase>> decompressedObjects = new HashMap<>();
+    private final Map<Long, Map<COSObjectKey, COSBase>> decompressedObjects;
+
+    /**
+     * Per thread parsers used to resolve objects if the concurrent object resolution is enabled. It is dropped when
+     * the document is closed, as the parsers of pooled threads would keep the whole document alive otherwise.
+     */
+    private volatile ThreadLocal<COSParser> concurrentResolvers = null;
+
+    private boolean concurrentObjectResolution = false;
+
+    /**
+     * All parsers created for {@link #concurrentResolvers}, so that their views of the source can be closed together
+     * with the document.
+     */
+    private final Set<COSParser> createdResolvers = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean documentClosed = false;
+
+    /**
+     * The parser which created this parser to resolve objects within a single thread, null for the main parser.
+     */
+    private final COSParser parentParser;
 
     /**
      * The security handler.
      */
     protected SecurityHandler<? extends ProtectionPolicy> securityHandler = null;
 
+    private boolean parallelDecryption = false;
+
+    private int decryptionParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The object streams which were parsed but not yet decrypted, only used while the object streams are decrypted in
+     * parallel.
+     */
+    private Map<COSStream, COSObjectKey> undecryptedObjectStreams = null;
+
     /**
      *  how many trailing bytes to read for EOF marker.
      */
@@ -199,9 +268,29 @@ public class COSParser extends BaseParser implements ICOSParser
         this.keyAlias = keyAlias;
         fileLen = source.length();
         keyStoreInputStream = keyStore;
+        decompressedObjects = new ConcurrentHashMap<>();
+        parentParser = null;
         init(streamCacheCreateFunction);
     }
 
+    /**
+     * Constructor of a parser resolving objects of the document of the given parser within the current thread.
+     * 
+     * @param parent the parser of the document
+     * @param source a view of the source of the parent which is only used by the current thread
+     */
+    private COSParser(COSParser parent, RandomAccessRead source)
+    {
+        super(source);
+        parentParser = parent;
+        document = parent.document;
+        fileLen = parent.fileLen;
+        isLenient = parent.isLenient;
+        securityHandler = parent.securityHandler;
+        decompressedObjects = parent.decompressedObjects;
+        initialParseDone = true;
+    }
+
     private void init(StreamCacheCreateFunction streamCacheCreateFunction)
     {
         String eofLookupRangeStr = System.getProperty(SYSPROP_EOFLOOKUPRANGE);
@@ -217,6 +306,22 @@ public class COSParser extends BaseParser implements ICOSParser
                         + " does not contain an integer value, but: '" + eofLookupRangeStr + "'");
             }
         }
+        setConcurrentObjectResolution(Boolean.getBoolean(SYSPROP_CONCURRENT_OBJECT_RESOLUTION));
+        setParallelDecryption(Boolean.getBoolean(SYSPROP_PARALLEL_DECRYPTION));
+        String xrefIndexDirectory = System.getProperty(SYSPROP_XREF_INDEX_DIRECTORY);
+        if (xrefIndexDirectory != null)
+        {
+            try
+            {
+                xrefIndexCache = new XrefIndexCache(Paths.get(xrefIndexDirectory));
+            }
+            catch (IOException | InvalidPathException exception)
+            {
+                LOG.warn("System property " + SYSPROP_XREF_INDEX_DIRECTORY
+                        + " doesn't denote a usable directory: '" + xrefIndexDirectory + "'",
+                        exception);
+            }
+        }
         document = new COSDocument(streamCacheCreateFunction, this);
     }
 
@@ -243,6 +348,227 @@ public class COSParser extends BaseParser implements ICOSParser
         }
     }
 
+    /**
+     * Enables or disables the concurrent resolution of indirect objects. If enabled, objects can be dereferenced by
+     * several threads at the same time, e.g. to process the pages of a document in parallel. Every thread uses its own
+     * view of the source and there is no global lock, only the dereferencing of a single object is synchronized.
+     * Otherwise all threads have to wait for each other as objects are parsed one at a time.
+     *
+     * <p>This requires a source supporting {@link RandomAccessRead#createView(long, long)}. The parser falls back to
+     * the serial resolution if such a view can't be created.</p>
+     *
+     * <p>This method can only be called before the parsing of the file. In case system property
+     * {@link #SYSPROP_CONCURRENT_OBJECT_RESOLUTION} is defined this value will be set on initialization.</p>
+     *
+     * @param concurrent true to enable the concurrent resolution of objects
+     */
+    public void setConcurrentObjectResolution(boolean concurrent)
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException(
+                    "Cannot change the object resolution mode after parsing");
+        }
+        concurrentObjectResolution = concurrent;
+        concurrentResolvers = concurrent ? ThreadLocal.withInitial(this::createConcurrentResolver)
+                : null;
+    }
+
+    /**
+     * Indicates if the concurrent resolution of indirect objects is enabled.
+     *
+     * @return true if objects may be resolved by several threads at the same time
+     */
+    public boolean isConcurrentObjectResolution()
+    {
+        return concurrentObjectResolution;
+    }
+
+    /**
+     * Enables or disables the parallel decryption of object streams. If enabled, all object streams of an encrypted
+     * document are decrypted by a pool of worker threads during the initial parsing, instead of being decrypted one
+     * at a time when the first of their objects is dereferenced. This speeds up the loading of big documents which
+     * are processed completely, e.g. when all pages are rendered or the text of the whole document is extracted.
+     *
+     * <p>This method can only be called before the parsing of the file. In case system property
+     * {@link #SYSPROP_PARALLEL_DECRYPTION} is defined this value will be set on initialization.</p>
+     *
+     * @param parallel true to decrypt all object streams in parallel
+     */
+    public void setParallelDecryption(boolean parallel)
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot change the decryption mode after parsing");
+        }
+        parallelDecryption = parallel;
+    }
+
+    /**
+     * Indicates if the object streams of an encrypted document are decrypted in parallel.
+     *
+     * @return true if the object streams are decrypted in parallel
+     */
+    public boolean isParallelDecryption()
+    {
+        return parallelDecryption;
+    }
+
+    /**
+     * Sets the number of threads used for the parallel decryption of object streams. The default is the number of
+     * available processors. This method can only be called before the parsing of the file.
+     *
+     * @param parallelism the number of threads
+     * @throws IllegalArgumentException if the number of threads is less than 1 or the file was already parsed
+     * @see #setParallelDecryption(boolean)
+     */
+    public void setDecryptionParallelism(int parallelism)
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot change the decryption mode after parsing");
+        }
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        decryptionParallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads used for the parallel decryption of object streams.
+     *
+     * @return the number of threads
+     */
+    public int getDecryptionParallelism()
+    {
+        return decryptionParallelism;
+    }
+
+    /**
+     * Sets the cache of resolved cross reference tables. If the cache contains the index of the parsed file, the
+     * cross reference sections aren't parsed at all. Otherwise the index is added to the cache after the cross
+     * reference sections were parsed or rebuilt.
+     *
+     * <p>This method can only be called before the parsing of the file. In case system property
+     * {@link #SYSPROP_XREF_INDEX_DIRECTORY} is defined a cache using this directory will be set on initialization.
+     * </p>
+     *
+     * @param xrefIndexCache the cache to be used or null to disable the cache
+     */
+    public void setXrefIndexCache(XrefIndexCache xrefIndexCache)
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot change the xref index cache after parsing");
+        }
+        this.xrefIndexCache = xrefIndexCache;
+    }
+
+    /**
+     * Returns the cache of resolved cross reference tables.
+     *
+     * @return the cache or null if none is used
+     */
+    public XrefIndexCache getXrefIndexCache()
+    {
+        return xrefIndexCache;
+    }
+
+    /**
+     * Sets the modification time of the file of the source. It identifies the file within the xref index cache along
+     * with its length and content. {@link org.apache.pdfbox.Loader} sets it for files.
+     *
+     * <p>This method can only be called before the parsing of the file.</p>
+     *
+     * @param lastModified the modification time in milliseconds or -1 if it isn't known
+     */
+    public void setSourceLastModified(long lastModified)
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot change the modification time after parsing");
+        }
+        sourceLastModified = lastModified;
+    }
+
+    @Override
+    public boolean isConcurrentDereferencingSupported()
+    {
+        return concurrentObjectResolution;
+    }
+
+    private COSParser createConcurrentResolver()
+    {
+        if (documentClosed)
+        {
+            return null;
+        }
+        try
+        {
+            COSParser resolver = new COSParser(this, source.createView(0, fileLen));
+            createdResolvers.add(resolver);
+            if (documentClosed)
+            {
+                // the document was closed in the meantime
+                createdResolvers.remove(resolver);
+                resolver.source.close();
+                return null;
+            }
+            return resolver;
+        }
+        catch (IOException | UnsupportedOperationException exception)
+        {
+            LOG.warn("Can't create a view of the source, falling back to serial object resolution",
+                    exception);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the parser to be used by the current thread to resolve objects, if the concurrent object resolution is
+     * enabled and the initial parsing is done.
+     */
+    private COSParser getConcurrentResolver()
+    {
+        ThreadLocal<COSParser> resolvers = concurrentResolvers;
+        if (resolvers == null || !initialParseDone)
+        {
+            return null;
+        }
+        return resolvers.get();
+    }
+
+    /**
+     * Closes the views of the per thread parsers and drops them, if the concurrent object resolution is enabled. Other
+     * threads only keep their parser until the stale entry of their thread local map is removed.
+     * 
+     * @throws IOException if a view couldn't be closed
+     */
+    @Override
+    public void documentClosed() throws IOException
+    {
+        ThreadLocal<COSParser> resolvers = concurrentResolvers;
+        if (resolvers == null || documentClosed)
+        {
+            return;
+        }
+        documentClosed = true;
+        concurrentResolvers = null;
+        resolvers.remove();
+        IOException firstException = null;
+        for (COSParser resolver : createdResolvers)
+        {
+            firstException = IOUtils.closeAndLogException(resolver.source, LOG, "RandomAccessRead view",
+                    firstException);
+        }
+        createdResolvers.clear();
+        if (firstException != null)
+        {
+            throw firstException;
+        }
+    }
+
     /**
      * Read the trailer information and provide a COSDictionary containing the trailer information.
      * 
@@ -251,6 +577,17 @@ public class COSParser extends BaseParser implements ICOSParser
      */
     protected COSDictionary retrieveTrailer() throws IOException
     {
+        // the index doesn't contain the trailer resolver, so it can only be used if the resolver isn't needed
+        XrefIndexCache.Key xrefIndexKey = null;
+        if (xrefIndexCache != null && resetTrailerResolver())
+        {
+            xrefIndexKey = XrefIndexCache.createKey(source, sourceLastModified);
+            COSDictionary trailer = loadXrefIndex(xrefIndexKey);
+            if (trailer != null)
+            {
+                return trailer;
+            }
+        }
         COSDictionary trailer = null;
         boolean rebuildTrailer = false;
         try
@@ -305,6 +642,10 @@ public class COSParser extends BaseParser implements ICOSParser
                 getBruteForceParser().bfSearchForObjStreams(xrefTrailerResolver, securityHandler);
             }
         }
+        if (xrefIndexKey != null && trailer != null && trailer.containsKey(COSName.ROOT))
+        {
+            storeXrefIndex(xrefIndexKey, trailer);
+        }
         if (resetTrailerResolver())
         {
             xrefTrailerResolver.reset();
@@ -313,6 +654,139 @@ public class COSParser extends BaseParser implements ICOSParser
         return trailer;
     }
 
+    /**
+     * Restores the cross reference table and the trailer from the xref index cache.
+     * 
+     * @param key the key of the source
+     * @return the trailer or null if the cache doesn't contain a usable index of the source
+     * @throws IOException if the decryption can't be prepared
+     */
+    private COSDictionary loadXrefIndex(XrefIndexCache.Key key) throws IOException
+    {
+        XrefIndexCache.Entry entry = xrefIndexCache.load(key);
+        if (entry == null)
+        {
+            return null;
+        }
+        if (!checkXrefIndexOffsets(entry.xrefTable))
+        {
+            LOG.warn("Ignored xref index with offsets which don't match the file");
+            return null;
+        }
+        COSDictionary trailer;
+        try (RandomAccessRead trailerSource = new RandomAccessReadBuffer(entry.trailer))
+        {
+            trailer = new COSParser(this, trailerSource).parseCOSDictionary(true);
+        }
+        catch (IOException exception)
+        {
+            LOG.warn("Ignored xref index with an invalid trailer", exception);
+            return null;
+        }
+        if (trailer.getItem(COSName.ROOT) == null)
+        {
+            return null;
+        }
+        document.setStartXref(entry.startXref);
+        document.addXRefTable(entry.xrefTable);
+        document.setHighestXRefObjectNumber(entry.highestXRefObjectNumber);
+        document.setIsXRefStream(entry.isXRefStream);
+        if (entry.hasHybridXRef)
+        {
+            document.setHasHybridXRef();
+        }
+        document.setTrailer(trailer);
+        trailerWasRebuild = entry.trailerWasRebuilt;
+        prepareDecryption();
+        xrefTrailerResolver.reset();
+        xrefTrailerResolver = null;
+        return trailer;
+    }
+
+    /**
+     * Checks whether a sample of the uncompressed objects of a cached cross reference table can be found at their
+     * offsets.
+     * 
+     * @param xrefTable the cached cross reference table
+     * @return true if all checked objects were found
+     * @throws IOException if the position of the source can't be restored
+     */
+    private boolean checkXrefIndexOffsets(Map<COSObjectKey, Long> xrefTable) throws IOException
+    {
+        int step = Math.max(1, (xrefTable.size() + XREF_INDEX_SAMPLE_SIZE - 1) / XREF_INDEX_SAMPLE_SIZE);
+        long originOffset = source.getPosition();
+        try
+        {
+            int index = 0;
+            for (Entry<COSObjectKey, Long> xrefEntry : xrefTable.entrySet())
+            {
+                Long offset = xrefEntry.getValue();
+                // negative offsets are the numbers of object streams
+                if (index++ % step == 0 && offset != null && offset >= 0
+                        && !isObjectAt(xrefEntry.getKey(), offset))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        finally
+        {
+            source.seek(originOffset);
+        }
+    }
+
+    private boolean isObjectAt(COSObjectKey key, long offset) throws IOException
+    {
+        if (offset < MINIMUM_SEARCH_OFFSET || offset >= source.length())
+        {
+            return false;
+        }
+        try
+        {
+            source.seek(offset);
+            skipWhiteSpaces();
+            if (readObjectNumber() != key.getNumber() || readGenerationNumber() != key.getGeneration())
+            {
+                return false;
+            }
+            readExpectedString(OBJ_MARKER, true);
+            return true;
+        }
+        catch (IOException exception)
+        {
+            LOG.debug("No object " + key + " at offset " + offset, exception);
+            return false;
+        }
+    }
+
+    /**
+     * Adds the index of the parsed cross reference table and trailer to the xref index cache.
+     * 
+     * @param key the key of the source
+     * @param trailer the resolved trailer
+     */
+    private void storeXrefIndex(XrefIndexCache.Key key, COSDictionary trailer)
+    {
+        XrefIndexCache.Entry entry = new XrefIndexCache.Entry();
+        try
+        {
+            entry.trailer = XrefIndexCache.serializeTrailer(trailer);
+        }
+        catch (IOException exception)
+        {
+            LOG.debug("The trailer can't be stored in the xref index", exception);
+            return;
+        }
+        entry.startXref = document.getStartXref();
+        entry.highestXRefObjectNumber = document.getHighestXRefObjectNumber();
+        entry.isXRefStream = document.isXRefStream();
+        entry.hasHybridXRef = document.hasHybridXRef();
+        entry.trailerWasRebuilt = trailerWasRebuild;
+        entry.xrefTable = document.getXrefTable();
+        xrefIndexCache.store(key, entry);
+    }
+
     /**
      * Indicates whether the xref trailer resolver should be reset or not. Should be overwritten if the xref trailer
      * resolver is needed after the initial parsing.
@@ -620,6 +1094,11 @@ public class COSParser extends BaseParser implements ICOSParser
     @Override
     public COSBase dereferenceCOSObject(COSObject obj) throws IOException
     {
+        COSParser resolver = getConcurrentResolver();
+        if (resolver != null)
+        {
+            return resolver.dereferenceCOSObject(obj);
+        }
         long currentPos = source.getPosition();
         COSObjectKey key = obj.getKey();
         COSBase parsedObj = parseObjectDynamically(key, false);
@@ -639,6 +1118,11 @@ public class COSParser extends BaseParser implements ICOSParser
     public RandomAccessReadView createRandomAccessReadView(long startPosition, long streamLength)
             throws IOException
     {
+        if (concurrentObjectResolution || undecryptedObjectStreams != null)
+        {
+            // the stream data may be read by any thread
+            return new ConcurrentRandomAccessReadView(source, startPosition, streamLength);
+        }
         return source.createView(startPosition, streamLength);
     }
 
@@ -654,7 +1138,21 @@ public class COSParser extends BaseParser implements ICOSParser
      * 
      * @throws IOException If an IO error occurs.
      */
-    protected synchronized COSBase parseObjectDynamically(COSObjectKey objKey,
+    protected COSBase parseObjectDynamically(COSObjectKey objKey,
+            boolean requireExistingNotCompressedObj) throws IOException
+    {
+        COSParser resolver = getConcurrentResolver();
+        if (resolver != null)
+        {
+            return resolver.parseObjectDynamically(objKey, requireExistingNotCompressedObj);
+        }
+        synchronized (this)
+        {
+            return parseObjectDynamicallyImpl(objKey, requireExistingNotCompressedObj);
+        }
+    }
+
+    private COSBase parseObjectDynamicallyImpl(COSObjectKey objKey,
             boolean requireExistingNotCompressedObj) throws IOException
     {
         COSObject pdfObject = document.getObjectFromPool(objKey);
@@ -696,7 +1194,7 @@ public class COSParser extends BaseParser implements ICOSParser
         // maybe something is wrong with the xref table -> perform brute force search for all objects
         if (offsetOrObjstmObNr == null && isLenient)
         {
-            offsetOrObjstmObNr =  getBruteForceParser().getBFCOSObjectOffsets().get(objKey);
+            offsetOrObjstmObNr = getBruteForceObjectOffset(objKey);
             if (offsetOrObjstmObNr != null)
             {
                 LOG.debug("Set missing offset " + offsetOrObjstmObNr + " for object " + objKey);
@@ -714,6 +1212,19 @@ public class COSParser extends BaseParser implements ICOSParser
         return offsetOrObjstmObNr;
     }
 
+    private Long getBruteForceObjectOffset(COSObjectKey objKey) throws IOException
+    {
+        if (parentParser != null)
+        {
+            // the brute force parser reads from the source of the main parser
+            synchronized (parentParser)
+            {
+                return parentParser.getBruteForceObjectOffset(objKey);
+            }
+        }
+        return getBruteForceParser().getBFCOSObjectOffsets().get(objKey);
+    }
+
     private COSBase parseFileObject(Long objOffset, final COSObjectKey objKey)
             throws IOException
     {
@@ -749,9 +1260,20 @@ public class COSParser extends BaseParser implements ICOSParser
             {
                 COSStream stream = parseCOSStream((COSDictionary) parsedObject);
 
-                if (securityHandler != null)
+                if (undecryptedObjectStreams != null
+                        && COSName.OBJ_STM.equals(stream.getCOSName(COSName.TYPE)))
                 {
-                    securityHandler.decryptStream(stream, objKey.getNumber(), objKey.getGeneration());
+                    // decrypted later on together with all other object streams
+                    undecryptedObjectStreams.put(stream, objKey);
+                }
+                else if (securityHandler != null)
+                {
+                    // the security handler isn't thread safe
+                    synchronized (securityHandler)
+                    {
+                        securityHandler.decryptStream(stream, objKey.getNumber(),
+                                objKey.getGeneration());
+                    }
                 }
                 parsedObject = stream;
             }
@@ -780,7 +1302,10 @@ public class COSParser extends BaseParser implements ICOSParser
         }
         else if (securityHandler != null)
         {
-            securityHandler.decrypt(parsedObject, objKey.getNumber(), objKey.getGeneration());
+            synchronized (securityHandler)
+            {
+                securityHandler.decrypt(parsedObject, objKey.getNumber(), objKey.getGeneration());
+            }
         }
 
         if (!endObjectKey.startsWith(ENDOBJ_STRING))
@@ -812,42 +1337,140 @@ public class COSParser extends BaseParser implements ICOSParser
     protected COSBase parseObjectStreamObject(long objstmObjNr, COSObjectKey key) throws IOException
     {
         Map<COSObjectKey, COSBase> streamObjects = decompressedObjects.computeIfAbsent(objstmObjNr,
-                n -> new HashMap<>());
+                n -> new ConcurrentHashMap<>());
         // did we already read the compressed object stream?
         COSBase objectStreamObject = streamObjects.remove(key);
         if (objectStreamObject != null)
         {
             return objectStreamObject;
         }
-        final COSObjectKey objKey = getObjectKey(objstmObjNr, 0);
-        final COSBase objstmBaseObj = document.getObjectFromPool(objKey).getObject();
-        if (objstmBaseObj instanceof COSStream)
+        // avoid decompressing the same object stream within several threads at the same time
+        synchronized (streamObjects)
         {
-            try
+            objectStreamObject = streamObjects.remove(key);
+            if (objectStreamObject != null)
             {
-                PDFObjectStreamParser parser = new PDFObjectStreamParser((COSStream) objstmBaseObj,
-                        document);
-                Map<COSObjectKey, COSBase> allStreamObjects = parser.parseAllObjects();
-                objectStreamObject = allStreamObjects.remove(key);
-                allStreamObjects.entrySet().stream()
-                        .forEach(e -> streamObjects.putIfAbsent(e.getKey(), e.getValue()));
+                return objectStreamObject;
             }
-            catch (IOException ex)
+            final COSObjectKey objKey = getObjectKey(objstmObjNr, 0);
+            final COSBase objstmBaseObj = document.getObjectFromPool(objKey).getObject();
+            if (objstmBaseObj instanceof COSStream)
             {
-                if (isLenient)
+                try
                 {
-                    LOG.error("object stream " + objstmObjNr
-                            + " could not be parsed due to an exception", ex);
+                    decryptIfPending((COSStream) objstmBaseObj);
+                    PDFObjectStreamParser parser = new PDFObjectStreamParser(
+                            (COSStream) objstmBaseObj, document);
+                    Map<COSObjectKey, COSBase> allStreamObjects = parser.parseAllObjects();
+                    objectStreamObject = allStreamObjects.remove(key);
+                    allStreamObjects.entrySet().stream() //
+                            .filter(e -> e.getValue() != null) //
+                            .forEach(e -> streamObjects.putIfAbsent(e.getKey(), e.getValue()));
                 }
-                else
+                catch (IOException ex)
                 {
-                    throw ex;
+                    if (isLenient)
+                    {
+                        LOG.error("object stream " + objstmObjNr
+                                + " could not be parsed due to an exception", ex);
+                    }
+                    else
+                    {
+                        throw ex;
+                    }
                 }
             }
         }
         return objectStreamObject;
     }
 
+    /**
+     * Decrypts all object streams of an encrypted document in parallel, if enabled. The object streams are parsed one
+     * after another without being decrypted, then they are decrypted by a pool of worker threads.
+     *
+     * @throws IOException if the decryption was interrupted
+     * @see #setParallelDecryption(boolean)
+     */
+    protected void decryptObjectStreams() throws IOException
+    {
+        if (!parallelDecryption || securityHandler == null || parentParser != null)
+        {
+            return;
+        }
+        Set<Long> objectStreamNumbers = new TreeSet<>();
+        for (Long offset : document.getXrefTable().values())
+        {
+            if (offset != null && offset < 0)
+            {
+                objectStreamNumbers.add(-offset);
+            }
+        }
+        int parallelism = Math.min(decryptionParallelism, objectStreamNumbers.size());
+        if (parallelism < 2)
+        {
+            return;
+        }
+        Map<COSStream, COSObjectKey> objectStreams = new LinkedHashMap<>();
+        undecryptedObjectStreams = objectStreams;
+        try
+        {
+            for (Long objectStreamNumber : objectStreamNumbers)
+            {
+                document.getObjectFromPool(getObjectKey(objectStreamNumber, 0)).getObject();
+            }
+        }
+        finally
+        {
+            undecryptedObjectStreams = null;
+        }
+
+        SecurityHandler<? extends ProtectionPolicy> handler = securityHandler;
+        List<COSStream> streams = new ArrayList<>(objectStreams.keySet());
+        List<COSObjectKey> keys = new ArrayList<>(objectStreams.values());
+        ParallelUtil.forEachOrdered("COSParser", parallelism, streams.size(), index ->
+        {
+            COSStream stream = streams.get(index);
+            COSObjectKey key = keys.get(index);
+            return () ->
+            {
+                try
+                {
+                    handler.decryptStream(stream, key.getNumber(), key.getGeneration());
+                    return null;
+                }
+                catch (IOException e)
+                {
+                    return e;
+                }
+            };
+        }, (index, exception) ->
+        {
+            if (exception != null)
+            {
+                // same as a failed dereferencing of the object stream
+                LOG.error("Can't decrypt object stream " + keys.get(index), exception);
+                document.getObjectFromPool(keys.get(index)).setToNull();
+            }
+        }, null);
+    }
+
+    /**
+     * Decrypts the given object stream if it was parsed while the object streams are collected to be decrypted in
+     * parallel, i.e. if an object of it is needed to parse another object stream.
+     */
+    private void decryptIfPending(COSStream objectStream) throws IOException
+    {
+        if (undecryptedObjectStreams == null)
+        {
+            return;
+        }
+        COSObjectKey key = undecryptedObjectStreams.remove(objectStream);
+        if (key != null)
+        {
+            securityHandler.decryptStream(objectStream, key.getNumber(), key.getGeneration());
+        }
+    }
+
     /** 
      * Returns length value referred to or defined in given object. 
      */
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+
+/**
+ * A view on a part of the pdf source which may be read by several threads. Each thread reads from its own view
+ * created by {@link RandomAccessRead#createView(long, long)}, so that every thread uses its own position within
+ * the source. Closing this view closes the views of all threads.
+ *
+ * This is used for the stream data of a pdf if the concurrent object resolution of {@link COSParser} is enabled.
+ */
+final class ConcurrentRandomAccessReadView extends RandomAccessReadView
+{
+    private final RandomAccessRead source;
+    private final long startPosition;
+    private final long streamLength;
+    private final ThreadLocal<RandomAccessReadView> views = new ThreadLocal<>();
+    // the views of all threads, to be closed together with this view
+    private final Queue<RandomAccessReadView> allViews = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param source the underlying source of the pdf
+     * @param startPosition start position within the underlying source
+     * @param streamLength stream length
+     */
+    ConcurrentRandomAccessReadView(RandomAccessRead source, long startPosition, long streamLength)
+    {
+        super(source, startPosition, streamLength);
+        this.source = source;
+        this.startPosition = startPosition;
+        this.streamLength = streamLength;
+    }
+
+    private RandomAccessReadView getView() throws IOException
+    {
+        checkClosed();
+        RandomAccessReadView view = views.get();
+        if (view == null || view.isClosed())
+        {
+            view = source.createView(startPosition, streamLength);
+            allViews.add(view);
+            if (closed)
+            {
+                // closed by another thread in the meantime
+                closeViews();
+                checkClosed();
+            }
+            views.set(view);
+        }
+        return view;
+    }
+
+    private void checkClosed() throws IOException
+    {
+        if (isClosed())
+        {
+            throw new IOException("RandomAccessReadView already closed");
+        }
+    }
+
+    @Override
+    public long getPosition() throws IOException
+    {
+        return getView().getPosition();
+    }
+
+    @Override
+    public void seek(long newOffset) throws IOException
+    {
+        getView().seek(newOffset);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        return getView().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        return getView().read(b, off, len);
+    }
+
+    @Override
+    public long length() throws IOException
+    {
+        checkClosed();
+        return streamLength;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException
+    {
+        getView().rewind(bytes);
+    }
+
+    @Override
+    public boolean isEOF() throws IOException
+    {
+        return getView().isEOF();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        views.remove();
+        closeViews();
+    }
+
+    private void closeViews() throws IOException
+    {
+        RandomAccessReadView view;
+        while ((view = allViews.poll()) != null)
+        {
+            view.close();
+        }
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return closed || source.isClosed();
+    }
+}
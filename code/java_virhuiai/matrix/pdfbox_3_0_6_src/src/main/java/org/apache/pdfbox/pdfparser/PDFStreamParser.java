@@ -24,6 +24,7 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.OperandList;
 import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.contentstream.operator.OperatorName;
 import org.apache.pdfbox.cos.COSBase;
@@ -47,6 +48,17 @@ public class PDFStreamParser extends BaseParser
     private static final Log LOG = LogFactory.getLog(PDFStreamParser.class);
 
     private static final int MAX_BIN_CHAR_TEST_LENGTH = 10;
+
+    // numbers with more digits are parsed as string to avoid an overflow
+    private static final int MAX_PRIMITIVE_DIGITS = 15;
+    // numbers which are longer, e.g. because of many '-', are parsed as string as the source can't be rewound far
+    private static final int MAX_PRIMITIVE_LENGTH = 32;
+    // a decimal with at most 8 fraction digits is rounded to the same float via double as by Float.parseFloat()
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8 };
+
+    // the cached operators with one or two printable ASCII characters
+    private static final Operator[] SHORT_OPERATORS = new Operator[95 + 95 * 95];
+
     private final byte[] binCharTestArr = new byte[MAX_BIN_CHAR_TEST_LENGTH];
     private int inlineImageDepth = 0;
     private long inlineOffset = 0;
@@ -89,6 +101,210 @@ public class PDFStreamParser extends BaseParser
         return streamObjects;
     }
 
+    /**
+     * This will parse the next token in the stream like {@link #parseNextToken()}, but numbers are added to the given
+     * operands as primitives instead of being returned as {@link COSNumber}. The next token which isn't a number is
+     * returned, i.e. an operator or an operand which the caller has to add to the operands.
+     *
+     * @param operands the operands of the next operator
+     * @return The next token in the stream which isn't a number or null if there are no more tokens in the stream.
+     *
+     * @throws IOException If an io error occurs while parsing the stream.
+     */
+    public Object parseNextToken(OperandList operands) throws IOException
+    {
+        while (!source.isClosed())
+        {
+            skipSpaces();
+            if (source.isEOF())
+            {
+                break;
+            }
+            int c = source.peek();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.')
+            {
+                if (!parsePrimitiveNumber(operands))
+                {
+                    return parseNextToken();
+                }
+            }
+            else
+            {
+                Operator operator = parseShortOperator(c);
+                return operator != null ? operator : parseNextToken();
+            }
+        }
+        return parseNextToken();
+    }
+
+    /**
+     * Parses a number consisting of a few digits and adds it to the operands. Like {@link #parseNextToken()} a
+     * double negative is ignored as well as a '-' within the number.
+     *
+     * @return false if the number is an unusual one, which has to be parsed by {@link #parseNextToken()}. The position
+     * of the source is restored in that case.
+     */
+    private boolean parsePrimitiveNumber(OperandList operands) throws IOException
+    {
+        long start = source.getPosition();
+        int c = source.read();
+        boolean negative = c == '-';
+        if (negative && source.peek() == c)
+        {
+            source.read();
+        }
+        boolean dotRead = c == '.';
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        if (c >= '0' && c <= '9')
+        {
+            mantissa = c - '0';
+            digits = 1;
+        }
+        while (true)
+        {
+            c = source.peek();
+            if (c >= '0' && c <= '9')
+            {
+                if (digits == MAX_PRIMITIVE_DIGITS)
+                {
+                    rewindTo(start);
+                    return false;
+                }
+                mantissa = mantissa * 10 + c - '0';
+                digits++;
+                if (dotRead)
+                {
+                    fractionDigits++;
+                }
+            }
+            else if (c == '.' && !dotRead)
+            {
+                dotRead = true;
+            }
+            else if (c != '-' || source.getPosition() - start >= MAX_PRIMITIVE_LENGTH)
+            {
+                break;
+            }
+            source.read();
+        }
+        if (digits == 0 || fractionDigits >= POWERS_OF_TEN.length || c == '-')
+        {
+            rewindTo(start);
+            return false;
+        }
+        if (!dotRead)
+        {
+            operands.addInteger(negative ? -mantissa : mantissa);
+            return true;
+        }
+        float value = (float) (mantissa / POWERS_OF_TEN[fractionDigits]);
+        if (value < Float.MIN_NORMAL)
+        {
+            // same as COSFloat, which converts -0 to 0 as well
+            value = 0;
+        }
+        else if (negative)
+        {
+            value = -value;
+        }
+        operands.addFloat(value);
+        return true;
+    }
+
+    /**
+     * Parses an operator with one or two printable ASCII characters, without creating a string.
+     *
+     * @param first the first character of the operator
+     * @return the operator, or null if the next token has to be parsed by {@link #parseNextToken()}. The position of
+     * the source is restored in that case.
+     */
+    private Operator parseShortOperator(int first) throws IOException
+    {
+        switch (first)
+        {
+            case '<':
+            case '[':
+            case '(':
+            case '/':
+            case ']':
+            case 'n':
+            case 't':
+            case 'f':
+            case 'B':
+            case 'I':
+                // tokens with special handling
+                return null;
+            default:
+                if (first <= ' ' || first > '~' || first == '%')
+                {
+                    return null;
+                }
+        }
+        long start = source.getPosition();
+        source.read();
+        int second = source.peek();
+        int index;
+        if (isOperatorEnd(second) && !isType3Suffix(first, second))
+        {
+            index = first - ' ' - 1;
+        }
+        else if (second > ' ' && second <= '~')
+        {
+            source.read();
+            int next = source.peek();
+            if (!isOperatorEnd(next) || isType3Suffix(second, next))
+            {
+                // a longer operator, or one like "Td0" which readOperator() reads including the digit
+                rewindTo(start);
+                return null;
+            }
+            index = 95 + (first - ' ' - 1) * 95 + second - ' ' - 1;
+        }
+        else
+        {
+            rewindTo(start);
+            return null;
+        }
+        Operator operator = SHORT_OPERATORS[index];
+        if (operator == null)
+        {
+            String name = index < 95 ? String.valueOf((char) first)
+                    : new String(new char[] { (char) first, (char) second });
+            operator = Operator.getOperator(name);
+            SHORT_OPERATORS[index] = operator;
+        }
+        return operator;
+    }
+
+    /**
+     * Restores the given position. The source of a content stream may not be seekable, but it supports rewinding a
+     * few bytes.
+     */
+    private void rewindTo(long position) throws IOException
+    {
+        source.rewind((int) (source.getPosition() - position));
+    }
+
+    /**
+     * Tells whether the given characters are the "d0" or "d1" of a Type3 glyph description, which
+     * {@link #readOperator()} reads as a part of the operator although the digit ends other operators.
+     */
+    private static boolean isType3Suffix(int c, int next)
+    {
+        return c == 'd' && (next == '0' || next == '1');
+    }
+
+    /**
+     * Tells whether the given character ends an operator, see {@link #readOperator()}.
+     */
+    private boolean isOperatorEnd(int c)
+    {
+        return c == -1 || isWhitespace(c) || c == '[' || c == '<' || c == '(' || c == '/'
+                || c == '%' || (c >= '0' && c <= '9');
+    }
+
     /**
      * This will parse the next token in the stream.
      *
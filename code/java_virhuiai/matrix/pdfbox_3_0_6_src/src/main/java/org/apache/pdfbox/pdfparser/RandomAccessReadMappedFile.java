@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+
+/**
+ * A {@link RandomAccessRead} backed by a memory mapped file. Unlike
+ * {@link org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile} the file is mapped in several segments, so that files
+ * bigger than 2 GB are supported.
+ *
+ * <p>
+ * The data isn't copied onto the heap, neither when parsing nor when reading the content of a stream. Views created
+ * by {@link #createView(long, long)} share the mapping of the file but use their own position, so that they may be
+ * used by other threads, e.g. when the concurrent object resolution of the parser is enabled. The file is unmapped
+ * when this instance and all of its views are closed, i.e. a view remains readable after this instance was closed.
+ * The mapping of views which are never closed is released by the garbage collector.
+ * </p>
+ *
+ * <pre>
+ * try (PDDocument document = Loader.loadPDF(new RandomAccessReadMappedFile(file)))
+ * </pre>
+ */
+public class RandomAccessReadMappedFile implements RandomAccessRead
+{
+    // 1 GB segments
+    private static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    private final MappedSegments segments;
+    // duplicates of the mapped segments holding the position of this instance, created on demand
+    private final ByteBuffer[] buffers;
+    private long position = 0;
+    private boolean isClosed;
+
+    /**
+     * Maps the given file.
+     *
+     * @param filename the name of the file
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public RandomAccessReadMappedFile(String filename) throws IOException
+    {
+        this(new File(filename));
+    }
+
+    /**
+     * Maps the given file.
+     *
+     * @param file the file
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public RandomAccessReadMappedFile(File file) throws IOException
+    {
+        this(file.toPath());
+    }
+
+    /**
+     * Maps the given file.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public RandomAccessReadMappedFile(Path path) throws IOException
+    {
+        this(path, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Maps the given file using segments of 2^segmentShift bytes.
+     */
+    RandomAccessReadMappedFile(Path path, int segmentShift) throws IOException
+    {
+        if (segmentShift < 1 || segmentShift > DEFAULT_SEGMENT_SHIFT)
+        {
+            throw new IllegalArgumentException("Invalid segment shift " + segmentShift);
+        }
+        segments = new MappedSegments(path, segmentShift);
+        buffers = new ByteBuffer[segments.mapped.length];
+    }
+
+    private RandomAccessReadMappedFile(MappedSegments segments) throws IOException
+    {
+        segments.retain();
+        this.segments = segments;
+        buffers = new ByteBuffer[segments.mapped.length];
+    }
+
+    @Override
+    public long getPosition() throws IOException
+    {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException
+    {
+        checkClosed();
+        if (newPosition < 0)
+        {
+            throw new IOException("Invalid position " + newPosition);
+        }
+        position = Math.min(newPosition, segments.size);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (isEOF())
+        {
+            return -1;
+        }
+        int value = getBuffer(position).get(segments.offsetInSegment(position)) & 0xff;
+        position++;
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (isEOF())
+        {
+            return -1;
+        }
+        int remaining = (int) Math.min(len, segments.size - position);
+        int readBytes = 0;
+        while (readBytes < remaining)
+        {
+            // don't read beyond the end of the current segment
+            ByteBuffer buffer = getBuffer(position);
+            int offset = segments.offsetInSegment(position);
+            int count = Math.min(remaining - readBytes, buffer.capacity() - offset);
+            buffer.position(offset);
+            buffer.get(b, off + readBytes, count);
+            readBytes += count;
+            position += count;
+        }
+        return readBytes;
+    }
+
+    @Override
+    public long length() throws IOException
+    {
+        checkClosed();
+        return segments.size;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException
+    {
+        checkClosed();
+        return position >= segments.size;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return isClosed;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The view shares the mapping of the file and may be used by another thread than this instance. The file stays
+     * mapped until the view is closed.
+     * </p>
+     */
+    @Override
+    public RandomAccessReadView createView(long startPosition, long streamLength) throws IOException
+    {
+        checkClosed();
+        return new RandomAccessReadView(new RandomAccessReadMappedFile(segments), startPosition,
+                streamLength, true);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (isClosed)
+        {
+            return;
+        }
+        isClosed = true;
+        segments.release();
+    }
+
+    private ByteBuffer getBuffer(long position)
+    {
+        int index = segments.segmentIndex(position);
+        ByteBuffer buffer = buffers[index];
+        if (buffer == null)
+        {
+            buffer = segments.mapped[index].duplicate();
+            buffers[index] = buffer;
+        }
+        return buffer;
+    }
+
+    private void checkClosed() throws IOException
+    {
+        if (isClosed())
+        {
+            throw new IOException(getClass().getSimpleName() + " already closed");
+        }
+    }
+
+    /**
+     * The segments of a mapped file, shared by an instance and all of its views. The segments are unmapped when the
+     * last of them is closed, as unmapping a buffer which is still read crashes the JVM.
+     */
+    private static final class MappedSegments
+    {
+        private final MappedByteBuffer[] mapped;
+        private final int segmentShift;
+        private final long segmentMask;
+        private final long size;
+        // the number of open instances using the segments, guarded by this
+        private int references = 1;
+
+        private MappedSegments(Path path, int segmentShift) throws IOException
+        {
+            this.segmentShift = segmentShift;
+            segmentMask = (1L << segmentShift) - 1;
+            // the mapping stays valid after the channel is closed
+            try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                size = fileChannel.size();
+                long segmentSize = 1L << segmentShift;
+                long count = (size + segmentSize - 1) >>> segmentShift;
+                if (count > Integer.MAX_VALUE)
+                {
+                    throw new IOException("File too big to be mapped: " + size);
+                }
+                mapped = new MappedByteBuffer[(int) count];
+                for (int i = 0; i < mapped.length; i++)
+                {
+                    long start = (long) i << segmentShift;
+                    mapped[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(segmentSize, size - start));
+                }
+            }
+        }
+
+        private int segmentIndex(long position)
+        {
+            return (int) (position >>> segmentShift);
+        }
+
+        private int offsetInSegment(long position)
+        {
+            return (int) (position & segmentMask);
+        }
+
+        private synchronized void retain() throws IOException
+        {
+            if (references == 0)
+            {
+                throw new IOException("The mapped file is already closed");
+            }
+            references++;
+        }
+
+        private synchronized void release()
+        {
+            references--;
+            if (references == 0)
+            {
+                for (int i = 0; i < mapped.length; i++)
+                {
+                    IOUtils.unmap(mapped[i]);
+                    mapped[i] = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.util.Hex;
+
+/**
+ * A cache of the resolved cross reference tables of pdf files, stored as sidecar files within a directory. If a file
+ * is parsed again the cached table and trailer are used instead of parsing all cross reference sections or even
+ * rebuilding them with a brute force search, which can be expensive for big or damaged files.
+ *
+ * <p>
+ * The index of a file is identified by its length, its modification time if known and a SHA-256 digest over its
+ * head, its tail and the region the startxref offset points to. Computing the key reads a few hundred kilobytes at
+ * most, whatever the size of the file is, i.e. not more than parsing the trailer itself. A modification within the
+ * body of the file which keeps its length and modification time isn't covered by the key, but the offsets of a
+ * sample of the objects are checked before an index is used.
+ * </p>
+ *
+ * <p>
+ * An index which can't be read is ignored and the file is parsed as usual. The index contains the offsets of all
+ * objects including the pages, the membership of compressed objects within object streams and the resolved trailer.
+ * </p>
+ *
+ * @see COSParser#setXrefIndexCache(XrefIndexCache)
+ */
+public class XrefIndexCache
+{
+    private static final Log LOG = LogFactory.getLog(XrefIndexCache.class);
+
+    private static final int MAGIC = 0x50445849; // "PDXI"
+    private static final int VERSION = 3;
+    private static final String SUFFIX = ".xref";
+    // the number of bytes of each region of the file which is digested
+    private static final int REGION_SIZE = 65536;
+    private static final byte[] STARTXREF = { 's', 't', 'a', 'r', 't', 'x', 'r', 'e', 'f' };
+    // the number of bytes of the fixed fields of an index, without the digest
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8 + 1 + 1 + 1 + 4;
+    // the number of bytes of an object offset of an index
+    private static final int XREF_ENTRY_SIZE = 8 + 4 + 4 + 8;
+
+    private final Path directory;
+
+    /**
+     * Creates a cache storing its index files within the given directory, which is created if necessary.
+     *
+     * @param directory the directory of the index files
+     * @throws IOException if the directory can't be created
+     */
+    public XrefIndexCache(Path directory) throws IOException
+    {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Returns the directory of the index files.
+     *
+     * @return the directory
+     */
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Creates the key identifying the index of the given source. Only the head, the tail and the region of the last
+     * cross reference section of the source are read.
+     *
+     * @param source the source of the pdf, its position is restored
+     * @param lastModified the modification time of the file of the source or -1 if it isn't known
+     * @return the key
+     * @throws IOException if the source can't be read
+     */
+    static Key createKey(RandomAccessRead source, long lastModified) throws IOException
+    {
+        long length = source.length();
+        return new Key(length, lastModified, createDigest(source, length, lastModified));
+    }
+
+    /**
+     * Reads the index of the given key.
+     *
+     * @param key the key of the source
+     * @return the index or null if there isn't any valid index
+     */
+    Entry load(Key key)
+    {
+        Path indexFile = directory.resolve(key.getFileName());
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexFile))))
+        {
+            return readEntry(input, key, Files.size(indexFile));
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Ignored invalid xref index " + indexFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index of the given key. Failures are logged but not rethrown as the index is only an optimization.
+     *
+     * @param key the key of the source
+     * @param entry the index
+     */
+    void store(Key key, Entry entry)
+    {
+        Path tempFile = null;
+        try
+        {
+            Path indexFile = directory.resolve(key.getFileName());
+            // write to a temporary file first so that concurrent readers never see a partial index
+            tempFile = Files.createTempFile(directory, "xref", ".tmp");
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile))))
+            {
+                writeEntry(output, key, entry);
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Couldn't store xref index in " + directory, e);
+        }
+        finally
+        {
+            if (tempFile != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(tempFile);
+                }
+                catch (IOException e)
+                {
+                    LOG.debug("Couldn't delete " + tempFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an index of the given size. The sizes stored within the index are checked against the remaining bytes
+     * before anything is allocated, so that a damaged index fails with an IOException.
+     */
+    private static Entry readEntry(DataInputStream input, Key key, long size) throws IOException
+    {
+        long remaining = size - HEADER_SIZE - key.digest.length;
+        if (remaining < 4)
+        {
+            throw new IOException("Truncated index");
+        }
+        if (input.readInt() != MAGIC || input.readInt() != VERSION)
+        {
+            throw new IOException("Unknown format");
+        }
+        long storedLength = input.readLong();
+        long storedLastModified = input.readLong();
+        byte[] storedDigest = new byte[key.digest.length];
+        input.readFully(storedDigest);
+        if (storedLength != key.length || storedLastModified != key.lastModified
+                || !Arrays.equals(storedDigest, key.digest))
+        {
+            throw new IOException("Index doesn't match the file");
+        }
+        Entry entry = new Entry();
+        entry.startXref = input.readLong();
+        entry.highestXRefObjectNumber = input.readLong();
+        entry.isXRefStream = input.readBoolean();
+        entry.hasHybridXRef = input.readBoolean();
+        entry.trailerWasRebuilt = input.readBoolean();
+        int trailerLength = input.readInt();
+        // the trailer is followed by the number of object offsets
+        if (trailerLength < 0 || trailerLength > remaining - 4)
+        {
+            throw new IOException("Invalid trailer length " + trailerLength);
+        }
+        remaining -= trailerLength + 4;
+        entry.trailer = new byte[trailerLength];
+        input.readFully(entry.trailer);
+        int count = input.readInt();
+        if (count < 0 || (long) count * XREF_ENTRY_SIZE != remaining)
+        {
+            throw new IOException("Invalid number of xref entries " + count);
+        }
+        entry.xrefTable = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++)
+        {
+            long number = input.readLong();
+            int generation = input.readInt();
+            int streamIndex = input.readInt();
+            if (number < 0 || generation < 0)
+            {
+                throw new IOException("Invalid object key " + number + " " + generation);
+            }
+            entry.xrefTable.put(new COSObjectKey(number, generation, streamIndex),
+                    input.readLong());
+        }
+        return entry;
+    }
+
+    private static void writeEntry(DataOutputStream output, Key key, Entry entry) throws IOException
+    {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(key.length);
+        output.writeLong(key.lastModified);
+        output.write(key.digest);
+        output.writeLong(entry.startXref);
+        output.writeLong(entry.highestXRefObjectNumber);
+        output.writeBoolean(entry.isXRefStream);
+        output.writeBoolean(entry.hasHybridXRef);
+        output.writeBoolean(entry.trailerWasRebuilt);
+        output.writeInt(entry.trailer.length);
+        output.write(entry.trailer);
+        output.writeInt(entry.xrefTable.size());
+        for (Map.Entry<COSObjectKey, Long> xref : entry.xrefTable.entrySet())
+        {
+            COSObjectKey objectKey = xref.getKey();
+            output.writeLong(objectKey.getNumber());
+            output.writeInt(objectKey.getGeneration());
+            output.writeInt(objectKey.getStreamIndex());
+            output.writeLong(xref.getValue());
+        }
+    }
+
+    private static byte[] createDigest(RandomAccessRead source, long length, long lastModified)
+            throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new IOException(e);
+        }
+        updateDigest(digest, length);
+        updateDigest(digest, lastModified);
+        long originOffset = source.getPosition();
+        try
+        {
+            updateDigest(digest, source, 0, Math.min(REGION_SIZE, length));
+            long tailOffset = Math.max(0, length - REGION_SIZE);
+            byte[] tail = updateDigest(digest, source, tailOffset, length - tailOffset);
+            // the last cross reference section, which may be anywhere in the file
+            long startXref = findStartXref(tail);
+            if (startXref >= 0 && startXref < length)
+            {
+                updateDigest(digest, startXref);
+                updateDigest(digest, source, startXref, Math.min(REGION_SIZE, length - startXref));
+            }
+        }
+        finally
+        {
+            source.seek(originOffset);
+        }
+        return digest.digest();
+    }
+
+    private static void updateDigest(MessageDigest digest, long value)
+    {
+        for (int i = 56; i >= 0; i -= 8)
+        {
+            digest.update((byte) (value >>> i));
+        }
+    }
+
+    /**
+     * Digests the given region of the source, which is at most {@link #REGION_SIZE} long, and returns its bytes.
+     */
+    private static byte[] updateDigest(MessageDigest digest, RandomAccessRead source, long offset, long length)
+            throws IOException
+    {
+        byte[] buffer = new byte[(int) length];
+        source.seek(offset);
+        int position = 0;
+        while (position < buffer.length)
+        {
+            int read = source.read(buffer, position, buffer.length - position);
+            if (read <= 0)
+            {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+        digest.update(buffer);
+        return buffer;
+    }
+
+    /**
+     * Returns the offset following the last startxref keyword of the given tail of a file, or -1 if there isn't any.
+     */
+    private static long findStartXref(byte[] tail)
+    {
+        for (int start = tail.length - STARTXREF.length; start >= 0; start--)
+        {
+            if (!matches(tail, start, STARTXREF))
+            {
+                continue;
+            }
+            int position = start + STARTXREF.length;
+            while (position < tail.length && BaseParser.isWhitespace(tail[position]))
+            {
+                position++;
+            }
+            long offset = 0;
+            int digits = 0;
+            while (position < tail.length && tail[position] >= '0' && tail[position] <= '9' && digits < 18)
+            {
+                offset = offset * 10 + tail[position] - '0';
+                position++;
+                digits++;
+            }
+            return digits > 0 ? offset : -1;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] bytes, int start, byte[] pattern)
+    {
+        for (int i = 0; i < pattern.length; i++)
+        {
+            if (bytes[start + i] != pattern[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Serializes the given trailer using pdf syntax. Indirect objects are written as references.
+     *
+     * @param trailer the resolved trailer
+     * @return the serialized trailer
+     * @throws IOException if the trailer contains an object which can't be serialized
+     */
+    static byte[] serializeTrailer(COSDictionary trailer) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeDirect(trailer, output, 0);
+        return output.toByteArray();
+    }
+
+    private static void writeDirect(COSBase base, OutputStream output, int depth) throws IOException
+    {
+        if (depth > 100)
+        {
+            throw new IOException("Trailer nested too deep");
+        }
+        if (base instanceof COSObject)
+        {
+            COSObjectKey key = ((COSObject) base).getKey();
+            if (key == null)
+            {
+                throw new IOException("Indirect object without key");
+            }
+            writeAscii(key.getNumber() + " " + key.getGeneration() + " R", output);
+        }
+        else if (base instanceof COSStream)
+        {
+            throw new IOException("Stream within the trailer");
+        }
+        else if (base instanceof COSDictionary)
+        {
+            writeAscii("<<", output);
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) base).entrySet())
+            {
+                entry.getKey().writePDF(output);
+                output.write(' ');
+                writeDirect(entry.getValue(), output, depth + 1);
+                output.write(' ');
+            }
+            writeAscii(">>", output);
+        }
+        else if (base instanceof COSArray)
+        {
+            output.write('[');
+            for (COSBase item : (COSArray) base)
+            {
+                writeDirect(item, output, depth + 1);
+                output.write(' ');
+            }
+            output.write(']');
+        }
+        else if (base instanceof COSString)
+        {
+            COSWriter.writeString((COSString) base, output);
+        }
+        else if (base instanceof COSName)
+        {
+            ((COSName) base).writePDF(output);
+        }
+        else if (base instanceof COSInteger)
+        {
+            ((COSInteger) base).writePDF(output);
+        }
+        else if (base instanceof COSFloat)
+        {
+            ((COSFloat) base).writePDF(output);
+        }
+        else if (base instanceof COSBoolean)
+        {
+            ((COSBoolean) base).writePDF(output);
+        }
+        else if (base == null || base instanceof COSNull)
+        {
+            COSNull.NULL.writePDF(output);
+        }
+        else
+        {
+            throw new IOException("Unexpected object within the trailer: " + base);
+        }
+    }
+
+    private static void writeAscii(String text, OutputStream output) throws IOException
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            output.write(text.charAt(i));
+        }
+    }
+
+    /**
+     * The key identifying the index of a file.
+     */
+    static final class Key
+    {
+        private final long length;
+        private final long lastModified;
+        private final byte[] digest;
+
+        private Key(long length, long lastModified, byte[] digest)
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        private String getFileName()
+        {
+            return Hex.getString(digest) + SUFFIX;
+        }
+    }
+
+    /**
+     * The cached result of the parsing of the cross reference sections of a file.
+     */
+    static final class Entry
+    {
+        long startXref;
+        long highestXRefObjectNumber;
+        boolean isXRefStream;
+        boolean hasHybridXRef;
+        boolean trailerWasRebuilt;
+        byte[] trailer;
+        Map<COSObjectKey, Long> xrefTable;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfwriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+
+/**
+ * Finds streams with the same content while a document is written, so that only one of them is written and all
+ * references point to it. This is useful for documents merged or assembled from several sources, which embed the same
+ * images, fonts or forms many times.
+ *
+ * <p>
+ * Two streams are the same if their encoded data and their dictionaries are equal. Dictionaries are compared by value,
+ * streams referenced by them are compared by their content as well. The data of a stream is only read if there is
+ * another stream of the same length. It is read once to calculate its SHA-256 hash and never held in memory, only the
+ * hashes and references to the streams are kept. The document itself isn't modified.
+ * </p>
+ */
+public final class COSStreamDeduplicator
+{
+    // the maximum depth of nested dictionaries and arrays compared by value
+    private static final int MAX_DEPTH = 32;
+
+    // the stream each stream of the document is replaced with, which is the stream itself if it is unique
+    private final Map<COSStream, COSStream> canonicalStreams = new IdentityHashMap<>();
+    // the first stream of each length, null after it was hashed because there is a second stream of the same length
+    private final Map<Long, COSStream> streamsByLength = new HashMap<>();
+    // the unique streams by their length and hash
+    private final Map<ByteBuffer, List<COSStream>> streamsByHash = new HashMap<>();
+    // the streams which are being compared, to avoid endless recursion
+    private final Set<COSStream> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[8192];
+    private long duplicateCount = 0;
+    private long duplicateBytes = 0;
+
+    /**
+     * Constructor.
+     */
+    public COSStreamDeduplicator()
+    {
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen, every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the stream which is written instead of the given one. This is the first stream with the same content,
+     * or the given stream if there isn't any.
+     *
+     * @param stream the stream
+     * @return the stream to be written
+     * @throws IOException if the data of the stream couldn't be read
+     */
+    public COSStream getCanonical(COSStream stream) throws IOException
+    {
+        COSStream canonical = canonicalStreams.get(stream);
+        if (canonical != null)
+        {
+            return canonical;
+        }
+        if (!stream.hasData() || !pending.add(stream))
+        {
+            return stream;
+        }
+        try
+        {
+            canonical = findCanonical(stream);
+        }
+        finally
+        {
+            pending.remove(stream);
+        }
+        canonicalStreams.put(stream, canonical);
+        return canonical;
+    }
+
+    /**
+     * Tells whether the given object is a stream which is replaced by another one, i.e. which isn't written.
+     *
+     * @param base the object, which may be an indirect object
+     * @return true if the object is a duplicate stream
+     * @throws IOException if the data of the stream couldn't be read
+     */
+    public boolean isDuplicate(COSBase base) throws IOException
+    {
+        COSBase actual = base instanceof COSObject ? ((COSObject) base).getObject() : base;
+        return actual instanceof COSStream && getCanonical((COSStream) actual) != actual;
+    }
+
+    /**
+     * Returns the number of streams which were found to be duplicates.
+     *
+     * @return the number of streams which aren't written
+     */
+    public long getDuplicateCount()
+    {
+        return duplicateCount;
+    }
+
+    /**
+     * Returns the size of the encoded data of the streams which were found to be duplicates.
+     *
+     * @return the number of bytes which aren't written
+     */
+    public long getDuplicateBytes()
+    {
+        return duplicateBytes;
+    }
+
+    private COSStream findCanonical(COSStream stream) throws IOException
+    {
+        long length = stream.getLength();
+        if (!streamsByLength.containsKey(length))
+        {
+            // the first stream of this length can't be a duplicate, so it isn't read
+            streamsByLength.put(length, stream);
+            return stream;
+        }
+        COSStream first = streamsByLength.put(length, null);
+        if (first != null)
+        {
+            addUnique(first, hash(first));
+        }
+        ByteBuffer hash = hash(stream);
+        List<COSStream> candidates = streamsByHash.get(hash);
+        if (candidates != null)
+        {
+            for (COSStream candidate : candidates)
+            {
+                if (equalDictionaries(candidate, stream, 0))
+                {
+                    duplicateCount++;
+                    duplicateBytes += length;
+                    return candidate;
+                }
+            }
+        }
+        addUnique(stream, hash);
+        return stream;
+    }
+
+    private void addUnique(COSStream stream, ByteBuffer hash)
+    {
+        streamsByHash.computeIfAbsent(hash, k -> new ArrayList<>(1)).add(stream);
+    }
+
+    private ByteBuffer hash(COSStream stream) throws IOException
+    {
+        digest.reset();
+        long length = 0;
+        try (InputStream input = stream.createRawInputStream())
+        {
+            int read;
+            while ((read = input.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+                length += read;
+            }
+        }
+        // the actual length is part of the key, as the length of the dictionary may be wrong
+        byte[] key = Arrays.copyOf(digest.digest(), 40);
+        ByteBuffer.wrap(key, 32, 8).putLong(length);
+        return ByteBuffer.wrap(key);
+    }
+
+    private boolean equalDictionaries(COSDictionary dictionary1, COSDictionary dictionary2, int depth)
+            throws IOException
+    {
+        if (dictionary1.size() != dictionary2.size())
+        {
+            return false;
+        }
+        for (Map.Entry<COSName, COSBase> entry : dictionary1.entrySet())
+        {
+            // the length of streams with equal data is equal, but may be a direct or an indirect object
+            if (dictionary1 instanceof COSStream && COSName.LENGTH.equals(entry.getKey()))
+            {
+                if (!dictionary2.containsKey(COSName.LENGTH))
+                {
+                    return false;
+                }
+                continue;
+            }
+            if (!dictionary2.containsKey(entry.getKey())
+                    || !equalValues(entry.getValue(), dictionary2.getItem(entry.getKey()), depth))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equalValues(COSBase value1, COSBase value2, int depth) throws IOException
+    {
+        COSBase actual1 = value1 instanceof COSObject ? ((COSObject) value1).getObject() : value1;
+        COSBase actual2 = value2 instanceof COSObject ? ((COSObject) value2).getObject() : value2;
+        if (actual1 == actual2)
+        {
+            return true;
+        }
+        if (actual1 == null || actual2 == null || depth >= MAX_DEPTH)
+        {
+            return false;
+        }
+        if (actual1 instanceof COSStream)
+        {
+            return actual2 instanceof COSStream
+                    && getCanonical((COSStream) actual1) == getCanonical((COSStream) actual2);
+        }
+        if (actual1 instanceof COSDictionary)
+        {
+            return actual2 instanceof COSDictionary && !(actual2 instanceof COSStream)
+                    && equalDictionaries((COSDictionary) actual1, (COSDictionary) actual2, depth + 1);
+        }
+        if (actual1 instanceof COSArray)
+        {
+            if (!(actual2 instanceof COSArray))
+            {
+                return false;
+            }
+            COSArray array1 = (COSArray) actual1;
+            COSArray array2 = (COSArray) actual2;
+            if (array1.size() != array2.size())
+            {
+                return false;
+            }
+            for (int i = 0; i < array1.size(); i++)
+            {
+                if (!equalValues(array1.get(i), array2.get(i), depth + 1))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (actual1 instanceof COSString)
+        {
+            // COSString.equals() compares the decoded text
+            return actual2 instanceof COSString
+                    && Arrays.equals(((COSString) actual1).getBytes(), ((COSString) actual2).getBytes());
+        }
+        return actual1.equals(actual2);
+    }
+}
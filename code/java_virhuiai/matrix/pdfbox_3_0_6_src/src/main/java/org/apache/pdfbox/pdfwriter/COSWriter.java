@@ -79,6 +79,7 @@ import org.apache.pdfbox.pdmodel.fdf.FDFDocument;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.COSFilterInputStream;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.SignatureInterface;
 import org.apache.pdfbox.util.Hex;
+import org.apache.pdfbox.util.ParallelUtil;
 
 /**
  * This class acts on a in-memory representation of a PDF document.
@@ -234,6 +235,8 @@ public class COSWriter implements ICOSVisitor
     private COSArray byteRangeArray;
     private final CompressParameters compressParameters;
     private boolean blockAddingObject = false;
+    private boolean streamDeduplication = false;
+    private COSStreamDeduplicator deduplicator = null;
 
     /**
      * COSWriter constructor.
@@ -322,6 +325,42 @@ public class COSWriter implements ICOSVisitor
         return compressParameters != null && compressParameters.isCompress();
     }
 
+    /**
+     * Enables or disables the deduplication of streams. If enabled, only one of several streams with the same data and
+     * dictionary is written and all references point to it, e.g. for documents which embed the same image or font
+     * many times. Duplicates are found by a hash of the encoded data, which is only calculated if there are streams of
+     * the same length. This is ignored for incremental updates. It is disabled by default.
+     *
+     * @param streamDeduplication true to write duplicate streams only once
+     */
+    public void setStreamDeduplication(boolean streamDeduplication)
+    {
+        this.streamDeduplication = streamDeduplication;
+    }
+
+    /**
+     * Returns the number of streams which weren't written as they are duplicates of another stream.
+     *
+     * @return the number of duplicate streams, 0 if the deduplication of streams is disabled
+     * @see #setStreamDeduplication(boolean)
+     */
+    public long getDeduplicatedStreamCount()
+    {
+        return deduplicator != null ? deduplicator.getDuplicateCount() : 0;
+    }
+
+    /**
+     * Returns the size of the encoded data of the streams which weren't written as they are duplicates of another
+     * stream.
+     *
+     * @return the number of bytes saved by the deduplication of streams, 0 if it is disabled
+     * @see #setStreamDeduplication(boolean)
+     */
+    public long getDeduplicatedBytes()
+    {
+        return deduplicator != null ? deduplicator.getDuplicateBytes() : 0;
+    }
+
     private void prepareIncrement()
     {
         COSDocument cosDoc = pdDocument.getDocument();
@@ -469,7 +508,7 @@ public class COSWriter implements ICOSVisitor
         if (trailer.containsKey(COSName.ROOT))
         {
             COSWriterCompressionPool compressionPool = new COSWriterCompressionPool(pdDocument,
-                    compressParameters);
+                    compressParameters, deduplicator);
             // Append object stream entries to document.
             for (COSObjectKey key : compressionPool.getObjectStreamObjects())
             {
@@ -493,27 +532,17 @@ public class COSWriter implements ICOSVisitor
                 doWriteObject(key, keyObject.get(key));
             }
             // Append object streams to document.
-            for (COSWriterObjectStream finalizedObjectStream : compressionPool
-                    .createObjectStreams())
+            List<COSWriterObjectStream> objectStreams = compressionPool.createObjectStreams();
+            if (compressParameters.getParallelism() > 1 && objectStreams.size() > 1)
             {
-                // Create new COSObject for object stream.
-                COSStream stream = finalizedObjectStream
-                        .writeObjectsToStream(document.createCOSStream());
-                // Determine key for object stream.
-                COSObjectKey objectStreamKey = new COSObjectKey(++number, 0);
-                // Create new COSObject for object stream.
-                COSObject objectStream = new COSObject(stream, objectStreamKey);
-                // Add object stream entries to xref - stream.
-                int i = 0;
-                for (COSObjectKey key : finalizedObjectStream.getPreparedKeys())
+                doWriteObjectStreamsParallel(document, compressionPool, objectStreams);
+            }
+            else
+            {
+                for (COSWriterObjectStream finalizedObjectStream : objectStreams)
                 {
-                    COSBase object = compressionPool.getObject(key);
-                    addXRefEntry(new ObjectStreamXReference(i, key, object, objectStreamKey));
-                    i++;
+                    doWriteObjectStream(document, compressionPool, finalizedObjectStream);
                 }
-                // Include object stream in document.
-                currentObjectKey = objectStreamKey;
-                doWriteObject(objectStreamKey, objectStream);
             }
             willEncrypt = false;
             if (encrypt != null)
@@ -530,6 +559,53 @@ public class COSWriter implements ICOSVisitor
         }
     }
 
+    /**
+     * This will write the given object stream and add the entries of its objects to the xref stream.
+     */
+    private void doWriteObjectStream(COSDocument document, COSWriterCompressionPool compressionPool,
+            COSWriterObjectStream finalizedObjectStream) throws IOException
+    {
+        // Create new COSObject for object stream.
+        COSStream stream = finalizedObjectStream.writeObjectsToStream(document.createCOSStream());
+        // Determine key for object stream.
+        COSObjectKey objectStreamKey = new COSObjectKey(++number, 0);
+        // Create new COSObject for object stream.
+        COSObject objectStream = new COSObject(stream, objectStreamKey);
+        // Add object stream entries to xref - stream.
+        int i = 0;
+        for (COSObjectKey key : finalizedObjectStream.getPreparedKeys())
+        {
+            COSBase object = compressionPool.getObject(key);
+            addXRefEntry(new ObjectStreamXReference(i, key, object, objectStreamKey));
+            i++;
+        }
+        // Include object stream in document.
+        currentObjectKey = objectStreamKey;
+        doWriteObject(objectStreamKey, objectStream);
+    }
+
+    /**
+     * This will encode the given object streams using the number of threads of the compress parameters and write
+     * them in their original order, so that the output is the same as the one of the single threaded writer. Only a
+     * limited number of encoded object streams is held in memory.
+     */
+    private void doWriteObjectStreamsParallel(COSDocument document,
+            COSWriterCompressionPool compressionPool, List<COSWriterObjectStream> objectStreams)
+            throws IOException
+    {
+        ParallelUtil.forEachOrdered("COSWriter", compressParameters.getParallelism(),
+                objectStreams.size(), index ->
+                {
+                    COSWriterObjectStream objectStream = objectStreams.get(index);
+                    return () ->
+                    {
+                        objectStream.encodeObjects();
+                        return objectStream;
+                    };
+                }, (index, objectStream) -> doWriteObjectStream(document, compressionPool, objectStream),
+                null);
+    }
+
     private void doWriteObjects() throws IOException
     {
         while (!objectsToWrite.isEmpty())
@@ -538,12 +614,16 @@ public class COSWriter implements ICOSVisitor
         }
     }
 
-    private void addObjectToWrite( COSBase object )
+    private void addObjectToWrite( COSBase object ) throws IOException
     {
         if (blockAddingObject)
         {
             return;
         }
+        if (deduplicator != null)
+        {
+            object = getCanonicalObject(object);
+        }
         COSBase actual = object;
         if( actual instanceof COSObject )
         {
@@ -1070,8 +1150,12 @@ public class COSWriter implements ICOSVisitor
      *
      * @return The object key for the object.
      */
-    private COSObjectKey getObjectKey( COSBase obj )
+    private COSObjectKey getObjectKey( COSBase obj ) throws IOException
     {
+        if (deduplicator != null)
+        {
+            obj = getCanonicalObject(obj);
+        }
         COSObjectKey key = obj.getKey();
         COSBase actual;
         if (obj instanceof COSObject)
@@ -1111,6 +1195,24 @@ public class COSWriter implements ICOSVisitor
         return key;
     }
 
+    /**
+     * Returns the stream which is written instead of the given object if it is a duplicate stream, otherwise the given
+     * object.
+     */
+    private COSBase getCanonicalObject(COSBase object) throws IOException
+    {
+        COSBase actual = object instanceof COSObject ? ((COSObject) object).getObject() : object;
+        if (actual instanceof COSStream)
+        {
+            COSStream canonical = deduplicator.getCanonical((COSStream) actual);
+            if (canonical != actual)
+            {
+                return canonical;
+            }
+        }
+        return object;
+    }
+
     @Override
     public void visitFromArray(COSArray array) throws IOException
     {
@@ -1502,6 +1604,10 @@ public class COSWriter implements ICOSVisitor
             });
         }
         signatureInterface = signInterface;
+        if (streamDeduplication && !incrementalUpdate)
+        {
+            deduplicator = new COSStreamDeduplicator();
+        }
         number = pdDocument.getDocument().getHighestXRefObjectNumber();
         if (incrementalUpdate)
         {
@@ -1595,6 +1701,11 @@ public class COSWriter implements ICOSVisitor
         {
             cosDoc.setHighestXRefObjectNumber(number);
         }
+        if (deduplicator != null && LOG.isDebugEnabled())
+        {
+            LOG.debug("Skipped " + deduplicator.getDuplicateCount() + " duplicate streams of "
+                    + deduplicator.getDuplicateBytes() + " bytes");
+        }
     }
 
     /**
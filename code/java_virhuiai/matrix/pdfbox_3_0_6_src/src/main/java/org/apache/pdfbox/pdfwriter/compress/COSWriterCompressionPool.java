@@ -20,11 +20,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.pdfbox.pdfparser.PDFXRefStream;
+import org.apache.pdfbox.pdfwriter.COSStreamDeduplicator;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
@@ -49,6 +52,7 @@ public class COSWriterCompressionPool
     private final CompressParameters parameters;
 
     private final COSObjectPool objectPool;
+    private final COSStreamDeduplicator deduplicator;
 
     // A list containing all objects, that shall be directly appended to the document's top level container.
     private final List<COSObjectKey> topLevelObjects = new ArrayList<>();
@@ -56,6 +60,8 @@ public class COSWriterCompressionPool
     private final List<COSObjectKey> objectStreamObjects = new ArrayList<>();
     // A list of all direct objects
     private final Set<COSBase> allDirectObjects = new HashSet<>();
+    // The duplicate streams, which aren't added to the pool, and the streams which are written instead
+    private final Map<COSBase, COSStream> duplicateStreams = new IdentityHashMap<>();
 
     /**
      * <p>
@@ -73,8 +79,25 @@ public class COSWriterCompressionPool
      */
     public COSWriterCompressionPool(PDDocument document, CompressParameters parameters)
             throws IOException
+    {
+        this(document, parameters, null);
+    }
+
+    /**
+     * Constructs an object that can be used to compress the contents of a given {@link PDDocument}. Streams with the
+     * same content as another stream aren't added to the pool, the references to them are written as references to
+     * the other stream.
+     *
+     * @param document The document, that shall be compressed.
+     * @param parameters The configuration of the compression operations, that shall be applied.
+     * @param deduplicator The deduplicator of streams, or null if all streams shall be added to the pool.
+     * @throws IOException Shall be thrown if a compression operation failed.
+     */
+    public COSWriterCompressionPool(PDDocument document, CompressParameters parameters,
+            COSStreamDeduplicator deduplicator) throws IOException
     {
         this.document = document;
+        this.deduplicator = deduplicator;
         this.parameters = parameters != null ? parameters : new CompressParameters();
         objectPool = new COSObjectPool(document.getDocument().getHighestXRefObjectNumber());
 
@@ -165,6 +188,10 @@ public class COSWriterCompressionPool
      */
     private void addStructure(COSBase current) throws IOException
     {
+        if (deduplicator != null && addDuplicate(current))
+        {
+            return;
+        }
         COSBase base = current;
         if (current instanceof COSStream
                 || (current instanceof COSDictionary && !current.isDirect()) //
@@ -191,6 +218,33 @@ public class COSWriterCompressionPool
         }
     }
 
+    /**
+     * Checks whether the given object is a duplicate stream. The stream which is written instead is added to the pool,
+     * and the duplicate is mapped to it, so that references to the duplicate are written as references to it. The
+     * duplicate and the indirect objects referring to it aren't modified.
+     *
+     * @return true if the object is a duplicate stream
+     */
+    private boolean addDuplicate(COSBase current) throws IOException
+    {
+        COSBase actual = current instanceof COSObject ? ((COSObject) current).getObject() : current;
+        if (!(actual instanceof COSStream))
+        {
+            return false;
+        }
+        COSStream canonical = deduplicator.getCanonical((COSStream) actual);
+        if (canonical == actual)
+        {
+            return false;
+        }
+        if (!objectPool.contains(canonical))
+        {
+            addStructure(canonical);
+        }
+        duplicateStreams.put(actual, canonical);
+        return true;
+    }
+
     private void addElements(Iterator<COSBase> elements) throws IOException
     {
         while (elements.hasNext())
@@ -255,7 +309,7 @@ public class COSWriterCompressionPool
      */
     public boolean contains(COSBase object)
     {
-        return objectPool.contains(object);
+        return objectPool.contains(object) || getDuplicate(object) != null;
     }
 
     /**
@@ -267,7 +321,34 @@ public class COSWriterCompressionPool
      */
     public COSObjectKey getKey(COSBase object)
     {
-        return objectPool.getKey(object);
+        COSStream canonical = getDuplicate(object);
+        return objectPool.getKey(canonical != null ? canonical : object);
+    }
+
+    /**
+     * Returns the key a reference to the given indirect object is written with. This is the key of the stream which
+     * is written instead, if the indirect object refers to a duplicate stream, otherwise the key of the indirect
+     * object.
+     *
+     * @param object The indirect object.
+     * @return The key of the reference, null if the indirect object has no key.
+     */
+    COSObjectKey getReferenceKey(COSObject object)
+    {
+        COSStream canonical = getDuplicate(object);
+        return canonical != null ? objectPool.getKey(canonical) : object.getKey();
+    }
+
+    /**
+     * Returns the stream which is written instead of the given duplicate stream.
+     */
+    private COSStream getDuplicate(COSBase object)
+    {
+        if (duplicateStreams.isEmpty())
+        {
+            return null;
+        }
+        return duplicateStreams.get(object instanceof COSObject ? ((COSObject) object).getObject() : object);
     }
 
     /**
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdfwriter.compress;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -39,6 +40,7 @@ import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSObjectKey;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.filter.FilterFactory;
 import org.apache.pdfbox.pdfparser.PDFXRefStream;
 import org.apache.pdfbox.pdfwriter.COSWriter;
 
@@ -57,6 +59,8 @@ public class COSWriterObjectStream
     private final COSWriterCompressionPool compressionPool;
     private final List<COSObjectKey> preparedKeys = new ArrayList<>();
     private final List<COSBase> preparedObjects = new ArrayList<>();
+    private byte[] encodedData;
+    private int firstObjectOffset;
 
     /**
      * Creates an object stream for compressible objects from the given {@link COSWriterCompressionPool}. The objects
@@ -111,49 +115,103 @@ public class COSWriterObjectStream
         int objectCount = preparedKeys.size();
         stream.setItem(COSName.TYPE, COSName.OBJ_STM);
         stream.setInt(COSName.N, objectCount);
-        // Prepare the compressible objects for writing.
-        List<Long> objectNumbers = new ArrayList<>(objectCount);
+        if (encodedData != null)
+        {
+            // Copy the data encoded by encodeObjects().
+            stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+            stream.setInt(COSName.FIRST, firstObjectOffset);
+            try (OutputStream output = stream.createRawOutputStream())
+            {
+                output.write(encodedData);
+            }
+            encodedData = null;
+            return stream;
+        }
+        List<byte[]> objectsBuffer = serializeObjects();
+        byte[] offsetsMapBuffer = createOffsetsMap(objectsBuffer);
+
+        // Write Flate compressed object stream data.
+        try (OutputStream output = stream.createOutputStream(COSName.FLATE_DECODE))
+        {
+            output.write(offsetsMapBuffer);
+            stream.setInt(COSName.FIRST, offsetsMapBuffer.length);
+            for (byte[] rawObject : objectsBuffer)
+            {
+                output.write(rawObject);
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * Serializes and Flate encodes all prepared {@link COSObject}s in advance, so that a following call of
+     * {@link COSWriterObjectStream#writeObjectsToStream(COSStream)} only has to copy the encoded data. This doesn't
+     * modify any of the prepared objects and may therefore be called by another thread than the writing thread, as
+     * long as the prepared objects aren't modified meanwhile.
+     *
+     * @throws IOException Shall be thrown, if encoding the object stream failed.
+     */
+    public void encodeObjects() throws IOException
+    {
+        List<byte[]> objectsBuffer = serializeObjects();
+        byte[] offsetsMapBuffer = createOffsetsMap(objectsBuffer);
+        try (ByteArrayOutputStream rawOutput = new ByteArrayOutputStream())
+        {
+            rawOutput.write(offsetsMapBuffer);
+            for (byte[] rawObject : objectsBuffer)
+            {
+                rawOutput.write(rawObject);
+            }
+            try (ByteArrayOutputStream encodedOutput = new ByteArrayOutputStream())
+            {
+                FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE).encode(
+                        new ByteArrayInputStream(rawOutput.toByteArray()), encodedOutput,
+                        new COSDictionary(), 0);
+                encodedData = encodedOutput.toByteArray();
+                firstObjectOffset = offsetsMapBuffer.length;
+            }
+        }
+    }
+
+    /**
+     * Prepares the compressible objects for writing.
+     */
+    private List<byte[]> serializeObjects() throws IOException
+    {
+        int objectCount = preparedKeys.size();
         List<byte[]> objectsBuffer = new ArrayList<>(objectCount);
         for (int i = 0; i < objectCount; i++)
         {
             try (ByteArrayOutputStream partialOutput = new ByteArrayOutputStream())
             {
-                objectNumbers.add(preparedKeys.get(i).getNumber());
                 COSBase base = preparedObjects.get(i);
                 writeObject(partialOutput, base, true);
                 objectsBuffer.add(partialOutput.toByteArray());
             }
         }
+        return objectsBuffer;
+    }
 
-        // Deduce the object stream byte offset map.
-        byte[] offsetsMapBuffer;
+    /**
+     * Deduces the object stream byte offset map.
+     */
+    private byte[] createOffsetsMap(List<byte[]> objectsBuffer) throws IOException
+    {
         long nextObjectOffset = 0;
         try (ByteArrayOutputStream partialOutput = new ByteArrayOutputStream())
         {
-            for (int i = 0; i < objectNumbers.size(); i++)
+            for (int i = 0; i < objectsBuffer.size(); i++)
             {
-                partialOutput.write(
-                        String.valueOf(objectNumbers.get(i)).getBytes(StandardCharsets.ISO_8859_1));
+                partialOutput.write(String.valueOf(preparedKeys.get(i).getNumber())
+                        .getBytes(StandardCharsets.ISO_8859_1));
                 partialOutput.write(COSWriter.SPACE);
                 partialOutput.write(
                         String.valueOf(nextObjectOffset).getBytes(StandardCharsets.ISO_8859_1));
                 partialOutput.write(COSWriter.SPACE);
                 nextObjectOffset += objectsBuffer.get(i).length;
             }
-            offsetsMapBuffer = partialOutput.toByteArray();
+            return partialOutput.toByteArray();
         }
-
-        // Write Flate compressed object stream data.
-        try (OutputStream output = stream.createOutputStream(COSName.FLATE_DECODE))
-        {
-            output.write(offsetsMapBuffer);
-            stream.setInt(COSName.FIRST, offsetsMapBuffer.length);
-            for (byte[] rawObject : objectsBuffer)
-            {
-                output.write(rawObject);
-            }
-        }
-        return stream;
     }
 
     /**
@@ -177,7 +235,7 @@ public class COSWriterObjectStream
         {
             if (!topLevel)
             {
-                COSObjectKey actualKey = ((COSObject) object).getKey();
+                COSObjectKey actualKey = compressionPool.getReferenceKey((COSObject) object);
                 if (actualKey != null)
                 {
                     writeObjectReference(output, actualKey);
@@ -29,6 +29,7 @@ public class CompressParameters
     public static final int DEFAULT_OBJECT_STREAM_SIZE = 200;
 
     private final int objectStreamSize;
+    private final int parallelism;
 
     public CompressParameters()
     {
@@ -44,12 +45,31 @@ public class CompressParameters
      * 
      */
     public CompressParameters(int objectStreamSize)
+    {
+        this(objectStreamSize, 1);
+    }
+
+    /**
+     * Sets the number of objects, that can be contained in compressed object streams, and the number of threads used
+     * to serialize and Flate encode the object streams. The object streams are still written in the same order, so
+     * that the result doesn't depend on the number of threads.
+     *
+     * @param objectStreamSize The number of objects, that can be contained in compressed object streams.
+     * @param parallelism The number of threads used to encode the object streams, 1 encodes them on the writing
+     * thread.
+     */
+    public CompressParameters(int objectStreamSize, int parallelism)
     {
         if (objectStreamSize < 0)
         {
             throw new IllegalArgumentException("Object stream size can't be a negative value");
         }
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
         this.objectStreamSize = objectStreamSize;
+        this.parallelism = parallelism;
     }
 
     /**
@@ -64,6 +84,16 @@ public class CompressParameters
         return objectStreamSize;
     }
 
+    /**
+     * Returns the number of threads used to serialize and Flate encode the object streams.
+     *
+     * @return The number of threads, 1 if the object streams are encoded on the writing thread.
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
     /**
      * Indicates whether the creation of compressed object streams is enabled or not.
      * 
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.util.LRUCache;
+
+/**
+ * A thread safe resource cache with a limited number of entries for each type of resource. Resources are held by
+ * strong references and the least recently used resource of a type is evicted if the limit is reached. Contrary to
+ * {@link DefaultResourceCache} the cached resources don't get lost all at once under memory pressure.
+ *
+ * <p>The cache keeps track of hits, misses and evictions for each type of resource, see
+ * {@link #getStatistics(ResourceType)}.</p>
+ *
+ * <p>One instance may be shared by several documents using {@link PDDocument#setResourceCache(ResourceCache)}, so
+ * that the limits apply to all documents together. The resources are cached by their indirect objects, i.e. by
+ * identity and not by content, as a resource belongs to the document it was loaded from. Documents sharing a cache
+ * therefore don't share resources, even if they use the same fonts. The indirect objects are held by weak references,
+ * so that the resources of a closed document are released once the document isn't referenced anymore, or earlier
+ * by {@link #clear()}.</p>
+ */
+public class BoundedResourceCache implements ResourceCache
+{
+    /**
+     * The default maximum number of cached resources of each type.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /**
+     * The types of resources held by the cache.
+     */
+    public enum ResourceType
+    {
+        FONT, COLOR_SPACE, EXT_G_STATE, SHADING, PATTERN, PROPERTY_LIST, XOBJECT
+    }
+
+    private final LRUCache<ObjectKey, PDFont> fonts;
+    private final LRUCache<ObjectKey, PDColorSpace> colorSpaces;
+    private final LRUCache<ObjectKey, PDExtendedGraphicsState> extGStates;
+    private final LRUCache<ObjectKey, PDShading> shadings;
+    private final LRUCache<ObjectKey, PDAbstractPattern> patterns;
+    private final LRUCache<ObjectKey, PDPropertyList> properties;
+    private final LRUCache<ObjectKey, PDXObject> xobjects;
+
+    private final Map<ResourceType, LRUCache<ObjectKey, ?>> caches = new EnumMap<>(ResourceType.class);
+
+    private final ReferenceQueue<COSObject> staleKeys = new ReferenceQueue<>();
+
+    /**
+     * Creates a cache holding up to {@value #DEFAULT_MAX_ENTRIES} resources of each type.
+     */
+    public BoundedResourceCache()
+    {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a cache holding up to the given number of resources of each type.
+     *
+     * @param maxEntries the maximum number of resources of each type, 0 disables caching
+     * @throws IllegalArgumentException if the given number is negative
+     */
+    public BoundedResourceCache(int maxEntries)
+    {
+        fonts = createCache(ResourceType.FONT, maxEntries);
+        colorSpaces = createCache(ResourceType.COLOR_SPACE, maxEntries);
+        extGStates = createCache(ResourceType.EXT_G_STATE, maxEntries);
+        shadings = createCache(ResourceType.SHADING, maxEntries);
+        patterns = createCache(ResourceType.PATTERN, maxEntries);
+        properties = createCache(ResourceType.PROPERTY_LIST, maxEntries);
+        xobjects = createCache(ResourceType.XOBJECT, maxEntries);
+    }
+
+    private <T> LRUCache<ObjectKey, T> createCache(ResourceType type, int maxEntries)
+    {
+        LRUCache<ObjectKey, T> cache = new LRUCache<>(maxEntries, resource -> 1);
+        caches.put(type, cache);
+        return cache;
+    }
+
+    private <T> T get(LRUCache<ObjectKey, T> cache, COSObject indirect)
+    {
+        expungeStaleEntries();
+        return cache.get(new ObjectKey(indirect, null));
+    }
+
+    private <T> void put(LRUCache<ObjectKey, T> cache, COSObject indirect, T resource)
+    {
+        expungeStaleEntries();
+        if (resource == null)
+        {
+            cache.remove(new ObjectKey(indirect, null));
+        }
+        else
+        {
+            cache.put(new ObjectKey(indirect, staleKeys), resource);
+        }
+    }
+
+    private <T> T remove(LRUCache<ObjectKey, T> cache, COSObject indirect)
+    {
+        expungeStaleEntries();
+        return cache.remove(new ObjectKey(indirect, null));
+    }
+
+    // removes the resources whose indirect objects were garbage collected
+    private void expungeStaleEntries()
+    {
+        Reference<? extends COSObject> staleKey;
+        while ((staleKey = staleKeys.poll()) != null)
+        {
+            for (LRUCache<ObjectKey, ?> cache : caches.values())
+            {
+                cache.remove((ObjectKey) staleKey);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached resources of the given type. The least recently used resources are evicted
+     * if there are more resources in the cache.
+     *
+     * @param type the type of resources
+     * @param maxEntries the maximum number of resources, 0 disables caching
+     * @throws IllegalArgumentException if the given number is negative
+     */
+    public void setMaxEntries(ResourceType type, int maxEntries)
+    {
+        caches.get(type).setMaxWeight(maxEntries);
+    }
+
+    /**
+     * Returns the maximum number of cached resources of the given type.
+     *
+     * @param type the type of resources
+     * @return the maximum number of resources
+     */
+    public int getMaxEntries(ResourceType type)
+    {
+        return (int) caches.get(type).getMaxWeight();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the given type of resources.
+     *
+     * @param type the type of resources
+     * @return the statistics
+     */
+    public LRUCache.Statistics getStatistics(ResourceType type)
+    {
+        return caches.get(type).getStatistics();
+    }
+
+    /**
+     * Removes all resources from the cache. The statistics are kept.
+     */
+    public void clear()
+    {
+        caches.values().forEach(LRUCache::clear);
+    }
+
+    @Override
+    public PDFont getFont(COSObject indirect)
+    {
+        return get(fonts, indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDFont font)
+    {
+        put(fonts, indirect, font);
+    }
+
+    @Override
+    public PDFont removeFont(COSObject indirect)
+    {
+        return remove(fonts, indirect);
+    }
+
+    @Override
+    public PDColorSpace getColorSpace(COSObject indirect)
+    {
+        return get(colorSpaces, indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDColorSpace colorSpace)
+    {
+        put(colorSpaces, indirect, colorSpace);
+    }
+
+    @Override
+    public PDColorSpace removeColorSpace(COSObject indirect)
+    {
+        return remove(colorSpaces, indirect);
+    }
+
+    @Override
+    public PDExtendedGraphicsState getExtGState(COSObject indirect)
+    {
+        return get(extGStates, indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDExtendedGraphicsState extGState)
+    {
+        put(extGStates, indirect, extGState);
+    }
+
+    @Override
+    public PDExtendedGraphicsState removeExtState(COSObject indirect)
+    {
+        return remove(extGStates, indirect);
+    }
+
+    @Override
+    public PDShading getShading(COSObject indirect)
+    {
+        return get(shadings, indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDShading shading)
+    {
+        put(shadings, indirect, shading);
+    }
+
+    @Override
+    public PDShading removeShading(COSObject indirect)
+    {
+        return remove(shadings, indirect);
+    }
+
+    @Override
+    public PDAbstractPattern getPattern(COSObject indirect)
+    {
+        return get(patterns, indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDAbstractPattern pattern)
+    {
+        put(patterns, indirect, pattern);
+    }
+
+    @Override
+    public PDAbstractPattern removePattern(COSObject indirect)
+    {
+        return remove(patterns, indirect);
+    }
+
+    @Override
+    public PDPropertyList getProperties(COSObject indirect)
+    {
+        return get(properties, indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDPropertyList propertyList)
+    {
+        put(properties, indirect, propertyList);
+    }
+
+    @Override
+    public PDPropertyList removeProperties(COSObject indirect)
+    {
+        return remove(properties, indirect);
+    }
+
+    @Override
+    public PDXObject getXObject(COSObject indirect)
+    {
+        return get(xobjects, indirect);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDXObject xobject)
+    {
+        put(xobjects, indirect, xobject);
+    }
+
+    @Override
+    public PDXObject removeXObject(COSObject indirect)
+    {
+        return remove(xobjects, indirect);
+    }
+
+    /**
+     * Identifies a resource by its indirect object, which is held by a weak reference.
+     */
+    private static final class ObjectKey extends WeakReference<COSObject>
+    {
+        private final int hash;
+
+        private ObjectKey(COSObject indirect, ReferenceQueue<COSObject> queue)
+        {
+            super(indirect, queue);
+            hash = System.identityHashCode(indirect);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof ObjectKey))
+            {
+                return false;
+            }
+            COSObject indirect = get();
+            return indirect != null && indirect == ((ObjectKey) obj).get();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
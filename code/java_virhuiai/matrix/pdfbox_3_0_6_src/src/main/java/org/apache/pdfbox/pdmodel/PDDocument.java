@@ -95,6 +95,22 @@ public class PDDocument implements Closeable
 
     private static final Log LOG = LogFactory.getLog(PDDocument.class);
 
+    /**
+     * Enables the sparse access to the page tree of all documents if set to "true".
+     * 
+     * @see #setSparsePageAccess(boolean)
+     */
+    public static final String SYSPROP_SPARSE_PAGE_ACCESS =
+            "org.apache.pdfbox.pdmodel.sparsePageAccess";
+
+    /**
+     * Enables the deduplication of streams when saving all documents if set to "true".
+     * 
+     * @see #setStreamDeduplication(boolean)
+     */
+    public static final String SYSPROP_STREAM_DEDUPLICATION =
+            "org.apache.pdfbox.pdmodel.streamDeduplication";
+
     /*
      * avoid concurrency issues with PDDeviceRGB
      */
@@ -152,6 +168,15 @@ public class PDDocument implements Closeable
     // to make sure only one signature is added
     private boolean signatureAdded = false;
 
+    // walk the page tree without dereferencing the pages which aren't needed
+    private boolean sparsePageAccess = Boolean.getBoolean(SYSPROP_SPARSE_PAGE_ACCESS);
+
+    // write streams with the same content only once when saving
+    private boolean streamDeduplication = Boolean.getBoolean(SYSPROP_STREAM_DEDUPLICATION);
+
+    // the number of bytes saved by the deduplication of streams when the document was saved the last time
+    private long deduplicatedBytes = 0;
+
     // cache for the key of all imported indirect objects
     private final Collection<COSObjectKey> indirectObjectKeys = new HashSet<>();
 
@@ -1053,7 +1078,9 @@ public class PDDocument implements Closeable
 
         // save PDF
         COSWriter writer = new COSWriter(output, compressParameters);
+        writer.setStreamDeduplication(streamDeduplication);
         writer.write(this);
+        deduplicatedBytes = writer.getDeduplicatedBytes();
     }
 
     private void subsetDesignatedFonts() throws IOException
@@ -1298,6 +1325,12 @@ public class PDDocument implements Closeable
                 firstException = IOUtils.closeAndLogException(ttf, LOG, "TrueTypeFont", firstException);
             }
 
+            // drop the keys of the encrypted objects
+            if (encryption != null)
+            {
+                encryption.clearKeys();
+            }
+
             // rethrow first exception to keep method contract
             if (firstException != null)
             {
@@ -1493,4 +1526,71 @@ public class PDDocument implements Closeable
     {
         this.resourceCache = resourceCache;
     }
+
+    /**
+     * Enables or disables the sparse access to the page tree. If enabled, {@link PDPageTree#get(int)} uses the
+     * Count values of the page tree nodes to find the requested page and dereferences the kids of a node only as far as
+     * needed, and the iterator of the page tree dereferences the pages one at a time. Pages and page tree nodes which
+     * aren't requested are never parsed, so that e.g. a preview of the first page of a big document doesn't depend on
+     * its page count. Use {@link COSDocument#getMaterializedObjectCount()} to find out how many objects were parsed.
+     *
+     * <p>
+     * The kids of a page tree node preceding the requested page are still dereferenced to get their type and Count,
+     * so that a flat page tree is parsed up to the requested page. The sparse access is disabled by default. In case
+     * system property {@link #SYSPROP_SPARSE_PAGE_ACCESS} is defined this value will be set when the document is
+     * created.
+     * </p>
+     *
+     * @param sparsePageAccess true to enable the sparse access to the page tree
+     */
+    public void setSparsePageAccess(boolean sparsePageAccess)
+    {
+        this.sparsePageAccess = sparsePageAccess;
+    }
+
+    /**
+     * Indicates if the sparse access to the page tree is enabled.
+     *
+     * @return true if pages are dereferenced only when they are requested
+     */
+    public boolean isSparsePageAccess()
+    {
+        return sparsePageAccess;
+    }
+
+    /**
+     * Enables or disables the deduplication of streams when the document is saved. If enabled, streams with the same
+     * data and dictionary, e.g. the same image or font embedded several times by merging documents, are written only
+     * once and all references point to the same object. The document itself isn't changed. This doesn't apply to
+     * incremental saves. In case system property {@link #SYSPROP_STREAM_DEDUPLICATION} is defined this value will be
+     * set when the document is created.
+     *
+     * @param streamDeduplication true to write duplicate streams only once
+     * @see COSWriter#setStreamDeduplication(boolean)
+     */
+    public void setStreamDeduplication(boolean streamDeduplication)
+    {
+        this.streamDeduplication = streamDeduplication;
+    }
+
+    /**
+     * Indicates if the deduplication of streams is enabled.
+     *
+     * @return true if duplicate streams are written only once when saving
+     */
+    public boolean isStreamDeduplication()
+    {
+        return streamDeduplication;
+    }
+
+    /**
+     * Returns the number of bytes of stream data which weren't written when the document was saved the last time, as
+     * the streams were duplicates of other streams.
+     *
+     * @return the number of bytes saved by the deduplication of streams, 0 if it is disabled
+     */
+    public long getDeduplicatedBytes()
+    {
+        return deduplicatedBytes;
+    }
 }
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.pdmodel;
 
 import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Queue;
 import org.apache.pdfbox.cos.COSArray;
@@ -139,7 +140,16 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
     @Override
     public Iterator<PDPage> iterator()
     {
-        return new PageIterator(root);
+        return isSparseAccess() ? new SparsePageIterator() : new PageIterator(root);
+    }
+
+    /**
+     * Indicates if pages are dereferenced only when they are requested, see
+     * {@link PDDocument#setSparsePageAccess(boolean)}.
+     */
+    private boolean isSparseAccess()
+    {
+        return document != null && document.isSparsePageAccess();
     }
 
     /**
@@ -161,31 +171,41 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
 
         for (int i = 0; i < size; i++)
         {
-            COSBase base = kids.getObject(i);
-            if (base instanceof COSDictionary)
+            COSDictionary kid = getKid(kids, i);
+            if (kid != null)
             {
-                result.add((COSDictionary) base);
-            }
-            else
-            {
-                if (base == null)
-                {
-                    LOG.warn("replaced null entry with an empty page");
-                    COSDictionary emptyPage = new COSDictionary();
-                    emptyPage.setItem(COSName.TYPE, COSName.PAGE);
-                    kids.set(i, emptyPage);
-                    result.add(emptyPage);
-                }
-                else
-                {
-                    LOG.warn("COSDictionary expected, but got " + base.getClass().getSimpleName());
-                }
+                result.add(kid);
             }
         }
 
         return result;
     }
 
+    /**
+     * Helper to get a single kid from malformed PDFs.
+     * @param kids the kids of a page tree node
+     * @param index the index of the kid
+     * @return the kid or null if it isn't a dictionary
+     */
+    private static COSDictionary getKid(COSArray kids, int index)
+    {
+        COSBase base = kids.getObject(index);
+        if (base instanceof COSDictionary)
+        {
+            return (COSDictionary) base;
+        }
+        if (base == null)
+        {
+            LOG.warn("replaced null entry with an empty page");
+            COSDictionary emptyPage = new COSDictionary();
+            emptyPage.setItem(COSName.TYPE, COSName.PAGE);
+            kids.set(index, emptyPage);
+            return emptyPage;
+        }
+        LOG.warn("COSDictionary expected, but got " + base.getClass().getSimpleName());
+        return null;
+    }
+
     /**
      * Iterator which walks all pages in the tree, in order.
      */
@@ -262,6 +282,117 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
         }
     }
 
+    /**
+     * Iterator which walks all pages in the tree, in order, dereferencing the kids of a page tree node one at a time
+     * when they are reached.
+     */
+    private final class SparsePageIterator implements Iterator<PDPage>
+    {
+        // the kids of the nodes on the current path and the index of the next kid to be visited
+        private final Deque<COSArray> kidsStack = new ArrayDeque<>();
+        private final Deque<int[]> indexStack = new ArrayDeque<>();
+        private final Set<COSDictionary> set = new HashSet<>();
+        private COSDictionary nextPage;
+
+        private SparsePageIterator()
+        {
+            if (isPageTreeNode(root))
+            {
+                set.add(root);
+                push(root);
+            }
+            else
+            {
+                LOG.error("Page skipped due to an invalid or missing type "
+                        + root.getCOSName(COSName.TYPE));
+            }
+        }
+
+        private void push(COSDictionary node)
+        {
+            COSArray kids = node.getCOSArray(COSName.KIDS);
+            if (kids != null)
+            {
+                kidsStack.push(kids);
+                indexStack.push(new int[1]);
+            }
+        }
+
+        private COSDictionary findNextPage()
+        {
+            while (!kidsStack.isEmpty())
+            {
+                COSArray kids = kidsStack.peek();
+                int[] index = indexStack.peek();
+                if (index[0] >= kids.size())
+                {
+                    kidsStack.pop();
+                    indexStack.pop();
+                    continue;
+                }
+                COSDictionary kid = getKid(kids, index[0]++);
+                if (kid == null)
+                {
+                    continue;
+                }
+                if (isPageTreeNode(kid))
+                {
+                    if (set.add(kid))
+                    {
+                        push(kid);
+                    }
+                    else
+                    {
+                        // PDFBOX-5009, PDFBOX-3953: prevent endless loops with malformed PDFs
+                        LOG.error("This page tree node has already been visited");
+                    }
+                }
+                else if (COSName.PAGE.equals(kid.getCOSName(COSName.TYPE)))
+                {
+                    return kid;
+                }
+                else
+                {
+                    LOG.error("Page skipped due to an invalid or missing type "
+                            + kid.getCOSName(COSName.TYPE));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (nextPage == null)
+            {
+                nextPage = findNextPage();
+            }
+            return nextPage != null;
+        }
+
+        @Override
+        public PDPage next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            COSDictionary next = nextPage;
+            nextPage = null;
+
+            sanitizeType(next);
+
+            ResourceCache resourceCache = document != null ? document.getResourceCache() : null;
+            return new PDPage(next, resourceCache);
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * Returns the page at the given index.
      *
@@ -273,7 +404,7 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
      */
     public PDPage get(int index)
     {
-        COSDictionary dict = get(index + 1, root, 0);
+        COSDictionary dict = isSparseAccess() ? getSparse(index + 1) : get(index + 1, root, 0);
 
         sanitizeType(dict);
 
@@ -378,6 +509,77 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
         }
     }
 
+    /**
+     * Returns the given COS page using the Count values of the page tree nodes. The kids of a node are dereferenced
+     * only up to the one containing the requested page, as the type and the Count of every kid before it are needed to
+     * find it.
+     *
+     * @param pageNum 1-based page number
+     * @return COS dictionary of the Page object
+     * @throws IllegalStateException if the requested page number isn't found
+     * @throws IndexOutOfBoundsException if the requested page number is higher than the page count
+     */
+    private COSDictionary getSparse(int pageNum)
+    {
+        if (pageNum < 1)
+        {
+            throw new IndexOutOfBoundsException("Index out of bounds: " + pageNum);
+        }
+        Set<COSDictionary> visited = new HashSet<>();
+        COSDictionary node = root;
+        int encountered = 0;
+        while (isPageTreeNode(node))
+        {
+            if (!visited.add(node))
+            {
+                throw new IllegalStateException(
+                        "Possible recursion found when searching for page " + pageNum);
+            }
+            int count = node.getInt(COSName.COUNT, 0);
+            if (pageNum > encountered + count)
+            {
+                throw new IndexOutOfBoundsException("1-based index out of bounds: " + pageNum);
+            }
+            COSArray kids = node.getCOSArray(COSName.KIDS);
+            if (kids == null)
+            {
+                break;
+            }
+            // walk the kids until the one containing the page is found
+            COSDictionary next = null;
+            for (int i = 0; i < kids.size() && next == null; i++)
+            {
+                COSDictionary kid = getKid(kids, i);
+                if (kid == null)
+                {
+                    continue;
+                }
+                if (isPageTreeNode(kid))
+                {
+                    int kidCount = kid.getInt(COSName.COUNT, 0);
+                    if (pageNum <= encountered + kidCount)
+                    {
+                        next = kid;
+                    }
+                    else
+                    {
+                        encountered += kidCount;
+                    }
+                }
+                else if (pageNum == ++encountered)
+                {
+                    return kid;
+                }
+            }
+            if (next == null)
+            {
+                break;
+            }
+            node = next;
+        }
+        throw new IllegalStateException("1-based index not found: " + pageNum);
+    }
+
     /**
      * Returns true if the node is a page tree node (i.e. and intermediate).
      */
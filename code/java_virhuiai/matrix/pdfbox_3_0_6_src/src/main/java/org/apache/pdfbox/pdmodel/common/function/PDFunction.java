@@ -275,7 +275,7 @@ public abstract class PDFunction implements COSObjectable
      * Required for all function types.
      * @return the domains array. 
      */
-    private COSArray getDomainValues()
+    protected COSArray getDomainValues()
     {
         if (domain == null)
         {
@@ -259,6 +259,8 @@ public class PDFunctionType0 extends PDFunction
         private final int[] inNext;
         private final int numberOfInputValues;
         private final int numberOfOutputValues = getNumberOfOutputParameters();
+        // the number of samples in each input dimension
+        private final float[] sizeValues;
 
         /**
          * Constructor.
@@ -266,14 +268,16 @@ public class PDFunctionType0 extends PDFunction
          * @param input the input coordinates
          * @param inputPrev coordinate of the "ceil" point
          * @param inputNext coordinate of the "floor" point
+         * @param size the number of samples in each input dimension
          *
          */
-        Rinterpol(float[] input, int[] inputPrev, int[] inputNext)
+        Rinterpol(float[] input, int[] inputPrev, int[] inputNext, float[] size)
         {
             in = input;
             inPrev = inputPrev;
             inNext = inputNext;
             numberOfInputValues = input.length;
+            sizeValues = size;
         }
 
         /**
@@ -352,7 +356,6 @@ public class PDFunctionType0 extends PDFunction
         {
             // inspiration: http://stackoverflow.com/a/12113479/535646
             // but used in reverse
-            float[] sizeValues = getSize().toFloatArray();
             int index = 0;
             int sizeProduct = 1;
             int dimension = vector.length;
@@ -437,31 +440,38 @@ public class PDFunctionType0 extends PDFunction
         int[] inputNext = new int[numberOfInputValues];
         input = input.clone(); // PDFBOX-4461
 
+        // read the values as primitives instead of creating PDRange objects for every call
+        float[] domainValues = getDomainValues().toFloatArray();
+        float[] encodeValues = getEncodeValues().toFloatArray();
+        if (encodeValues.length < numberOfInputValues * 2)
+        {
+            throw new IOException("Range missing in function /Encode entry");
+        }
         for (int i = 0; i < numberOfInputValues; i++)
         {
-            PDRange domain = getDomainForInput(i);
-            PDRange encodeValues = getEncodeForParameter(i);
-            float min = domain.getMin();
-            float max = domain.getMax();
+            float min = domainValues[i * 2];
+            float max = domainValues[i * 2 + 1];
             input[i] = clipToRange(input[i], min, max);
-            input[i] = interpolate(input[i], min, max, encodeValues.getMin(), encodeValues.getMax());
+            input[i] = interpolate(input[i], min, max, encodeValues[i * 2], encodeValues[i * 2 + 1]);
             input[i] = clipToRange(input[i], 0, sizeValues[i] - 1);
             inputPrev[i] = (int) Math.floor(input[i]);
             inputNext[i] = (int) Math.ceil(input[i]);
         }
         
-        float[] outputValues = new Rinterpol(input, inputPrev, inputNext).rinterpolate();
+        float[] outputValues = new Rinterpol(input, inputPrev, inputNext, sizeValues).rinterpolate();
 
+        float[] rangeValues = getRangeValues().toFloatArray();
+        COSArray decodeArray = getDecodeValues();
+        float[] decodeValues = decodeArray != null ? decodeArray.toFloatArray() : new float[0];
+        if (decodeValues.length < numberOfOutputValues * 2)
+        {
+            throw new IOException("Range missing in function /Decode entry");
+        }
         for (int i = 0; i < numberOfOutputValues; i++)
         {
-            PDRange range = getRangeForOutput(i);
-            PDRange decodeValues = getDecodeForParameter(i);
-            if (decodeValues == null)
-            {
-                throw new IOException("Range missing in function /Decode entry");
-            }
-            outputValues[i] = interpolate(outputValues[i], 0, maxSample, decodeValues.getMin(), decodeValues.getMax());
-            outputValues[i] = clipToRange(outputValues[i], range.getMin(), range.getMax());
+            outputValues[i] = interpolate(outputValues[i], 0, maxSample, decodeValues[i * 2],
+                    decodeValues[i * 2 + 1]);
+            outputValues[i] = clipToRange(outputValues[i], rangeValues[i * 2], rangeValues[i * 2 + 1]);
         }
 
         return outputValues;
@@ -18,6 +18,7 @@ package org.apache.pdfbox.pdmodel.common.function;
 
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.pdmodel.common.PDRange;
+import org.apache.pdfbox.pdmodel.common.function.type4.CompiledInstructionSequence;
 import org.apache.pdfbox.pdmodel.common.function.type4.ExecutionContext;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequence;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequenceBuilder;
@@ -39,6 +40,9 @@ public class PDFunctionType4 extends PDFunction
 
     private final InstructionSequence instructions;
 
+    // the compiled program, null if the function can only be interpreted
+    private final CompiledInstructionSequence compiledInstructions;
+
     /**
      * Constructor.
      *
@@ -51,6 +55,7 @@ public class PDFunctionType4 extends PDFunction
         byte[] bytes = getPDStream().toByteArray();
         String string = new String(bytes, StandardCharsets.ISO_8859_1);
         this.instructions = InstructionSequenceBuilder.parse(string);
+        this.compiledInstructions = CompiledInstructionSequence.compile(instructions);
     }
     
     /**
@@ -68,6 +73,31 @@ public class PDFunctionType4 extends PDFunction
     @Override
     public float[] eval(float[] input) throws IOException
     {
+        if (compiledInstructions != null)
+        {
+            float[] clippedInput = new float[input.length];
+            for (int i = 0; i < input.length; i++)
+            {
+                PDRange domain = getDomainForInput(i);
+                clippedInput[i] = clipToRange(input[i], domain.getMin(), domain.getMax());
+            }
+            try
+            {
+                float[] outputValues = compiledInstructions.execute(clippedInput,
+                        getNumberOfOutputParameters());
+                for (int i = 0; i < outputValues.length; i++)
+                {
+                    PDRange range = getRangeForOutput(i);
+                    outputValues[i] = clipToRange(outputValues[i], range.getMin(), range.getMax());
+                }
+                return outputValues;
+            }
+            catch (RuntimeException e)
+            {
+                // use the interpreter to get the same result or exception as usual
+            }
+        }
+
         //Setup the input values
         ExecutionContext context = new ExecutionContext(OPERATORS);
         for (int i = 0; i < input.length; i++)
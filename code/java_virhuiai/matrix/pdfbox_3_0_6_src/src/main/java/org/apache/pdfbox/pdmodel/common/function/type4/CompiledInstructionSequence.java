@@ -0,0 +1,698 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An instruction sequence compiled into a tree of instructions which operate on a stack of primitive values, so that
+ * no objects are created while executing it. The results are the same as the ones of
+ * {@link InstructionSequence#execute(ExecutionContext)}.
+ *
+ * <p>
+ * Only programs using procedures as operands of "if" and "ifelse" can be compiled, which is the case for all usual
+ * functions. An error while executing the compiled program, e.g. a type error or a stack underflow, is reported by
+ * an unchecked exception, which is the signal to use the interpreter instead to get its exact behavior.
+ * </p>
+ */
+public final class CompiledInstructionSequence
+{
+    private static final byte INT = 0;
+    private static final byte REAL = 1;
+    private static final byte BOOL = 2;
+
+    private static final Map<String, Instruction> OPERATORS = new HashMap<>(64);
+
+    static
+    {
+        // arithmetic operators
+        OPERATORS.put("abs", stack ->
+        {
+            if (stack.isInt())
+            {
+                stack.pushInt(Math.abs(stack.popInt()));
+            }
+            else
+            {
+                stack.pushReal(Math.abs(stack.popReal()));
+            }
+        });
+        OPERATORS.put("add", stack ->
+        {
+            if (stack.areInts())
+            {
+                int num2 = stack.popInt();
+                stack.pushLong((long) stack.popInt() + num2);
+            }
+            else
+            {
+                float num2 = stack.popReal();
+                stack.pushReal(stack.popReal() + num2);
+            }
+        });
+        OPERATORS.put("atan", stack ->
+        {
+            float den = stack.popReal();
+            float num = stack.popReal();
+            float atan = (float) Math.atan2(num, den);
+            atan = (float) Math.toDegrees(atan) % 360;
+            if (atan < 0)
+            {
+                atan = atan + 360;
+            }
+            stack.pushReal(atan);
+        });
+        OPERATORS.put("ceiling", stack ->
+        {
+            if (!stack.isInt())
+            {
+                stack.pushReal((float) Math.ceil(stack.popReal()));
+            }
+        });
+        OPERATORS.put("cos", stack -> stack.pushReal((float) Math.cos(Math.toRadians(stack.popReal()))));
+        OPERATORS.put("cvi", stack -> stack.pushInt(stack.popIntValue()));
+        OPERATORS.put("cvr", stack -> stack.pushReal(stack.popReal()));
+        OPERATORS.put("div", stack ->
+        {
+            float num2 = stack.popReal();
+            stack.pushReal(stack.popReal() / num2);
+        });
+        OPERATORS.put("exp", stack ->
+        {
+            double exp = stack.popDouble();
+            double base = stack.popDouble();
+            stack.pushReal((float) Math.pow(base, exp));
+        });
+        OPERATORS.put("floor", stack ->
+        {
+            if (!stack.isInt())
+            {
+                stack.pushReal((float) Math.floor(stack.popReal()));
+            }
+        });
+        OPERATORS.put("idiv", stack ->
+        {
+            int num2 = stack.popStrictInt();
+            stack.pushInt(stack.popStrictInt() / num2);
+        });
+        OPERATORS.put("ln", stack -> stack.pushReal((float) Math.log(stack.popDouble())));
+        OPERATORS.put("log", stack -> stack.pushReal((float) Math.log10(stack.popDouble())));
+        OPERATORS.put("mod", stack ->
+        {
+            int int2 = stack.popStrictInt();
+            stack.pushInt(stack.popStrictInt() % int2);
+        });
+        OPERATORS.put("mul", stack ->
+        {
+            if (stack.areInts())
+            {
+                long num2 = stack.popInt();
+                stack.pushLong(stack.popInt() * num2);
+            }
+            else
+            {
+                double num2 = stack.popDouble();
+                stack.pushReal((float) (stack.popDouble() * num2));
+            }
+        });
+        OPERATORS.put("neg", stack ->
+        {
+            if (stack.isInt())
+            {
+                stack.pushLong(-(long) stack.popInt());
+            }
+            else
+            {
+                stack.pushReal(-stack.popReal());
+            }
+        });
+        OPERATORS.put("round", stack ->
+        {
+            if (!stack.isInt())
+            {
+                stack.pushReal((float) Math.round((double) stack.popReal()));
+            }
+        });
+        OPERATORS.put("sin", stack -> stack.pushReal((float) Math.sin(Math.toRadians(stack.popReal()))));
+        OPERATORS.put("sqrt", stack ->
+        {
+            float num = stack.popReal();
+            if (num < 0)
+            {
+                throw new IllegalArgumentException("argument must be nonnegative");
+            }
+            stack.pushReal((float) Math.sqrt(num));
+        });
+        OPERATORS.put("sub", stack ->
+        {
+            if (stack.areInts())
+            {
+                int num2 = stack.popInt();
+                stack.pushLong((long) stack.popInt() - num2);
+            }
+            else
+            {
+                float num2 = stack.popReal();
+                stack.pushReal(stack.popReal() - num2);
+            }
+        });
+        OPERATORS.put("truncate", stack ->
+        {
+            if (!stack.isInt())
+            {
+                stack.pushReal((int) stack.popReal());
+            }
+        });
+
+        // relational, boolean and bitwise operators
+        OPERATORS.put("and", stack ->
+        {
+            if (stack.areBooleans())
+            {
+                boolean bool2 = stack.popBoolean();
+                stack.pushBoolean(stack.popBoolean() & bool2);
+            }
+            else
+            {
+                int int2 = stack.popStrictInt();
+                stack.pushInt(stack.popStrictInt() & int2);
+            }
+        });
+        OPERATORS.put("bitshift", stack ->
+        {
+            int shift = stack.popStrictInt();
+            int int1 = stack.popStrictInt();
+            stack.pushInt(shift < 0 ? int1 >> Math.abs(shift) : int1 << shift);
+        });
+        OPERATORS.put("eq", stack -> stack.pushBoolean(stack.popEqual()));
+        OPERATORS.put("false", stack -> stack.pushBoolean(false));
+        OPERATORS.put("ge", stack ->
+        {
+            float num2 = stack.popReal();
+            stack.pushBoolean(stack.popReal() >= num2);
+        });
+        OPERATORS.put("gt", stack ->
+        {
+            float num2 = stack.popReal();
+            stack.pushBoolean(stack.popReal() > num2);
+        });
+        OPERATORS.put("le", stack ->
+        {
+            float num2 = stack.popReal();
+            stack.pushBoolean(stack.popReal() <= num2);
+        });
+        OPERATORS.put("lt", stack ->
+        {
+            float num2 = stack.popReal();
+            stack.pushBoolean(stack.popReal() < num2);
+        });
+        OPERATORS.put("ne", stack -> stack.pushBoolean(!stack.popEqual()));
+        OPERATORS.put("not", stack ->
+        {
+            if (stack.isBoolean())
+            {
+                stack.pushBoolean(!stack.popBoolean());
+            }
+            else
+            {
+                // same as the interpreter
+                stack.pushInt(-stack.popStrictInt());
+            }
+        });
+        OPERATORS.put("or", stack ->
+        {
+            if (stack.areBooleans())
+            {
+                boolean bool2 = stack.popBoolean();
+                stack.pushBoolean(stack.popBoolean() | bool2);
+            }
+            else
+            {
+                int int2 = stack.popStrictInt();
+                stack.pushInt(stack.popStrictInt() | int2);
+            }
+        });
+        OPERATORS.put("true", stack -> stack.pushBoolean(true));
+        OPERATORS.put("xor", stack ->
+        {
+            if (stack.areBooleans())
+            {
+                boolean bool2 = stack.popBoolean();
+                stack.pushBoolean(stack.popBoolean() ^ bool2);
+            }
+            else
+            {
+                int int2 = stack.popStrictInt();
+                stack.pushInt(stack.popStrictInt() ^ int2);
+            }
+        });
+
+        // stack operators
+        OPERATORS.put("copy", stack -> stack.copy(stack.popIntValue()));
+        OPERATORS.put("dup", stack -> stack.index(0));
+        OPERATORS.put("exch", stack -> stack.roll(2, 1));
+        OPERATORS.put("index", stack ->
+        {
+            int n = stack.popIntValue();
+            if (n < 0)
+            {
+                throw new IllegalArgumentException("rangecheck: " + n);
+            }
+            stack.index(n);
+        });
+        OPERATORS.put("pop", ExecutionStack::pop);
+        OPERATORS.put("roll", stack ->
+        {
+            int j = stack.popIntValue();
+            int n = stack.popIntValue();
+            if (j == 0)
+            {
+                return;
+            }
+            if (n < 0)
+            {
+                throw new IllegalArgumentException("rangecheck: " + n);
+            }
+            stack.roll(n, j);
+        });
+    }
+
+    private final Instruction[] instructions;
+
+    private CompiledInstructionSequence(Instruction[] instructions)
+    {
+        this.instructions = instructions;
+    }
+
+    /**
+     * Compiles the given instruction sequence.
+     *
+     * @param sequence the parsed program of a type 4 function
+     * @return the compiled program or null if the program can't be compiled
+     */
+    public static CompiledInstructionSequence compile(InstructionSequence sequence)
+    {
+        List<Object> items = sequence.getInstructions();
+        // the interpreter executes a procedure remaining on top of the stack, which is usually
+        // the whole program enclosed in braces
+        int count = items.size();
+        InstructionSequence trailingProc = null;
+        if (count > 0 && items.get(count - 1) instanceof InstructionSequence)
+        {
+            trailingProc = (InstructionSequence) items.get(count - 1);
+            count--;
+        }
+        List<Instruction> compiled = new ArrayList<>();
+        if (!compile(items.subList(0, count), compiled)
+                || (trailingProc != null && !compile(trailingProc.getInstructions(), compiled)))
+        {
+            return null;
+        }
+        return new CompiledInstructionSequence(compiled.toArray(new Instruction[0]));
+    }
+
+    private static boolean compile(List<Object> items, List<Instruction> compiled)
+    {
+        int count = items.size();
+        for (int i = 0; i < count; i++)
+        {
+            Object item = items.get(i);
+            if (item instanceof InstructionSequence)
+            {
+                // procedures are only supported as operands of "if" and "ifelse"
+                Object next = i + 1 < count ? items.get(i + 1) : null;
+                Object afterNext = i + 2 < count ? items.get(i + 2) : null;
+                if ("if".equals(next))
+                {
+                    Instruction[] proc = compileProc((InstructionSequence) item);
+                    if (proc == null)
+                    {
+                        return false;
+                    }
+                    compiled.add(stack ->
+                    {
+                        if (stack.popStrictBoolean())
+                        {
+                            execute(proc, stack);
+                        }
+                    });
+                    i++;
+                }
+                else if (next instanceof InstructionSequence && "ifelse".equals(afterNext))
+                {
+                    Instruction[] proc1 = compileProc((InstructionSequence) item);
+                    Instruction[] proc2 = compileProc((InstructionSequence) next);
+                    if (proc1 == null || proc2 == null)
+                    {
+                        return false;
+                    }
+                    compiled.add(stack -> execute(stack.popStrictBoolean() ? proc1 : proc2, stack));
+                    i += 2;
+                }
+                else
+                {
+                    return false;
+                }
+            }
+            else if (item instanceof String)
+            {
+                Instruction operator = OPERATORS.get(item);
+                if (operator == null)
+                {
+                    return false;
+                }
+                compiled.add(operator);
+            }
+            else if (item instanceof Integer)
+            {
+                int value = (Integer) item;
+                compiled.add(stack -> stack.pushInt(value));
+            }
+            else if (item instanceof Float)
+            {
+                float value = (Float) item;
+                compiled.add(stack -> stack.pushReal(value));
+            }
+            else if (item instanceof Boolean)
+            {
+                boolean value = (Boolean) item;
+                compiled.add(stack -> stack.pushBoolean(value));
+            }
+            else
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Instruction[] compileProc(InstructionSequence proc)
+    {
+        List<Instruction> compiled = new ArrayList<>();
+        return compile(proc.getInstructions(), compiled) ? compiled.toArray(new Instruction[0]) : null;
+    }
+
+    private static void execute(Instruction[] instructions, ExecutionStack stack)
+    {
+        for (Instruction instruction : instructions)
+        {
+            instruction.execute(stack);
+        }
+    }
+
+    /**
+     * Executes the compiled program.
+     *
+     * @param input the input values, which are pushed as real values
+     * @param numberOfOutputValues the number of values expected on the stack after the execution
+     * @return the topmost output values of the stack as real values, in stack order
+     * @throws RuntimeException if the program fails, the interpreter should be used to get its exact behavior
+     */
+    public float[] execute(float[] input, int numberOfOutputValues)
+    {
+        ExecutionStack stack = new ExecutionStack(input.length + 16);
+        for (float value : input)
+        {
+            stack.pushReal(value);
+        }
+        execute(instructions, stack);
+        if (stack.size < numberOfOutputValues)
+        {
+            throw new IllegalStateException("The type 4 function returned " + stack.size
+                    + " values but " + numberOfOutputValues + " values are expected.");
+        }
+        float[] outputValues = new float[numberOfOutputValues];
+        for (int i = numberOfOutputValues - 1; i >= 0; i--)
+        {
+            outputValues[i] = stack.popReal();
+        }
+        return outputValues;
+    }
+
+    /**
+     * A compiled instruction.
+     */
+    @FunctionalInterface
+    private interface Instruction
+    {
+        void execute(ExecutionStack stack);
+    }
+
+    /**
+     * The operand stack of a compiled program. Integers, reals and booleans are stored as doubles, which represent
+     * all of them exactly, along with their type.
+     */
+    private static final class ExecutionStack
+    {
+        private byte[] types;
+        private double[] values;
+        private int size = 0;
+
+        private ExecutionStack(int capacity)
+        {
+            types = new byte[capacity];
+            values = new double[capacity];
+        }
+
+        private void push(byte type, double value)
+        {
+            if (size == types.length)
+            {
+                types = Arrays.copyOf(types, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            types[size] = type;
+            values[size++] = value;
+        }
+
+        private void pushInt(int value)
+        {
+            push(INT, value);
+        }
+
+        /**
+         * Pushes the result of an integer operation, which becomes a real value if it overflows.
+         */
+        private void pushLong(long value)
+        {
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            {
+                push(REAL, (float) value);
+            }
+            else
+            {
+                push(INT, value);
+            }
+        }
+
+        private void pushReal(float value)
+        {
+            push(REAL, value);
+        }
+
+        private void pushBoolean(boolean value)
+        {
+            push(BOOL, value ? 1 : 0);
+        }
+
+        private byte peekType(int depth)
+        {
+            if (size <= depth)
+            {
+                throw new EmptyStackException();
+            }
+            return types[size - 1 - depth];
+        }
+
+        private boolean isInt()
+        {
+            return peekType(0) == INT;
+        }
+
+        private boolean isBoolean()
+        {
+            return peekType(0) == BOOL;
+        }
+
+        private boolean areInts()
+        {
+            return peekType(0) == INT && peekType(1) == INT;
+        }
+
+        private boolean areBooleans()
+        {
+            return peekType(0) == BOOL && peekType(1) == BOOL;
+        }
+
+        private void pop()
+        {
+            if (size == 0)
+            {
+                throw new EmptyStackException();
+            }
+            size--;
+        }
+
+        /**
+         * Pops a number as a real value.
+         */
+        private float popReal()
+        {
+            if (peekType(0) == BOOL)
+            {
+                throw new ClassCastException("Number expected");
+            }
+            return (float) values[--size];
+        }
+
+        /**
+         * Pops a number as a double value, which is exact for integers and reals.
+         */
+        private double popDouble()
+        {
+            if (peekType(0) == BOOL)
+            {
+                throw new ClassCastException("Number expected");
+            }
+            return values[--size];
+        }
+
+        /**
+         * Pops a number which is known to be an integer.
+         */
+        private int popInt()
+        {
+            return (int) values[--size];
+        }
+
+        /**
+         * Pops a number converted to an integer.
+         */
+        private int popIntValue()
+        {
+            if (peekType(0) == BOOL)
+            {
+                throw new ClassCastException("Number expected");
+            }
+            byte type = types[--size];
+            return type == INT ? (int) values[size] : (int) (float) values[size];
+        }
+
+        /**
+         * Pops a value which must be an integer.
+         */
+        private int popStrictInt()
+        {
+            if (peekType(0) != INT)
+            {
+                throw new ClassCastException("Integer expected");
+            }
+            return (int) values[--size];
+        }
+
+        /**
+         * Pops a value which is known to be a boolean.
+         */
+        private boolean popBoolean()
+        {
+            return values[--size] != 0;
+        }
+
+        /**
+         * Pops a value which must be a boolean.
+         */
+        private boolean popStrictBoolean()
+        {
+            if (peekType(0) != BOOL)
+            {
+                throw new ClassCastException("Boolean expected");
+            }
+            return values[--size] != 0;
+        }
+
+        /**
+         * Pops two values and compares them like the "eq" operator of the interpreter.
+         */
+        private boolean popEqual()
+        {
+            byte type2 = peekType(0);
+            byte type1 = peekType(1);
+            double value2 = values[--size];
+            double value1 = values[--size];
+            if (type1 != BOOL && type2 != BOOL)
+            {
+                return Float.compare((float) value1, (float) value2) == 0;
+            }
+            return type1 == type2 && value1 == value2;
+        }
+
+        private void copy(int n)
+        {
+            if (n > 0)
+            {
+                if (n > size)
+                {
+                    throw new IndexOutOfBoundsException("copy: " + n);
+                }
+                int start = size - n;
+                for (int i = 0; i < n; i++)
+                {
+                    push(types[start + i], values[start + i]);
+                }
+            }
+        }
+
+        private void index(int n)
+        {
+            byte type = peekType(n);
+            push(type, values[size - 1 - n]);
+        }
+
+        /**
+         * Rolls the topmost values like the "roll" operator of the interpreter.
+         */
+        private void roll(int n, int j)
+        {
+            // the interpreter moves the topmost "top" values below the next "below" values
+            long longTop = j > 0 ? j : Math.max((long) n + j, 0);
+            long longBelow = j > 0 ? Math.max((long) n - j, 0) : -(long) j;
+            if (longTop + longBelow > size)
+            {
+                throw new EmptyStackException();
+            }
+            int top = (int) longTop;
+            int below = (int) longBelow;
+            int count = top + below;
+            if (top == 0 || below == 0)
+            {
+                return;
+            }
+            int start = size - count;
+            byte[] rolledTypes = Arrays.copyOfRange(types, size - top, size);
+            double[] rolledValues = Arrays.copyOfRange(values, size - top, size);
+            System.arraycopy(types, start, types, start + top, below);
+            System.arraycopy(values, start, values, start + top, below);
+            System.arraycopy(rolledTypes, 0, types, start, top);
+            System.arraycopy(rolledValues, 0, values, start, top);
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdmodel.common.function.type4;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
 
@@ -73,6 +74,15 @@ public class InstructionSequence
         this.instructions.add(child);
     }
 
+    /**
+     * Returns the instructions of this sequence.
+     * @return the instructions as an unmodifiable list
+     */
+    List<Object> getInstructions()
+    {
+        return Collections.unmodifiableList(instructions);
+    }
+
     /**
      * Executes the instruction sequence.
      * @param context the execution context
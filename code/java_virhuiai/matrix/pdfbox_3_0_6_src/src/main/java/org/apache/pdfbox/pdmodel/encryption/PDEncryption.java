@@ -121,6 +121,20 @@ public class PDEncryption implements COSObjectable
         // TODO set Filter (currently this is done by the security handlers)
     }
 
+    /**
+     * Drops the object keys of the security handler, if there is one. This is called when the
+     * document is closed.
+     *
+     * @see SecurityHandler#clearKeys()
+     */
+    public void clearKeys()
+    {
+        if (securityHandler != null)
+        {
+            securityHandler.clearKeys();
+        }
+    }
+
     /**
      * Returns true if the security handler specified in the dictionary's Filter is available.
      * @return true if the security handler is available
@@ -27,9 +27,11 @@ import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -48,11 +50,26 @@ import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.cos.COSString;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.util.LRUCache;
 
 /**
  * A security handler as described in the PDF specifications.
  * A security handler is responsible of documents protection.
  *
+ * <p>
+ * Every thread uses its own cipher instances, so that different objects may be encrypted or
+ * decrypted in parallel with {@link #decryptStream(COSStream, long, long)} and its siblings.
+ * {@link #decrypt(COSBase, long, long)} keeps track of the objects already decrypted, callers
+ * sharing the handler between threads have to synchronize on it. decryptStream does so itself
+ * while it decrypts the dictionary of the stream, as the strings of the dictionary are tracked
+ * as well.
+ * </p>
+ * <p>
+ * The keys of the objects processed last are cached by the handler. {@link #clearKeys()} drops
+ * them and overwrites the keys of the ciphers of all threads, it is called when the document is
+ * closed.
+ * </p>
+ *
  * @author Ben Litchfield
  * @author Benoit Guillon
  * @author Manuel Kasper
@@ -65,6 +82,9 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
 
     private static final short DEFAULT_KEY_LENGTH = 40;
 
+    /** The maximum number of cached object keys. */
+    private static final int OBJECT_KEY_CACHE_SIZE = 256;
+
     // see 7.6.2, page 58, PDF 32000-1:2008
     private static final byte[] AES_SALT = { (byte) 0x73, (byte) 0x41, (byte) 0x6c, (byte) 0x54 };
 
@@ -74,8 +94,22 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
     /** The encryption key that will be used to encrypt / decrypt.*/
     private byte[] encryptionKey;
 
-    /** The RC4 implementation used for cryptographic functions. */
-    private final RC4Cipher rc4 = new RC4Cipher();
+    /** The RC4 implementation used for cryptographic functions, one per thread. */
+    private final ThreadLocal<RC4Cipher> rc4 = ThreadLocal.withInitial(this::createRC4Cipher);
+
+    /** The AES cipher of the current thread, creating a cipher is much more expensive than initializing it. */
+    private final ThreadLocal<Cipher> aesCipher = new ThreadLocal<>();
+
+    /** The ciphers of all threads, so that {@link #clearKeys()} can overwrite their keys. */
+    private final List<RC4Cipher> rc4Ciphers = new ArrayList<>();
+    private final List<Cipher> aesCiphers = new ArrayList<>();
+
+    /**
+     * The keys calculated by {@link #calcFinalKey(long, long)}, the object number in the upper and
+     * the generation number in the lower 16 bits. The strings and the stream of an object are
+     * usually processed one after another.
+     */
+    private final LRUCache<Long, byte[]> objectKeys = new LRUCache<>(OBJECT_KEY_CACHE_SIZE, key -> 1);
 
     /** Indicates if the Metadata have to be decrypted of not. */
     private boolean decryptMetadata;
@@ -246,6 +280,19 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
      * @return the calculated key.
      */
     private byte[] calcFinalKey(long objectNumber, long genNumber)
+    {
+        // only the lower 3 bytes of the object number and 2 bytes of the generation number are used
+        Long cacheKey = (objectNumber & 0xffffff) << 16 | genNumber & 0xffff;
+        byte[] finalKey = objectKeys.get(cacheKey);
+        if (finalKey == null)
+        {
+            finalKey = calcFinalKeyUncached(objectNumber, genNumber);
+            objectKeys.put(cacheKey, finalKey);
+        }
+        return finalKey;
+    }
+
+    private byte[] calcFinalKeyUncached(long objectNumber, long genNumber)
     {
         byte[] newKey = new byte[encryptionKey.length + 5];
         System.arraycopy(encryptionKey, 0, newKey, 0, encryptionKey.length);
@@ -285,8 +332,9 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
     protected void encryptDataRC4(byte[] finalKey, InputStream input, OutputStream output)
             throws IOException
     {
-        rc4.setKey(finalKey);
-        rc4.write(input, output);
+        RC4Cipher cipher = rc4.get();
+        cipher.setKey(finalKey);
+        cipher.write(input, output);
     }
 
     /**
@@ -300,8 +348,9 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
      */
     protected void encryptDataRC4(byte[] finalKey, byte[] input, OutputStream output) throws IOException
     {
-        rc4.setKey(finalKey);
-        rc4.write(input, output);
+        RC4Cipher cipher = rc4.get();
+        cipher.setKey(finalKey);
+        cipher.write(input, output);
     }
 
 
@@ -392,15 +441,79 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
 
     private Cipher createCipher(byte[] key, byte[] iv, boolean decrypt) throws GeneralSecurityException
     {
-        // PKCS#5 padding is requested by PDF specification
-        @SuppressWarnings({"squid:S5542","lgtm [java/weak-cryptographic-algorithm]"})
-        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        Cipher cipher = aesCipher.get();
+        if (cipher == null)
+        {
+            // PKCS#5 padding is requested by PDF specification
+            @SuppressWarnings({"squid:S5542","lgtm [java/weak-cryptographic-algorithm]"})
+            Cipher newCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher = newCipher;
+            aesCipher.set(cipher);
+            synchronized (aesCiphers)
+            {
+                aesCiphers.add(cipher);
+            }
+        }
         Key keySpec = new SecretKeySpec(key, "AES");
         IvParameterSpec ips = new IvParameterSpec(iv);
         cipher.init(decrypt ? Cipher.DECRYPT_MODE : Cipher.ENCRYPT_MODE, keySpec, ips);
         return cipher;
     }
 
+    private RC4Cipher createRC4Cipher()
+    {
+        RC4Cipher cipher = new RC4Cipher();
+        synchronized (rc4Ciphers)
+        {
+            rc4Ciphers.add(cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Drops the cached object keys and overwrites the keys of the ciphers used by all threads,
+     * so that no key material is kept once the document is closed. The handler may still be used
+     * afterwards, the keys are calculated again. This must not be called while other threads
+     * encrypt or decrypt objects with this handler.
+     */
+    public void clearKeys()
+    {
+        objectKeys.clear();
+        byte[] emptyKey = new byte[16];
+        synchronized (rc4Ciphers)
+        {
+            for (RC4Cipher cipher : rc4Ciphers)
+            {
+                cipher.setKey(emptyKey);
+            }
+        }
+        synchronized (aesCiphers)
+        {
+            for (Cipher cipher : aesCiphers)
+            {
+                try
+                {
+                    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(emptyKey, "AES"),
+                            new IvParameterSpec(emptyKey));
+                }
+                catch (GeneralSecurityException e)
+                {
+                    LOG.debug("The key of an AES cipher could not be overwritten", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the cached object keys.
+     *
+     * @return the statistics
+     */
+    public LRUCache.Statistics getObjectKeyStatistics()
+    {
+        return objectKeys.getStatistics();
+    }
+
     private boolean prepareAESInitializationVector(boolean decrypt, byte[] iv, InputStream data, OutputStream output) throws IOException
     {
         if (decrypt)
@@ -530,7 +643,11 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
                 return;
             }
         }
-        decryptDictionary(stream, objNum, genNum);
+        // the strings of the dictionary are tracked by the set of decrypted objects
+        synchronized (this)
+        {
+            decryptDictionary(stream, objNum, genNum);
+        }
         // the input and the output stream of a still encrypted COSStream aren't no longer based
         // on the same object so that it is safe to omit the intermediate ByteArrayStream
         try (InputStream encryptedStream = stream.createRawInputStream(); //
@@ -738,6 +855,7 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
     public void setAES(boolean aesValue)
     {
         useAES = aesValue;
+        objectKeys.clear();
     }
 
     /**
@@ -787,6 +905,7 @@ public abstract class SecurityHandler<T_POLICY extends ProtectionPolicy>
     public void setEncryptionKey(byte[] encryptionKey)
     {
         this.encryptionKey = encryptionKey;
+        objectKeys.clear();
     }
 
     /**
@@ -1,895 +1,1445 @@
-/*
- * Licensed to the Apache Software Foundation (ASF) under one or more
- * contributor license agreements.  See the NOTICE file distributed with
- * this work for additional information regarding copyright ownership.
- * The ASF licenses this file to You under the Apache License, Version 2.0
- * (the "License"); you may not use this file except in compliance with
- * the License.  You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.apache.pdfbox.pdmodel.font;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.security.AccessControlException;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.zip.CRC32;
-
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.apache.fontbox.FontBoxFont;
-import org.apache.fontbox.ttf.FontHeaders;
-import org.apache.fontbox.ttf.OS2WindowsMetricsTable;
-import org.apache.fontbox.ttf.OTFParser;
-import org.apache.fontbox.ttf.OpenTypeFont;
-import org.apache.fontbox.ttf.TTFParser;
-import org.apache.fontbox.ttf.TrueTypeCollection;
-import org.apache.fontbox.ttf.TrueTypeFont;
-import org.apache.fontbox.type1.Type1Font;
-import org.apache.fontbox.util.autodetect.FontFileFinder;
-import org.apache.pdfbox.io.IOUtils;
-import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
-
-/**
- * A FontProvider which searches for fonts on the local filesystem.
- *
- * @author John Hewson
- */
-final class FileSystemFontProvider extends FontProvider
-{
-    private static final Log LOG = LogFactory.getLog(FileSystemFontProvider.class);
-
-    /**
-     * This option changes publicly visible behaviour: ".pdfbox.cache" file will have hash="-" for all files.
-     * After implementing {@link FontHeaders}, parsing font headers is faster than checksumming anyway.
-     */
-    private static final boolean SKIP_CHECKSUMS = "true".equals(System.getProperty("pdfbox.fontcache.skipchecksums"));
-    private static final String CHECKSUM_PLACEHOLDER = "-";
-    
-    private final List<FSFontInfo> fontInfoList = new ArrayList<>();
-    private final FontCache cache;
-
-    private static class FSFontInfo extends FontInfo
-    {
-        private final String postScriptName;
-        private final FontFormat format;
-        private final CIDSystemInfo cidSystemInfo;
-        private final int usWeightClass;
-        private final int sFamilyClass;
-        private final int ulCodePageRange1;
-        private final int ulCodePageRange2;
-        private final int macStyle;
-        private final PDPanoseClassification panose;
-        private final File file;
-        private final FileSystemFontProvider parent;
-        private final String hash;
-        private final long lastModified;
-
-        private FSFontInfo(File file, FontFormat format, String postScriptName,
-                           CIDSystemInfo cidSystemInfo, int usWeightClass, int sFamilyClass,
-                           int ulCodePageRange1, int ulCodePageRange2, int macStyle, byte[] panose,
-                           FileSystemFontProvider parent, String hash, long lastModified)
-        {
-            this.file = file;
-            this.format = format;
-            this.postScriptName = postScriptName;
-            this.cidSystemInfo = cidSystemInfo;
-            this.usWeightClass = usWeightClass;
-            this.sFamilyClass = sFamilyClass;
-            this.ulCodePageRange1 = ulCodePageRange1;
-            this.ulCodePageRange2 = ulCodePageRange2;
-            this.macStyle = macStyle;
-            this.panose = panose != null && panose.length >= PDPanoseClassification.LENGTH ?
-                    new PDPanoseClassification(panose) : null;
-            this.parent = parent;
-            this.hash = hash;
-            this.lastModified = lastModified;
-        }
-
-        @Override
-        public String getPostScriptName()
-        {
-            return postScriptName;
-        }
-
-        @Override
-        public FontFormat getFormat()
-        {
-            return format;
-        }
-
-        @Override
-        public CIDSystemInfo getCIDSystemInfo()
-        {
-            return cidSystemInfo;
-        }
-
-        /**
-         * {@inheritDoc}
-         * <p>
-         * The method returns null if there was an error opening the font.
-         * 
-         */
-        @Override
-        public synchronized FontBoxFont getFont()
-        {
-            // synchronized to avoid race condition on cache access,
-            // which could result in an unreferenced but open font
-            FontBoxFont cached = parent.cache.getFont(this);
-            if (cached != null)
-            {
-                return cached;
-            }
-            else
-            {
-                FontBoxFont font;
-                switch (format)
-                {
-                    case PFB: font = getType1Font(postScriptName, file); break;
-                    case TTF: font = getTrueTypeFont(postScriptName, file); break;
-                    case OTF: font = getOTFFont(postScriptName, file); break;
-                    default: throw new RuntimeException("can't happen");
-                }
-                if (font != null)
-                {
-                    parent.cache.addFont(this, font);
-                }
-                return font;
-            }
-        }
-
-        @Override
-        public int getFamilyClass()
-        {
-            return sFamilyClass;
-        }
-
-        @Override
-        public int getWeightClass()
-        {
-            return usWeightClass;
-        }
-
-        @Override
-        public int getCodePageRange1()
-        {
-            return ulCodePageRange1;
-        }
-
-        @Override
-        public int getCodePageRange2()
-        {
-            return ulCodePageRange2;
-        }
-
-        @Override
-        public int getMacStyle()
-        {
-            return macStyle;
-        }
-
-        @Override
-        public PDPanoseClassification getPanose()
-        {
-            return panose;
-        }
-
-        @Override
-        public String toString()
-        {
-            return super.toString() + " " + file + " " + hash + " " + lastModified;
-        }
-
-        private TrueTypeFont getTrueTypeFont(String postScriptName, File file)
-        {
-            try
-            {
-                TrueTypeFont ttf = readTrueTypeFont(postScriptName, file);
-
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Loaded " + postScriptName + " from " + file);
-                }
-                return ttf;
-            }
-            catch (IOException e)
-            {
-                LOG.warn("Could not load font file: " + file, e);
-            }
-            return null;
-        }
-
-        private TrueTypeFont readTrueTypeFont(String postScriptName, File file) throws IOException
-        {
-            if (file.getName().toLowerCase().endsWith(".ttc"))
-            {
-                @SuppressWarnings("squid:S2095")
-                // ttc not closed here because it is needed later when ttf is accessed,
-                // e.g. rendering PDF with non-embedded font which is in ttc file in our font directory
-                TrueTypeCollection ttc = new TrueTypeCollection(file);
-                TrueTypeFont ttf;
-                try
-                {
-                    ttf = ttc.getFontByName(postScriptName);
-                }
-                catch (IOException ex)
-                {
-                    ttc.close();
-                    throw ex;
-                }
-                if (ttf == null)
-                {
-                    ttc.close();
-                    throw new IOException("Font " + postScriptName + " not found in " + file);
-                }
-                return ttf;
-            }
-            else
-            {
-                TTFParser ttfParser = new TTFParser(false);
-                return ttfParser.parse(new RandomAccessReadBufferedFile(file));
-            }
-        }
-
-        private OpenTypeFont getOTFFont(String postScriptName, File file)
-        {
-            try
-            {
-                if (file.getName().toLowerCase().endsWith(".ttc"))
-                {
-                    @SuppressWarnings("squid:S2095")
-                    // ttc not closed here because it is needed later when ttf is accessed,
-                    // e.g. rendering PDF with non-embedded font which is in ttc file in our font directory
-                    TrueTypeCollection ttc = new TrueTypeCollection(file);
-                    TrueTypeFont ttf;
-                    try
-                    {
-                        ttf = ttc.getFontByName(postScriptName);
-                    }
-                    catch (IOException ex)
-                    {
-                        LOG.error(ex.getMessage(), ex);
-                        ttc.close();
-                        return null;
-                    }
-                    if (ttf == null)
-                    {
-                        ttc.close();
-                        throw new IOException("Font " + postScriptName + " not found in " + file);
-                    }
-                    return (OpenTypeFont) ttf;
-                }
-
-                OTFParser parser = new OTFParser(false);
-                OpenTypeFont otf = parser.parse(new RandomAccessReadBufferedFile(file));
-
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Loaded " + postScriptName + " from " + file);
-                }
-                return otf;
-            }
-            catch (IOException e)
-            {
-                LOG.warn("Could not load font file: " + file, e);
-            }
-            return null;
-        }
-
-        private Type1Font getType1Font(String postScriptName, File file)
-        {
-            try (InputStream input = new FileInputStream(file))
-            {
-                Type1Font type1 = Type1Font.createWithPFB(input);
-
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Loaded " + postScriptName + " from " + file);
-                }
-                return type1;
-            }
-            catch (IOException e)
-            {
-                LOG.warn("Could not load font file: " + file, e);
-            }
-            return null;
-        }
-    }
-
-    private FSFontInfo createFSIgnored(File file, FontFormat format, String postScriptName)
-    {
-        String hash;
-        try
-        {
-            hash = SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(file.toPath()));
-        }
-        catch (IOException ex)
-        {
-            hash = "";
-        }
-        return new FSFontInfo(file, format, postScriptName, null, 0, 0, 0, 0, 0, null, null, hash, file.lastModified());
-    }
-
-    /**
-     * Constructor.
-     */
-    FileSystemFontProvider(FontCache cache)
-    {
-        this.cache = cache;
-        try
-        {
-            if (LOG.isTraceEnabled())
-            {
-                LOG.trace("Will search the local system for fonts");
-            }
-
-            // scan the local system for font files
-            FontFileFinder fontFileFinder = new FontFileFinder();
-            List<URI> fonts = fontFileFinder.find();
-            List<File> files = new ArrayList<>(fonts.size());
-            for (URI font : fonts)
-            {
-                files.add(new File(font));
-            }
-
-            if (LOG.isTraceEnabled())
-            {
-                LOG.trace("Found " + files.size() + " fonts on the local system");
-            }
-
-            if (!files.isEmpty())
-            {
-                // load cached FontInfo objects
-                List<FSFontInfo> cachedInfos = loadDiskCache(files);
-                if (cachedInfos != null && !cachedInfos.isEmpty())
-                {
-                    fontInfoList.addAll(cachedInfos);
-                }
-                else
-                {
-                    LOG.info("Building on-disk font cache, this may take a while");
-                    scanFonts(files);
-                    saveDiskCache();
-                    LOG.info("Finished building on-disk font cache, found " + fontInfoList.size()
-                            + " fonts");
-                }
-            }
-        }
-        catch (AccessControlException e)
-        {
-            LOG.error("Error accessing the file system", e);
-        }
-    }
-    
-    private void scanFonts(List<File> files)
-    {
-        // to force a specific font for debug, add code like this here:
-        // files = Collections.singletonList(new File("font filename"))
-
-        for (File file : files)
-        {
-            String filePath = file.getPath().toLowerCase();
-            if (filePath.endsWith(".ttf") || filePath.endsWith(".otf"))
-            {
-                addTrueTypeFont(file);
-            }
-            else if (filePath.endsWith(".ttc") || filePath.endsWith(".otc"))
-            {
-                addTrueTypeCollection(file);
-            }
-            else if (filePath.endsWith(".pfb"))
-            {
-                addType1Font(file);
-            }
-        }
-    }
-
-    private File getDiskCacheFile()
-    {
-        String path = System.getProperty("pdfbox.fontcache");
-        if (isBadPath(path))
-        {
-            path = System.getProperty("user.home");
-            if (isBadPath(path))
-            {
-                path = System.getProperty("java.io.tmpdir");
-            }
-        }
-        return new File(path, ".pdfbox.cache");
-    }
-
-    private static boolean isBadPath(String path)
-    {
-        return path == null || !new File(path).isDirectory() || !new File(path).canWrite();
-    }
-
-    /**
-     * Saves the font metadata cache to disk.
-     */
-    private void saveDiskCache()
-    {
-        try
-        {
-            File file = getDiskCacheFile();
-
-            try (BufferedWriter writer = new BufferedWriter(
-                    new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))
-            {
-                for (FSFontInfo fontInfo : fontInfoList)
-                {
-                    writeFontInfo(writer, fontInfo);
-                }
-            }
-            catch (IOException e)
-            {
-                LOG.warn("Could not write to font cache", e);
-                LOG.warn("Installed fonts information will have to be reloaded for each start");
-                LOG.warn("You can assign a directory to the 'pdfbox.fontcache' property");
-            }
-        }
-        catch (SecurityException e)
-        {
-            LOG.debug("Couldn't create writer for font cache file", e);
-        }
-    }
-
-    private void writeFontInfo(BufferedWriter writer, FSFontInfo fontInfo) throws IOException
-    {
-        writer.write(fontInfo.postScriptName.trim());
-        writer.write("|");
-        writer.write(fontInfo.format.toString());
-        writer.write("|");
-        if (fontInfo.cidSystemInfo != null)
-        {
-            writer.write(fontInfo.cidSystemInfo.getRegistry() + '-' +
-                         fontInfo.cidSystemInfo.getOrdering() + '-' +
-                         fontInfo.cidSystemInfo.getSupplement());
-        }
-        writer.write("|");
-        if (fontInfo.usWeightClass > -1)
-        {
-            writer.write(Integer.toHexString(fontInfo.usWeightClass));
-        }
-        writer.write("|");
-        if (fontInfo.sFamilyClass > -1)
-        {
-            writer.write(Integer.toHexString(fontInfo.sFamilyClass));
-        }
-        writer.write("|");
-        writer.write(Integer.toHexString(fontInfo.ulCodePageRange1));
-        writer.write("|");
-        writer.write(Integer.toHexString(fontInfo.ulCodePageRange2));
-        writer.write("|");
-        if (fontInfo.macStyle > -1)
-        {
-            writer.write(Integer.toHexString(fontInfo.macStyle));
-        }
-        writer.write("|");
-        if (fontInfo.panose != null)
-        {
-            byte[] bytes = fontInfo.panose.getBytes();
-            for (int i = 0; i < 10; i ++)
-            {
-                String str = Integer.toHexString(bytes[i]);
-                if (str.length() == 1)
-                {
-                    writer.write('0');
-                }
-                writer.write(str);
-            }
-        }
-        writer.write("|");
-        writer.write(fontInfo.file.getAbsolutePath());
-        writer.write("|");
-        writer.write(fontInfo.hash);
-        writer.write("|");
-        writer.write(Long.toString(fontInfo.file.lastModified()));
-        writer.newLine();
-    }
-
-    /**
-     * Loads the font metadata cache from disk.
-     */
-    private List<FSFontInfo> loadDiskCache(List<File> files)
-    {
-        Set<String> pending = new HashSet<>(files.size());
-        for (File file : files)
-        {
-            pending.add(file.getAbsolutePath());
-        }
-        
-        List<FSFontInfo> results = new ArrayList<>();
-        
-        // Get the disk cache
-        File diskCacheFile = null;
-        boolean fileExists = false;
-        try
-        {
-            diskCacheFile = getDiskCacheFile();
-            fileExists = diskCacheFile.exists();
-        }
-        catch (SecurityException e)
-        {
-            LOG.debug("Error checking for file existence", e);
-        }
-
-        if (fileExists)
-        {
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(diskCacheFile), StandardCharsets.UTF_8)))
-            {
-                // consequent lines usually share the same font file (e.g. "Courier", "Courier-Bold", "Courier-Oblique").
-                // unused if SKIP_CHECKSUMS
-                File lastFile = null;
-                String lastHash = null;
-                //
-                String line;
-                while ((line = reader.readLine()) != null)
-                {
-                    String[] parts = line.split("\\|", 12);
-                    if (parts.length < 10)
-                    {
-                        LOG.warn("Incorrect line '" + line + "' in font disk cache is skipped");
-                        continue;
-                    }
-
-                    String postScriptName;
-                    FontFormat format;
-                    CIDSystemInfo cidSystemInfo = null;
-                    int usWeightClass = -1;
-                    int sFamilyClass = -1;
-                    int ulCodePageRange1;
-                    int ulCodePageRange2;
-                    int macStyle = -1;
-                    byte[] panose = null;
-                    File fontFile;
-                    String hash = "";
-                    long lastModified = 0;
-                    
-                    postScriptName = parts[0];
-                    format = FontFormat.valueOf(parts[1]);
-                    if (parts[2].length() > 0)
-                    {
-                        String[] ros = parts[2].split("-");
-                        cidSystemInfo = new CIDSystemInfo(ros[0], ros[1], Integer.parseInt(ros[2]));
-                    }
-                    if (parts[3].length() > 0)
-                    {
-                        usWeightClass = (int)Long.parseLong(parts[3], 16);
-                    }
-                    if (parts[4].length() > 0)
-                    {
-                        sFamilyClass = (int)Long.parseLong(parts[4], 16);
-                    }
-                    ulCodePageRange1 = (int)Long.parseLong(parts[5], 16);
-                    ulCodePageRange2 = (int)Long.parseLong(parts[6], 16);
-                    if (parts[7].length() > 0)
-                    {
-                        macStyle = (int)Long.parseLong(parts[7], 16);
-                    }
-                    if (parts[8].length() > 0)
-                    {
-                        panose = new byte[10];
-                        for (int i = 0; i < 10; i ++)
-                        {
-                            String str = parts[8].substring(i * 2, i * 2 + 2);
-                            int b = Integer.parseInt(str, 16);
-                            panose[i] = (byte)(b & 0xff);
-                        }
-                    }
-                    fontFile = new File(parts[9]);
-                    if (parts.length >= 12 && !parts[10].isEmpty() && !parts[11].isEmpty())
-                    {
-                        hash = parts[10];
-                        lastModified = Long.parseLong(parts[11]);
-                    }
-                    if (fontFile.exists())
-                    {
-                        // if the file exists, find out whether it's the same file.
-                        // first check whether time is different and if yes, whether hash is different
-                        boolean keep = fontFile.lastModified() == lastModified;
-                        if (!keep && !SKIP_CHECKSUMS)
-                        {
-                            String newHash;
-                            if (hash.equals(lastHash) && fontFile.equals(lastFile))
-                            {
-                                newHash = lastHash; // already computed
-                            }
-                            else
-                            {
-                                try
-                                {
-                                    newHash = computeHash(Files.newInputStream(fontFile.toPath()));
-                                    lastFile = fontFile;
-                                    lastHash = newHash;
-                                }
-                                catch (IOException ex)
-                                {
-                                    LOG.debug("Error reading font file " + fontFile.getAbsolutePath(), ex);
-                                    newHash = "<err>";
-                                }
-                            }
-                            if (hash.equals(newHash))
-                            {
-                                keep = true;
-                                lastModified = fontFile.lastModified();
-                            }
-                        }
-                        if (keep)
-                        {
-                            FSFontInfo info = new FSFontInfo(fontFile, format, postScriptName,
-                                    cidSystemInfo, usWeightClass, sFamilyClass, ulCodePageRange1,
-                                    ulCodePageRange2, macStyle, panose, this, hash, lastModified);
-                            results.add(info);
-                        }
-                        else
-                        {
-                            LOG.debug("Font file " + fontFile.getAbsolutePath() + " is different");
-                            continue; // don't remove from "pending"
-                        }
-                    }
-                    else
-                    {
-                        LOG.debug("Font file " + fontFile.getAbsolutePath() + " not found, skipped");
-                    }
-                    pending.remove(fontFile.getAbsolutePath());
-                }
-            }
-            catch (IOException e)
-            {
-                LOG.warn("Error loading font cache, will be re-built", e);
-                return null;
-            }
-        }
-        
-        if (!pending.isEmpty())
-        {
-            // re-build the entire cache if we encounter un-cached fonts (could be optimised)
-            LOG.info(pending.size() + " new font files found, font cache will be re-built");
-            return null;
-        }
-        
-        return results;
-    }
-
-    /**
-     * Adds a TTC or OTC to the file cache. To reduce memory, the parsed font is not cached.
-     */
-    private void addTrueTypeCollection(final File ttcFile)
-    {
-        try
-        {
-            String hash = SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(ttcFile.toPath()));
-            TrueTypeCollection.processAllFontHeaders(ttcFile,
-                    fontHeaders -> addTrueTypeFontImpl(fontHeaders, ttcFile, hash));
-        }
-        catch (IOException e)
-        {
-            LOG.warn("Could not load font file: " + ttcFile, e);
-            fontInfoList.add(createFSIgnored(ttcFile, FontFormat.TTF, "*skipexception*"));
-        }
-    }
-
-    /**
-     * Adds an OTF or TTF font to the file cache. To reduce memory, the parsed font is not cached.
-     */
-    private void addTrueTypeFont(File ttfFile)
-    {
-        FontFormat fontFormat = null;
-        try
-        {
-            TTFParser parser;
-            if (ttfFile.getPath().toLowerCase().endsWith(".otf"))
-            {
-                fontFormat = FontFormat.OTF;
-                parser = new OTFParser(false);
-            }
-            else
-            {
-                fontFormat = FontFormat.TTF;
-                parser = new TTFParser(false);
-            }
-            FontHeaders headers = parser.parseTableHeaders(new RandomAccessReadBufferedFile(ttfFile));
-            addTrueTypeFontImpl(headers, ttfFile,
-                    SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(ttfFile.toPath())));
-        }
-        catch (IOException e)
-        {
-            LOG.warn("Could not load font file: " + ttfFile, e);
-            fontInfoList.add(createFSIgnored(ttfFile, fontFormat, "*skipexception*"));
-        }
-    }
-
-    /**
-     * Adds an OTF or TTF font to the file cache. To reduce memory, the parsed font is not cached.
-     */
-    private void addTrueTypeFontImpl(FontHeaders fontHeaders, File file, String hash)
-    {
-        final String error = fontHeaders.getError();
-        if (error == null)
-        {
-            // read PostScript name, if any
-            final String name = fontHeaders.getName();
-            if (name != null && name.contains("|"))
-            {
-                fontInfoList.add(createFSIgnored(file, FontFormat.TTF, "*skippipeinname*"));
-                LOG.warn("Skipping font with '|' in name " + name + " in file " + file);
-            }
-            else if (name != null)
-            {
-                // ignore bitmap fonts
-                Integer macStyle = fontHeaders.getHeaderMacStyle();
-                if (macStyle == null)
-                {
-                    fontInfoList.add(createFSIgnored(file, FontFormat.TTF, name));
-                    return;
-                }
-
-                int sFamilyClass = -1;
-                int usWeightClass = -1;
-                int ulCodePageRange1 = 0;
-                int ulCodePageRange2 = 0;
-                byte[] panose = null;
-                OS2WindowsMetricsTable os2WindowsMetricsTable = fontHeaders.getOS2Windows();
-                // Apple's AAT fonts don't have an OS/2 table
-                if (os2WindowsMetricsTable != null)
-                {
-                    sFamilyClass = os2WindowsMetricsTable.getFamilyClass();
-                    usWeightClass = os2WindowsMetricsTable.getWeightClass();
-                    ulCodePageRange1 = (int) os2WindowsMetricsTable.getCodePageRange1();
-                    ulCodePageRange2 = (int) os2WindowsMetricsTable.getCodePageRange2();
-                    panose = os2WindowsMetricsTable.getPanose();
-                }
-
-                FontFormat format;
-                CIDSystemInfo ros = null;
-                if (fontHeaders.isOpenTypePostScript())
-                {
-                    format = FontFormat.OTF;
-                    String registry = fontHeaders.getOtfRegistry();
-                    String ordering = fontHeaders.getOtfOrdering();
-                    if (registry != null || ordering != null)
-                    {
-                        ros = new CIDSystemInfo(registry, ordering, fontHeaders.getOtfSupplement());
-                    }
-                }
-                else
-                {
-                    byte[] bytes = fontHeaders.getNonOtfTableGCID142();
-                    if (bytes != null)
-                    {
-                        // Apple's AAT fonts have a "gcid" table with CID info
-                        String reg = new String(bytes, 10, 64, StandardCharsets.US_ASCII);
-                        String registryName = reg.substring(0, reg.indexOf('\0'));
-                        String ord = new String(bytes, 76, 64, StandardCharsets.US_ASCII);
-                        String orderName = ord.substring(0, ord.indexOf('\0'));
-                        int supplementVersion = bytes[140] << 8 & (bytes[141] & 0xFF);
-                        ros = new CIDSystemInfo(registryName, orderName, supplementVersion);
-                    }
-                    format = FontFormat.TTF;
-                }
-                fontInfoList.add(new FSFontInfo(file, format, name, ros,
-                        usWeightClass, sFamilyClass, ulCodePageRange1, ulCodePageRange2,
-                        macStyle, panose, this, hash, file.lastModified()));
-
-                if (LOG.isTraceEnabled())
-                {
-                    LOG.trace(format.name() +": '" + name + "' / '" +
-                              fontHeaders.getFontFamily() + "' / '" +
-                              fontHeaders.getFontSubFamily() + "'");
-                }
-            }
-            else
-            {
-                fontInfoList.add(createFSIgnored(file, FontFormat.TTF, "*skipnoname*"));
-                LOG.warn("Missing 'name' entry for PostScript name in font " + file);
-            }
-        }
-        else
-        {
-            fontInfoList.add(createFSIgnored(file, FontFormat.TTF, "*skipexception*"));
-            LOG.warn("Could not load font file '" + file + "': " + error);
-        }
-    }
-
-    /**
-     * Adds a Type 1 font to the file cache. To reduce memory, the parsed font is not cached.
-     */
-    private void addType1Font(File pfbFile)
-    {
-        try (InputStream input = new FileInputStream(pfbFile))
-        {
-            Type1Font type1 = Type1Font.createWithPFB(input);
-            if (type1.getName() == null)
-            {
-                fontInfoList.add(createFSIgnored(pfbFile, FontFormat.PFB, "*skipnoname*"));
-                LOG.warn("Missing 'name' entry for PostScript name in font " + pfbFile);
-                return;
-            }
-            if (type1.getName().contains("|"))
-            {
-                fontInfoList.add(createFSIgnored(pfbFile, FontFormat.PFB, "*skippipeinname*"));
-                LOG.warn("Skipping font with '|' in name " + type1.getName() + " in file " + pfbFile);
-                return;
-            }
-            String hash = SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(pfbFile.toPath()));
-            fontInfoList.add(new FSFontInfo(pfbFile, FontFormat.PFB, type1.getName(),
-                                            null, -1, -1, 0, 0, -1, null, this, hash, pfbFile.lastModified()));
-
-            if (LOG.isTraceEnabled())
-            {
-                LOG.trace("PFB: '" + type1.getName() + "' / '" + type1.getFamilyName() + "' / '" +
-                        type1.getWeight() + "'");
-            }
-        }
-        catch (IOException e)
-        {
-            fontInfoList.add(createFSIgnored(pfbFile, FontFormat.PFB, "*skipexception*"));
-            LOG.warn("Could not load font file: " + pfbFile, e);
-        }
-    }
-
-    @Override
-    public String toDebugString()
-    {
-        StringBuilder sb = new StringBuilder();
-        for (FSFontInfo info : fontInfoList)
-        {
-            sb.append(info.getFormat());
-            sb.append(": ");
-            sb.append(info.getPostScriptName());
-            sb.append(": ");
-            sb.append(info.file.getPath());
-            sb.append('\n');
-        }
-        return sb.toString();
-    }
-
-    @Override
-    public List<? extends FontInfo> getFontInfo()
-    {
-        return fontInfoList;
-    }
-
-    private static String computeHash(InputStream is) throws IOException
-    {
-        CRC32 crc = new CRC32();
-
-        try
-        {
-            byte[] buffer = new byte[4096];
-            int readBytes;
-            while ((readBytes = is.read(buffer)) != -1)
-            {
-                crc.update(buffer, 0, readBytes);
-            }
-
-            long hash = crc.getValue();
-            return Long.toHexString(hash);
-        }
-        finally
-        {
-            IOUtils.closeQuietly(is);
-        }
-    }
-}
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.AccessControlException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.fontbox.FontBoxFont;
+import org.apache.fontbox.ttf.FontHeaders;
+import org.apache.fontbox.ttf.OS2WindowsMetricsTable;
+import org.apache.fontbox.ttf.OTFParser;
+import org.apache.fontbox.ttf.OpenTypeFont;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeCollection;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.fontbox.type1.Type1Font;
+import org.apache.fontbox.util.autodetect.FontDirFinder;
+import org.apache.fontbox.util.autodetect.FontFileFinder;
+import org.apache.fontbox.util.autodetect.MacFontDirFinder;
+import org.apache.fontbox.util.autodetect.OS400FontDirFinder;
+import org.apache.fontbox.util.autodetect.UnixFontDirFinder;
+import org.apache.fontbox.util.autodetect.WindowsFontDirFinder;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+
+/**
+ * A FontProvider which searches for fonts on the local filesystem.
+ *
+ * @author John Hewson
+ */
+final class FileSystemFontProvider extends FontProvider
+{
+    private static final Log LOG = LogFactory.getLog(FileSystemFontProvider.class);
+
+    /**
+     * This option changes publicly visible behaviour: ".pdfbox.cache" file will have hash="-" for all files.
+     * After implementing {@link FontHeaders}, parsing font headers is faster than checksumming anyway.
+     */
+    private static final boolean SKIP_CHECKSUMS = "true".equals(System.getProperty("pdfbox.fontcache.skipchecksums"));
+    private static final String CHECKSUM_PLACEHOLDER = "-";
+
+    /**
+     * Use the binary ".pdfbox.cache.bin" file instead of the ".pdfbox.cache" text file. The binary cache keeps the
+     * modification time of each font directory and font file. A directory which wasn't modified isn't listed again,
+     * its files are taken from the cache, but the modification time of each of them is still read, as overwriting a
+     * file doesn't change the modification time of its directory. Only the modified directories are listed and only
+     * the new or modified font files are parsed, so that a cache which is up to date is loaded without parsing or
+     * checksumming any font. The cache can be built ahead of time using {@link FontCacheBuilder}.
+     */
+    static final boolean BINARY_CACHE = "true".equals(System.getProperty("pdfbox.fontcache.binary"));
+    private static final String BINARY_CACHE_FILE_NAME = ".pdfbox.cache.bin";
+    private static final int BINARY_CACHE_MAGIC = 0x50424643; // "PBFC"
+    private static final int BINARY_CACHE_VERSION = 1;
+    private static final byte BINARY_CACHE_DIRECTORY = 0;
+    private static final byte BINARY_CACHE_FILE = 1;
+
+    private final List<FSFontInfo> fontInfoList = new ArrayList<>();
+    private final FontCache cache;
+
+    private static class FSFontInfo extends FontInfo
+    {
+        private final String postScriptName;
+        private final FontFormat format;
+        private final CIDSystemInfo cidSystemInfo;
+        private final int usWeightClass;
+        private final int sFamilyClass;
+        private final int ulCodePageRange1;
+        private final int ulCodePageRange2;
+        private final int macStyle;
+        private final PDPanoseClassification panose;
+        private final File file;
+        private final FileSystemFontProvider parent;
+        private final String hash;
+        private final long lastModified;
+
+        private FSFontInfo(File file, FontFormat format, String postScriptName,
+                           CIDSystemInfo cidSystemInfo, int usWeightClass, int sFamilyClass,
+                           int ulCodePageRange1, int ulCodePageRange2, int macStyle, byte[] panose,
+                           FileSystemFontProvider parent, String hash, long lastModified)
+        {
+            this.file = file;
+            this.format = format;
+            this.postScriptName = postScriptName;
+            this.cidSystemInfo = cidSystemInfo;
+            this.usWeightClass = usWeightClass;
+            this.sFamilyClass = sFamilyClass;
+            this.ulCodePageRange1 = ulCodePageRange1;
+            this.ulCodePageRange2 = ulCodePageRange2;
+            this.macStyle = macStyle;
+            this.panose = panose != null && panose.length >= PDPanoseClassification.LENGTH ?
+                    new PDPanoseClassification(panose) : null;
+            this.parent = parent;
+            this.hash = hash;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public String getPostScriptName()
+        {
+            return postScriptName;
+        }
+
+        @Override
+        public FontFormat getFormat()
+        {
+            return format;
+        }
+
+        @Override
+        public CIDSystemInfo getCIDSystemInfo()
+        {
+            return cidSystemInfo;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * The method returns null if there was an error opening the font.
+         * 
+         */
+        @Override
+        public synchronized FontBoxFont getFont()
+        {
+            // synchronized to avoid race condition on cache access,
+            // which could result in an unreferenced but open font
+            FontBoxFont cached = parent.cache.getFont(this);
+            if (cached != null)
+            {
+                return cached;
+            }
+            else
+            {
+                FontBoxFont font;
+                switch (format)
+                {
+                    case PFB: font = getType1Font(postScriptName, file); break;
+                    case TTF: font = getTrueTypeFont(postScriptName, file); break;
+                    case OTF: font = getOTFFont(postScriptName, file); break;
+                    default: throw new RuntimeException("can't happen");
+                }
+                if (font != null)
+                {
+                    parent.cache.addFont(this, font);
+                }
+                return font;
+            }
+        }
+
+        @Override
+        public int getFamilyClass()
+        {
+            return sFamilyClass;
+        }
+
+        @Override
+        public int getWeightClass()
+        {
+            return usWeightClass;
+        }
+
+        @Override
+        public int getCodePageRange1()
+        {
+            return ulCodePageRange1;
+        }
+
+        @Override
+        public int getCodePageRange2()
+        {
+            return ulCodePageRange2;
+        }
+
+        @Override
+        public int getMacStyle()
+        {
+            return macStyle;
+        }
+
+        @Override
+        public PDPanoseClassification getPanose()
+        {
+            return panose;
+        }
+
+        @Override
+        public String toString()
+        {
+            return super.toString() + " " + file + " " + hash + " " + lastModified;
+        }
+
+        private TrueTypeFont getTrueTypeFont(String postScriptName, File file)
+        {
+            try
+            {
+                TrueTypeFont ttf = readTrueTypeFont(postScriptName, file);
+
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Loaded " + postScriptName + " from " + file);
+                }
+                return ttf;
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Could not load font file: " + file, e);
+            }
+            return null;
+        }
+
+        private TrueTypeFont readTrueTypeFont(String postScriptName, File file) throws IOException
+        {
+            if (file.getName().toLowerCase().endsWith(".ttc"))
+            {
+                @SuppressWarnings("squid:S2095")
+                // ttc not closed here because it is needed later when ttf is accessed,
+                // e.g. rendering PDF with non-embedded font which is in ttc file in our font directory
+                TrueTypeCollection ttc = new TrueTypeCollection(file);
+                TrueTypeFont ttf;
+                try
+                {
+                    ttf = ttc.getFontByName(postScriptName);
+                }
+                catch (IOException ex)
+                {
+                    ttc.close();
+                    throw ex;
+                }
+                if (ttf == null)
+                {
+                    ttc.close();
+                    throw new IOException("Font " + postScriptName + " not found in " + file);
+                }
+                return ttf;
+            }
+            else
+            {
+                TTFParser ttfParser = new TTFParser(false);
+                return ttfParser.parse(new RandomAccessReadBufferedFile(file));
+            }
+        }
+
+        private OpenTypeFont getOTFFont(String postScriptName, File file)
+        {
+            try
+            {
+                if (file.getName().toLowerCase().endsWith(".ttc"))
+                {
+                    @SuppressWarnings("squid:S2095")
+                    // ttc not closed here because it is needed later when ttf is accessed,
+                    // e.g. rendering PDF with non-embedded font which is in ttc file in our font directory
+                    TrueTypeCollection ttc = new TrueTypeCollection(file);
+                    TrueTypeFont ttf;
+                    try
+                    {
+                        ttf = ttc.getFontByName(postScriptName);
+                    }
+                    catch (IOException ex)
+                    {
+                        LOG.error(ex.getMessage(), ex);
+                        ttc.close();
+                        return null;
+                    }
+                    if (ttf == null)
+                    {
+                        ttc.close();
+                        throw new IOException("Font " + postScriptName + " not found in " + file);
+                    }
+                    return (OpenTypeFont) ttf;
+                }
+
+                OTFParser parser = new OTFParser(false);
+                OpenTypeFont otf = parser.parse(new RandomAccessReadBufferedFile(file));
+
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Loaded " + postScriptName + " from " + file);
+                }
+                return otf;
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Could not load font file: " + file, e);
+            }
+            return null;
+        }
+
+        private Type1Font getType1Font(String postScriptName, File file)
+        {
+            try (InputStream input = new FileInputStream(file))
+            {
+                Type1Font type1 = Type1Font.createWithPFB(input);
+
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Loaded " + postScriptName + " from " + file);
+                }
+                return type1;
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Could not load font file: " + file, e);
+            }
+            return null;
+        }
+    }
+
+    private FSFontInfo createFSIgnored(File file, FontFormat format, String postScriptName)
+    {
+        String hash;
+        try
+        {
+            hash = SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(file.toPath()));
+        }
+        catch (IOException ex)
+        {
+            hash = "";
+        }
+        return new FSFontInfo(file, format, postScriptName, null, 0, 0, 0, 0, 0, null, null, hash, file.lastModified());
+    }
+
+    /**
+     * A font directory of the binary cache, with its subdirectories and font files in the order of the listing.
+     */
+    private static final class CachedDirectory
+    {
+        private final File directory;
+        private final long lastModified;
+        private final List<Object> children = new ArrayList<>();
+
+        private CachedDirectory(File directory, long lastModified)
+        {
+            this.directory = directory;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A font file of the binary cache with the fonts it contains.
+     */
+    private static final class CachedFile
+    {
+        private final File file;
+        private final long lastModified;
+        private final List<FSFontInfo> fonts;
+
+        private CachedFile(File file, long lastModified, List<FSFontInfo> fonts)
+        {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.fonts = fonts;
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    FileSystemFontProvider(FontCache cache)
+    {
+        this(cache, BINARY_CACHE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cache the cache of the loaded fonts
+     * @param binaryCache true if the binary disk cache is to be used instead of the text file
+     */
+    FileSystemFontProvider(FontCache cache, boolean binaryCache)
+    {
+        this.cache = cache;
+        try
+        {
+            if (binaryCache)
+            {
+                loadBinaryDiskCache(createFontDirFinder());
+                return;
+            }
+
+            if (LOG.isTraceEnabled())
+            {
+                LOG.trace("Will search the local system for fonts");
+            }
+
+            // scan the local system for font files
+            FontFileFinder fontFileFinder = new FontFileFinder();
+            List<URI> fonts = fontFileFinder.find();
+            List<File> files = new ArrayList<>(fonts.size());
+            for (URI font : fonts)
+            {
+                files.add(new File(font));
+            }
+
+            if (LOG.isTraceEnabled())
+            {
+                LOG.trace("Found " + files.size() + " fonts on the local system");
+            }
+
+            if (!files.isEmpty())
+            {
+                // load cached FontInfo objects
+                List<FSFontInfo> cachedInfos = loadDiskCache(files);
+                if (cachedInfos != null && !cachedInfos.isEmpty())
+                {
+                    fontInfoList.addAll(cachedInfos);
+                }
+                else
+                {
+                    LOG.info("Building on-disk font cache, this may take a while");
+                    scanFonts(files);
+                    saveDiskCache();
+                    LOG.info("Finished building on-disk font cache, found " + fontInfoList.size()
+                            + " fonts");
+                }
+            }
+        }
+        catch (AccessControlException e)
+        {
+            LOG.error("Error accessing the file system", e);
+        }
+    }
+    
+    /**
+     * Constructor which uses the binary disk cache for the fonts of the directories found by the given finder
+     * instead of the font directories of the system.
+     *
+     * @param cache the cache of the loaded fonts
+     * @param fontDirFinder finds the font directories to be scanned
+     */
+    FileSystemFontProvider(FontCache cache, FontDirFinder fontDirFinder)
+    {
+        this.cache = cache;
+        loadBinaryDiskCache(fontDirFinder);
+    }
+
+    private void scanFonts(List<File> files)
+    {
+        // to force a specific font for debug, add code like this here:
+        // files = Collections.singletonList(new File("font filename"))
+
+        for (File file : files)
+        {
+            String filePath = file.getPath().toLowerCase();
+            if (filePath.endsWith(".ttf") || filePath.endsWith(".otf"))
+            {
+                addTrueTypeFont(file);
+            }
+            else if (filePath.endsWith(".ttc") || filePath.endsWith(".otc"))
+            {
+                addTrueTypeCollection(file);
+            }
+            else if (filePath.endsWith(".pfb"))
+            {
+                addType1Font(file);
+            }
+        }
+    }
+
+    private File getDiskCacheFile()
+    {
+        return getDiskCacheFile(".pdfbox.cache");
+    }
+
+    private static File getDiskCacheFile(String name)
+    {
+        String path = System.getProperty("pdfbox.fontcache");
+        if (isBadPath(path))
+        {
+            path = System.getProperty("user.home");
+            if (isBadPath(path))
+            {
+                path = System.getProperty("java.io.tmpdir");
+            }
+        }
+        return new File(path, name);
+    }
+
+    private static boolean isBadPath(String path)
+    {
+        return path == null || !new File(path).isDirectory() || !new File(path).canWrite();
+    }
+
+    /**
+     * Saves the font metadata cache to disk.
+     */
+    private void saveDiskCache()
+    {
+        try
+        {
+            File file = getDiskCacheFile();
+
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))
+            {
+                for (FSFontInfo fontInfo : fontInfoList)
+                {
+                    writeFontInfo(writer, fontInfo);
+                }
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Could not write to font cache", e);
+                LOG.warn("Installed fonts information will have to be reloaded for each start");
+                LOG.warn("You can assign a directory to the 'pdfbox.fontcache' property");
+            }
+        }
+        catch (SecurityException e)
+        {
+            LOG.debug("Couldn't create writer for font cache file", e);
+        }
+    }
+
+    private void writeFontInfo(BufferedWriter writer, FSFontInfo fontInfo) throws IOException
+    {
+        writer.write(fontInfo.postScriptName.trim());
+        writer.write("|");
+        writer.write(fontInfo.format.toString());
+        writer.write("|");
+        if (fontInfo.cidSystemInfo != null)
+        {
+            writer.write(fontInfo.cidSystemInfo.getRegistry() + '-' +
+                         fontInfo.cidSystemInfo.getOrdering() + '-' +
+                         fontInfo.cidSystemInfo.getSupplement());
+        }
+        writer.write("|");
+        if (fontInfo.usWeightClass > -1)
+        {
+            writer.write(Integer.toHexString(fontInfo.usWeightClass));
+        }
+        writer.write("|");
+        if (fontInfo.sFamilyClass > -1)
+        {
+            writer.write(Integer.toHexString(fontInfo.sFamilyClass));
+        }
+        writer.write("|");
+        writer.write(Integer.toHexString(fontInfo.ulCodePageRange1));
+        writer.write("|");
+        writer.write(Integer.toHexString(fontInfo.ulCodePageRange2));
+        writer.write("|");
+        if (fontInfo.macStyle > -1)
+        {
+            writer.write(Integer.toHexString(fontInfo.macStyle));
+        }
+        writer.write("|");
+        if (fontInfo.panose != null)
+        {
+            byte[] bytes = fontInfo.panose.getBytes();
+            for (int i = 0; i < 10; i ++)
+            {
+                String str = Integer.toHexString(bytes[i]);
+                if (str.length() == 1)
+                {
+                    writer.write('0');
+                }
+                writer.write(str);
+            }
+        }
+        writer.write("|");
+        writer.write(fontInfo.file.getAbsolutePath());
+        writer.write("|");
+        writer.write(fontInfo.hash);
+        writer.write("|");
+        writer.write(Long.toString(fontInfo.file.lastModified()));
+        writer.newLine();
+    }
+
+    /**
+     * Loads the font metadata cache from disk.
+     */
+    private List<FSFontInfo> loadDiskCache(List<File> files)
+    {
+        Set<String> pending = new HashSet<>(files.size());
+        for (File file : files)
+        {
+            pending.add(file.getAbsolutePath());
+        }
+        
+        List<FSFontInfo> results = new ArrayList<>();
+        
+        // Get the disk cache
+        File diskCacheFile = null;
+        boolean fileExists = false;
+        try
+        {
+            diskCacheFile = getDiskCacheFile();
+            fileExists = diskCacheFile.exists();
+        }
+        catch (SecurityException e)
+        {
+            LOG.debug("Error checking for file existence", e);
+        }
+
+        if (fileExists)
+        {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(diskCacheFile), StandardCharsets.UTF_8)))
+            {
+                // consequent lines usually share the same font file (e.g. "Courier", "Courier-Bold", "Courier-Oblique").
+                // unused if SKIP_CHECKSUMS
+                File lastFile = null;
+                String lastHash = null;
+                //
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    String[] parts = line.split("\\|", 12);
+                    if (parts.length < 10)
+                    {
+                        LOG.warn("Incorrect line '" + line + "' in font disk cache is skipped");
+                        continue;
+                    }
+
+                    String postScriptName;
+                    FontFormat format;
+                    CIDSystemInfo cidSystemInfo = null;
+                    int usWeightClass = -1;
+                    int sFamilyClass = -1;
+                    int ulCodePageRange1;
+                    int ulCodePageRange2;
+                    int macStyle = -1;
+                    byte[] panose = null;
+                    File fontFile;
+                    String hash = "";
+                    long lastModified = 0;
+                    
+                    postScriptName = parts[0];
+                    format = FontFormat.valueOf(parts[1]);
+                    if (parts[2].length() > 0)
+                    {
+                        String[] ros = parts[2].split("-");
+                        cidSystemInfo = new CIDSystemInfo(ros[0], ros[1], Integer.parseInt(ros[2]));
+                    }
+                    if (parts[3].length() > 0)
+                    {
+                        usWeightClass = (int)Long.parseLong(parts[3], 16);
+                    }
+                    if (parts[4].length() > 0)
+                    {
+                        sFamilyClass = (int)Long.parseLong(parts[4], 16);
+                    }
+                    ulCodePageRange1 = (int)Long.parseLong(parts[5], 16);
+                    ulCodePageRange2 = (int)Long.parseLong(parts[6], 16);
+                    if (parts[7].length() > 0)
+                    {
+                        macStyle = (int)Long.parseLong(parts[7], 16);
+                    }
+                    if (parts[8].length() > 0)
+                    {
+                        panose = new byte[10];
+                        for (int i = 0; i < 10; i ++)
+                        {
+                            String str = parts[8].substring(i * 2, i * 2 + 2);
+                            int b = Integer.parseInt(str, 16);
+                            panose[i] = (byte)(b & 0xff);
+                        }
+                    }
+                    fontFile = new File(parts[9]);
+                    if (parts.length >= 12 && !parts[10].isEmpty() && !parts[11].isEmpty())
+                    {
+                        hash = parts[10];
+                        lastModified = Long.parseLong(parts[11]);
+                    }
+                    if (fontFile.exists())
+                    {
+                        // if the file exists, find out whether it's the same file.
+                        // first check whether time is different and if yes, whether hash is different
+                        boolean keep = fontFile.lastModified() == lastModified;
+                        if (!keep && !SKIP_CHECKSUMS)
+                        {
+                            String newHash;
+                            if (hash.equals(lastHash) && fontFile.equals(lastFile))
+                            {
+                                newHash = lastHash; // already computed
+                            }
+                            else
+                            {
+                                try
+                                {
+                                    newHash = computeHash(Files.newInputStream(fontFile.toPath()));
+                                    lastFile = fontFile;
+                                    lastHash = newHash;
+                                }
+                                catch (IOException ex)
+                                {
+                                    LOG.debug("Error reading font file " + fontFile.getAbsolutePath(), ex);
+                                    newHash = "<err>";
+                                }
+                            }
+                            if (hash.equals(newHash))
+                            {
+                                keep = true;
+                                lastModified = fontFile.lastModified();
+                            }
+                        }
+                        if (keep)
+                        {
+                            FSFontInfo info = new FSFontInfo(fontFile, format, postScriptName,
+                                    cidSystemInfo, usWeightClass, sFamilyClass, ulCodePageRange1,
+                                    ulCodePageRange2, macStyle, panose, this, hash, lastModified);
+                            results.add(info);
+                        }
+                        else
+                        {
+                            LOG.debug("Font file " + fontFile.getAbsolutePath() + " is different");
+                            continue; // don't remove from "pending"
+                        }
+                    }
+                    else
+                    {
+                        LOG.debug("Font file " + fontFile.getAbsolutePath() + " not found, skipped");
+                    }
+                    pending.remove(fontFile.getAbsolutePath());
+                }
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Error loading font cache, will be re-built", e);
+                return null;
+            }
+        }
+        
+        if (!pending.isEmpty())
+        {
+            // re-build the entire cache if we encounter un-cached fonts (could be optimised)
+            LOG.info(pending.size() + " new font files found, font cache will be re-built");
+            return null;
+        }
+        
+        return results;
+    }
+
+    /**
+     * Loads the font metadata using the binary disk cache and updates the cache if any font directory was modified,
+     * see {@link #BINARY_CACHE}.
+     *
+     * @param fontDirFinder finds the font directories
+     */
+    private void loadBinaryDiskCache(FontDirFinder fontDirFinder)
+    {
+        File cacheFile;
+        try
+        {
+            cacheFile = getDiskCacheFile(BINARY_CACHE_FILE_NAME);
+        }
+        catch (SecurityException e)
+        {
+            LOG.debug("Couldn't get the font cache file", e);
+            cacheFile = null;
+        }
+        Map<File, CachedDirectory> cachedRoots = cacheFile != null ? readBinaryDiskCache(cacheFile) : null;
+        boolean rebuild = cachedRoots == null;
+        boolean modified = rebuild;
+        if (rebuild)
+        {
+            LOG.info("Building on-disk font cache, this may take a while");
+            cachedRoots = Collections.emptyMap();
+        }
+
+        List<CachedDirectory> roots = new ArrayList<>();
+        for (File root : fontDirFinder.find())
+        {
+            root = root.getAbsoluteFile();
+            if (!root.isDirectory())
+            {
+                continue;
+            }
+            CachedDirectory directory = new CachedDirectory(root, root.lastModified());
+            modified |= refreshDirectory(directory, cachedRoots.get(root));
+            roots.add(directory);
+        }
+        // a font directory which was removed
+        modified |= roots.size() != cachedRoots.size();
+
+        if (modified && cacheFile != null)
+        {
+            writeBinaryDiskCache(cacheFile, roots);
+            LOG.info((rebuild ? "Finished building" : "Updated") + " on-disk font cache, found "
+                    + fontInfoList.size() + " fonts");
+        }
+    }
+
+    /**
+     * Adds the fonts of a directory and its subdirectories, in the same order as {@link FontFileFinder}. The listing
+     * of a directory which wasn't modified since the cache was written is taken from the cache, otherwise it is listed
+     * again. In both cases the font files which are new or were modified are parsed, as a file which is overwritten
+     * doesn't change the modification time of its directory.
+     *
+     * @param directory the directory to be filled
+     * @param cached the directory as cached, or null
+     * @return true if the directory or one of its subdirectories was modified
+     */
+    private boolean refreshDirectory(CachedDirectory directory, CachedDirectory cached)
+    {
+        if (cached != null && cached.lastModified == directory.lastModified)
+        {
+            boolean modified = false;
+            for (Object child : cached.children)
+            {
+                if (child instanceof CachedDirectory)
+                {
+                    File subdirectory = ((CachedDirectory) child).directory;
+                    CachedDirectory refreshed = new CachedDirectory(subdirectory, subdirectory.lastModified());
+                    modified |= refreshDirectory(refreshed, (CachedDirectory) child);
+                    directory.children.add(refreshed);
+                }
+                else
+                {
+                    CachedFile cachedFile = (CachedFile) child;
+                    CachedFile refreshed = refreshFile(cachedFile.file, cachedFile);
+                    if (refreshed != cachedFile)
+                    {
+                        modified = true;
+                    }
+                    if (refreshed != null)
+                    {
+                        directory.children.add(refreshed);
+                    }
+                }
+            }
+            return modified;
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Font directory " + directory.directory + " was modified");
+        }
+        File[] files = directory.directory.listFiles();
+        if (files == null)
+        {
+            return true;
+        }
+        Map<String, Object> cachedChildren = new HashMap<>();
+        if (cached != null)
+        {
+            for (Object child : cached.children)
+            {
+                File file = child instanceof CachedDirectory ?
+                        ((CachedDirectory) child).directory : ((CachedFile) child).file;
+                cachedChildren.put(file.getName(), child);
+            }
+        }
+        for (File file : files)
+        {
+            Object cachedChild = cachedChildren.get(file.getName());
+            if (file.isDirectory())
+            {
+                // same as FontFileFinder
+                if (!file.isHidden())
+                {
+                    CachedDirectory subdirectory = new CachedDirectory(file, file.lastModified());
+                    refreshDirectory(subdirectory, cachedChild instanceof CachedDirectory ?
+                            (CachedDirectory) cachedChild : null);
+                    directory.children.add(subdirectory);
+                }
+            }
+            else if (isFontFile(file))
+            {
+                CachedFile cachedFile = refreshFile(file, cachedChild instanceof CachedFile ?
+                        (CachedFile) cachedChild : null);
+                if (cachedFile != null)
+                {
+                    directory.children.add(cachedFile);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the fonts of a font file, which are taken from the cache if the file wasn't modified since the cache was
+     * written.
+     *
+     * @param file the font file
+     * @param cached the file as cached, or null
+     * @return the cached file if it wasn't modified, a new one if it was parsed, or null if it doesn't exist anymore
+     */
+    private CachedFile refreshFile(File file, CachedFile cached)
+    {
+        long lastModified = file.lastModified();
+        if (lastModified == 0 && !file.exists())
+        {
+            return null;
+        }
+        if (cached != null && cached.lastModified == lastModified)
+        {
+            fontInfoList.addAll(cached.fonts);
+            return cached;
+        }
+        int start = fontInfoList.size();
+        scanFonts(Collections.singletonList(file));
+        return new CachedFile(file, lastModified, new ArrayList<>(fontInfoList.subList(start, fontInfoList.size())));
+    }
+
+    /**
+     * Same check as in {@link FontFileFinder}.
+     */
+    private static boolean isFontFile(File file)
+    {
+        String name = file.getName().toLowerCase(Locale.US);
+        return (name.endsWith(".ttf") || name.endsWith(".otf") || name.endsWith(".pfb")
+                || name.endsWith(".ttc")) && !name.startsWith("fonts.");
+    }
+
+    /**
+     * Same as in {@link FontFileFinder}, which doesn't expose the directories.
+     */
+    private static FontDirFinder createFontDirFinder()
+    {
+        String osName = System.getProperty("os.name");
+        if (osName.startsWith("Windows"))
+        {
+            return new WindowsFontDirFinder();
+        }
+        if (osName.startsWith("Mac"))
+        {
+            return new MacFontDirFinder();
+        }
+        if (osName.startsWith("OS/400"))
+        {
+            return new OS400FontDirFinder();
+        }
+        return new UnixFontDirFinder();
+    }
+
+    /**
+     * Reads the binary disk cache. The file is read completely instead of being memory mapped, as a mapping would keep
+     * it open until the buffer is garbage collected, so that it couldn't be replaced on Windows.
+     *
+     * @return the cached font directories by file, or null if there is no valid cache
+     */
+    private Map<File, CachedDirectory> readBinaryDiskCache(File cacheFile)
+    {
+        try
+        {
+            if (!cacheFile.isFile())
+            {
+                return null;
+            }
+        }
+        catch (SecurityException e)
+        {
+            LOG.debug("Error checking for file existence", e);
+            return null;
+        }
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile.toPath()));
+            if (buffer.getInt() != BINARY_CACHE_MAGIC || buffer.getInt() != BINARY_CACHE_VERSION)
+            {
+                LOG.info("Unknown font cache format, font cache will be re-built");
+                return null;
+            }
+            int count = readCount(buffer);
+            Map<File, CachedDirectory> roots = new HashMap<>();
+            for (int i = 0; i < count; i++)
+            {
+                CachedDirectory directory = readCachedDirectory(buffer, new File(readString(buffer)));
+                roots.put(directory.directory, directory);
+            }
+            return roots;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // a truncated file or an unknown font format
+            LOG.warn("Error loading font cache, will be re-built", e);
+            return null;
+        }
+    }
+
+    private CachedDirectory readCachedDirectory(ByteBuffer buffer, File file)
+    {
+        CachedDirectory directory = new CachedDirectory(file, buffer.getLong());
+        int count = readCount(buffer);
+        for (int i = 0; i < count; i++)
+        {
+            byte type = buffer.get();
+            File child = new File(file, readString(buffer));
+            if (type == BINARY_CACHE_DIRECTORY)
+            {
+                directory.children.add(readCachedDirectory(buffer, child));
+            }
+            else
+            {
+                long lastModified = buffer.getLong();
+                String hash = readString(buffer);
+                int fontCount = readCount(buffer);
+                List<FSFontInfo> fonts = new ArrayList<>(fontCount);
+                for (int j = 0; j < fontCount; j++)
+                {
+                    fonts.add(readFontInfo(buffer, child, hash, lastModified));
+                }
+                directory.children.add(new CachedFile(child, lastModified, fonts));
+            }
+        }
+        return directory;
+    }
+
+    private FSFontInfo readFontInfo(ByteBuffer buffer, File file, String hash, long lastModified)
+    {
+        String postScriptName = readString(buffer);
+        FontFormat format = FontFormat.values()[buffer.get()];
+        CIDSystemInfo cidSystemInfo = null;
+        if (buffer.get() != 0)
+        {
+            String registry = readString(buffer);
+            String ordering = readString(buffer);
+            cidSystemInfo = new CIDSystemInfo(registry, ordering, buffer.getInt());
+        }
+        int usWeightClass = buffer.getInt();
+        int sFamilyClass = buffer.getInt();
+        int ulCodePageRange1 = buffer.getInt();
+        int ulCodePageRange2 = buffer.getInt();
+        int macStyle = buffer.getInt();
+        byte[] panose = null;
+        if (buffer.get() != 0)
+        {
+            panose = new byte[PDPanoseClassification.LENGTH];
+            buffer.get(panose);
+        }
+        return new FSFontInfo(file, format, postScriptName, cidSystemInfo, usWeightClass, sFamilyClass,
+                ulCodePageRange1, ulCodePageRange2, macStyle, panose, this, hash, lastModified);
+    }
+
+    /**
+     * Reads the number of the following entries, each of them takes at least one byte.
+     */
+    private static int readCount(ByteBuffer buffer)
+    {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        if (length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the binary disk cache. The cache is written to a temporary file first, so that a cache which is read
+     * concurrently is never incomplete.
+     */
+    private void writeBinaryDiskCache(File cacheFile, List<CachedDirectory> roots)
+    {
+        File tempFile = null;
+        try
+        {
+            tempFile = File.createTempFile(BINARY_CACHE_FILE_NAME, ".tmp", cacheFile.getParentFile());
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile))))
+            {
+                output.writeInt(BINARY_CACHE_MAGIC);
+                output.writeInt(BINARY_CACHE_VERSION);
+                output.writeInt(roots.size());
+                for (CachedDirectory root : roots)
+                {
+                    writeString(output, root.directory.getPath());
+                    writeCachedDirectory(output, root);
+                }
+            }
+            try
+            {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not write to font cache", e);
+            LOG.warn("Installed fonts information will have to be reloaded for each start");
+            LOG.warn("You can assign a directory to the 'pdfbox.fontcache' property");
+            if (tempFile != null && !tempFile.delete())
+            {
+                LOG.debug("Could not delete " + tempFile);
+            }
+        }
+        catch (SecurityException e)
+        {
+            LOG.debug("Couldn't create writer for font cache file", e);
+        }
+    }
+
+    private static void writeCachedDirectory(DataOutputStream output, CachedDirectory directory)
+            throws IOException
+    {
+        output.writeLong(directory.lastModified);
+        output.writeInt(directory.children.size());
+        for (Object child : directory.children)
+        {
+            if (child instanceof CachedDirectory)
+            {
+                CachedDirectory subdirectory = (CachedDirectory) child;
+                output.writeByte(BINARY_CACHE_DIRECTORY);
+                writeString(output, subdirectory.directory.getName());
+                writeCachedDirectory(output, subdirectory);
+            }
+            else
+            {
+                CachedFile file = (CachedFile) child;
+                output.writeByte(BINARY_CACHE_FILE);
+                writeString(output, file.file.getName());
+                output.writeLong(file.lastModified);
+                writeString(output, file.fonts.isEmpty() ? "" : file.fonts.get(0).hash);
+                output.writeInt(file.fonts.size());
+                for (FSFontInfo fontInfo : file.fonts)
+                {
+                    writeFontInfo(output, fontInfo);
+                }
+            }
+        }
+    }
+
+    private static void writeFontInfo(DataOutputStream output, FSFontInfo fontInfo) throws IOException
+    {
+        writeString(output, fontInfo.postScriptName);
+        output.writeByte(fontInfo.format.ordinal());
+        if (fontInfo.cidSystemInfo != null)
+        {
+            output.writeByte(1);
+            writeString(output, fontInfo.cidSystemInfo.getRegistry());
+            writeString(output, fontInfo.cidSystemInfo.getOrdering());
+            output.writeInt(fontInfo.cidSystemInfo.getSupplement());
+        }
+        else
+        {
+            output.writeByte(0);
+        }
+        output.writeInt(fontInfo.usWeightClass);
+        output.writeInt(fontInfo.sFamilyClass);
+        output.writeInt(fontInfo.ulCodePageRange1);
+        output.writeInt(fontInfo.ulCodePageRange2);
+        output.writeInt(fontInfo.macStyle);
+        if (fontInfo.panose != null)
+        {
+            output.writeByte(1);
+            output.write(fontInfo.panose.getBytes(), 0, PDPanoseClassification.LENGTH);
+        }
+        else
+        {
+            output.writeByte(0);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException
+    {
+        if (string == null)
+        {
+            output.writeInt(-1);
+        }
+        else
+        {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Adds a TTC or OTC to the file cache. To reduce memory, the parsed font is not cached.
+     */
+    private void addTrueTypeCollection(final File ttcFile)
+    {
+        try
+        {
+            String hash = SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(ttcFile.toPath()));
+            TrueTypeCollection.processAllFontHeaders(ttcFile,
+                    fontHeaders -> addTrueTypeFontImpl(fontHeaders, ttcFile, hash));
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not load font file: " + ttcFile, e);
+            fontInfoList.add(createFSIgnored(ttcFile, FontFormat.TTF, "*skipexception*"));
+        }
+    }
+
+    /**
+     * Adds an OTF or TTF font to the file cache. To reduce memory, the parsed font is not cached.
+     */
+    private void addTrueTypeFont(File ttfFile)
+    {
+        FontFormat fontFormat = null;
+        try
+        {
+            TTFParser parser;
+            if (ttfFile.getPath().toLowerCase().endsWith(".otf"))
+            {
+                fontFormat = FontFormat.OTF;
+                parser = new OTFParser(false);
+            }
+            else
+            {
+                fontFormat = FontFormat.TTF;
+                parser = new TTFParser(false);
+            }
+            FontHeaders headers = parser.parseTableHeaders(new RandomAccessReadBufferedFile(ttfFile));
+            addTrueTypeFontImpl(headers, ttfFile,
+                    SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(ttfFile.toPath())));
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not load font file: " + ttfFile, e);
+            fontInfoList.add(createFSIgnored(ttfFile, fontFormat, "*skipexception*"));
+        }
+    }
+
+    /**
+     * Adds an OTF or TTF font to the file cache. To reduce memory, the parsed font is not cached.
+     */
+    private void addTrueTypeFontImpl(FontHeaders fontHeaders, File file, String hash)
+    {
+        final String error = fontHeaders.getError();
+        if (error == null)
+        {
+            // read PostScript name, if any
+            final String name = fontHeaders.getName();
+            if (name != null && name.contains("|"))
+            {
+                fontInfoList.add(createFSIgnored(file, FontFormat.TTF, "*skippipeinname*"));
+                LOG.warn("Skipping font with '|' in name " + name + " in file " + file);
+            }
+            else if (name != null)
+            {
+                // ignore bitmap fonts
+                Integer macStyle = fontHeaders.getHeaderMacStyle();
+                if (macStyle == null)
+                {
+                    fontInfoList.add(createFSIgnored(file, FontFormat.TTF, name));
+                    return;
+                }
+
+                int sFamilyClass = -1;
+                int usWeightClass = -1;
+                int ulCodePageRange1 = 0;
+                int ulCodePageRange2 = 0;
+                byte[] panose = null;
+                OS2WindowsMetricsTable os2WindowsMetricsTable = fontHeaders.getOS2Windows();
+                // Apple's AAT fonts don't have an OS/2 table
+                if (os2WindowsMetricsTable != null)
+                {
+                    sFamilyClass = os2WindowsMetricsTable.getFamilyClass();
+                    usWeightClass = os2WindowsMetricsTable.getWeightClass();
+                    ulCodePageRange1 = (int) os2WindowsMetricsTable.getCodePageRange1();
+                    ulCodePageRange2 = (int) os2WindowsMetricsTable.getCodePageRange2();
+                    panose = os2WindowsMetricsTable.getPanose();
+                }
+
+                FontFormat format;
+                CIDSystemInfo ros = null;
+                if (fontHeaders.isOpenTypePostScript())
+                {
+                    format = FontFormat.OTF;
+                    String registry = fontHeaders.getOtfRegistry();
+                    String ordering = fontHeaders.getOtfOrdering();
+                    if (registry != null || ordering != null)
+                    {
+                        ros = new CIDSystemInfo(registry, ordering, fontHeaders.getOtfSupplement());
+                    }
+                }
+                else
+                {
+                    byte[] bytes = fontHeaders.getNonOtfTableGCID142();
+                    if (bytes != null)
+                    {
+                        // Apple's AAT fonts have a "gcid" table with CID info
+                        String reg = new String(bytes, 10, 64, StandardCharsets.US_ASCII);
+                        String registryName = reg.substring(0, reg.indexOf('\0'));
+                        String ord = new String(bytes, 76, 64, StandardCharsets.US_ASCII);
+                        String orderName = ord.substring(0, ord.indexOf('\0'));
+                        int supplementVersion = bytes[140] << 8 & (bytes[141] & 0xFF);
+                        ros = new CIDSystemInfo(registryName, orderName, supplementVersion);
+                    }
+                    format = FontFormat.TTF;
+                }
+                fontInfoList.add(new FSFontInfo(file, format, name, ros,
+                        usWeightClass, sFamilyClass, ulCodePageRange1, ulCodePageRange2,
+                        macStyle, panose, this, hash, file.lastModified()));
+
+                if (LOG.isTraceEnabled())
+                {
+                    LOG.trace(format.name() +": '" + name + "' / '" +
+                              fontHeaders.getFontFamily() + "' / '" +
+                              fontHeaders.getFontSubFamily() + "'");
+                }
+            }
+            else
+            {
+                fontInfoList.add(createFSIgnored(file, FontFormat.TTF, "*skipnoname*"));
+                LOG.warn("Missing 'name' entry for PostScript name in font " + file);
+            }
+        }
+        else
+        {
+            fontInfoList.add(createFSIgnored(file, FontFormat.TTF, "*skipexception*"));
+            LOG.warn("Could not load font file '" + file + "': " + error);
+        }
+    }
+
+    /**
+     * Adds a Type 1 font to the file cache. To reduce memory, the parsed font is not cached.
+     */
+    private void addType1Font(File pfbFile)
+    {
+        try (InputStream input = new FileInputStream(pfbFile))
+        {
+            Type1Font type1 = Type1Font.createWithPFB(input);
+            if (type1.getName() == null)
+            {
+                fontInfoList.add(createFSIgnored(pfbFile, FontFormat.PFB, "*skipnoname*"));
+                LOG.warn("Missing 'name' entry for PostScript name in font " + pfbFile);
+                return;
+            }
+            if (type1.getName().contains("|"))
+            {
+                fontInfoList.add(createFSIgnored(pfbFile, FontFormat.PFB, "*skippipeinname*"));
+                LOG.warn("Skipping font with '|' in name " + type1.getName() + " in file " + pfbFile);
+                return;
+            }
+            String hash = SKIP_CHECKSUMS ? CHECKSUM_PLACEHOLDER : computeHash(Files.newInputStream(pfbFile.toPath()));
+            fontInfoList.add(new FSFontInfo(pfbFile, FontFormat.PFB, type1.getName(),
+                                            null, -1, -1, 0, 0, -1, null, this, hash, pfbFile.lastModified()));
+
+            if (LOG.isTraceEnabled())
+            {
+                LOG.trace("PFB: '" + type1.getName() + "' / '" + type1.getFamilyName() + "' / '" +
+                        type1.getWeight() + "'");
+            }
+        }
+        catch (IOException e)
+        {
+            fontInfoList.add(createFSIgnored(pfbFile, FontFormat.PFB, "*skipexception*"));
+            LOG.warn("Could not load font file: " + pfbFile, e);
+        }
+    }
+
+    @Override
+    public String toDebugString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (FSFontInfo info : fontInfoList)
+        {
+            sb.append(info.getFormat());
+            sb.append(": ");
+            sb.append(info.getPostScriptName());
+            sb.append(": ");
+            sb.append(info.file.getPath());
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of fonts found.
+     */
+    int getFontCount()
+    {
+        return fontInfoList.size();
+    }
+
+    @Override
+    public List<? extends FontInfo> getFontInfo()
+    {
+        return fontInfoList;
+    }
+
+    private static String computeHash(InputStream is) throws IOException
+    {
+        CRC32 crc = new CRC32();
+
+        try
+        {
+            byte[] buffer = new byte[4096];
+            int readBytes;
+            while ((readBytes = is.read(buffer)) != -1)
+            {
+                crc.update(buffer, 0, readBytes);
+            }
+
+            long hash = crc.getValue();
+            return Long.toHexString(hash);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(is);
+        }
+    }
+}
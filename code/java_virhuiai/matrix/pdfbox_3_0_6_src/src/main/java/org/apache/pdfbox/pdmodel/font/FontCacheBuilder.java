@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.pdmodel.font;
+
+/**
+ * Builds or updates the binary on-disk font cache ahead of time, e.g. when a container image is built, so that the
+ * first use of a non-embedded font doesn't have to scan the fonts of the system. The cache is written to the directory
+ * given by the "pdfbox.fontcache" property, and used if the "pdfbox.fontcache.binary" property is set to "true".
+ * Using a prebuilt cache avoids parsing the fonts, but each start still reads the modification time of every cached
+ * font file to detect fonts which were replaced.
+ *
+ * <pre>
+ * java -Dpdfbox.fontcache=/opt/fontcache -cp ... org.apache.pdfbox.pdmodel.font.FontCacheBuilder
+ * </pre>
+ */
+public final class FontCacheBuilder
+{
+    private FontCacheBuilder()
+    {
+    }
+
+    /**
+     * Builds or updates the binary on-disk font cache. Only the font directories which were modified since the cache
+     * was written are scanned again.
+     *
+     * @return the number of fonts found
+     */
+    public static int build()
+    {
+        return new FileSystemFontProvider(new FontCache(), true).getFontCount();
+    }
+
+    /**
+     * Builds or updates the binary on-disk font cache.
+     *
+     * @param args the directory of the cache, optional, overrides the "pdfbox.fontcache" property
+     */
+    public static void main(String[] args)
+    {
+        if (args.length > 0)
+        {
+            System.setProperty("pdfbox.fontcache", args[0]);
+        }
+        System.out.println("Found " + build() + " fonts");
+    }
+}
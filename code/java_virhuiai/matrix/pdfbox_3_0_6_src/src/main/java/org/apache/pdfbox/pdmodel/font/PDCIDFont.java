@@ -76,7 +76,25 @@ public abstract class PDCIDFont implements COSObjectable, PDFontLike, PDVectorFo
         // see 9.7.4.3, "Glyph Metrics in CIDFonts"
         widths = new HashMap<>();
         COSArray wArray = dict.getCOSArray(COSName.W);
-        if (wArray != null)
+        if (wArray != null && wArray.isCompact())
+        {
+            // ranges of codes with the same width only, read without creating any number objects
+            int[] codes = wArray.toIntArray();
+            float[] values = wArray.toFloatArray();
+            for (int counter = 0; counter + 2 < codes.length; counter += 3)
+            {
+                float width = values[counter + 2];
+                for (int i = codes[counter]; i <= codes[counter + 1]; i++)
+                {
+                    widths.put(i, width);
+                }
+            }
+            if (codes.length % 3 == 2)
+            {
+                LOG.warn("premature end of widths array");
+            }
+        }
+        else if (wArray != null)
         {
             int size = wArray.size();
             int counter = 0;
@@ -94,6 +112,15 @@ public abstract class PDCIDFont implements COSObjectable, PDFontLike, PDVectorFo
                 {
                     COSArray array = (COSArray) next;
                     int startRange = firstCode.intValue();
+                    if (array.isCompact())
+                    {
+                        float[] arrayWidths = array.toFloatArray();
+                        for (int i = 0; i < arrayWidths.length; i++)
+                        {
+                            widths.put(startRange + i, arrayWidths[i]);
+                        }
+                        continue;
+                    }
                     int arraySize = array.size();
                     for (int i = 0; i < arraySize; i++)
                     {
@@ -105,7 +105,8 @@ public abstract class PDFont implements COSObjectable, PDFontLike
     protected PDFont(COSDictionary fontDictionary)
     {
         dict = fontDictionary;
-        codeToWidthMap = new HashMap<>();
+        // fonts may be shared by several threads through a thread safe resource cache
+        codeToWidthMap = new ConcurrentHashMap<>();
 
         // standard 14 fonts use an AFM
         afmStandard14 = Standard14Fonts.getAFM(getName()); // may be null (it usually is)
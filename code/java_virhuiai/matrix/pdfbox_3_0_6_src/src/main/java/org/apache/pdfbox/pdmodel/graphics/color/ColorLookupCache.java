@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+
+/**
+ * Memoizes the conversion of 8-bit samples to RGB. The samples of a pixel are packed into a long,
+ * so that at most 8 components are supported, the RGB value is packed into an int like in
+ * {@link BufferedImage#TYPE_INT_RGB}.
+ *
+ * <p>
+ * The cache is an open addressing hash table of primitives, so that there is no allocation per
+ * pixel. It isn't thread safe, a cache shared by several threads has to be locked by the caller.
+ * </p>
+ *
+ * <p>
+ * The color spaces create their cache or their table lazily and keep it in a volatile field
+ * without locking. Threads which convert their first image at the same time may each create one,
+ * the last one is kept. This only repeats some conversions, because all of them hold the same
+ * values, so that it is cheaper than locking every lookup of the field.
+ * </p>
+ *
+ * @see PDColorSpace#setConversionCacheEnabled(boolean)
+ */
+final class ColorLookupCache
+{
+    /**
+     * The maximum number of colors of a cache which is kept by a color space instance.
+     */
+    static final int MAX_SHARED_SIZE = 1 << 18;
+
+    /**
+     * The maximum number of colors of a cache which is used for a single image.
+     */
+    static final int MAX_LOCAL_SIZE = 1 << 22;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    // marks a used slot as an RGB value uses the lower 24 bits only
+    private static final int USED = 1 << 24;
+
+    private final int maxSize;
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Converts the samples of a pixel to a packed RGB value.
+     */
+    interface PixelConverter
+    {
+        /**
+         * Converts a pixel.
+         *
+         * @param samples the 8-bit samples of the pixel
+         * @return the RGB value packed like in {@link BufferedImage#TYPE_INT_RGB}
+         * @throws IOException if the color conversion fails
+         */
+        int toRGB(int[] samples) throws IOException;
+    }
+
+    /**
+     * Converts a raster to RGB.
+     */
+    interface RasterConverter
+    {
+        /**
+         * Converts a raster.
+         *
+         * @param raster the source raster
+         * @return an RGB image
+         * @throws IOException if the color conversion fails
+         */
+        BufferedImage toRGBImage(WritableRaster raster) throws IOException;
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize the maximum number of colors, further colors aren't added.
+     */
+    ColorLookupCache(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached RGB value.
+     *
+     * @param key the packed samples
+     * @return the packed RGB value or -1 if the color isn't cached
+     */
+    int get(long key)
+    {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask)
+        {
+            int value = values[i];
+            if (value == 0)
+            {
+                return -1;
+            }
+            if (keys[i] == key)
+            {
+                return value & 0xffffff;
+            }
+        }
+    }
+
+    /**
+     * Adds a RGB value to the cache, unless the cache is full.
+     *
+     * @param key the packed samples
+     * @param rgb the packed RGB value
+     */
+    void put(long key, int rgb)
+    {
+        if (size >= maxSize)
+        {
+            return;
+        }
+        if (size * 2 >= keys.length)
+        {
+            rehash();
+        }
+        if (insert(keys, values, key, rgb | USED))
+        {
+            size++;
+        }
+    }
+
+    /**
+     * Returns the number of cached colors.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Tells whether the given raster can be converted using a cache, i.e. whether it holds 8-bit
+     * samples with at most 8 components.
+     *
+     * @param raster the raster
+     * @return true if the samples of the raster can be packed into a key
+     */
+    static boolean isSupported(WritableRaster raster)
+    {
+        return raster.getTransferType() == DataBuffer.TYPE_BYTE
+                && raster.getSampleModel().getSampleSize(0) == 8
+                && raster.getNumBands() <= 8
+                && raster.getNumDataElements() == raster.getNumBands();
+    }
+
+    /**
+     * Converts an 8-bit raster to RGB, converting each distinct color only once. Colors are
+     * looked up in a cache for this image, then in the shared cache if there is one.
+     *
+     * @param raster the source raster, see {@link #isSupported(WritableRaster)}
+     * @param shared the cache of the color space instance, or null
+     * @param converter converts the colors which aren't cached
+     * @return an RGB image
+     * @throws IOException if the color conversion fails
+     */
+    static BufferedImage toRGBImage(WritableRaster raster, ColorLookupCache shared,
+            PixelConverter converter) throws IOException
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int numBands = raster.getNumBands();
+
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] rgbData = ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
+
+        ColorLookupCache local = new ColorLookupCache(MAX_LOCAL_SIZE);
+        byte[] row = new byte[width * numBands];
+        int[] samples = new int[numBands];
+        int minX = raster.getMinX();
+        int minY = raster.getMinY();
+        for (int y = 0; y < height; y++)
+        {
+            raster.getDataElements(minX, minY + y, width, 1, row);
+            int offset = y * width;
+            for (int x = 0, i = 0; x < width; x++)
+            {
+                long key = 0;
+                for (int s = 0; s < numBands; s++, i++)
+                {
+                    key = key << 8 | (row[i] & 0xff);
+                }
+                int rgb = local.get(key);
+                if (rgb < 0)
+                {
+                    rgb = lookupOrConvert(key, numBands, samples, shared, converter);
+                    local.put(key, rgb);
+                }
+                rgbData[offset + x] = rgb;
+            }
+        }
+        return rgbImage;
+    }
+
+    /**
+     * Creates the table of the RGB values of all 256 values of a single component. The values are
+     * converted as a 16x16 image, so that the table holds the same values as the conversion of an
+     * image would.
+     *
+     * @param converter the conversion of a raster with one band
+     * @return the packed RGB values
+     * @throws IOException if the color conversion fails
+     */
+    static int[] createTable(RasterConverter converter) throws IOException
+    {
+        WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, 16, 16, 1,
+                new Point(0, 0));
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        for (int i = 0; i < 256; i++)
+        {
+            data[i] = (byte) i;
+        }
+        BufferedImage image = converter.toRGBImage(raster);
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++)
+        {
+            table[i] = image.getRGB(i % 16, i / 16) & 0xffffff;
+        }
+        return table;
+    }
+
+    /**
+     * Converts an 8-bit raster with one band to RGB using the given table.
+     *
+     * @param raster the source raster, see {@link #isSupported(WritableRaster)}
+     * @param table the table created by {@link #createTable(RasterConverter)}
+     * @return an RGB image
+     */
+    static BufferedImage toRGBImage(WritableRaster raster, int[] table)
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] rgbData = ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++)
+        {
+            raster.getDataElements(raster.getMinX(), raster.getMinY() + y, width, 1, row);
+            int offset = y * width;
+            for (int x = 0; x < width; x++)
+            {
+                rgbData[offset + x] = table[row[x] & 0xff];
+            }
+        }
+        return rgbImage;
+    }
+
+    private static int lookupOrConvert(long key, int numBands, int[] samples,
+            ColorLookupCache shared, PixelConverter converter) throws IOException
+    {
+        if (shared != null)
+        {
+            synchronized (shared)
+            {
+                int rgb = shared.get(key);
+                if (rgb >= 0)
+                {
+                    return rgb;
+                }
+            }
+        }
+        for (int s = numBands - 1, bits = 0; s >= 0; s--, bits += 8)
+        {
+            samples[s] = (int) (key >>> bits) & 0xff;
+        }
+        // convert outside of the lock, a color converted twice by two threads doesn't matter
+        int rgb = converter.toRGB(samples) & 0xffffff;
+        if (shared != null)
+        {
+            synchronized (shared)
+            {
+                shared.put(key, rgb);
+            }
+        }
+        return rgb;
+    }
+
+    /**
+     * Packs an RGB value like {@link java.awt.image.WritableRaster#setPixel(int, int, int[])}
+     * does for an image of the type {@link BufferedImage#TYPE_INT_RGB}.
+     */
+    static int packRGB(int red, int green, int blue)
+    {
+        return (red & 0xff) << 16 | (green & 0xff) << 8 | (blue & 0xff);
+    }
+
+    private void rehash()
+    {
+        long[] newKeys = new long[keys.length * 2];
+        int[] newValues = new int[values.length * 2];
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (values[i] != 0)
+            {
+                insert(newKeys, newValues, keys[i], values[i]);
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    private static boolean insert(long[] keys, int[] values, long key, int value)
+    {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask)
+        {
+            if (values[i] == 0)
+            {
+                keys[i] = key;
+                values[i] = value;
+                return true;
+            }
+            if (keys[i] == key)
+            {
+                values[i] = value;
+                return false;
+            }
+        }
+    }
+
+    private static int hash(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
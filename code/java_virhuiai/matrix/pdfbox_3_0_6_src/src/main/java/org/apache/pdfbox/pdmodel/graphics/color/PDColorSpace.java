@@ -44,8 +44,20 @@ import org.apache.pdfbox.pdmodel.ResourceCache;
  */
 public abstract class PDColorSpace implements COSObjectable
 {
+    /**
+     * System property to enable the conversion cache of all color spaces by default, see
+     * {@link #setConversionCacheEnabled(boolean)}.
+     */
+    public static final String SYSPROP_CONVERSION_CACHE =
+            "org.apache.pdfbox.pdmodel.graphics.color.conversionCache";
+
+    private static final boolean DEFAULT_CONVERSION_CACHE =
+            Boolean.getBoolean(SYSPROP_CONVERSION_CACHE);
+
     private final ColorConvertOp colorConvertOp = new ColorConvertOp(null);
 
+    private volatile boolean conversionCacheEnabled = DEFAULT_CONVERSION_CACHE;
+
     /**
      * Creates a color space given a name or array.
      * @param colorSpace the color space COS object
@@ -376,6 +388,38 @@ public abstract class PDColorSpace implements COSObjectable
         return dest;
     }
 
+    /**
+     * Enables or disables the conversion cache of this color space instance. If enabled, the
+     * results of the color conversions of 8-bit images are kept by this instance and reused for
+     * further images, e.g. as lookup tables of all 256 tints of a Separation color space. The cache
+     * is used by {@link PDSeparation}, {@link PDDeviceN}, {@link PDICCBased} and {@link PDLab},
+     * other color spaces ignore this setting.
+     *
+     * <p>
+     * This is useful if many or big images use the same color space, as the tint transform or the
+     * color profile is evaluated once per distinct color instead of once per image and color. The
+     * memory used by the cache is limited. The default is disabled unless the system property
+     * {@link #SYSPROP_CONVERSION_CACHE} is set to true.
+     * </p>
+     *
+     * @param enabled true to enable the cache
+     */
+    public void setConversionCacheEnabled(boolean enabled)
+    {
+        conversionCacheEnabled = enabled;
+    }
+
+    /**
+     * Tells whether the conversion cache of this color space instance is enabled.
+     *
+     * @return true if the cache is enabled
+     * @see #setConversionCacheEnabled(boolean)
+     */
+    public boolean isConversionCacheEnabled()
+    {
+        return conversionCacheEnabled;
+    }
+
     @Override
     public COSBase getCOSObject()
     {
@@ -66,6 +66,9 @@ public class PDDeviceN extends PDSpecialColorSpace
     private PDColorSpace processColorSpace;
     private PDSeparation[] spotColorSpaces;
 
+    // RGB values of 8-bit colors, kept if the conversion cache is enabled
+    private volatile ColorLookupCache rgbCache;
+
     /**
      * Creates a new DeviceN color space.
      */
@@ -300,6 +303,24 @@ public class PDDeviceN extends PDSpecialColorSpace
     //
     private BufferedImage toRGBWithTintTransform(WritableRaster raster) throws IOException
     {
+        int numSrcComponents = getColorantNames().size();
+        if (isConversionCacheEnabled() && ColorLookupCache.isSupported(raster)
+                && raster.getNumBands() == numSrcComponents)
+        {
+            float[] src = new float[numSrcComponents];
+            return ColorLookupCache.toRGBImage(raster, getRGBCache(), samples ->
+            {
+                // scale to 0..1
+                for (int s = 0; s < numSrcComponents; s++)
+                {
+                    src[s] = samples[s] / 255f;
+                }
+                float[] rgbFloat = alternateColorSpace.toRGB(tintTransform.eval(src));
+                return ColorLookupCache.packRGB((int) (rgbFloat[0] * 255f),
+                        (int) (rgbFloat[1] * 255f), (int) (rgbFloat[2] * 255f));
+            });
+        }
+
         // cache color mappings
         Map<String, int[]> map1 = new HashMap<>();
         String key;
@@ -313,7 +334,6 @@ public class PDDeviceN extends PDSpecialColorSpace
         BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         WritableRaster rgbRaster = rgbImage.getRaster();
         int[] rgb = new int[3];
-        int numSrcComponents = getColorantNames().size();
         float[] src = new float[numSrcComponents];
         for (int y = 0; y < height; y++)
         {
@@ -438,6 +458,40 @@ public class PDDeviceN extends PDSpecialColorSpace
         return alternateColorSpace.toRGB(altValue);
     }
 
+    private ColorLookupCache getRGBCache()
+    {
+        ColorLookupCache cache = rgbCache;
+        if (cache == null)
+        {
+            cache = new ColorLookupCache(ColorLookupCache.MAX_SHARED_SIZE);
+            rgbCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The setting is passed on to the Separation color spaces of the spot colorants.
+     * </p>
+     */
+    @Override
+    public void setConversionCacheEnabled(boolean enabled)
+    {
+        super.setConversionCacheEnabled(enabled);
+        if (spotColorSpaces != null)
+        {
+            for (PDSeparation spotColorSpace : spotColorSpaces)
+            {
+                if (spotColorSpace != null)
+                {
+                    spotColorSpace.setConversionCacheEnabled(enabled);
+                }
+            }
+        }
+    }
+
     @Override
     public BufferedImage toRawImage(WritableRaster raster)
     {
@@ -560,6 +614,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     public void setAlternateColorSpace(PDColorSpace cs)
     {
         alternateColorSpace = cs;
+        rgbCache = null;
         COSBase space = null;
         if (cs != null)
         {
@@ -592,6 +647,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     public void setTintTransform(PDFunction tint)
     {
         tintTransform = tint;
+        rgbCache = null;
         array.set(TINT_TRANSFORM, tint);
     }
 
@@ -67,6 +67,9 @@ public final class PDICCBased extends PDCIEBasedColorSpace
     // reasons with LittleCMS (LCMS), see PDFBOX-4309
     // WARNING: do not activate this in a conforming reader
     private boolean useOnlyAlternateColorSpace = false;
+    // RGB values of all 256 values of a single component profile, kept if the conversion cache
+    // is enabled
+    private volatile int[] rgbTable;
 
     /**
      * Creates a new ICC color space with an empty stream.
@@ -313,6 +316,17 @@ public final class PDICCBased extends PDCIEBasedColorSpace
     {
         if (awtColorSpace != null)
         {
+            if (getNumberOfComponents() == 1 && isConversionCacheEnabled()
+                    && ColorLookupCache.isSupported(raster) && raster.getNumBands() == 1)
+            {
+                int[] table = rgbTable;
+                if (table == null)
+                {
+                    table = ColorLookupCache.createTable(r -> toRGBImageAWT(r, awtColorSpace));
+                    rgbTable = table;
+                }
+                return ColorLookupCache.toRGBImage(raster, table);
+            }
             return toRGBImageAWT(raster, awtColorSpace);
         }
         else
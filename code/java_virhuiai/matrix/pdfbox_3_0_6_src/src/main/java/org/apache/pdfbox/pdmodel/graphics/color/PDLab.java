@@ -34,6 +34,9 @@ import java.io.IOException;
 public final class PDLab extends PDCIEDictionaryBasedColorSpace
 {
     private PDColor initialColor;
+
+    // RGB values of 8-bit colors, kept if the conversion cache is enabled
+    private volatile ColorLookupCache rgbCache;
     
     /**
      * Creates a new Lab color space.
@@ -64,12 +67,6 @@ public final class PDLab extends PDCIEDictionaryBasedColorSpace
     @Override
     public BufferedImage toRGBImage(WritableRaster raster) throws IOException
     {
-        int width = raster.getWidth();
-        int height = raster.getHeight();
-
-        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        WritableRaster rgbRaster = rgbImage.getRaster();
-
         PDRange aRange = getARange();
         PDRange bRange = getBRange();
         float minA = aRange.getMin();
@@ -81,6 +78,31 @@ public final class PDLab extends PDCIEDictionaryBasedColorSpace
 
         // always three components: ABC
         float[] abc = new float[3];
+
+        if (isConversionCacheEnabled() && ColorLookupCache.isSupported(raster)
+                && raster.getNumBands() == 3)
+        {
+            return ColorLookupCache.toRGBImage(raster, getRGBCache(), samples ->
+            {
+                // 0..255 -> 0..1, scale to range
+                abc[0] = samples[0] / 255f * 100;
+                abc[1] = minA + samples[1] / 255f * deltaA;
+                abc[2] = minB + samples[2] / 255f * deltaB;
+
+                float[] rgb = toRGB(abc);
+
+                // 0..1 -> 0..255
+                return ColorLookupCache.packRGB((int) (rgb[0] * 255), (int) (rgb[1] * 255),
+                        (int) (rgb[2] * 255));
+            });
+        }
+
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        WritableRaster rgbRaster = rgbImage.getRaster();
+
         for (int y = 0; y < height; y++)
         {
             for (int x = 0; x < width; x++)
@@ -111,6 +133,17 @@ public final class PDLab extends PDCIEDictionaryBasedColorSpace
         return rgbImage;
     }
 
+    private ColorLookupCache getRGBCache()
+    {
+        ColorLookupCache cache = rgbCache;
+        if (cache == null)
+        {
+            cache = new ColorLookupCache(ColorLookupCache.MAX_SHARED_SIZE);
+            rgbCache = cache;
+        }
+        return cache;
+    }
+
     @Override
     public BufferedImage toRawImage(WritableRaster raster)
     {
@@ -221,6 +254,13 @@ public final class PDLab extends PDCIEDictionaryBasedColorSpace
         return new PDRange(rangeArray, 1);
     }
 
+    @Override
+    public void setWhitePoint(PDTristimulus whitepoint)
+    {
+        super.setWhitePoint(whitepoint);
+        rgbCache = null;
+    }
+
     /**
      * This will set the range for the "a" component.
      * @param range the new range for the "a" component, 
@@ -243,6 +283,7 @@ public final class PDLab extends PDCIEDictionaryBasedColorSpace
 
     private void setComponentRangeArray(PDRange range, int index)
     {
+        rgbCache = null;
         COSArray rangeArray = dictionary.getCOSArray(COSName.RANGE);
         if (rangeArray == null)
         {
@@ -63,6 +63,11 @@ public class PDSeparation extends PDSpecialColorSpace
      */
     private Map<Integer, float[]> toRGBMap = null;
 
+    /**
+     * The RGB values of all 256 tints of an 8-bit image, used if the conversion cache is enabled.
+     */
+    private volatile int[] rgbTable = null;
+
     /**
      * Creates a new Separation color space.
      */
@@ -157,6 +162,16 @@ public class PDSeparation extends PDSpecialColorSpace
     //
     @Override
     public BufferedImage toRGBImage(WritableRaster raster) throws IOException
+    {
+        if (isConversionCacheEnabled() && ColorLookupCache.isSupported(raster)
+                && raster.getNumBands() == 1)
+        {
+            return toRGBImageWithTable(raster);
+        }
+        return toRGBImageUncached(raster);
+    }
+
+    private BufferedImage toRGBImageUncached(WritableRaster raster) throws IOException
     {
         if (alternateColorSpace instanceof PDLab)
         {
@@ -208,6 +223,18 @@ public class PDSeparation extends PDSpecialColorSpace
         return alternateColorSpace.toRGBImage(altRaster);
     }
 
+    // converter for 8-bit images using the table of all tints
+    private BufferedImage toRGBImageWithTable(WritableRaster raster) throws IOException
+    {
+        int[] table = rgbTable;
+        if (table == null)
+        {
+            table = ColorLookupCache.createTable(this::toRGBImageUncached);
+            rgbTable = table;
+        }
+        return ColorLookupCache.toRGBImage(raster, table);
+    }
+
     // converter that works without using super implementation of toRGBImage()
     private BufferedImage toRGBImage2(WritableRaster raster) throws IOException
     {
@@ -295,6 +322,7 @@ public class PDSeparation extends PDSpecialColorSpace
     public void setAlternateColorSpace(PDColorSpace colorSpace)
     {
         alternateColorSpace = colorSpace;
+        rgbTable = null;
         COSBase space = null;
         if (colorSpace != null)
         {
@@ -310,6 +338,7 @@ public class PDSeparation extends PDSpecialColorSpace
     public void setTintTransform(PDFunction tint)
     {
         tintTransform = tint;
+        rgbTable = null;
         array.set(TINT_TRANSFORM, tint);
     }
 
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Loads the images which are encoded by
+ * {@link LosslessFactory#createFromImages(org.apache.pdfbox.pdmodel.PDDocument, int, BufferedImageLoader, int, ImageXObjectConsumer)}
+ * and
+ * {@link JPEGFactory#createFromImages(org.apache.pdfbox.pdmodel.PDDocument, int, BufferedImageLoader, float, int, ImageXObjectConsumer)}.
+ * The images are loaded on the encoding threads, so that only the images being encoded are held in memory.
+ */
+@FunctionalInterface
+public interface BufferedImageLoader
+{
+    /**
+     * Loads an image, this is called on several threads at the same time.
+     *
+     * @param index the zero-based index of the image
+     * @return the image
+     * @throws IOException if the image could not be loaded
+     */
+    BufferedImage load(int index) throws IOException;
+}
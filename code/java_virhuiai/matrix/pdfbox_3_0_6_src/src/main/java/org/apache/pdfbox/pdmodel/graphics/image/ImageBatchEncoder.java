@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.apache.pdfbox.util.ParallelUtil;
+
+/**
+ * Loads and encodes many images on several threads, and passes the image XObjects to a consumer in the order of the
+ * images on the calling thread.
+ */
+final class ImageBatchEncoder
+{
+    /**
+     * Encodes a single image.
+     */
+    @FunctionalInterface
+    interface Encoder
+    {
+        /**
+         * Encodes the given image, this is called on several threads at the same time.
+         *
+         * @param image the image
+         * @return the image XObject
+         * @throws IOException if the image could not be encoded
+         */
+        PDImageXObject encode(BufferedImage image) throws IOException;
+    }
+
+    private ImageBatchEncoder()
+    {
+    }
+
+    /**
+     * Loads and encodes the given number of images using several threads. The number of encoded images held in memory
+     * at the same time is limited to twice the given parallelism, i.e. encoding pauses if the consumer is slower than
+     * the encoder.
+     *
+     * @param imageCount the number of images
+     * @param loader loads the images
+     * @param encoder encodes the images
+     * @param parallelism the number of threads
+     * @param consumer the consumer of the image XObjects
+     * @throws IOException if an image could not be loaded or encoded, or the consumer failed
+     * @throws IllegalArgumentException if the number of images or the parallelism is invalid
+     */
+    static void encode(int imageCount, BufferedImageLoader loader, Encoder encoder, int parallelism,
+            ImageXObjectConsumer consumer) throws IOException
+    {
+        if (imageCount < 0)
+        {
+            throw new IllegalArgumentException("Invalid number of images " + imageCount);
+        }
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        ParallelUtil.forEachOrdered("ImageEncoder", parallelism, imageCount,
+                index -> () -> encoder.encode(loader.load(index)), consumer::accept, null);
+    }
+}
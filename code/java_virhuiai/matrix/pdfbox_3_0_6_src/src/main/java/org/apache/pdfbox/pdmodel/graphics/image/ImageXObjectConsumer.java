@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.io.IOException;
+
+/**
+ * Receives the image XObjects created by
+ * {@link LosslessFactory#createFromImages(org.apache.pdfbox.pdmodel.PDDocument, int, BufferedImageLoader, int, ImageXObjectConsumer)}
+ * and
+ * {@link JPEGFactory#createFromImages(org.apache.pdfbox.pdmodel.PDDocument, int, BufferedImageLoader, float, int, ImageXObjectConsumer)}.
+ */
+@FunctionalInterface
+public interface ImageXObjectConsumer
+{
+    /**
+     * Called for each image XObject, in the order of the images.
+     *
+     * @param index the zero-based index of the image
+     * @param image the image XObject
+     * @throws IOException if the image XObject could not be processed
+     */
+    void accept(int index, PDImageXObject image) throws IOException;
+}
@@ -278,6 +278,29 @@ public final class JPEGFactory
         return createJPEG(document, image, quality, dpi);
     }
     
+    /**
+     * Creates JPEG image XObjects from many images using several threads, e.g. to build a document from scanned
+     * pages. The images are loaded and encoded on the threads, the image XObjects are passed to the given consumer in
+     * the order of the images on the calling thread, which may add them to the pages of the document. The number of
+     * image XObjects held in memory at the same time is limited to twice the given parallelism.
+     *
+     * @param document the document where the images will be created
+     * @param imageCount the number of images
+     * @param loader loads the images, called on several threads at the same time
+     * @param quality The desired JPEG compression quality; between 0 (best compression) and 1 (best image quality).
+     * See {@link ImageWriteParam#setCompressionQuality(float)} for more details.
+     * @param parallelism the number of threads used for encoding
+     * @param consumer the consumer of the image XObjects
+     * @throws IOException if an image could not be loaded or encoded, or the consumer failed
+     * @throws IllegalArgumentException if the number of images or the parallelism is invalid
+     */
+    public static void createFromImages(PDDocument document, int imageCount, BufferedImageLoader loader,
+            float quality, int parallelism, ImageXObjectConsumer consumer) throws IOException
+    {
+        ImageBatchEncoder.encode(imageCount, loader, image -> createFromImage(document, image, quality),
+                parallelism, consumer);
+    }
+
     // returns the alpha channel of an image
     private static BufferedImage getAlphaImage(BufferedImage image)
     {
@@ -115,6 +115,27 @@ public final class LosslessFactory
         return createFromRGBImage(image, document);
     }
 
+    /**
+     * Creates lossless encoded image XObjects from many images using several threads, e.g. to build a document from
+     * scanned pages. The images are loaded and encoded on the threads, the image XObjects are passed to the given
+     * consumer in the order of the images on the calling thread, which may add them to the pages of the document.
+     * The number of image XObjects held in memory at the same time is limited to twice the given parallelism.
+     *
+     * @param document the document where the images will be created
+     * @param imageCount the number of images
+     * @param loader loads the images, called on several threads at the same time
+     * @param parallelism the number of threads used for encoding
+     * @param consumer the consumer of the image XObjects
+     * @throws IOException if an image could not be loaded or encoded, or the consumer failed
+     * @throws IllegalArgumentException if the number of images or the parallelism is invalid
+     */
+    public static void createFromImages(PDDocument document, int imageCount, BufferedImageLoader loader,
+            int parallelism, ImageXObjectConsumer consumer) throws IOException
+    {
+        ImageBatchEncoder.encode(imageCount, loader, image -> createFromImage(document, image),
+                parallelism, consumer);
+    }
+
     private static boolean isGrayImage(BufferedImage image)
     {
         if (image.getTransparency() != Transparency.OPAQUE)
@@ -244,13 +265,30 @@ public final class LosslessFactory
             byte [] byteArray, int width, int height, int bitsPerComponent, 
             PDColorSpace initColorSpace) throws IOException
     {
-        //pre-size the output stream to half of the input
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(byteArray.length/2);
+        byte[] encoded;
+        int stripeCount = StripedFlateEncoder.getStripeCount(byteArray.length,
+                StripedFlateEncoder.getParallelism());
+        if (stripeCount > 1)
+        {
+            // large images are compressed on several threads
+            encoded = StripedFlateEncoder.encode(stripeCount, (stripe, out) ->
+            {
+                int start = (int) ((long) byteArray.length * stripe / stripeCount);
+                int end = (int) ((long) byteArray.length * (stripe + 1) / stripeCount);
+                out.write(byteArray, start, end - start);
+            });
+        }
+        else
+        {
+            //pre-size the output stream to half of the input
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(byteArray.length/2);
 
-        Filter filter = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
-        filter.encode(new ByteArrayInputStream(byteArray), baos, new COSDictionary(), 0);
+            Filter filter = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
+            filter.encode(new ByteArrayInputStream(byteArray), baos, new COSDictionary(), 0);
+            encoded = baos.toByteArray();
+        }
 
-        ByteArrayInputStream encodedByteStream = new ByteArrayInputStream(baos.toByteArray());
+        ByteArrayInputStream encodedByteStream = new ByteArrayInputStream(encoded);
         return new PDImageXObject(document, encodedByteStream, COSName.FLATE_DECODE, 
                 width, height, bitsPerComponent, initColorSpace);
     }
@@ -287,6 +325,14 @@ public final class LosslessFactory
          * Initialize the encoder and set all final fields
          */
         PredictorEncoder(PDDocument document, BufferedImage image)
+        {
+            this(document, image, null);
+        }
+
+        /**
+         * Initialize the encoder of a stripe, which writes the alpha channel to the given array.
+         */
+        private PredictorEncoder(PDDocument document, BufferedImage image, byte[] alphaImageData)
         {
             this.document = document;
             this.image = image;
@@ -305,7 +351,15 @@ public final class LosslessFactory
             this.imageType = image.getType();
             this.hasAlpha = image.getColorModel().getNumComponents() != image.getColorModel()
                     .getNumColorComponents();
-            this.alphaImageData = hasAlpha ? new byte[width * height * bytesPerComponent] : null;
+            if (hasAlpha)
+            {
+                this.alphaImageData = alphaImageData != null ? alphaImageData
+                        : new byte[width * height * bytesPerComponent];
+            }
+            else
+            {
+                this.alphaImageData = null;
+            }
 
             // The rows have 1-byte encoding marker and width * BYTES_PER_PIXEL pixel-bytes
             int dataRowByteCount = width * bytesPerPixel + 1;
@@ -335,72 +389,105 @@ public final class LosslessFactory
         }
 
         /**
-         * Tries to compress the image using a predictor.
+         * Tries to compress the image using a predictor. Large images are compressed in stripes of rows on
+         * several threads.
          *
          * @return the image or null if it is not possible to encoded the image (e.g. not supported
          * raster format etc.)
          */
         PDImageXObject encode() throws IOException
         {
-            Raster imageRaster = image.getRaster();
-            final int elementsInRowPerPixel;
+            if (createRow() == null)
+            {
+                // We can not handle this unknown format
+                return null;
+            }
 
-            // These variables store a row of the image each, the exact type depends
-            // on the image encoding. Can be a int[], short[] or byte[]
-            Object prevRow;
-            Object transferRow;
+            long rowByteCount = (long) width * bytesPerPixel + 1;
+            int stripeCount = Math.min(height, StripedFlateEncoder.getStripeCount(rowByteCount * height,
+                    StripedFlateEncoder.getParallelism()));
+            if (stripeCount > 1)
+            {
+                // each stripe needs its own row buffers
+                byte[] encoded = StripedFlateEncoder.encode(stripeCount,
+                        (stripe, out) -> new PredictorEncoder(document, image, alphaImageData).encodeRows(
+                                (int) ((long) height * stripe / stripeCount),
+                                (int) ((long) height * (stripe + 1) / stripeCount), out));
+                return preparePredictorPDImage(encoded, bytesPerComponent * 8);
+            }
+
+            // pre-size the output stream to half of the maximum size
+            ByteArrayOutputStream stream = new ByteArrayOutputStream(
+                    height * width * bytesPerPixel / 2);
+            Deflater deflater = new Deflater(Filter.getCompressionLevel());
+            DeflaterOutputStream zip = new DeflaterOutputStream(stream, deflater);
+            encodeRows(0, height, zip);
+            zip.close();
+            deflater.end();
 
+            return preparePredictorPDImage(stream.toByteArray(), bytesPerComponent * 8);
+        }
+
+        /**
+         * Returns a new array for the data elements of a row of the image.
+         *
+         * @return an int[], short[] or byte[], or null if the raster format isn't supported
+         */
+        private Object createRow()
+        {
             switch (imageType)
             {
                 case BufferedImage.TYPE_CUSTOM:
-                    switch (imageRaster.getTransferType())
+                    switch (transferType)
                     {
                         case DataBuffer.TYPE_USHORT:
-                            elementsInRowPerPixel = componentsPerPixel;
-                            prevRow = new short[width * elementsInRowPerPixel];
-                            transferRow = new short[width * elementsInRowPerPixel];
-                            break;
+                            return new short[width * componentsPerPixel];
                         case DataBuffer.TYPE_BYTE:
-                            elementsInRowPerPixel = componentsPerPixel;
-                            prevRow = new byte[width * elementsInRowPerPixel];
-                            transferRow = new byte[width * elementsInRowPerPixel];
-                            break;
+                            return new byte[width * componentsPerPixel];
                         default:
                             return null;
                     }
-                    break;
 
                 case BufferedImage.TYPE_3BYTE_BGR:
                 case BufferedImage.TYPE_4BYTE_ABGR:
-                    elementsInRowPerPixel = componentsPerPixel;
-                    prevRow = new byte[width * elementsInRowPerPixel];
-                    transferRow = new byte[width * elementsInRowPerPixel];
-                    break;
+                    return new byte[width * componentsPerPixel];
 
                 case BufferedImage.TYPE_INT_BGR:
                 case BufferedImage.TYPE_INT_ARGB:
                 case BufferedImage.TYPE_INT_RGB:
-                    elementsInRowPerPixel = 1;
-                    prevRow = new int[width * elementsInRowPerPixel];
-                    transferRow = new int[width * elementsInRowPerPixel];
-                    break;
+                    return new int[width];
 
                 default:
-                    // We can not handle this unknown format
                     return null;
             }
+        }
 
-            final int elementsInTransferRow = width * elementsInRowPerPixel;
+        /**
+         * Applies the predictor to the given rows and writes them to the given stream.
+         *
+         * @param startRow the first row
+         * @param endRow the row after the last row
+         * @param out the stream to write to
+         */
+        private void encodeRows(int startRow, int endRow, OutputStream out) throws IOException
+        {
+            Raster imageRaster = image.getRaster();
 
-            // pre-size the output stream to half of the maximum size
-            ByteArrayOutputStream stream = new ByteArrayOutputStream(
-                    height * width * bytesPerPixel / 2);
-            Deflater deflater = new Deflater(Filter.getCompressionLevel());
-            DeflaterOutputStream zip = new DeflaterOutputStream(stream, deflater);
+            // These variables store a row of the image each, the exact type depends
+            // on the image encoding. Can be a int[], short[] or byte[]
+            Object prevRow = createRow();
+            Object transferRow = createRow();
+            final int elementsInRowPerPixel = transferRow instanceof int[] ? 1 : componentsPerPixel;
+            final int elementsInTransferRow = width * elementsInRowPerPixel;
 
-            int alphaPtr = 0;
+            if (startRow > 0)
+            {
+                // the first row of a stripe is predicted from the last row of the previous one
+                imageRaster.getDataElements(0, startRow - 1, width, 1, prevRow);
+            }
+            int alphaPtr = startRow * width * bytesPerComponent;
 
-            for (int rowNum = 0; rowNum < height; rowNum++)
+            for (int rowNum = startRow; rowNum < endRow; rowNum++)
             {
                 imageRaster.getDataElements(0, rowNum, width, 1, transferRow);
 
@@ -486,17 +573,13 @@ public final class LosslessFactory
                 byte[] rowToWrite = chooseDataRowToWrite();
 
                 // Write and compress the row as long it is hot (CPU cache wise)
-                zip.write(rowToWrite, 0, rowToWrite.length);
+                out.write(rowToWrite, 0, rowToWrite.length);
 
                 // We swap prev and transfer row, so that we have the prev row for the next row.
                 Object temp = prevRow;
                 prevRow = transferRow;
                 transferRow = temp;
             }
-            zip.close();
-            deflater.end();
-
-            return preparePredictorPDImage(stream, bytesPerComponent * 8);
         }
 
         private void copyIntToBytes(int[] transferRow, int indexInTranferRow, byte[] targetValues,
@@ -563,8 +646,8 @@ public final class LosslessFactory
             }
         }
 
-        private PDImageXObject preparePredictorPDImage(ByteArrayOutputStream stream,
-                int bitsPerComponent) throws IOException
+        private PDImageXObject preparePredictorPDImage(byte[] encoded, int bitsPerComponent)
+                throws IOException
         {
             int h = image.getHeight();
             int w = image.getWidth();
@@ -600,7 +683,7 @@ public final class LosslessFactory
             }
 
             PDImageXObject imageXObject = new PDImageXObject(document,
-                    new ByteArrayInputStream(stream.toByteArray()), COSName.FLATE_DECODE, w,
+                    new ByteArrayInputStream(encoded), COSName.FLATE_DECODE, w,
                     h, bitsPerComponent, pdColorSpace);
 
             COSDictionary decodeParms = new COSDictionary();
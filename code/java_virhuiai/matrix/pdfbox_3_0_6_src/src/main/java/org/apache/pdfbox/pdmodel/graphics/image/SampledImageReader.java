@@ -155,6 +155,21 @@ final class SampledImageReader
         }
     }
 
+    /**
+     * Creates the decode options for the given region and subsampling. The length of a decoded row
+     * allows filters which can't decode a region to stop after its last row.
+     */
+    private static DecodeOptions createDecodeOptions(PDImage pdImage, Rectangle clipped,
+            int subsampling) throws IOException
+    {
+        DecodeOptions options = new DecodeOptions(subsampling);
+        options.setSourceRegion(clipped);
+        long bitsPerRow = (long) pdImage.getWidth()
+                * pdImage.getColorSpace().getNumberOfComponents() * pdImage.getBitsPerComponent();
+        options.setDecodedRowLength((bitsPerRow + 7) / 8);
+        return options;
+    }
+
     /**
      * Returns the content of the given image as an AWT buffered image with an RGB color space.
      * If a color key mask is provided then an ARGB image is returned instead.
@@ -366,8 +381,7 @@ final class SampledImageReader
         BufferedImage bim = null;
         WritableRaster raster;
 
-        DecodeOptions options = new DecodeOptions(currentSubsampling);
-        options.setSourceRegion(clipped);
+        DecodeOptions options = createDecodeOptions(pdImage, clipped, currentSubsampling);
         // read bit stream
         try (InputStream iis = pdImage.createInputStream(options))
         {
@@ -463,8 +477,7 @@ final class SampledImageReader
                                           final int width, final int height) throws IOException
     {
         int currentSubsampling = subsampling;
-        DecodeOptions options = new DecodeOptions(currentSubsampling);
-        options.setSourceRegion(clipped);
+        DecodeOptions options = createDecodeOptions(pdImage, clipped, currentSubsampling);
         try (InputStream input = pdImage.createInputStream(options))
         {
             final int inputWidth;
@@ -530,7 +543,8 @@ final class SampledImageReader
                 {
                     // Not the entire region was requested, but if no subsampling should
                     // be performed, we can still copy the entire part of this row
-                    System.arraycopy(tempBytes, startx * numComponents, bank, y * inputWidth * numComponents, scanWidth * numComponents);
+                    System.arraycopy(tempBytes, startx * numComponents, bank,
+                            (y - starty) * scanWidth * numComponents, scanWidth * numComponents);
                 }
                 else
                 {
@@ -560,8 +574,7 @@ final class SampledImageReader
         final int bitsPerComponent = pdImage.getBitsPerComponent();
         final float[] decode = getDecodeArray(pdImage);
 
-        DecodeOptions options = new DecodeOptions(currentSubsampling);
-        options.setSourceRegion(clipped);
+        DecodeOptions options = createDecodeOptions(pdImage, clipped, currentSubsampling);
         // MemoryCacheImageInputStream doesn't close the wrapped stream
         try (InputStream imageStream = pdImage.createInputStream(options))
         {
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.Adler32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.pdfbox.filter.Filter;
+
+/**
+ * Compresses large data with the Flate filter in stripes on the {@link ForkJoinPool} of the calling task, or on the
+ * common pool, the way pigz does it.
+ * Each stripe is compressed independently to raw deflate data which ends at a byte boundary, and the stripes are
+ * concatenated to a single zlib stream. Its checksum is combined from the checksums of the stripes. The stripes don't
+ * share a dictionary, which makes the result slightly larger than a sequentially compressed one.
+ */
+final class StripedFlateEncoder
+{
+    // the minimum number of uncompressed bytes of a stripe
+    private static final long MIN_STRIPE_SIZE = 1 << 20;
+
+    // the modulus of the Adler-32 checksum
+    private static final int ADLER_BASE = 65521;
+
+    /**
+     * Writes the uncompressed data of a stripe.
+     */
+    @FunctionalInterface
+    interface StripeWriter
+    {
+        /**
+         * Writes the uncompressed data of the given stripe, this is called on several threads at the same time.
+         *
+         * @param stripe the zero-based index of the stripe
+         * @param out the stream to write to
+         * @throws IOException if the data could not be written
+         */
+        void write(int stripe, OutputStream out) throws IOException;
+    }
+
+    private StripedFlateEncoder()
+    {
+    }
+
+    /**
+     * Returns the parallelism of the pool the stripes are compressed on, which is the pool of the calling task or the
+     * common pool.
+     *
+     * @return the number of threads to compress for
+     */
+    static int getParallelism()
+    {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    /**
+     * Returns the number of stripes for data of the given size, which is 1 if it isn't worth to compress it on several
+     * threads.
+     *
+     * @param length the number of uncompressed bytes
+     * @param parallelism the number of threads to compress for, see {@link #getParallelism()}
+     * @return the number of stripes
+     */
+    static int getStripeCount(long length, int parallelism)
+    {
+        if (parallelism < 2)
+        {
+            return 1;
+        }
+        return (int) Math.max(1, Math.min(parallelism * 2L, length / MIN_STRIPE_SIZE));
+    }
+
+    /**
+     * Compresses the data of the given stripes to a single zlib stream.
+     *
+     * @param stripeCount the number of stripes
+     * @param writer writes the uncompressed data of each stripe
+     * @return the compressed data
+     * @throws IOException if the data of a stripe could not be written
+     */
+    static byte[] encode(int stripeCount, StripeWriter writer) throws IOException
+    {
+        int level = Filter.getCompressionLevel();
+        List<StripeTask> tasks = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++)
+        {
+            tasks.add(new StripeTask(writer, i, i == stripeCount - 1, level));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int length = 6;
+        for (StripeTask task : tasks)
+        {
+            if (task.exception != null)
+            {
+                throw task.exception;
+            }
+            length += task.encoded.size();
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length);
+        writeHeader(result, level);
+        long checksum = 1;
+        for (StripeTask task : tasks)
+        {
+            task.encoded.writeTo(result);
+            checksum = combineAdler32(checksum, task.checksum, task.length);
+        }
+        result.write((int) (checksum >>> 24));
+        result.write((int) (checksum >>> 16));
+        result.write((int) (checksum >>> 8));
+        result.write((int) checksum);
+        return result.toByteArray();
+    }
+
+    // writes the zlib header the way zlib does it, see RFC 1950
+    private static void writeHeader(OutputStream out, int level) throws IOException
+    {
+        int cmf = 0x78;
+        int flevel;
+        if (level >= 0 && level < 2)
+        {
+            flevel = 0;
+        }
+        else if (level >= 2 && level < 6)
+        {
+            flevel = 1;
+        }
+        else if (level == 6 || level == Deflater.DEFAULT_COMPRESSION)
+        {
+            flevel = 2;
+        }
+        else
+        {
+            flevel = 3;
+        }
+        int flg = flevel << 6;
+        flg += 31 - (cmf * 256 + flg) % 31;
+        out.write(cmf);
+        out.write(flg);
+    }
+
+    // returns the Adler-32 checksum of two concatenated blocks, like adler32_combine() of zlib
+    private static long combineAdler32(long adler1, long adler2, long length2)
+    {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE)
+        {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE)
+        {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= (long) ADLER_BASE << 1)
+        {
+            sum2 -= (long) ADLER_BASE << 1;
+        }
+        if (sum2 >= ADLER_BASE)
+        {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Compresses one stripe.
+     */
+    private static final class StripeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final StripeWriter writer;
+        private final int stripe;
+        private final boolean isLast;
+        private final int level;
+        private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        private long checksum;
+        private long length;
+        private IOException exception;
+
+        private StripeTask(StripeWriter writer, int stripe, boolean isLast, int level)
+        {
+            this.writer = writer;
+            this.stripe = stripe;
+            this.isLast = isLast;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute()
+        {
+            Deflater deflater = new Deflater(level, true);
+            try
+            {
+                Adler32 adler32 = new Adler32();
+                DeflaterOutputStream zip = new DeflaterOutputStream(encoded, deflater, 8192, true);
+                writer.write(stripe, new CheckedOutputStream(zip, adler32));
+                if (isLast)
+                {
+                    zip.finish();
+                }
+                else
+                {
+                    // end at a byte boundary without marking the last block
+                    zip.flush();
+                }
+                checksum = adler32.getValue();
+                length = deflater.getBytesRead();
+            }
+            catch (IOException e)
+            {
+                exception = e;
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+    }
+}
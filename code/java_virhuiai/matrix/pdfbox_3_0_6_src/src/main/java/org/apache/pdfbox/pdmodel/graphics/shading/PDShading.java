@@ -357,28 +357,40 @@ public abstract class PDShading implements COSObjectable
     {
         if (functionArray == null)
         {
-            COSBase functionObject = getCOSObject().getDictionaryObject(COSName.FUNCTION);
-            if (functionObject instanceof COSDictionary)
-            {
-                functionArray = new PDFunction[1];
-                functionArray[0] = PDFunction.create(functionObject);
-            }
-            else if (functionObject instanceof COSArray)
-            {
-                COSArray functionCOSArray = (COSArray) functionObject;
-                int numberOfFunctions = functionCOSArray.size();
-                functionArray = new PDFunction[numberOfFunctions];
-                for (int i = 0; i < numberOfFunctions; i++)
-                {
-                    functionArray[i] = PDFunction.create(functionCOSArray.get(i));
-                }
-            }
-            else
+            functionArray = createFunctionsArray();
+        }
+        return functionArray;
+    }
+
+    /**
+     * Creates new instances of the function(s) of the shading dictionary, e.g. for another
+     * thread, as functions aren't thread safe.
+     *
+     * @return an array containing the function(s).
+     * @throws IOException if we were unable to create a function.
+     */
+    PDFunction[] createFunctionsArray() throws IOException
+    {
+        COSBase functionObject = getCOSObject().getDictionaryObject(COSName.FUNCTION);
+        if (functionObject instanceof COSDictionary)
+        {
+            return new PDFunction[] { PDFunction.create(functionObject) };
+        }
+        else if (functionObject instanceof COSArray)
+        {
+            COSArray functionCOSArray = (COSArray) functionObject;
+            int numberOfFunctions = functionCOSArray.size();
+            PDFunction[] functions = new PDFunction[numberOfFunctions];
+            for (int i = 0; i < numberOfFunctions; i++)
             {
-                throw new IOException("mandatory /Function element must be a dictionary or an array");
+                functions[i] = PDFunction.create(functionCOSArray.get(i));
             }
+            return functions;
+        }
+        else
+        {
+            throw new IOException("mandatory /Function element must be a dictionary or an array");
         }
-        return functionArray;
     }
 
     /**
@@ -402,7 +414,19 @@ public abstract class PDShading implements COSObjectable
      */
     public float[] evalFunction(float[] input) throws IOException
     {
-        PDFunction[] functions = getFunctionsArray();
+        return evalFunction(getFunctionsArray(), input);
+    }
+
+    /**
+     * Convert the input values using the given functions of the shading dictionary.
+     *
+     * @param functions the functions, see {@link #createFunctionsArray()}
+     * @param input the input values
+     * @return the output values
+     * @throws IOException thrown if something went wrong
+     */
+    static float[] evalFunction(PDFunction[] functions, float[] input) throws IOException
+    {
         int numberOfFunctions = functions.length;
         float[] returnValues;
         if (numberOfFunctions == 1)
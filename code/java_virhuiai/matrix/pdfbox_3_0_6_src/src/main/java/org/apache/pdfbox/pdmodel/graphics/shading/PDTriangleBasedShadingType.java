@@ -19,6 +19,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.util.List;
 
 import javax.imageio.stream.ImageInputStream;
@@ -47,6 +48,10 @@ abstract class PDTriangleBasedShadingType extends PDShading
     private int bitsPerColorComponent = -1;
     private int numberOfColorComponents = -1;
 
+    // the pixel table of the last shading context, see TriangleBasedShadingContext, it is softly
+    // referenced as it may be big and the shading may be kept as long as the document is open
+    private volatile SoftReference<TriangleBasedShadingContext.PixelTable> pixelTable;
+
     PDTriangleBasedShadingType(COSDictionary shadingDictionary)
     {
         super(shadingDictionary);
@@ -76,6 +81,7 @@ abstract class PDTriangleBasedShadingType extends PDShading
     {
         getCOSObject().setInt(COSName.BITS_PER_COMPONENT, bitsPerComponent);
         bitsPerColorComponent = bitsPerComponent;
+        pixelTable = null;
     }
 
     /**
@@ -106,6 +112,7 @@ abstract class PDTriangleBasedShadingType extends PDShading
     {
         getCOSObject().setInt(COSName.BITS_PER_COORDINATE, bitsPerCoordinate);
         this.bitsPerCoordinate = bitsPerCoordinate;
+        pixelTable = null;
     }
     
     /**
@@ -149,6 +156,7 @@ abstract class PDTriangleBasedShadingType extends PDShading
     {
         decode = decodeValues;
         getCOSObject().setItem(COSName.DECODE, decodeValues);
+        pixelTable = null;
     }
 
     /**
@@ -234,6 +242,27 @@ abstract class PDTriangleBasedShadingType extends PDShading
         return new Vertex(p, colorComponentTab);
     }
 
+    /**
+     * Returns the pixel table of the last shading context.
+     *
+     * @return the pixel table or null if there isn't any or it was garbage collected
+     */
+    TriangleBasedShadingContext.PixelTable getPixelTable()
+    {
+        SoftReference<TriangleBasedShadingContext.PixelTable> reference = pixelTable;
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * Keeps the pixel table of a shading context, so that it can be reused by the next context.
+     *
+     * @param pixelTable the pixel table
+     */
+    void setPixelTable(TriangleBasedShadingContext.PixelTable pixelTable)
+    {
+        this.pixelTable = new SoftReference<>(pixelTable);
+    }
+
     abstract List<ShadedTriangle> collectTriangles(AffineTransform xform, Matrix matrix) throws IOException;
     
     @Override
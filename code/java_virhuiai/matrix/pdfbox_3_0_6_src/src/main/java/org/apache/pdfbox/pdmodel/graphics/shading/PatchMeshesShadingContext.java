@@ -20,6 +20,7 @@ import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.ColorModel;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -38,7 +39,7 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext
     /**
      * patch list
      */
-    private List<Patch> patchList;
+    private List<Patch> patchList = new ArrayList<>();
     
     /**
      * Constructor creates an instance to be used for fill operations.
@@ -56,8 +57,8 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext
             int controlPoints) throws IOException
     {
         super(shading, colorModel, xform, matrix);
-        patchList = shading.collectPatches(xform, matrix, controlPoints);
-        createPixelTable(deviceBounds);
+        createPixelTable(deviceBounds, xform, matrix,
+                () -> patchList = shading.collectPatches(xform, matrix, controlPoints));
     }
 
     @Override
@@ -76,11 +77,13 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext
         {
             Arrays.fill(array[i], initialValue);
         }
+        // calculate the triangles of all patches at once, so that they can be calculated in parallel
+        List<ShadedTriangle> triangleList = new ArrayList<>();
         for (Patch it : patchList)
         {
-            calcPixelTable(it.listOfTriangles, array, deviceBounds);
+            triangleList.addAll(it.listOfTriangles);
         }
-        return array;
+        return calcPixelTable(triangleList, array, deviceBounds);
     }
 
     @Override
@@ -100,10 +100,24 @@ public abstract class ShadingContext implements PaintContext
      * @throws IOException if the color conversion fails.
      */
     final int convertToRGB(float[] values) throws IOException
+    {
+        return convertToRGB(shadingColorSpace, values);
+    }
+
+    /**
+     * Convert color values from the given copy of the shading colorspace to RGB color values
+     * encoded into an integer.
+     *
+     * @param colorSpace the shading colorspace or a copy of it.
+     * @param values color values in shading colorspace.
+     * @return RGB values encoded in an integer.
+     * @throws IOException if the color conversion fails.
+     */
+    static int convertToRGB(PDColorSpace colorSpace, float[] values) throws IOException
     {
         int normRGBValues;
 
-        float[] rgbValues = shadingColorSpace.toRGB(values);
+        float[] rgbValues = colorSpace.toRGB(values);
         normRGBValues = (int) (rgbValues[0] * 255);
         normRGBValues |= (int) (rgbValues[1] * 255) << 8;
         normRGBValues |= (int) (rgbValues[2] * 255) << 16;
@@ -22,15 +22,48 @@ import java.awt.image.ColorModel;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.common.PDRange;
+import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+import org.apache.pdfbox.pdmodel.common.function.PDFunctionType3;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.color.PDLab;
 import org.apache.pdfbox.util.Matrix;
 
 /**
  * Intermediate class extended by the shading types 4,5,6 and 7 that contains the common methods
  * used by these classes.
  *
+ * <p>
+ * Big pixel tables are calculated in vertical bands on the {@link ForkJoinPool} of the calling
+ * task, or on the common pool, whose parallelism can be set with the system property
+ * {@code java.util.concurrent.ForkJoinPool.common.parallelism}. Each band processes the triangles
+ * in the same order, so that the result is the same as the one of a sequential calculation. As
+ * functions and color spaces aren't thread safe, every band uses its own copy of them, which is
+ * evaluated once by the calling thread to load its data. Shadings whose function or color space
+ * can't be copied this way, e.g. Separation and DeviceN color spaces, are calculated
+ * sequentially. The last pixel table is softly kept by the shading and reused by the next context
+ * with the same transformations and background, if it covers the device bounds of that context.
+ * </p>
+ *
  * @author Shaola Ren
  * @author Tilman Hausherr
  */
@@ -43,6 +76,23 @@ abstract class TriangleBasedShadingContext extends ShadingContext
     private int xOffset = 0;
     private int yOffset = 0;
 
+    // the device bounds of the pixel table, the array may be bigger if it was taken from the cache
+    private int minX = 0;
+    private int minY = 0;
+    private int maxX = -1;
+    private int maxY = -1;
+
+    private boolean dataEmpty;
+
+    // minimum number of pixels of a table which is calculated in parallel
+    private static final long MIN_PARALLEL_PIXELS = 1 << 16;
+
+    // minimum number of columns of a band
+    private static final int MIN_BAND_WIDTH = 32;
+
+    // maximum number of pixels of a table which is kept by the shading, i.e. 16 MB
+    private static final long MAX_CACHED_PIXELS = 1 << 22;
+
     /**
      * Constructor.
      *
@@ -65,7 +115,56 @@ abstract class TriangleBasedShadingContext extends ShadingContext
     {
         xOffset = -deviceBounds.x;
         yOffset = -deviceBounds.y;
+        setPixelBounds(deviceBounds);
         pixelTableArray = calcPixelTableArray(deviceBounds);
+        dataEmpty = isDataEmpty();
+    }
+
+    /**
+     * Creates the pixel table, or reuses the one kept by the shading if it was created for the
+     * same transformations and covers the device bounds. The data of the shading is collected
+     * only if the pixel table has to be calculated.
+     *
+     * @param deviceBounds device bounds
+     * @param xform transformation for user to device space
+     * @param matrix the pattern matrix concatenated with that of the parent content stream
+     * @param collector collects the triangles or patches of the shading
+     * @throws IOException if something went wrong
+     */
+    protected final void createPixelTable(Rectangle deviceBounds, AffineTransform xform,
+            Matrix matrix, DataCollector collector) throws IOException
+    {
+        PDTriangleBasedShadingType shading = getShading() instanceof PDTriangleBasedShadingType
+                ? (PDTriangleBasedShadingType) getShading() : null;
+        PDColorSpace colorSpace = getShadingColorSpace();
+        PDFunction function = getShading().getFunction();
+        PixelTable cached = shading != null ? shading.getPixelTable() : null;
+        if (cached != null && cached.covers(xform, matrix, deviceBounds, colorSpace, function,
+                getBackground()))
+        {
+            xOffset = -cached.bounds.x;
+            yOffset = -cached.bounds.y;
+            setPixelBounds(deviceBounds);
+            pixelTableArray = cached.array;
+            dataEmpty = cached.dataEmpty;
+            return;
+        }
+        collector.collect();
+        createPixelTable(deviceBounds);
+        if (shading != null && (long) pixelTableArray.length * pixelTableArray[0].length
+                <= MAX_CACHED_PIXELS)
+        {
+            shading.setPixelTable(new PixelTable(xform, matrix, deviceBounds, colorSpace,
+                    function, getBackground(), pixelTableArray, dataEmpty));
+        }
+    }
+
+    private void setPixelBounds(Rectangle deviceBounds)
+    {
+        minX = deviceBounds.x;
+        minY = deviceBounds.y;
+        maxX = deviceBounds.x + deviceBounds.width;
+        maxY = deviceBounds.y + deviceBounds.height;
     }
 
     /**
@@ -101,56 +200,212 @@ abstract class TriangleBasedShadingContext extends ShadingContext
      */
     protected int[][] calcPixelTable(List<ShadedTriangle> triangleList, int[][] array,
             Rectangle deviceBounds) throws IOException
+    {
+        int columns = deviceBounds.width + 1;
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool()
+                : ForkJoinPool.commonPool();
+        int parallelism = pool.getParallelism();
+        int bandCount = Math.min(parallelism * 2, columns / MIN_BAND_WIDTH);
+        List<ColorConversion> conversions = null;
+        if (parallelism >= 2 && bandCount >= 2 && triangleList.size() >= 2
+                && (long) columns * (deviceBounds.height + 1) >= MIN_PARALLEL_PIXELS)
+        {
+            conversions = createColorConversions(bandCount);
+        }
+        if (conversions == null)
+        {
+            calcPixelTable(triangleList, array, deviceBounds, deviceBounds.x,
+                    deviceBounds.x + deviceBounds.width, null);
+            return array;
+        }
+
+        List<BandTask> tasks = new ArrayList<>(bandCount);
+        for (int i = 0; i < bandCount; i++)
+        {
+            int bandMinX = deviceBounds.x + (int) ((long) columns * i / bandCount);
+            int bandMaxX = deviceBounds.x + (int) ((long) columns * (i + 1) / bandCount) - 1;
+            tasks.add(new BandTask(triangleList, array, deviceBounds, bandMinX, bandMaxX,
+                    conversions.get(i)));
+        }
+        // runs the tasks on the pool of the calling task, or on the common pool
+        ForkJoinTask.invokeAll(tasks);
+        for (BandTask task : tasks)
+        {
+            if (task.exception != null)
+            {
+                throw task.exception;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Creates the copies of the function and the color space of the shading for the given number
+     * of bands, or returns null if they can't be copied.
+     */
+    private List<ColorConversion> createColorConversions(int bandCount) throws IOException
+    {
+        PDColorSpace colorSpace = getShadingColorSpace();
+        boolean shared = colorSpace instanceof PDDeviceRGB || colorSpace instanceof PDDeviceGray
+                || colorSpace instanceof PDDeviceCMYK;
+        if (!shared && !(colorSpace instanceof PDICCBased || colorSpace instanceof PDLab
+                || colorSpace instanceof PDCalRGB || colorSpace instanceof PDCalGray))
+        {
+            // e.g. Separation and DeviceN, whose tint transforms and caches can't be prepared
+            return null;
+        }
+        boolean hasFunction = getShading().getFunction() != null;
+        List<ColorConversion> conversions = new ArrayList<>(bandCount);
+        for (int i = 0; i < bandCount; i++)
+        {
+            PDFunction[] functions = null;
+            if (hasFunction)
+            {
+                functions = getShading().createFunctionsArray();
+                for (PDFunction function : functions)
+                {
+                    if (!prepareFunction(function))
+                    {
+                        return null;
+                    }
+                }
+            }
+            // the device color spaces are shared instances which are thread safe once initialized
+            PDColorSpace bandColorSpace = shared ? colorSpace
+                    : PDColorSpace.create(colorSpace.getCOSObject());
+            bandColorSpace.toRGB(bandColorSpace.getInitialColor().getComponents());
+            conversions.add(new ColorConversion(functions, bandColorSpace));
+        }
+        return conversions;
+    }
+
+    /**
+     * Evaluates the given copy of a function of the shading, so that its data, e.g. the samples
+     * of a sampled function, is loaded by the calling thread. A stitching function is evaluated
+     * within each of its subdomains. Returns false if the function may load data later on.
+     */
+    private static boolean prepareFunction(PDFunction function) throws IOException
+    {
+        int type = function.getFunctionType();
+        if (type == 3)
+        {
+            return prepareStitchingFunction((PDFunctionType3) function);
+        }
+        if (type != 0 && type != 2 && type != 4)
+        {
+            return false;
+        }
+        float[] input = new float[function.getNumberOfInputParameters()];
+        for (int i = 0; i < input.length; i++)
+        {
+            input[i] = function.getDomainForInput(i).getMin();
+        }
+        function.eval(input);
+        return true;
+    }
+
+    private static boolean prepareStitchingFunction(PDFunctionType3 function) throws IOException
+    {
+        COSArray functions = function.getFunctions();
+        if (functions == null)
+        {
+            return false;
+        }
+        for (int i = 0; i < functions.size(); i++)
+        {
+            COSBase base = functions.getObject(i);
+            int type = base instanceof COSDictionary
+                    ? ((COSDictionary) base).getInt(COSName.FUNCTION_TYPE) : -1;
+            if (type != 0 && type != 2 && type != 4)
+            {
+                return false;
+            }
+        }
+        PDRange domain = function.getDomainForInput(0);
+        COSArray bounds = function.getBounds();
+        float[] partitions = bounds != null ? bounds.toFloatArray() : new float[0];
+        float lower = domain.getMin();
+        for (int i = 0; i <= partitions.length; i++)
+        {
+            float upper = i < partitions.length ? partitions[i] : domain.getMax();
+            if (upper <= lower)
+            {
+                // an empty subdomain whose function can't be reached
+                return false;
+            }
+            function.eval(new float[] { (lower + upper) / 2 });
+            lower = upper;
+        }
+        return true;
+    }
+
+    /**
+     * Get the points from the triangles within the columns from minX to maxX, calculate their
+     * color and add point-color mappings.
+     */
+    private void calcPixelTable(List<ShadedTriangle> triangleList, int[][] array,
+            Rectangle deviceBounds, int minX, int maxX, ColorConversion conversion)
+            throws IOException
     {
         for (ShadedTriangle tri : triangleList)
         {
             int degree = tri.getDeg();
             if (degree == 2)
             {
-                addLinePoints(tri.getLine(), array);
+                addLinePoints(tri.getLine(), array, minX, maxX, conversion);
+                continue;
             }
-            else
+            int[] boundary = tri.getBoundary();
+            // the borders are within the boundary too
+            if (boundary[1] < minX || boundary[0] > maxX)
             {
-                int[] boundary = tri.getBoundary();
-                boundary[0] = Math.max(boundary[0], deviceBounds.x);
-                boundary[1] = Math.min(boundary[1], deviceBounds.x + deviceBounds.width);
-                boundary[2] = Math.max(boundary[2], deviceBounds.y);
-                boundary[3] = Math.min(boundary[3], deviceBounds.y + deviceBounds.height);
+                continue;
+            }
+            boundary[0] = Math.max(boundary[0], minX);
+            boundary[1] = Math.min(boundary[1], maxX);
+            boundary[2] = Math.max(boundary[2], deviceBounds.y);
+            boundary[3] = Math.min(boundary[3], deviceBounds.y + deviceBounds.height);
 
-                for (int x = boundary[0]; x <= boundary[1]; x++)
+            for (int x = boundary[0]; x <= boundary[1]; x++)
+            {
+                for (int y = boundary[2]; y <= boundary[3]; y++)
                 {
-                    for (int y = boundary[2]; y <= boundary[3]; y++)
+                    Point p = new Point(x, y);
+                    if (tri.contains(p))
                     {
-                        Point p = new Point(x, y);
-                        if (tri.contains(p))
-                        {
-                            addValueToArray(p, evalFunctionAndConvertToRGB(tri.calcColor(p)),
-                                    array);
-                        }
+                        addValueToArray(p, evalFunctionAndConvertToRGB(tri.calcColor(p),
+                                conversion), array);
                     }
                 }
-
-                // "fatten" triangle by drawing the borders with Bresenham's line algorithm
-                // Inspiration: Raph Levien in http://bugs.ghostscript.com/show_bug.cgi?id=219588
-                Point p0 = new Point((int) Math.round(tri.corner[0].getX()),
-                        (int) Math.round(tri.corner[0].getY()));
-                Point p1 = new Point((int) Math.round(tri.corner[1].getX()),
-                        (int) Math.round(tri.corner[1].getY()));
-                Point p2 = new Point((int) Math.round(tri.corner[2].getX()),
-                        (int) Math.round(tri.corner[2].getY()));
-                addLinePoints(new Line(p0, p1, tri.color[0], tri.color[1]), array);
-                addLinePoints(new Line(p1, p2, tri.color[1], tri.color[2]), array);
-                addLinePoints(new Line(p2, p0, tri.color[2], tri.color[0]), array);
             }
+
+            // "fatten" triangle by drawing the borders with Bresenham's line algorithm
+            // Inspiration: Raph Levien in http://bugs.ghostscript.com/show_bug.cgi?id=219588
+            Point p0 = new Point((int) Math.round(tri.corner[0].getX()),
+                    (int) Math.round(tri.corner[0].getY()));
+            Point p1 = new Point((int) Math.round(tri.corner[1].getX()),
+                    (int) Math.round(tri.corner[1].getY()));
+            Point p2 = new Point((int) Math.round(tri.corner[2].getX()),
+                    (int) Math.round(tri.corner[2].getY()));
+            addLinePoints(new Line(p0, p1, tri.color[0], tri.color[1]), array, minX, maxX,
+                    conversion);
+            addLinePoints(new Line(p1, p2, tri.color[1], tri.color[2]), array, minX, maxX,
+                    conversion);
+            addLinePoints(new Line(p2, p0, tri.color[2], tri.color[0]), array, minX, maxX,
+                    conversion);
         }
-        return array;
     }
 
-    private void addLinePoints(Line line, int[][] array) throws IOException
+    private void addLinePoints(Line line, int[][] array, int minX, int maxX,
+            ColorConversion conversion) throws IOException
     {
         for (Point p : line.linePoints)
         {
-            addValueToArray(p, evalFunctionAndConvertToRGB(line.calcColor(p)), array);
+            if (p.x >= minX && p.x <= maxX)
+            {
+                addValueToArray(p, evalFunctionAndConvertToRGB(line.calcColor(p), conversion),
+                        array);
+            }
         }
     }
 
@@ -167,22 +422,24 @@ abstract class TriangleBasedShadingContext extends ShadingContext
 
     private int getValueFromArray(int x, int y)
     {
-        int xIndex = x + xOffset;
-        int yIndex = y + yOffset;
-        if (xIndex < 0 || yIndex < 0 || xIndex >= pixelTableArray.length
-                || yIndex >= pixelTableArray[0].length)
+        if (x < minX || y < minY || x > maxX || y > maxY)
         {
             return -1;
         }
-        return pixelTableArray[xIndex][yIndex];
+        return pixelTableArray[x + xOffset][y + yOffset];
     }
 
     /**
      * Convert color to RGB color value, using function if required, then convert from the shading color space to an RGB
      * value, which is encoded into an integer.
      */
-    private int evalFunctionAndConvertToRGB(float[] values) throws IOException
+    private int evalFunctionAndConvertToRGB(float[] values, ColorConversion conversion)
+            throws IOException
     {
+        if (conversion != null)
+        {
+            return conversion.evalFunctionAndConvertToRGB(values);
+        }
         if (getShading().getFunction() != null)
         {
             values = getShading().evalFunction(values);
@@ -200,7 +457,7 @@ abstract class TriangleBasedShadingContext extends ShadingContext
     {
         WritableRaster raster = getColorModel().createCompatibleWritableRaster(w, h);
         int[] data = new int[w * h * 4];
-        if (!isDataEmpty() || getBackground() != null)
+        if (!dataEmpty || getBackground() != null)
         {
             for (int row = 0; row < h; row++)
             {
@@ -224,4 +481,119 @@ abstract class TriangleBasedShadingContext extends ShadingContext
         return raster;
     }
 
+    /**
+     * Collects the triangles or patches of a shading.
+     */
+    interface DataCollector
+    {
+        /**
+         * Collects the data.
+         *
+         * @throws IOException if the data could not be read
+         */
+        void collect() throws IOException;
+    }
+
+    /**
+     * A pixel table kept by a shading, together with the transformations it was created for.
+     */
+    static final class PixelTable
+    {
+        private final AffineTransform xform;
+        private final Matrix matrix;
+        private final Rectangle bounds;
+        private final PDColorSpace colorSpace;
+        private final PDFunction function;
+        private final float[] background;
+        private final int[][] array;
+        private final boolean dataEmpty;
+
+        private PixelTable(AffineTransform xform, Matrix matrix, Rectangle bounds,
+                PDColorSpace colorSpace, PDFunction function, float[] background, int[][] array,
+                boolean dataEmpty)
+        {
+            this.xform = new AffineTransform(xform);
+            this.matrix = matrix != null ? matrix.clone() : null;
+            this.bounds = new Rectangle(bounds);
+            this.colorSpace = colorSpace;
+            this.function = function;
+            this.background = background != null ? background.clone() : null;
+            this.array = array;
+            this.dataEmpty = dataEmpty;
+        }
+
+        private boolean covers(AffineTransform xform, Matrix matrix, Rectangle deviceBounds,
+                PDColorSpace colorSpace, PDFunction function, float[] background)
+        {
+            return this.xform.equals(xform) && Objects.equals(this.matrix, matrix)
+                    && this.colorSpace == colorSpace && this.function == function
+                    && Arrays.equals(this.background, background)
+                    && bounds.contains(deviceBounds);
+        }
+    }
+
+    /**
+     * The copies of the function and the color space of a shading used by a band.
+     */
+    private static final class ColorConversion
+    {
+        // null if the shading has no function
+        private final PDFunction[] functions;
+        private final PDColorSpace colorSpace;
+
+        private ColorConversion(PDFunction[] functions, PDColorSpace colorSpace)
+        {
+            this.functions = functions;
+            this.colorSpace = colorSpace;
+        }
+
+        private int evalFunctionAndConvertToRGB(float[] values) throws IOException
+        {
+            if (functions != null)
+            {
+                values = PDShading.evalFunction(functions, values);
+            }
+            return convertToRGB(colorSpace, values);
+        }
+    }
+
+    /**
+     * Calculates the pixels of the columns of a band.
+     */
+    private final class BandTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ShadedTriangle> triangleList;
+        private final int[][] array;
+        private final Rectangle deviceBounds;
+        private final int minX;
+        private final int maxX;
+        private final ColorConversion conversion;
+        private IOException exception;
+
+        private BandTask(List<ShadedTriangle> triangleList, int[][] array,
+                Rectangle deviceBounds, int minX, int maxX, ColorConversion conversion)
+        {
+            this.triangleList = triangleList;
+            this.array = array;
+            this.deviceBounds = deviceBounds;
+            this.minX = minX;
+            this.maxX = maxX;
+            this.conversion = conversion;
+        }
+
+        @Override
+        protected void compute()
+        {
+            try
+            {
+                calcPixelTable(triangleList, array, deviceBounds, minX, maxX, conversion);
+            }
+            catch (IOException e)
+            {
+                exception = e;
+            }
+        }
+    }
 }
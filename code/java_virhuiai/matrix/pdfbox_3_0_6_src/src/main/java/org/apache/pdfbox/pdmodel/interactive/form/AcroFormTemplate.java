@@ -0,0 +1,733 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.interactive.form;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDPageContentStream.AppendMode;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.ResourceCacheFactory;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceEntry;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+
+/**
+ * A form which is prepared once to be filled and flattened many times. The field tree, the widgets of the pages and the
+ * appearance streams of the text and choice fields are analyzed when the template is compiled. Each call of
+ * {@link #fillAndFlatten(Map, OutputStream)} writes a new document, which shares all unchanged objects of the template,
+ * e.g. the content streams, fonts and images, and only contains new objects for the pages and the generated
+ * appearances. The template document itself is never modified by filling it.
+ *
+ * <p>
+ * The document outline, the name dictionary and the open action are copied for every filled document, so that their
+ * destinations refer to its pages. The structure tree isn't copied, i.e. the filled documents aren't tagged, as it
+ * refers to the widgets which are removed by flattening.
+ * </p>
+ *
+ * <p>
+ * A compiled template may be filled by several threads at the same time. The fonts of the fields are loaded once per
+ * thread. The filled documents are created concurrently, but written one at a time, as they share the objects of the
+ * template and {@link org.apache.pdfbox.pdfwriter.COSWriter} assigns object keys to the objects it writes. The
+ * template is filled by one thread after the other unless its objects may be read concurrently, i.e. if it was loaded
+ * with the concurrent object resolution of the parser enabled, see
+ * {@link org.apache.pdfbox.pdfparser.COSParser#setConcurrentObjectResolution(boolean)}.
+ * </p>
+ *
+ * <p>
+ * The template document must neither be modified nor closed while the compiled template is used.
+ * </p>
+ */
+public final class AcroFormTemplate
+{
+    private static final Log LOG = LogFactory.getLog(AcroFormTemplate.class);
+
+    // entries of the catalog which don't refer to the pages
+    private static final COSName[] CATALOG_ENTRIES = { COSName.LANG, COSName.METADATA,
+            COSName.OUTPUT_INTENTS, COSName.OCPROPERTIES, COSName.PAGE_LABELS, COSName.PAGE_LAYOUT,
+            COSName.VIEWER_PREFERENCES };
+
+    // entries of the catalog which may refer to the pages and are copied for every filled document, the other
+    // entries, e.g. the structure tree, are dropped
+    private static final COSName[] PAGE_REFERRING_CATALOG_ENTRIES = { COSName.OUTLINES, COSName.NAMES,
+            COSName.DESTS, COSName.OPEN_ACTION };
+
+    // entries of a page which are taken from the ancestors if the page doesn't have them
+    private static final COSName[] INHERITABLE_PAGE_ENTRIES = { COSName.RESOURCES, COSName.MEDIA_BOX,
+            COSName.CROP_BOX, COSName.ROTATE };
+
+    private final PDDocument document;
+    private final COSDictionary acroFormDictionary;
+    private final Map<String, CompiledField> fields = new LinkedHashMap<>();
+    private final Map<COSDictionary, CompiledWidget> widgets = new IdentityHashMap<>();
+    private final COSDictionary[] pages;
+    private final COSDictionary catalogEntries = new COSDictionary();
+    private final COSDictionary pageReferringCatalogEntries = new COSDictionary();
+    private final COSBase documentInformation;
+    private final boolean concurrent;
+    private final ThreadLocal<ResourceCache> resourceCaches =
+            ThreadLocal.withInitial(ResourceCacheFactory::createResourceCache);
+    private final Object writeLock = new Object();
+
+    /**
+     * A terminal field of the template.
+     */
+    private static final class CompiledField
+    {
+        private final PDTerminalField field;
+
+        private CompiledField(PDTerminalField field)
+        {
+            this.field = field;
+        }
+    }
+
+    /**
+     * A widget of a terminal field of the template.
+     */
+    private static final class CompiledWidget
+    {
+        private final COSDictionary widget;
+        private final boolean variableText;
+        // the normal appearance of a text or choice field, which is the starting point of the generated appearance
+        private final COSStream normalAppearance;
+        private final byte[] normalAppearanceContent;
+
+        private CompiledWidget(COSDictionary widget, boolean variableText, COSStream normalAppearance,
+                byte[] normalAppearanceContent)
+        {
+            this.widget = widget;
+            this.variableText = variableText;
+            this.normalAppearance = normalAppearance;
+            this.normalAppearanceContent = normalAppearanceContent;
+        }
+    }
+
+    private AcroFormTemplate(PDDocument document, PDAcroForm acroForm) throws IOException
+    {
+        this.document = document;
+        acroFormDictionary = acroForm != null ? acroForm.getCOSObject() : null;
+        if (acroForm != null)
+        {
+            compileFields(acroForm);
+        }
+
+        PDPageTree pageTree = document.getPages();
+        pages = new COSDictionary[pageTree.getCount()];
+        int pageIndex = 0;
+        for (PDPage page : pageTree)
+        {
+            pages[pageIndex++] = page.getCOSObject();
+        }
+
+        COSDictionary catalog = document.getDocumentCatalog().getCOSObject();
+        for (COSName key : CATALOG_ENTRIES)
+        {
+            COSBase value = catalog.getItem(key);
+            if (value != null)
+            {
+                catalogEntries.setItem(key, value);
+            }
+        }
+        for (COSName key : PAGE_REFERRING_CATALOG_ENTRIES)
+        {
+            COSBase value = catalog.getItem(key);
+            if (value != null)
+            {
+                pageReferringCatalogEntries.setItem(key, value);
+            }
+        }
+        documentInformation = document.getDocument().getTrailer().getItem(COSName.INFO);
+
+        // parse all objects once, so that filling the template only reads the data of the streams
+        resolveAll(document.getDocument().getTrailer());
+        concurrent = document.getDocument().isConcurrentDereferencingSupported();
+    }
+
+    /**
+     * Compiles the form of the given document. The appearances of all fields are refreshed first if the form requests
+     * it, see {@link PDAcroForm#getNeedAppearances()}.
+     *
+     * @param document the template, which must not be modified or closed as long as the compiled template is used
+     * @return the compiled template
+     * @throws IOException if the template couldn't be read or is a dynamic XFA form, which can't be flattened
+     */
+    public static AcroFormTemplate compile(PDDocument document) throws IOException
+    {
+        if (document.isEncrypted())
+        {
+            throw new IOException("Encrypted templates are not supported");
+        }
+        PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm();
+        if (acroForm != null)
+        {
+            if (acroForm.xfaIsDynamic())
+            {
+                throw new IOException("Flatten for a dynamic XFA form is not supported");
+            }
+            if (acroForm.getNeedAppearances())
+            {
+                acroForm.refreshAppearances();
+            }
+        }
+        return new AcroFormTemplate(document, acroForm);
+    }
+
+    private void compileFields(PDAcroForm acroForm) throws IOException
+    {
+        for (PDField field : acroForm.getFieldTree())
+        {
+            if (!(field instanceof PDTerminalField))
+            {
+                continue;
+            }
+            if (field instanceof PDVariableText)
+            {
+                try
+                {
+                    // adds the fonts of the widgets to the AcroForm resources now, instead of when filling
+                    new AppearanceGeneratorHelper((PDVariableText) field);
+                }
+                catch (IOException e)
+                {
+                    LOG.debug("Invalid default appearance of field " + field.getFullyQualifiedName(), e);
+                }
+            }
+            fields.put(field.getFullyQualifiedName(), new CompiledField((PDTerminalField) field));
+            for (PDAnnotationWidget widget : field.getWidgets())
+            {
+                COSStream normalAppearance = null;
+                byte[] normalAppearanceContent = null;
+                if (field instanceof PDVariableText)
+                {
+                    normalAppearance = getNormalAppearanceStream(widget);
+                    if (normalAppearance != null)
+                    {
+                        try (InputStream input = normalAppearance.createInputStream())
+                        {
+                            normalAppearanceContent = IOUtils.toByteArray(input);
+                        }
+                    }
+                }
+                widgets.put(widget.getCOSObject(), new CompiledWidget(widget.getCOSObject(),
+                        field instanceof PDVariableText, normalAppearance, normalAppearanceContent));
+            }
+        }
+    }
+
+    private static COSStream getNormalAppearanceStream(PDAnnotationWidget widget)
+    {
+        if (widget.getAppearance() == null)
+        {
+            return null;
+        }
+        PDAppearanceEntry normalAppearance = widget.getAppearance().getNormalAppearance();
+        if (normalAppearance == null || !normalAppearance.isStream())
+        {
+            return null;
+        }
+        return normalAppearance.getAppearanceStream().getCOSObject();
+    }
+
+    /**
+     * Returns the fully qualified names of the terminal fields of the template.
+     *
+     * @return the names of the fields, in the order of the field tree
+     */
+    public Set<String> getFieldNames()
+    {
+        return Collections.unmodifiableSet(fields.keySet());
+    }
+
+    /**
+     * Fills the template with the given values, flattens all fields and writes the resulting document. Fields without
+     * a value keep the value of the template. Invisible and hidden fields are removed.
+     *
+     * @param values the values by the fully qualified names of the fields, see {@link PDField#setValue(String)}
+     * @param output the stream the document is written to, which isn't closed
+     * @throws IOException if the document couldn't be created or written
+     * @throws IllegalArgumentException if there isn't a field of the given name or the value is invalid
+     */
+    public void fillAndFlatten(Map<String, String> values, OutputStream output) throws IOException
+    {
+        for (String name : values.keySet())
+        {
+            if (!fields.containsKey(name))
+            {
+                throw new IllegalArgumentException("There is no field named '" + name + "'");
+            }
+        }
+        if (concurrent)
+        {
+            fill(values, output);
+        }
+        else
+        {
+            synchronized (this)
+            {
+                fill(values, output);
+            }
+        }
+    }
+
+    private void fill(Map<String, String> values, OutputStream output) throws IOException
+    {
+        try (PDDocument filled = new PDDocument())
+        {
+            filled.setVersion(document.getVersion());
+            filled.setResourceCache(resourceCaches.get());
+
+            // the widgets of the filled fields, replaced by copies with the new values and appearances
+            Map<COSDictionary, COSDictionary> filledWidgets = new IdentityHashMap<>();
+            if (!values.isEmpty())
+            {
+                PDAcroForm acroForm = new PDAcroForm(filled, acroFormDictionary);
+                for (Map.Entry<String, String> entry : values.entrySet())
+                {
+                    fillField(filled, acroForm, fields.get(entry.getKey()), entry.getValue(), filledWidgets);
+                }
+            }
+
+            Map<COSDictionary, COSDictionary> pageCopies = new IdentityHashMap<>();
+            Map<COSDictionary, COSDictionary> annotationCopies = new IdentityHashMap<>();
+            // the pages are added to the page tree directly, PDDocument.addPage() would continue the numbering
+            // after the object numbers the shared objects got when the template or a previous fill was written
+            PDPageTree pageTree = filled.getPages();
+            for (COSDictionary page : pages)
+            {
+                COSDictionary pageCopy = copyPage(page);
+                pageTree.add(new PDPage(pageCopy));
+                pageCopies.put(page, pageCopy);
+                flattenAnnotations(filled, page, pageCopy, filledWidgets, annotationCopies);
+            }
+            for (COSDictionary annotation : annotationCopies.values())
+            {
+                updateReferences(annotation, pageCopies, annotationCopies);
+            }
+
+            COSDictionary catalog = filled.getDocumentCatalog().getCOSObject();
+            for (Map.Entry<COSName, COSBase> entry : catalogEntries.entrySet())
+            {
+                catalog.setItem(entry.getKey(), entry.getValue());
+            }
+            Map<COSBase, COSBase> copies = new IdentityHashMap<>();
+            for (Map.Entry<COSName, COSBase> entry : pageReferringCatalogEntries.entrySet())
+            {
+                catalog.setItem(entry.getKey(), copyReferringToPages(entry.getValue(), pageCopies, copies));
+            }
+            if (documentInformation != null)
+            {
+                filled.getDocument().getTrailer().setItem(COSName.INFO, documentInformation);
+            }
+            synchronized (writeLock)
+            {
+                filled.save(output);
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a field using copies of the field and its widgets, so that the template isn't modified.
+     */
+    private void fillField(PDDocument filled, PDAcroForm acroForm, CompiledField compiledField, String value,
+            Map<COSDictionary, COSDictionary> filledWidgets) throws IOException
+    {
+        PDTerminalField field = compiledField.field;
+        COSDictionary fieldDictionary = field.getCOSObject();
+        COSDictionary fieldCopy;
+        COSArray kids = fieldDictionary.getCOSArray(COSName.KIDS);
+        if (kids == null)
+        {
+            // the field and its widget are merged
+            fieldCopy = copyWidget(filled, widgets.get(fieldDictionary));
+            filledWidgets.put(fieldDictionary, fieldCopy);
+        }
+        else
+        {
+            fieldCopy = new COSDictionary(fieldDictionary);
+            COSArray kidsCopy = new COSArray();
+            for (int i = 0; i < kids.size(); i++)
+            {
+                COSBase kid = kids.getObject(i);
+                CompiledWidget widget = kid instanceof COSDictionary ? widgets.get(kid) : null;
+                if (widget == null)
+                {
+                    kidsCopy.add(kids.get(i));
+                    continue;
+                }
+                COSDictionary widgetCopy = copyWidget(filled, widget);
+                kidsCopy.add(widgetCopy);
+                filledWidgets.put(widget.widget, widgetCopy);
+            }
+            fieldCopy.setItem(COSName.KIDS, kidsCopy);
+        }
+        PDField filledField = PDFieldFactory.createField(acroForm, fieldCopy, field.getParent());
+        if (filledField == null)
+        {
+            throw new IllegalArgumentException("Field '" + field.getFullyQualifiedName() + "' can't be filled");
+        }
+        filledField.setValue(value);
+    }
+
+    /**
+     * Copies a widget. The normal appearance of a text or choice field is copied as well, so that the generated
+     * appearance doesn't replace the one of the template.
+     */
+    private static COSDictionary copyWidget(PDDocument filled, CompiledWidget widget) throws IOException
+    {
+        COSDictionary widgetCopy = new COSDictionary(widget.widget);
+        COSDictionary appearance = widget.widget.getCOSDictionary(COSName.AP);
+        if (!widget.variableText || appearance == null)
+        {
+            return widgetCopy;
+        }
+        // a new normal appearance may be set if there isn't a valid one
+        COSDictionary appearanceDictionary = new COSDictionary(appearance);
+        widgetCopy.setItem(COSName.AP, appearanceDictionary);
+        if (widget.normalAppearance == null)
+        {
+            return widgetCopy;
+        }
+        COSStream appearanceCopy = filled.getDocument().createCOSStream();
+        for (Map.Entry<COSName, COSBase> entry : widget.normalAppearance.entrySet())
+        {
+            COSName key = entry.getKey();
+            if (!COSName.LENGTH.equals(key) && !COSName.FILTER.equals(key) && !COSName.DECODE_PARMS.equals(key))
+            {
+                appearanceCopy.setItem(key, entry.getValue());
+            }
+        }
+        // the font of the generated appearance is added to the resources
+        COSDictionary resources = widget.normalAppearance.getCOSDictionary(COSName.RESOURCES);
+        if (resources != null)
+        {
+            COSDictionary resourcesCopy = new COSDictionary(resources);
+            COSDictionary fonts = resources.getCOSDictionary(COSName.FONT);
+            if (fonts != null)
+            {
+                resourcesCopy.setItem(COSName.FONT, new COSDictionary(fonts));
+            }
+            appearanceCopy.setItem(COSName.RESOURCES, resourcesCopy);
+        }
+        try (OutputStream output = appearanceCopy.createOutputStream())
+        {
+            output.write(widget.normalAppearanceContent);
+        }
+        appearanceDictionary.setItem(COSName.N, appearanceCopy);
+        return widgetCopy;
+    }
+
+    /**
+     * Copies a page, without its parent and the entries referring to the structure tree or article threads.
+     */
+    private static COSDictionary copyPage(COSDictionary page)
+    {
+        COSDictionary pageCopy = new COSDictionary(page);
+        pageCopy.removeItem(COSName.PARENT);
+        pageCopy.removeItem(COSName.ANNOTS);
+        pageCopy.removeItem(COSName.B);
+        pageCopy.removeItem(COSName.STRUCT_PARENTS);
+        for (COSName key : INHERITABLE_PAGE_ENTRIES)
+        {
+            if (!pageCopy.containsKey(key))
+            {
+                COSBase value = PDPageTree.getInheritableAttribute(page, key);
+                if (value != null)
+                {
+                    pageCopy.setItem(key, value);
+                }
+            }
+        }
+        return pageCopy;
+    }
+
+    /**
+     * Draws the visible widgets of a page into a new content stream of the page copy and copies the other
+     * annotations. Same as {@link PDAcroForm#flatten()}.
+     */
+    private void flattenAnnotations(PDDocument filled, COSDictionary page, COSDictionary pageCopy,
+            Map<COSDictionary, COSDictionary> filledWidgets, Map<COSDictionary, COSDictionary> annotationCopies)
+            throws IOException
+    {
+        COSArray annotations = page.getCOSArray(COSName.ANNOTS);
+        if (annotations == null)
+        {
+            return;
+        }
+        COSArray annotationsCopy = new COSArray();
+        PDPageContentStream contentStream = null;
+        try
+        {
+            for (int i = 0; i < annotations.size(); i++)
+            {
+                COSBase base = annotations.getObject(i);
+                if (!(base instanceof COSDictionary))
+                {
+                    continue;
+                }
+                COSDictionary annotation = (COSDictionary) base;
+                if (!widgets.containsKey(annotation))
+                {
+                    COSDictionary annotationCopy = new COSDictionary(annotation);
+                    if (annotationCopy.containsKey(COSName.P))
+                    {
+                        annotationCopy.setItem(COSName.P, pageCopy);
+                    }
+                    annotationsCopy.add(annotationCopy);
+                    annotationCopies.put(annotation, annotationCopy);
+                    continue;
+                }
+                COSDictionary filledWidget = filledWidgets.get(annotation);
+                PDAnnotationWidget widget = new PDAnnotationWidget(
+                        filledWidget != null ? filledWidget : annotation);
+                if (!PDAcroForm.isVisibleAnnotation(widget))
+                {
+                    continue;
+                }
+                if (contentStream == null)
+                {
+                    contentStream = createContentStream(filled, pageCopy);
+                }
+                PDAppearanceStream appearanceStream = widget.getNormalAppearanceStream();
+                contentStream.saveGraphicsState();
+                contentStream.transform(PDAcroForm.resolveTransformationMatrix(widget, appearanceStream));
+                contentStream.drawForm(new PDFormXObject(appearanceStream.getCOSObject()));
+                contentStream.restoreGraphicsState();
+            }
+        }
+        finally
+        {
+            IOUtils.closeQuietly(contentStream);
+        }
+        if (annotationsCopy.size() > 0)
+        {
+            pageCopy.setItem(COSName.ANNOTS, annotationsCopy);
+        }
+    }
+
+    /**
+     * Creates a content stream appended to the page copy. The contents and the XObjects of the page copy are
+     * replaced by copies first, so that the template isn't modified.
+     */
+    private static PDPageContentStream createContentStream(PDDocument filled, COSDictionary pageCopy)
+            throws IOException
+    {
+        COSBase contents = pageCopy.getDictionaryObject(COSName.CONTENTS);
+        if (contents instanceof COSArray)
+        {
+            COSArray contentsArray = (COSArray) contents;
+            COSArray contentsCopy = new COSArray();
+            for (int i = 0; i < contentsArray.size(); i++)
+            {
+                contentsCopy.add(contentsArray.get(i));
+            }
+            pageCopy.setItem(COSName.CONTENTS, contentsCopy);
+        }
+        else if (contents instanceof COSStream)
+        {
+            COSArray contentsCopy = new COSArray();
+            contentsCopy.add(pageCopy.getItem(COSName.CONTENTS));
+            pageCopy.setItem(COSName.CONTENTS, contentsCopy);
+        }
+
+        COSDictionary resources = pageCopy.getCOSDictionary(COSName.RESOURCES);
+        COSDictionary resourcesCopy = resources != null ? new COSDictionary(resources) : new COSDictionary();
+        COSDictionary xObjects = resourcesCopy.getCOSDictionary(COSName.XOBJECT);
+        if (xObjects != null)
+        {
+            resourcesCopy.setItem(COSName.XOBJECT, new COSDictionary(xObjects));
+        }
+        pageCopy.setItem(COSName.RESOURCES, resourcesCopy);
+
+        return new PDPageContentStream(filled, new PDPage(pageCopy), AppendMode.APPEND, true, true);
+    }
+
+    /**
+     * Replaces the references of a copied annotation to the pages and annotations of the template by references to
+     * their copies.
+     */
+    private static void updateReferences(COSDictionary annotation, Map<COSDictionary, COSDictionary> pageCopies,
+            Map<COSDictionary, COSDictionary> annotationCopies)
+    {
+        for (COSName key : new COSName[] { COSName.POPUP, COSName.PARENT, COSName.IRT })
+        {
+            COSBase value = annotation.getDictionaryObject(key);
+            COSDictionary copy = value instanceof COSDictionary ? annotationCopies.get(value) : null;
+            if (copy != null)
+            {
+                annotation.setItem(key, copy);
+            }
+        }
+        COSBase destination = annotation.getDictionaryObject(COSName.DEST);
+        if (destination instanceof COSArray)
+        {
+            annotation.setItem(COSName.DEST, copyDestination((COSArray) destination, pageCopies));
+        }
+        COSDictionary action = annotation.getCOSDictionary(COSName.A);
+        if (action != null && action.getDictionaryObject(COSName.D) instanceof COSArray)
+        {
+            COSDictionary actionCopy = new COSDictionary(action);
+            actionCopy.setItem(COSName.D,
+                    copyDestination((COSArray) action.getDictionaryObject(COSName.D), pageCopies));
+            annotation.setItem(COSName.A, actionCopy);
+        }
+    }
+
+    private static COSArray copyDestination(COSArray destination, Map<COSDictionary, COSDictionary> pageCopies)
+    {
+        COSBase page = destination.size() > 0 ? destination.getObject(0) : null;
+        COSDictionary pageCopy = page instanceof COSDictionary ? pageCopies.get(page) : null;
+        if (pageCopy == null)
+        {
+            return destination;
+        }
+        COSArray destinationCopy = new COSArray();
+        destinationCopy.add(pageCopy);
+        for (int i = 1; i < destination.size(); i++)
+        {
+            destinationCopy.add(destination.get(i));
+        }
+        return destinationCopy;
+    }
+
+    /**
+     * Copies the dictionaries and arrays reachable from the given object, replacing the pages of the template by their
+     * copies. Streams are shared with the template. Links to structure elements are dropped, as the structure tree
+     * isn't copied. The copies are filled one after the other, so that e.g. long outlines don't need a deep recursion.
+     *
+     * @param base the object to be copied
+     * @param pageCopies the copies of the pages of the template
+     * @param copies the copies made so far, by the original objects
+     * @return the copy
+     */
+    private static COSBase copyReferringToPages(COSBase base, Map<COSDictionary, COSDictionary> pageCopies,
+            Map<COSBase, COSBase> copies)
+    {
+        Deque<COSBase> pending = new ArrayDeque<>();
+        COSBase copy = getCopy(base, pageCopies, copies, pending);
+        while (!pending.isEmpty())
+        {
+            COSBase original = pending.pop();
+            if (original instanceof COSDictionary)
+            {
+                COSDictionary dictionaryCopy = (COSDictionary) copies.get(original);
+                for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) original).entrySet())
+                {
+                    if (!COSName.SE.equals(entry.getKey()))
+                    {
+                        dictionaryCopy.setItem(entry.getKey(),
+                                getCopy(entry.getValue(), pageCopies, copies, pending));
+                    }
+                }
+            }
+            else
+            {
+                COSArray arrayCopy = (COSArray) copies.get(original);
+                for (COSBase value : (COSArray) original)
+                {
+                    arrayCopy.add(getCopy(value, pageCopies, copies, pending));
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the copy of the given object. A new copy of a dictionary or an array is empty and added to the pending
+     * objects, which still have to be copied into it.
+     */
+    private static COSBase getCopy(COSBase base, Map<COSDictionary, COSDictionary> pageCopies,
+            Map<COSBase, COSBase> copies, Deque<COSBase> pending)
+    {
+        COSBase object = base instanceof COSObject ? ((COSObject) base).getObject() : base;
+        if (object instanceof COSStream || !(object instanceof COSDictionary || object instanceof COSArray))
+        {
+            return base;
+        }
+        COSDictionary pageCopy = pageCopies.get(object);
+        if (pageCopy != null)
+        {
+            return pageCopy;
+        }
+        COSBase copy = copies.get(object);
+        if (copy == null)
+        {
+            copy = object instanceof COSDictionary ? new COSDictionary() : new COSArray();
+            copies.put(object, copy);
+            pending.push(object);
+        }
+        return copy;
+    }
+
+    /**
+     * Dereferences all objects reachable from the given object.
+     */
+    private static void resolveAll(COSBase root)
+    {
+        Map<COSBase, Boolean> visited = new IdentityHashMap<>();
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty())
+        {
+            COSBase base = pending.pop();
+            if (base instanceof COSObject)
+            {
+                base = ((COSObject) base).getObject();
+            }
+            if (base == null || visited.put(base, Boolean.TRUE) != null)
+            {
+                continue;
+            }
+            if (base instanceof COSDictionary)
+            {
+                for (COSBase value : ((COSDictionary) base).getValues())
+                {
+                    pending.push(value);
+                }
+            }
+            else if (base instanceof COSArray)
+            {
+                for (COSBase value : (COSArray) base)
+                {
+                    pending.push(value);
+                }
+            }
+        }
+    }
+}
@@ -315,7 +315,7 @@ public final class PDAcroForm implements COSObjectable
         }
     }
 
-    private boolean isVisibleAnnotation(PDAnnotation annotation)
+    static boolean isVisibleAnnotation(PDAnnotation annotation)
     {
         if (annotation.isInvisible() || annotation.isHidden())
         {
@@ -729,7 +729,7 @@ public final class PDAcroForm implements COSObjectable
         dictionary.setItem(COSName.CO, new COSArray(fields));
     }
 
-    private Matrix resolveTransformationMatrix(PDAnnotation annotation, PDAppearanceStream appearanceStream)
+    static Matrix resolveTransformationMatrix(PDAnnotation annotation, PDAppearanceStream appearanceStream)
     {
         // 1st step transform appearance stream bbox with appearance stream matrix
         Rectangle2D transformedAppearanceBox = getTransformedAppearanceBBox(appearanceStream);
@@ -751,7 +751,7 @@ public final class PDAcroForm implements COSObjectable
      * @param appearanceStream
      * @return the transformed rectangle
      */
-    private Rectangle2D getTransformedAppearanceBBox(PDAppearanceStream appearanceStream)
+    private static Rectangle2D getTransformedAppearanceBBox(PDAppearanceStream appearanceStream)
     {
         Matrix appearanceStreamMatrix = appearanceStream.getMatrix();
         PDRectangle appearanceStreamBBox = appearanceStream.getBBox();
@@ -38,10 +38,28 @@ final class GlyphCache
     
     private final PDVectorFont font;
     private final Map<Integer, GeneralPath> cache = new HashMap<>();
+    private final SharedGlyphCache sharedCache;
+    private String sharedFontKey;
 
     GlyphCache(PDVectorFont font)
+    {
+        this(font, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param font the font
+     * @param sharedCache the cache shared across pages and documents, or null
+     */
+    GlyphCache(PDVectorFont font, SharedGlyphCache sharedCache)
     {
         this.font = font;
+        this.sharedCache = sharedCache;
+        if (sharedCache != null)
+        {
+            sharedFontKey = sharedCache.getFontKey(font);
+        }
     }
     
     public GeneralPath getPathForCharacterCode(int code)
@@ -52,6 +70,16 @@ final class GlyphCache
             return path;
         }
 
+        if (sharedFontKey != null)
+        {
+            path = sharedCache.getPath(sharedFontKey, code);
+            if (path != null)
+            {
+                cache.put(code, path);
+                return path;
+            }
+        }
+
         try
         {
             if (!font.hasGlyph(code))
@@ -85,6 +113,10 @@ final class GlyphCache
 
             path = font.getNormalizedPath(code);
             cache.put(code, path);
+            if (sharedFontKey != null)
+            {
+                sharedCache.putPath(sharedFontKey, code, path);
+            }
             return path;
         }
         catch (IOException e)
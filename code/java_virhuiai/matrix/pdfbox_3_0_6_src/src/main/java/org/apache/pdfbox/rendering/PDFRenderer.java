@@ -21,10 +21,16 @@ import java.awt.DisplayMode;
 import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsDevice;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageTree;
@@ -35,6 +41,7 @@ import org.apache.pdfbox.pdmodel.graphics.optionalcontent.PDOptionalContentGroup
 import org.apache.pdfbox.pdmodel.graphics.optionalcontent.PDOptionalContentProperties;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.pdmodel.interactive.annotation.AnnotationFilter;
+import org.apache.pdfbox.util.ParallelUtil;
 
 /**
  * Renders a PDF document to an AWT BufferedImage.
@@ -44,6 +51,8 @@ import org.apache.pdfbox.pdmodel.interactive.annotation.AnnotationFilter;
  */
 public class PDFRenderer
 {
+    private static final Log LOG = LogFactory.getLog(PDFRenderer.class);
+
     protected final PDDocument document;
     // TODO keep rendering state such as caches here
     
@@ -58,10 +67,20 @@ public class PDFRenderer
 
     private RenderingHints renderingHints = null;
 
-    private BufferedImage pageImage;
+    // the number of pixels rendered around a tile
+    private static final int TILE_MARGIN = 4;
+
+    private final ThreadLocal<BufferedImage> pageImage = new ThreadLocal<>();
+
+    // bounds of the whole page image in the coordinates of pageImage, which may be a tile only
+    private final ThreadLocal<Rectangle> pageImageBounds = new ThreadLocal<>();
 
     private float imageDownscalingOptimizationThreshold = 0.5f;
 
+    private SharedGlyphCache sharedGlyphCache = null;
+
+    private TileCache tileCache = null;
+
     private final PDPageTree pageTree;
 
     /**
@@ -183,6 +202,49 @@ public class PDFRenderer
         this.imageDownscalingOptimizationThreshold = imageDownscalingOptimizationThreshold;
     }
 
+    /**
+     * Returns the glyph cache shared with other renderers.
+     *
+     * @return the shared glyph cache or null if none is used
+     */
+    public SharedGlyphCache getSharedGlyphCache()
+    {
+        return sharedGlyphCache;
+    }
+
+    /**
+     * Sets a glyph cache to be shared with other renderers, e.g. the renderers of other documents using the same
+     * embedded fonts. The glyph outlines of embedded fonts are taken from this cache instead of being created for
+     * each page again. The default is null, i.e. glyph outlines are only cached while rendering a single page.
+     *
+     * @param sharedGlyphCache the shared glyph cache or null
+     */
+    public void setSharedGlyphCache(SharedGlyphCache sharedGlyphCache)
+    {
+        this.sharedGlyphCache = sharedGlyphCache;
+    }
+
+    /**
+     * Returns the cache of rendered tiles.
+     *
+     * @return the tile cache or null if none is used
+     */
+    public TileCache getTileCache()
+    {
+        return tileCache;
+    }
+
+    /**
+     * Sets a cache of the tiles rendered by {@link #renderTile(int, float, int, int, int, ImageType)}, which may be
+     * shared with other renderers. The default is null, i.e. tiles aren't cached.
+     *
+     * @param tileCache the tile cache or null
+     */
+    public void setTileCache(TileCache tileCache)
+    {
+        this.tileCache = tileCache;
+    }
+
     /**
      * Returns the given page as an RGB image at 72 DPI
      * @param pageIndex the zero-based index of the page to be converted.
@@ -278,25 +340,200 @@ public class PDFRenderer
     public BufferedImage renderImage(int pageIndex, float scale, ImageType imageType, RenderDestination destination)
             throws IOException
     {
+        return renderImage(pageTree.get(pageIndex), scale, imageType, destination);
+    }
+
+    /**
+     * Returns a tile of the given page at the given scale. The image of the page is divided into square tiles of the
+     * given size, the tile at (0, 0) is the upper left one. The tiles at the right and at the bottom of the page may
+     * be smaller. Only the tile is rasterized, images and shadings which aren't visible within the tile are skipped,
+     * so that tiles of a page may be rendered at scales at which the whole page image would be too big.
+     *
+     * <p>
+     * If a {@link TileCache} is set, the tile is taken from the cache if it was rendered before. The returned image
+     * is a copy in that case, so that it may be modified by the caller.
+     * </p>
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param tileX the zero-based column of the tile
+     * @param tileY the zero-based row of the tile
+     * @param tileSize the width and height of a tile in pixels, e.g. 256
+     * @param imageType the type of image to return
+     * @return the rendered tile
+     * @throws IOException if the PDF cannot be read
+     * @throws IllegalArgumentException if the tile size isn't positive or the tile is outside of the page
+     * @throws IndexOutOfBoundsException if the requested index is higher than the page count
+     */
+    public BufferedImage renderTile(int pageIndex, float scale, int tileX, int tileY, int tileSize,
+            ImageType imageType) throws IOException
+    {
+        if (tileSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid tile size " + tileSize);
+        }
+        RenderDestination destination =
+                defaultDestination == null ? RenderDestination.EXPORT : defaultDestination;
+        TileCache cache = tileCache;
+        TileCache.TileKey key = null;
+        if (cache != null)
+        {
+            key = cache.createKey(document, pageIndex, scale, tileX, tileY, tileSize,
+                    imageType, destination);
+            BufferedImage tile = cache.getTile(key);
+            if (tile != null)
+            {
+                return tile;
+            }
+        }
         PDPage page = pageTree.get(pageIndex);
+        Rectangle pageBounds = getPageImageBounds(page, scale);
+        Rectangle region = new Rectangle((int) Math.min((long) tileX * tileSize, Integer.MAX_VALUE),
+                (int) Math.min((long) tileY * tileSize, Integer.MAX_VALUE), tileSize, tileSize)
+                .intersection(pageBounds);
+        if (tileX < 0 || tileY < 0 || region.isEmpty())
+        {
+            throw new IllegalArgumentException("Tile (" + tileX + ", " + tileY + ") of size "
+                    + tileSize + " is outside of the page image of size " + pageBounds.width + "x"
+                    + pageBounds.height);
+        }
+        // images, e.g. transparency groups, are drawn with interpolation, which differs at the borders of the
+        // destination, so that a margin around the tile is rendered and cut off to get the pixels of the page image
+        Rectangle margin = new Rectangle(region);
+        margin.grow(TILE_MARGIN, TILE_MARGIN);
+        margin = margin.intersection(pageBounds);
+        BufferedImage image = renderImage(page, scale, imageType, destination, margin);
+        WritableRaster raster = image.getRaster().createCompatibleWritableRaster(region.width, region.height);
+        raster.setDataElements(0, 0, image.getRaster().createChild(region.x - margin.x, region.y - margin.y,
+                region.width, region.height, 0, 0, null));
+        ColorModel colorModel = image.getColorModel();
+        BufferedImage tile = new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+        if (cache != null)
+        {
+            cache.putTile(key, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Renders the pages of the given range at the given DPI using several threads. The images are passed to the
+     * given consumer in page order on the calling thread. The number of images held in memory at the same time is
+     * limited to twice the given parallelism, i.e. rendering pauses if the consumer is slower than the renderer.
+     *
+     * <p>The COS objects and the resource cache of the document are shared by the rendering threads. The pages are
+     * only rendered in parallel if the document was loaded with the concurrent object resolution of
+     * {@link org.apache.pdfbox.pdfparser.COSParser} enabled, see
+     * {@link org.apache.pdfbox.pdfparser.COSParser#SYSPROP_CONCURRENT_OBJECT_RESOLUTION}, and if its resource cache
+     * is thread safe like {@link org.apache.pdfbox.pdmodel.BoundedResourceCache} or null. Otherwise, e.g. with the
+     * {@link DefaultResourceCache} which is used by default, the pages are rendered one after the other by the
+     * calling thread. A custom {@link #createPageDrawer(PageDrawerParameters)} has to be thread safe as well.</p>
+     *
+     * @param firstPageIndex the zero-based index of the first page to be rendered
+     * @param lastPageIndex the zero-based index of the last page to be rendered
+     * @param dpi the DPI (dots per inch) to render at
+     * @param imageType the type of image to return
+     * @param parallelism the number of threads used for rendering
+     * @param consumer the consumer of the rendered page images
+     * @throws IOException if the PDF cannot be read or the consumer failed
+     * @throws IllegalArgumentException if the page range or the parallelism is invalid
+     */
+    public void renderImagesWithDPI(int firstPageIndex, int lastPageIndex, float dpi,
+            ImageType imageType, int parallelism, PageImageConsumer consumer) throws IOException
+    {
+        if (firstPageIndex < 0 || lastPageIndex < firstPageIndex
+                || lastPageIndex >= pageTree.getCount())
+        {
+            throw new IllegalArgumentException("Invalid page range " + firstPageIndex + " - "
+                    + lastPageIndex + ", number of pages: " + pageTree.getCount());
+        }
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        float scale = dpi / 72f;
+        RenderDestination destination =
+                defaultDestination == null ? RenderDestination.EXPORT : defaultDestination;
+        if (parallelism > 1 && !isParallelRenderingSupported())
+        {
+            parallelism = 1;
+        }
+        if (parallelism == 1)
+        {
+            for (int pageIndex = firstPageIndex; pageIndex <= lastPageIndex; pageIndex++)
+            {
+                consumer.accept(pageIndex,
+                        renderImage(pageTree.get(pageIndex), scale, imageType, destination));
+            }
+            return;
+        }
+        ParallelUtil.forEachOrdered("PDFRenderer", parallelism, lastPageIndex - firstPageIndex + 1,
+                index ->
+                {
+                    // the page tree is only read by the calling thread
+                    PDPage page = pageTree.get(firstPageIndex + index);
+                    return () -> renderImage(page, scale, imageType, destination);
+                },
+                (index, image) -> consumer.accept(firstPageIndex + index, image), null);
+    }
+
+    // the COS objects and the resources of the document are shared by the rendering threads
+    private boolean isParallelRenderingSupported()
+    {
+        if (!document.getDocument().isConcurrentDereferencingSupported())
+        {
+            LOG.warn("The document doesn't support concurrent object resolution, "
+                    + "the pages are rendered by the calling thread");
+            return false;
+        }
+        if (document.getResourceCache() instanceof DefaultResourceCache)
+        {
+            LOG.warn("The resource cache of the document isn't thread safe, "
+                    + "the pages are rendered by the calling thread");
+            return false;
+        }
+        return true;
+    }
+
+    private BufferedImage renderImage(PDPage page, float scale, ImageType imageType,
+            RenderDestination destination) throws IOException
+    {
+        return renderImage(page, scale, imageType, destination, null);
+    }
 
+    // returns the bounds of the whole page image, with width and height swapped for rotated pages
+    private static Rectangle getPageImageBounds(PDPage page, float scale)
+    {
         PDRectangle cropBox = page.getCropBox();
-        float widthPt = cropBox.getWidth();
-        float heightPt = cropBox.getHeight();
 
         // PDFBOX-4306 avoid single blank pixel line on the right or on the bottom
-        int widthPx = (int) Math.max(Math.floor(widthPt * scale), 1);
-        int heightPx = (int) Math.max(Math.floor(heightPt * scale), 1);
+        int widthPx = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+        int heightPx = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+
+        int rotationAngle = page.getRotation();
+        if (rotationAngle == 90 || rotationAngle == 270)
+        {
+            return new Rectangle(heightPx, widthPx);
+        }
+        return new Rectangle(widthPx, heightPx);
+    }
+
+    /**
+     * Renders the given region of the page image, or the whole page image if the region is null.
+     */
+    private BufferedImage renderImage(PDPage page, float scale, ImageType imageType,
+            RenderDestination destination, Rectangle region) throws IOException
+    {
+        PDRectangle cropBox = page.getCropBox();
+        Rectangle bounds = getPageImageBounds(page, scale);
 
         // PDFBOX-4518 the maximum size (w*h) of a buffered image is limited to Integer.MAX_VALUE
-        if ((long) widthPx * (long) heightPx > Integer.MAX_VALUE)
+        if (region == null && (long) bounds.width * (long) bounds.height > Integer.MAX_VALUE)
         {
             throw new IOException("Maximum size of image exceeded (w * h * scale ^ 2) = "//
-                    + widthPt + " * " + heightPt + " * " + scale + " ^ 2 > " + Integer.MAX_VALUE);
+                    + cropBox.getWidth() + " * " + cropBox.getHeight() + " * " + scale + " ^ 2 > "
+                    + Integer.MAX_VALUE);
         }
 
-        int rotationAngle = page.getRotation();
-
         int bimType;
         if (imageType != ImageType.ARGB && hasBlendMode(page))
         {
@@ -311,19 +548,18 @@ public class PDFRenderer
             bimType = imageType.toBufferedImageType();
         }
 
-        // swap width and height
         BufferedImage image;
-        if (rotationAngle == 90 || rotationAngle == 270)
+        if (region == null)
         {
-            image = new BufferedImage(heightPx, widthPx, bimType);
+            image = new BufferedImage(bounds.width, bounds.height, bimType);
         }
         else
         {
-            image = new BufferedImage(widthPx, heightPx, bimType);
+            image = new BufferedImage(region.width, region.height, bimType);
+            // the page image is moved so that the region is at (0, 0)
+            bounds.translate(-region.x, -region.y);
         }
 
-        pageImage = image;
-
         // use a transparent background if the image type supports alpha
         Graphics2D g = image.createGraphics();
         if (image.getType() == BufferedImage.TYPE_INT_ARGB)
@@ -335,7 +571,8 @@ public class PDFRenderer
             g.setBackground(Color.WHITE);
         }
         g.clearRect(0, 0, image.getWidth(), image.getHeight());
-        
+
+        g.translate(bounds.x, bounds.y);
         transform(g, page.getRotation(), cropBox, scale, scale);
 
         // the end-user may provide a custom PageDrawer
@@ -345,7 +582,17 @@ public class PDFRenderer
                 new PageDrawerParameters(this, page, subsamplingAllowed, destination,
                         actualRenderingHints, imageDownscalingOptimizationThreshold);
         PageDrawer drawer = createPageDrawer(parameters);
-        drawer.drawPage(g, cropBox);
+        pageImage.set(image);
+        pageImageBounds.set(bounds);
+        try
+        {
+            drawer.drawPage(g, cropBox);
+        }
+        finally
+        {
+            pageImage.remove();
+            pageImageBounds.remove();
+        }
         
         g.dispose();
 
@@ -583,7 +830,17 @@ public class PDFRenderer
      */
     BufferedImage getPageImage()
     {
-        return pageImage;
+        return pageImage.get();
+    }
+
+    /**
+     * Returns the bounds of the whole page image in the coordinates of the image returned by
+     * {@link #getPageImage()}, which differ from the bounds of that image if only a tile of the page is rendered.
+     * May be null if the page is rendered to a Graphics2D object.
+     */
+    Rectangle getPageImageBounds()
+    {
+        return pageImageBounds.get();
     }
 
 }
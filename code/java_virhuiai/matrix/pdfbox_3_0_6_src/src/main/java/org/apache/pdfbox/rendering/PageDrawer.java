@@ -157,6 +157,11 @@ public class PageDrawer extends PDFGraphicsStreamEngine
 
     // clip when drawPage() is called, can be null, must be intersected when clipping
     private Shape initialClip;
+
+    // the graphics device of the page image and its bounds, used to skip content which isn't
+    // visible, null if the page isn't rendered into an image
+    private Graphics2D pageGraphics;
+    private Rectangle2D visibleBounds;
     
     // shapes of glyphs being drawn to be used for clipping
     private List<Shape> textClippings;
@@ -276,6 +281,14 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         initialClip = graphics.getClip();
         this.pageSize = pageSize;
 
+        BufferedImage pageImage = renderer.getPageImage();
+        Rectangle pageImageBounds = renderer.getPageImageBounds();
+        if (pageImage != null && pageImageBounds != null)
+        {
+            pageGraphics = g;
+            visibleBounds = new Rectangle(pageImage.getWidth(), pageImage.getHeight());
+        }
+
         setRenderingHints();
 
         graphics.translate(0, pageSize.getHeight());
@@ -505,7 +518,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         GlyphCache cache = glyphCaches.get(font);
         if (cache == null)
         {
-            cache = new GlyphCache(vectorFont);
+            cache = new GlyphCache(vectorFont, renderer.getSharedGlyphCache());
             glyphCaches.put(font, cache);
         }
 
@@ -1088,6 +1101,12 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
         AffineTransform at = ctm.createAffineTransform();
 
+        if (!isVisible(at.createTransformedShape(new Rectangle2D.Float(0, 0, 1, 1)).getBounds2D()))
+        {
+            // don't decode images which aren't visible, e.g. outside of a tile
+            return;
+        }
+
         if (!pdImage.getInterpolate())
         {
             // if the image is scaled down, we use smooth interpolation, eg PDFBOX-2364
@@ -1531,7 +1550,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 area = getGraphicsState().getCurrentClippingPath();
             }
         }
-        if (!area.isEmpty())
+        if (!area.isEmpty() && isVisible(area.getBounds2D()))
         {
             // creating Paint is sometimes a costly operation, so avoid if possible
             Paint paint = shading.toPaint(ctm);
@@ -1792,6 +1811,8 @@ public class PageDrawer extends PDFGraphicsStreamEngine
 
             // clip the bbox to prevent giant bboxes from consuming all memory
             Area transformed = new Area(transformedBox);
+            // the group isn't limited to a tile of the page image, as this would move the group
+            // image relative to the pixels of the page image and change the result
             transformed.intersect(getGraphicsState().getCurrentClippingPath());
             Rectangle2D clipRect = transformed.getBounds2D();
             if (clipRect.isEmpty())
@@ -1844,14 +1865,16 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 {
                     // Use the current page as the parent group.
                     backdropImage = renderer.getPageImage();
-                    if (backdropImage == null)
+                    Rectangle pageImageBounds = renderer.getPageImageBounds();
+                    if (backdropImage == null || pageImageBounds == null)
                     {
                         needsBackdrop = false;
                     }
                     else
                     {
-                        backdropX = minX;
-                        backdropY = backdropImage.getHeight() - maxY;
+                        // the page image may be a tile of the whole page image
+                        backdropX = minX + pageImageBounds.x;
+                        backdropY = pageImageBounds.y + pageImageBounds.height - maxY;
                     }
                 }
                 else
@@ -2120,6 +2143,24 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
     }
 
+    /**
+     * Tells whether the given bounds in the user space of the page may be visible. Content is only
+     * skipped when drawing directly into the page image, i.e. not within transparency groups or
+     * patterns.
+     */
+    private boolean isVisible(Rectangle2D bounds)
+    {
+        if (visibleBounds == null || graphics != pageGraphics)
+        {
+            return true;
+        }
+        Rectangle2D deviceBounds = graphics.getTransform().createTransformedShape(bounds).getBounds2D();
+        // add a margin for antialiasing
+        deviceBounds.setRect(deviceBounds.getX() - 2, deviceBounds.getY() - 2,
+                deviceBounds.getWidth() + 4, deviceBounds.getHeight() + 4);
+        return deviceBounds.intersects(visibleBounds);
+    }
+
     private boolean isContentRendered()
     {
         return nestedHiddenOCGCount <= 0;
@@ -0,0 +1,376 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDVectorFont;
+import org.apache.pdfbox.util.Hex;
+import org.apache.pdfbox.util.LRUCache;
+
+/**
+ * A glyph outline cache which may be shared by several {@link PDFRenderer} instances, even across documents and
+ * threads. This is useful when rendering many documents using the same embedded fonts, e.g. a batch of invoices or
+ * reports created by the same application.
+ *
+ * <p>
+ * Fonts are identified by a digest over the content of their font dictionary, including the embedded font program,
+ * the encoding and the widths. Two fonts in different documents share their glyph outlines only if all these are
+ * identical, so that the mapping of a character code to a glyph is the same for both. The subset tag of the font
+ * names, e.g. "ABCDEF+" in "ABCDEF+Arial", isn't part of the digest, as it is chosen at random by the creator of a
+ * document. Fonts which aren't embedded are never shared as their outlines depend on the font mapping of the
+ * system.
+ * </p>
+ *
+ * <p>
+ * The size of the cache is limited by an estimation of the memory used by the cached outlines. The least recently
+ * used outlines are removed first if the limit is exceeded. The cached outlines must not be modified.
+ * </p>
+ *
+ * @see PDFRenderer#setSharedGlyphCache(SharedGlyphCache)
+ */
+public final class SharedGlyphCache
+{
+    private static final Log LOG = LogFactory.getLog(SharedGlyphCache.class);
+
+    /**
+     * The default maximum size of the cache in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+    // estimated size of an entry without the segments of the path
+    private static final int ENTRY_OVERHEAD = 128;
+
+    // estimated size of a single path segment: type and up to 6 coordinates
+    private static final int SEGMENT_SIZE = 25;
+
+    // used as key for fonts which can't be shared
+    private static final String NOT_SHAREABLE = "";
+
+    private final LRUCache<GlyphKey, GeneralPath> glyphs;
+    private final Map<COSDictionary, String> fontKeys = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Creates a cache with the default maximum size of {@link #DEFAULT_MAX_SIZE} bytes.
+     */
+    public SharedGlyphCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache with the given maximum size.
+     *
+     * @param maxSize the maximum estimated size of all cached outlines in bytes
+     * @throws IllegalArgumentException if the maximum size isn't positive
+     */
+    public SharedGlyphCache(long maxSize)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        glyphs = new LRUCache<>(maxSize, SharedGlyphCache::estimateSize);
+    }
+
+    /**
+     * Returns the key identifying the given font within this cache.
+     *
+     * @param font the font
+     * @return the key of the font or null if the outlines of the font can't be shared
+     */
+    String getFontKey(PDVectorFont font)
+    {
+        if (!(font instanceof PDFont) || !((PDFont) font).isEmbedded())
+        {
+            return null;
+        }
+        COSDictionary fontDictionary = ((PDFont) font).getCOSObject();
+        String key = fontKeys.get(fontDictionary);
+        if (key == null)
+        {
+            key = createFontKey((PDFont) font, fontDictionary);
+            fontKeys.put(fontDictionary, key);
+        }
+        return key.isEmpty() ? null : key;
+    }
+
+    /**
+     * Returns the cached outline of the given glyph.
+     *
+     * @param fontKey the key of the font as returned by {@link #getFontKey(PDVectorFont)}
+     * @param code the character code
+     * @return the cached outline or null if there isn't any
+     */
+    GeneralPath getPath(String fontKey, int code)
+    {
+        return glyphs.get(new GlyphKey(fontKey, code));
+    }
+
+    /**
+     * Adds the outline of the given glyph to the cache.
+     *
+     * @param fontKey the key of the font as returned by {@link #getFontKey(PDVectorFont)}
+     * @param code the character code
+     * @param path the outline of the glyph, which must not be modified afterwards
+     */
+    void putPath(String fontKey, int code, GeneralPath path)
+    {
+        glyphs.put(new GlyphKey(fontKey, code), path);
+    }
+
+    /**
+     * Removes all cached outlines and font keys. The statistics are kept.
+     */
+    public void clear()
+    {
+        glyphs.clear();
+        fontKeys.clear();
+    }
+
+    /**
+     * Returns the maximum estimated size of the cache.
+     *
+     * @return the maximum size in bytes
+     */
+    public long getMaxSize()
+    {
+        return glyphs.getMaxWeight();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the cache. The weight of the cache is the estimated size of all cached
+     * outlines in bytes.
+     *
+     * @return the statistics
+     */
+    public LRUCache.Statistics getStatistics()
+    {
+        return glyphs.getStatistics();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SharedGlyphCache{maxSize=" + getMaxSize() + ", " + glyphs + "}";
+    }
+
+    private static String createFontKey(PDFont font, COSDictionary fontDictionary)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // the class is part of the key as the outlines are created differently for each font type
+            digest.update(font.getClass().getName().getBytes(StandardCharsets.US_ASCII));
+            update(digest, fontDictionary, Collections.newSetFromMap(new IdentityHashMap<>()));
+            return Hex.getString(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new RuntimeException(e);
+        }
+        catch (IOException e)
+        {
+            LOG.debug("Couldn't create the cache key for the font " + font.getName(), e);
+            return NOT_SHAREABLE;
+        }
+    }
+
+    /**
+     * Adds the content of the given object to the digest. Indirect objects are resolved, so that the digest doesn't
+     * depend on the object numbers used within a document.
+     */
+    private static void update(MessageDigest digest, COSBase base, Set<COSBase> visited) throws IOException
+    {
+        if (base instanceof COSObject)
+        {
+            base = ((COSObject) base).getObject();
+        }
+        if (base == null)
+        {
+            digest.update((byte) 'n');
+            return;
+        }
+        if (base instanceof COSDictionary)
+        {
+            if (!visited.add(base))
+            {
+                // cycle, e.g. a /Parent entry
+                digest.update((byte) 'r');
+                return;
+            }
+            COSDictionary dictionary = (COSDictionary) base;
+            // sort the keys as the order of the entries doesn't matter
+            List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            Collections.sort(keys);
+            digest.update((byte) '<');
+            for (COSName key : keys)
+            {
+                update(digest, key, visited);
+                COSBase value = dictionary.getItem(key);
+                if ((COSName.BASE_FONT.equals(key) || COSName.FONT_NAME.equals(key))
+                        && value instanceof COSName)
+                {
+                    value = COSName.getPDFName(stripSubsetTag(((COSName) value).getName()));
+                }
+                update(digest, value, visited);
+            }
+            digest.update((byte) '>');
+            if (base instanceof COSStream)
+            {
+                digest.update((byte) 's');
+                try (InputStream input = ((COSStream) base).createRawInputStream())
+                {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = input.read(buffer)) != -1)
+                    {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        }
+        else if (base instanceof COSArray)
+        {
+            if (!visited.add(base))
+            {
+                digest.update((byte) 'r');
+                return;
+            }
+            digest.update((byte) '[');
+            for (COSBase item : (COSArray) base)
+            {
+                update(digest, item, visited);
+            }
+            digest.update((byte) ']');
+        }
+        else if (base instanceof COSName)
+        {
+            digest.update((byte) '/');
+            byte[] bytes = ((COSName) base).getName().getBytes(StandardCharsets.UTF_8);
+            updateLength(digest, bytes.length);
+            digest.update(bytes);
+        }
+        else if (base instanceof COSString)
+        {
+            digest.update((byte) '(');
+            byte[] bytes = ((COSString) base).getBytes();
+            updateLength(digest, bytes.length);
+            digest.update(bytes);
+        }
+        else
+        {
+            // numbers, booleans and null
+            digest.update((byte) '#');
+            digest.update(base.toString().getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ';');
+        }
+    }
+
+    // removes the tag of a font subset, which consists of six uppercase letters followed by a plus sign
+    private static String stripSubsetTag(String name)
+    {
+        if (name.length() < 7 || name.charAt(6) != '+')
+        {
+            return name;
+        }
+        for (int i = 0; i < 6; i++)
+        {
+            char c = name.charAt(i);
+            if (c < 'A' || c > 'Z')
+            {
+                return name;
+            }
+        }
+        return name.substring(7);
+    }
+
+    private static void updateLength(MessageDigest digest, int length)
+    {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+
+    private static long estimateSize(GeneralPath path)
+    {
+        long segments = 0;
+        for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next())
+        {
+            segments++;
+        }
+        return ENTRY_OVERHEAD + segments * SEGMENT_SIZE;
+    }
+
+    private static final class GlyphKey
+    {
+        private final String fontKey;
+        private final int code;
+
+        private GlyphKey(String fontKey, int code)
+        {
+            this.fontKey = fontKey;
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof GlyphKey))
+            {
+                return false;
+            }
+            GlyphKey other = (GlyphKey) obj;
+            return code == other.code && fontKey.equals(other.fontKey);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * fontKey.hashCode() + code;
+        }
+    }
+}
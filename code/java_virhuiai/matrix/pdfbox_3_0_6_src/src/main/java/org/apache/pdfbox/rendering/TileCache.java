@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.util.LRUCache;
+
+/**
+ * A cache of rendered tiles, which may be shared by several {@link PDFRenderer} instances, even across documents and
+ * threads. Tiles are identified by the document, the page, the scale, the tile coordinates and size, the image type
+ * and the render destination. Other settings of the renderer, e.g. the rendering hints or the annotation filter, aren't
+ * part of the key, so a cache should only be shared by renderers using the same settings.
+ *
+ * <p>
+ * The size of the cache is limited by the memory used by the cached images. The least recently used tiles are
+ * removed first if the limit is exceeded. The cache holds copies of the rendered tiles and returns copies, so that
+ * the images may be modified by the caller. Tiles of a document which was modified should be removed by calling
+ * {@link #remove(PDDocument)}.
+ * </p>
+ *
+ * <p>
+ * The cache doesn't keep the documents from being garbage collected, the tiles are keyed by an id of the document.
+ * The tiles of a document which was garbage collected are never returned again and are removed like any other tiles
+ * which aren't used anymore.
+ * </p>
+ *
+ * @see PDFRenderer#setTileCache(TileCache)
+ * @see PDFRenderer#renderTile(int, float, int, int, int, ImageType)
+ */
+public final class TileCache
+{
+    /**
+     * The default maximum size of the cache in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private final LRUCache<TileKey, BufferedImage> tiles;
+
+    // the ids of the documents, the documents are compared by identity as PDDocument doesn't override equals
+    private final Map<PDDocument, Long> documentIds = new WeakHashMap<>();
+    private long nextDocumentId = 0;
+
+    /**
+     * Creates a cache with the default maximum size of {@link #DEFAULT_MAX_SIZE} bytes.
+     */
+    public TileCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache with the given maximum size.
+     *
+     * @param maxSize the maximum size of all cached images in bytes
+     * @throws IllegalArgumentException if the maximum size isn't positive
+     */
+    public TileCache(long maxSize)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        tiles = new LRUCache<>(maxSize, TileCache::estimateSize);
+    }
+
+    /**
+     * Creates the key of a tile.
+     */
+    TileKey createKey(PDDocument document, int pageIndex, float scale, int tileX, int tileY, int tileSize,
+            ImageType imageType, RenderDestination destination)
+    {
+        long documentId;
+        synchronized (documentIds)
+        {
+            documentId = documentIds.computeIfAbsent(document, d -> nextDocumentId++);
+        }
+        return new TileKey(documentId, pageIndex, scale, tileX, tileY, tileSize, imageType, destination);
+    }
+
+    /**
+     * Returns a copy of the cached image of the given tile.
+     *
+     * @param key the key of the tile
+     * @return the copy of the cached image or null if there isn't any
+     */
+    BufferedImage getTile(TileKey key)
+    {
+        BufferedImage image = tiles.get(key);
+        return image != null ? copy(image) : null;
+    }
+
+    /**
+     * Adds a copy of the image of the given tile to the cache.
+     *
+     * @param key the key of the tile
+     * @param image the rendered tile
+     */
+    void putTile(TileKey key, BufferedImage image)
+    {
+        tiles.put(key, copy(image));
+    }
+
+    /**
+     * Removes all cached tiles of the given document.
+     *
+     * @param document the document
+     */
+    public void remove(PDDocument document)
+    {
+        Long documentId;
+        synchronized (documentIds)
+        {
+            documentId = documentIds.get(document);
+        }
+        if (documentId != null)
+        {
+            tiles.removeIf(key -> key.documentId == documentId);
+        }
+    }
+
+    /**
+     * Removes all cached tiles. The statistics are kept.
+     */
+    public void clear()
+    {
+        tiles.clear();
+    }
+
+    /**
+     * Returns the maximum size of the cache.
+     *
+     * @return the maximum size in bytes
+     */
+    public long getMaxSize()
+    {
+        return tiles.getMaxWeight();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the cache. The weight of the cache is the size of all cached images in
+     * bytes.
+     *
+     * @return the statistics
+     */
+    public LRUCache.Statistics getStatistics()
+    {
+        return tiles.getStatistics();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TileCache{maxSize=" + getMaxSize() + ", " + tiles + "}";
+    }
+
+    private static BufferedImage copy(BufferedImage image)
+    {
+        ColorModel colorModel = image.getColorModel();
+        return new BufferedImage(colorModel, image.copyData(null), colorModel.isAlphaPremultiplied(), null);
+    }
+
+    private static long estimateSize(BufferedImage image)
+    {
+        int bitsPerPixel = image.getColorModel().getPixelSize();
+        return (long) image.getWidth() * image.getHeight() * Math.max(bitsPerPixel, 8) / 8;
+    }
+
+    /**
+     * The key of a tile.
+     */
+    static final class TileKey
+    {
+        private final long documentId;
+        private final int pageIndex;
+        private final float scale;
+        private final int tileX;
+        private final int tileY;
+        private final int tileSize;
+        private final ImageType imageType;
+        private final RenderDestination destination;
+
+        private TileKey(long documentId, int pageIndex, float scale, int tileX, int tileY, int tileSize,
+                ImageType imageType, RenderDestination destination)
+        {
+            this.documentId = documentId;
+            this.pageIndex = pageIndex;
+            this.scale = scale;
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.tileSize = tileSize;
+            this.imageType = imageType;
+            this.destination = destination;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof TileKey))
+            {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return documentId == other.documentId && pageIndex == other.pageIndex
+                    && Float.compare(scale, other.scale) == 0 && tileX == other.tileX
+                    && tileY == other.tileY && tileSize == other.tileSize
+                    && imageType == other.imageType && destination == other.destination;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = Long.hashCode(documentId);
+            result = 31 * result + pageIndex;
+            result = 31 * result + Float.floatToIntBits(scale);
+            result = 31 * result + tileX;
+            result = 31 * result + tileY;
+            result = 31 * result + tileSize;
+            result = 31 * result + imageType.hashCode();
+            result = 31 * result + destination.hashCode();
+            return result;
+        }
+    }
+}
@@ -83,6 +83,9 @@ class LegacyPDFStreamEngine extends PDFStreamEngine
     private PDRectangle pageSize;
     private Matrix translateMatrix;
     private static final GlyphList GLYPHLIST;
+
+    // Unicode strings of the character codes of simple fonts without Unicode mapping
+    private static final String[] SIMPLE_FONT_UNICODE = new String[256];
     private final Map<COSDictionary, Float> fontHeightMap = new WeakHashMap<>();
 
     static
@@ -98,6 +101,10 @@ class LegacyPDFStreamEngine extends PDFStreamEngine
         {
             throw new RuntimeException(ex);
         }
+        for (int code = 0; code < SIMPLE_FONT_UNICODE.length; code++)
+        {
+            SIMPLE_FONT_UNICODE[code] = String.valueOf((char) code);
+        }
     }
 
     /**
@@ -213,13 +220,19 @@ class LegacyPDFStreamEngine extends PDFStreamEngine
         float tx = displacementX * fontSize * horizontalScaling;
         float ty = displacement.getY() * fontSize;
 
-        // (modified) combined displacement matrix
-        Matrix td = Matrix.getTranslateInstance(tx, ty);
-
-        // (modified) text rendering matrix
-        Matrix nextTextRenderingMatrix = td.multiply(textMatrix).multiply(ctm); // text space -> device space
-        float nextX = nextTextRenderingMatrix.getTranslateX();
-        float nextY = nextTextRenderingMatrix.getTranslateY();
+        // (modified) translation of the text rendering matrix, i.e. the translation of
+        // td * textMatrix * ctm where td is the combined displacement matrix. It is computed
+        // without creating these matrices as this method is called for every glyph.
+        float textX = tx * textMatrix.getScaleX() + ty * textMatrix.getShearX()
+                + textMatrix.getTranslateX();
+        float textY = tx * textMatrix.getShearY() + ty * textMatrix.getScaleY()
+                + textMatrix.getTranslateY();
+        float nextX = textX * ctm.getScaleX() + textY * ctm.getShearX() + ctm.getTranslateX();
+        float nextY = textX * ctm.getShearY() + textY * ctm.getScaleY() + ctm.getTranslateY();
+        if (!Float.isFinite(nextX) || !Float.isFinite(nextY))
+        {
+            throw new IllegalArgumentException("Multiplying two matrices produces illegal values");
+        }
 
         // (modified) width and height calculations
         float dxDisplay = nextX - textRenderingMatrix.getTranslateX();
@@ -283,7 +296,7 @@ class LegacyPDFStreamEngine extends PDFStreamEngine
             if (font instanceof PDSimpleFont)
             {
                 char c = (char) code;
-                unicode = new String(new char[] { c });
+                unicode = c < SIMPLE_FONT_UNICODE.length ? SIMPLE_FONT_UNICODE[c] : String.valueOf(c);
             }
             else
             {
@@ -28,6 +28,7 @@ import java.text.Bidi;
 import java.text.Normalizer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
@@ -35,11 +36,8 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.SortedSet;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
@@ -49,6 +47,7 @@ import org.apache.pdfbox.contentstream.operator.markedcontent.BeginMarkedContent
 import org.apache.pdfbox.contentstream.operator.markedcontent.EndMarkedContentSequence;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageTree;
@@ -57,6 +56,7 @@ import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDMarkedConte
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
 import org.apache.pdfbox.pdmodel.interactive.pagenavigation.PDThreadBead;
 import org.apache.pdfbox.util.IterativeMergeSort;
+import org.apache.pdfbox.util.ParallelUtil;
 
 /**
  * This class will take a pdf document and strip out all of the text and ignore the formatting and such. Please note; it
@@ -181,7 +181,7 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
      */
     protected ArrayList<List<TextPosition>> charactersByArticle = new ArrayList<>();
 
-    private final Map<String, TreeMap<Float, TreeSet<Float>>> characterListMapping = new HashMap<>();
+    private final Map<String, CharacterPositions> characterListMapping = new HashMap<>();
 
     protected PDDocument document;
     protected Writer output;
@@ -191,6 +191,12 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
      */
     private boolean inParagraph;
 
+    /**
+     * The consumer of the page text if the text is extracted page by page, null otherwise.
+     */
+    private PageTextConsumer pageTextConsumer;
+    private StringWriter pageTextOutput;
+
     /**
      * Instantiate a new PDFTextStripper object.
      */
@@ -238,6 +244,176 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
      * @throws IOException If the doc is in an invalid state.
      */
     public void writeText(PDDocument doc, Writer outputStream) throws IOException
+    {
+        prepareOutput(doc, outputStream);
+        startDocument(document);
+        processPages(document.getPages());
+        endDocument(document);
+    }
+
+    /**
+     * This will extract the text of a document page by page. The text of each page is passed to the given consumer
+     * as soon as the page is processed, instead of collecting the text of the whole document. Afterwards the text
+     * positions and the cached resources of the page are released, so that the memory used doesn't depend on the
+     * number of pages. Pages without content or outside of the page range are skipped.
+     *
+     * <p>Text written by {@link #startDocument(PDDocument)} is passed to the consumer together with the text of the
+     * first page, text written by {@link #endDocument(PDDocument)} is dropped.</p>
+     *
+     * @param doc The document to get the text from.
+     * @param consumer The consumer of the page text.
+     * @throws IOException If the doc is in an invalid state or the consumer failed.
+     */
+    public void extractText(PDDocument doc, PageTextConsumer consumer) throws IOException
+    {
+        pageTextOutput = new StringWriter();
+        prepareOutput(doc, pageTextOutput);
+        pageTextConsumer = consumer;
+        try
+        {
+            startDocument(document);
+            processPages(document.getPages());
+            endDocument(document);
+        }
+        finally
+        {
+            pageTextConsumer = null;
+            pageTextOutput = null;
+        }
+    }
+
+    /**
+     * This will extract the text of a document page by page using several threads. The text of the pages is passed
+     * to the given consumer in page order on the calling thread. The number of pages held in memory at the same time
+     * is limited to twice the given parallelism.
+     *
+     * <p>Each thread uses its own text stripper created by the given factory, so that all the strippers should be
+     * configured the same way. {@link #startDocument(PDDocument)} and {@link #endDocument(PDDocument)} aren't called.
+     * The COS objects and the resource cache of the document are shared by the threads. The pages are only processed
+     * in parallel if the document was loaded with the concurrent object resolution of
+     * {@link org.apache.pdfbox.pdfparser.COSParser} enabled, see
+     * {@link org.apache.pdfbox.pdfparser.COSParser#SYSPROP_CONCURRENT_OBJECT_RESOLUTION}, and if its resource cache
+     * is thread safe like {@link org.apache.pdfbox.pdmodel.BoundedResourceCache} or null. Otherwise, e.g. with the
+     * {@link DefaultResourceCache} which is used by default, the pages are processed one after the other by the
+     * calling thread.</p>
+     *
+     * @param doc The document to get the text from.
+     * @param stripperFactory The factory for the text strippers used by the threads.
+     * @param parallelism The number of threads.
+     * @param consumer The consumer of the page text.
+     * @throws IOException If the doc is in an invalid state or the consumer failed.
+     * @throws IllegalArgumentException If the parallelism is invalid.
+     */
+    public static void extractText(PDDocument doc, Supplier<? extends PDFTextStripper> stripperFactory,
+            int parallelism, PageTextConsumer consumer) throws IOException
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        PDPageTree pages = doc.getPages();
+        int pageCount = pages.getCount();
+        if (parallelism > 1 && !isParallelExtractionSupported(doc))
+        {
+            parallelism = 1;
+        }
+        if (parallelism == 1)
+        {
+            PDFTextStripper stripper = createPageStripper(doc, stripperFactory, pages);
+            for (int pageNo = 1; pageNo <= pageCount; pageNo++)
+            {
+                PageText pageText = stripper.extractPageText(pages.get(pageNo - 1), pageNo);
+                if (pageText != null)
+                {
+                    consumer.accept(pageNo, pageText.text, pageText.charactersByArticle);
+                }
+            }
+            return;
+        }
+        ThreadLocal<PDFTextStripper> strippers = new ThreadLocal<>();
+        ParallelUtil.forEachOrdered("PDFTextStripper", parallelism, pageCount, index ->
+        {
+            // the page tree is only read by the calling thread
+            PDPage page = pages.get(index);
+            return () ->
+            {
+                PDFTextStripper stripper = strippers.get();
+                if (stripper == null)
+                {
+                    stripper = createPageStripper(doc, stripperFactory, pages);
+                    strippers.set(stripper);
+                }
+                return stripper.extractPageText(page, index + 1);
+            };
+        }, (index, pageText) ->
+        {
+            if (pageText != null)
+            {
+                consumer.accept(index + 1, pageText.text, pageText.charactersByArticle);
+            }
+        }, null);
+    }
+
+    // the COS objects and the resources of the document are shared by the threads
+    private static boolean isParallelExtractionSupported(PDDocument doc)
+    {
+        if (!doc.getDocument().isConcurrentDereferencingSupported())
+        {
+            LOG.warn("The document doesn't support concurrent object resolution, "
+                    + "the pages are processed by the calling thread");
+            return false;
+        }
+        if (doc.getResourceCache() instanceof DefaultResourceCache)
+        {
+            LOG.warn("The resource cache of the document isn't thread safe, "
+                    + "the pages are processed by the calling thread");
+            return false;
+        }
+        return true;
+    }
+
+    private static PDFTextStripper createPageStripper(PDDocument doc,
+            Supplier<? extends PDFTextStripper> stripperFactory, PDPageTree pages) throws IOException
+    {
+        PDFTextStripper stripper = stripperFactory.get();
+        stripper.pageTextOutput = new StringWriter();
+        stripper.prepareOutput(doc, stripper.pageTextOutput);
+        stripper.initBookmarkPageNumbers(pages);
+        return stripper;
+    }
+
+    /**
+     * Extracts the text of a single page, used by the threads of the parallel extraction.
+     *
+     * @return the text of the page or null if the page was skipped
+     */
+    private PageText extractPageText(PDPage page, int pageNumber) throws IOException
+    {
+        if (!page.hasContents())
+        {
+            return null;
+        }
+        PageText[] result = new PageText[1];
+        currentPageNo = pageNumber;
+        pageTextConsumer = (number, text, articles) ->
+        {
+            // copy the lists, they are reused for the next page
+            List<List<TextPosition>> copy = new ArrayList<>(articles.size());
+            articles.forEach(article -> copy.add(new ArrayList<>(article)));
+            result[0] = new PageText(text, copy);
+        };
+        try
+        {
+            processPage(page);
+        }
+        finally
+        {
+            pageTextConsumer = null;
+        }
+        return result[0];
+    }
+
+    private void prepareOutput(PDDocument doc, Writer outputStream)
     {
         resetEngine();
         document = doc;
@@ -249,9 +425,6 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
             articleStart = lineSeparator;
             articleEnd = lineSeparator;
         }
-        startDocument(document);
-        processPages(document.getPages());
-        endDocument(document);
     }
 
     /**
@@ -262,6 +435,20 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
      * @throws IOException If there is an error parsing the text.
      */
     protected void processPages(PDPageTree pages) throws IOException
+    {
+        initBookmarkPageNumbers(pages);
+
+        for (PDPage page : pages)
+        {
+            if (page.hasContents())
+            {
+                processPage(page);
+            }
+            currentPageNo++;
+        }
+    }
+
+    private void initBookmarkPageNumbers(PDPageTree pages) throws IOException
     {
         PDPage startBookmarkPage = startBookmark == null ? null
                 : startBookmark.findDestinationPage(document);
@@ -297,15 +484,6 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
             startBookmarkPageNumber = 0;
             endBookmarkPageNumber = 0;
         }
-
-        for (PDPage page : pages)
-        {
-            if (page.hasContents())
-            {
-                processPage(page);
-            }
-            currentPageNo++;
-        }
     }
 
     /**
@@ -381,9 +559,26 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
             writePage();
             endPage(page);
             page.removePageResourceFromCache();
+            if (pageTextConsumer != null)
+            {
+                writePageText();
+            }
         }
     }
 
+    /**
+     * Passes the text of the current page to the page text consumer and releases the text positions of the page.
+     */
+    private void writePageText() throws IOException
+    {
+        StringBuffer buffer = pageTextOutput.getBuffer();
+        String text = buffer.toString();
+        buffer.setLength(0);
+        pageTextConsumer.accept(currentPageNo, text, charactersByArticle);
+        charactersByArticle.forEach(List::clear);
+        characterListMapping.clear();
+    }
+
     private void fillBeadRectangles(PDPage page)
     {
         beadRectangles = new ArrayList<>();
@@ -917,8 +1112,8 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
             String textCharacter = text.getUnicode();
             float textX = text.getX();
             float textY = text.getY();
-            TreeMap<Float, TreeSet<Float>> sameTextCharacters = characterListMapping
-                    .computeIfAbsent(textCharacter, k -> new TreeMap<>());
+            CharacterPositions sameTextCharacters = characterListMapping
+                    .computeIfAbsent(textCharacter, k -> new CharacterPositions());
             // RDD - Here we compute the value that represents the end of the rendered
             // text. This value is used to determine whether subsequent text rendered
             // on the same line overwrites the current text.
@@ -929,24 +1124,12 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
             // the TJ just backs up to compensate after each character). Also, we subtract
             // an amount to allow for kerning (a percentage of the width of the last
             // character).
-            boolean suppressCharacter = false;
             float tolerance = text.getWidth() / textCharacter.length() / 3.0f;
 
-            SortedMap<Float, TreeSet<Float>> xMatches = sameTextCharacters.subMap(textX - tolerance,
-                    textX + tolerance);
-            for (TreeSet<Float> xMatch : xMatches.values())
-            {
-                SortedSet<Float> yMatches = xMatch.subSet(textY - tolerance, textY + tolerance);
-                if (!yMatches.isEmpty())
-                {
-                    suppressCharacter = true;
-                    break;
-                }
-            }
-            if (!suppressCharacter)
+            if (!sameTextCharacters.contains(textX - tolerance, textX + tolerance,
+                    textY - tolerance, textY + tolerance))
             {
-                TreeSet<Float> ySet = sameTextCharacters.computeIfAbsent(textX, k -> new TreeSet<>());
-                ySet.add(textY);
+                sameTextCharacters.add(textX, textY);
                 showCharacter = true;
             }
         }
@@ -2296,4 +2479,125 @@ public class PDFTextStripper extends LegacyPDFStreamEngine
             this.isHangingIndent = true;
         }
     }
+
+    /**
+     * The text of a page extracted by a thread of the parallel extraction.
+     */
+    private static final class PageText
+    {
+        private final String text;
+        private final List<List<TextPosition>> charactersByArticle;
+
+        private PageText(String text, List<List<TextPosition>> charactersByArticle)
+        {
+            this.text = text;
+            this.charactersByArticle = charactersByArticle;
+        }
+    }
+
+    /**
+     * The positions of the characters showing the same text on the current page, used to suppress duplicate
+     * overlapping text. The positions are kept in primitive arrays, so that no objects are created for each character.
+     * The arrays form levels of 1, 2, 4, ... positions sorted by the x coordinate, which are used like the digits of
+     * a binary counter: a new position is merged with the full levels below the first empty one into that one. This
+     * takes logarithmic amortized time per position, where inserting into a single sorted array would take linear
+     * time.
+     */
+    private static final class CharacterPositions
+    {
+        private float[][] xs = new float[8][];
+        private float[][] ys = new float[8][];
+        // level i is full if bit i is set
+        private int size = 0;
+
+        /**
+         * Returns true if there is a position with fromX &lt;= x &lt; toX and fromY &lt;= y &lt; toY.
+         */
+        boolean contains(float fromX, float toX, float fromY, float toY)
+        {
+            for (int level = 0; level < xs.length && (size >>> level) != 0; level++)
+            {
+                if ((size & (1 << level)) == 0)
+                {
+                    continue;
+                }
+                float[] levelXs = xs[level];
+                float[] levelYs = ys[level];
+                for (int i = indexOf(levelXs, fromX); i < levelXs.length
+                        && Float.compare(levelXs[i], toX) < 0; i++)
+                {
+                    if (Float.compare(levelYs[i], fromY) >= 0 && Float.compare(levelYs[i], toY) < 0)
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void add(float x, float y)
+        {
+            int target = Integer.numberOfTrailingZeros(~size);
+            if (target == xs.length)
+            {
+                xs = Arrays.copyOf(xs, target * 2);
+                ys = Arrays.copyOf(ys, target * 2);
+            }
+            if (xs[target] == null)
+            {
+                xs[target] = new float[1 << target];
+                ys[target] = new float[1 << target];
+            }
+            float[] targetXs = xs[target];
+            float[] targetYs = ys[target];
+            targetXs[0] = x;
+            targetYs[0] = y;
+            int count = 1;
+            for (int level = 0; level < target; level++)
+            {
+                // merge from the end, the target has room for both
+                float[] levelXs = xs[level];
+                float[] levelYs = ys[level];
+                int i = count - 1;
+                int j = levelXs.length - 1;
+                for (int k = count + levelXs.length - 1; j >= 0; k--)
+                {
+                    if (i >= 0 && Float.compare(targetXs[i], levelXs[j]) > 0)
+                    {
+                        targetXs[k] = targetXs[i];
+                        targetYs[k] = targetYs[i--];
+                    }
+                    else
+                    {
+                        targetXs[k] = levelXs[j];
+                        targetYs[k] = levelYs[j--];
+                    }
+                }
+                count += levelXs.length;
+            }
+            size++;
+        }
+
+        /**
+         * Returns the index of the first position with an x coordinate not less than the given one.
+         */
+        private static int indexOf(float[] sortedXs, float x)
+        {
+            int low = 0;
+            int high = sortedXs.length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (Float.compare(sortedXs[mid], x) < 0)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the text of the pages extracted by
+ * {@link PDFTextStripper#extractText(org.apache.pdfbox.pdmodel.PDDocument, PageTextConsumer)} or
+ * {@link PDFTextStripper#extractText(org.apache.pdfbox.pdmodel.PDDocument, java.util.function.Supplier, int,
+ * PageTextConsumer)}.
+ */
+@FunctionalInterface
+public interface PageTextConsumer
+{
+    /**
+     * Called for each page with text, in page order.
+     *
+     * @param pageNumber the 1-based number of the page
+     * @param text the text of the page, including the page start and page end separators
+     * @param charactersByArticle the text positions of the page grouped by article, see
+     * {@link PDFTextStripper#getCharactersByArticle()}. When extracting sequentially, the lists are reused for the
+     * next page and must not be kept after this method returns.
+     * @throws IOException if the text could not be processed
+     */
+    void accept(int pageNumber, String text, List<List<TextPosition>> charactersByArticle) throws IOException;
+}
@@ -53,6 +53,7 @@ public final class TextPosition
     private final float pageWidth;
 
     private final float widthOfSpace; // width of a space, in display units
+    private final float individualWidth; // width of the initial character, in display units
 
     private final int[] charCodes; // internal PDF character codes
     private final PDFont font;
@@ -60,7 +61,7 @@ public final class TextPosition
     private final int fontSizePt;
 
     // mutable
-    private float[] widths;
+    private float[] widths; // created on demand, most text positions consist of a single character
     private String unicode;
     private float direction = -1;
 
@@ -98,7 +99,7 @@ public final class TextPosition
         this.pageHeight = pageHeight;
         this.pageWidth = pageWidth;
 
-        this.widths = new float[] { individualWidth };
+        this.individualWidth = individualWidth;
         this.widthOfSpace = spaceWidth;
         this.unicode = unicode;
         this.charCodes = charCodes;
@@ -555,6 +556,15 @@ public final class TextPosition
      */
     public float[] getIndividualWidths()
     {
+        return getWidths();
+    }
+
+    private float[] getWidths()
+    {
+        if (widths == null)
+        {
+            widths = new float[] { individualWidth };
+        }
         return widths;
     }
 
@@ -672,22 +682,23 @@ public final class TextPosition
         }
 
         float diacXStart = diacritic.getXDirAdj();
-        float diacXEnd = diacXStart + diacritic.widths[0];
+        float diacXEnd = diacXStart + diacritic.getWidths()[0];
 
         float currCharXStart = getXDirAdj();
 
+        float[] charWidths = getWidths();
         int strLen = unicode.length();
         boolean wasAdded = false;
 
         for (int i = 0; i < strLen && !wasAdded; i++)
         {
-            if (i >= widths.length)
+            if (i >= charWidths.length)
             {
                 LOG.info("diacritic " + diacritic.getUnicode() + " on ligature " + unicode + 
                         " is not supported yet and is ignored (PDFBOX-2831)");
                 break;
             }
-            float currCharXEnd = currCharXStart + widths[i];
+            float currCharXEnd = currCharXStart + charWidths[i];
 
              // this is the case where there is an overlap of the diacritic character with the
              // current character and the previous character. If no previous character, just append
@@ -701,10 +712,10 @@ public final class TextPosition
                 else
                 {
                     float distanceOverlapping1 = diacXEnd - currCharXStart;
-                    float percentage1 = distanceOverlapping1/widths[i];
+                    float percentage1 = distanceOverlapping1/charWidths[i];
 
                     float distanceOverlapping2 = currCharXStart - diacXStart;
-                    float percentage2 = distanceOverlapping2/widths[i - 1];
+                    float percentage2 = distanceOverlapping2/charWidths[i - 1];
 
                     if (percentage1 >= percentage2)
                     {
@@ -739,7 +750,7 @@ public final class TextPosition
             }
 
             // couldn't find anything useful so we go to the next character in the TextPosition
-            currCharXStart += widths[i];
+            currCharXStart += charWidths[i];
         }
     }
 
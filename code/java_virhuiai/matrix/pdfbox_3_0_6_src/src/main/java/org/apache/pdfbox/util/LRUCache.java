@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe cache which limits the total weight of its values, e.g. their estimated size in bytes or simply their
+ * number. The least recently used values are evicted first if the limit is exceeded. The cache keeps track of hits,
+ * misses and evictions.
+ *
+ * <p>
+ * This is the common implementation of the bounded caches of PDFBox and isn't meant to be used by applications.
+ * <code>null</code> is not supported for keys or values.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class LRUCache<K, V>
+{
+    private final Map<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToLongFunction<? super V> weigher;
+    private long maxWeight;
+    private long weight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Creates a cache with the given maximum weight.
+     *
+     * @param maxWeight the maximum total weight of all values, 0 disables caching
+     * @param weigher returns the weight of a value, which must not change while the value is cached
+     * @throws IllegalArgumentException if the maximum weight is negative
+     */
+    public LRUCache(long maxWeight, ToLongFunction<? super V> weigher)
+    {
+        checkMaxWeight(maxWeight);
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value of the given key and marks it as the most recently used one.
+     *
+     * @param key the key
+     * @return the cached value or null if there isn't any
+     */
+    public synchronized V get(K key)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry == null)
+        {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    /**
+     * Adds the given value to the cache and evicts the least recently used values if the maximum weight is
+     * exceeded afterwards. A value which is heavier than the maximum weight is evicted immediately.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(K key, V value)
+    {
+        // weigh the value outside of the lock
+        Entry<V> entry = new Entry<>(value, weigher.applyAsLong(value));
+        synchronized (this)
+        {
+            if (maxWeight == 0)
+            {
+                return;
+            }
+            Entry<V> previous = entries.put(key, entry);
+            if (previous != null)
+            {
+                weight -= previous.weight;
+            }
+            weight += entry.weight;
+            evict();
+        }
+    }
+
+    /**
+     * Removes the value of the given key.
+     *
+     * @param key the key
+     * @return the removed value or null if there wasn't any
+     */
+    public synchronized V remove(K key)
+    {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null)
+        {
+            return null;
+        }
+        weight -= entry.weight;
+        return entry.value;
+    }
+
+    /**
+     * Removes the values of all keys matching the given filter.
+     *
+     * @param filter the filter of the keys to be removed
+     */
+    public synchronized void removeIf(Predicate<? super K> filter)
+    {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (filter.test(entry.getKey()))
+            {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all values. The statistics are kept.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the maximum total weight of all values.
+     *
+     * @return the maximum weight
+     */
+    public synchronized long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    /**
+     * Sets the maximum total weight of all values. The least recently used values are evicted if the cache is
+     * heavier.
+     *
+     * @param maxWeight the maximum weight, 0 disables caching
+     * @throws IllegalArgumentException if the maximum weight is negative
+     */
+    public synchronized void setMaxWeight(long maxWeight)
+    {
+        checkMaxWeight(maxWeight);
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the cache.
+     *
+     * @return the statistics
+     */
+    public synchronized Statistics getStatistics()
+    {
+        return new Statistics(hitCount, missCount, evictionCount, entries.size(), weight);
+    }
+
+    @Override
+    public String toString()
+    {
+        return getStatistics().toString();
+    }
+
+    private void evict()
+    {
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext())
+        {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    private static void checkMaxWeight(long maxWeight)
+    {
+        if (maxWeight < 0)
+        {
+            throw new IllegalArgumentException("Invalid maximum weight " + maxWeight);
+        }
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final long weight;
+
+        private Entry(V value, long weight)
+        {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A snapshot of the statistics of a cache.
+     */
+    public static final class Statistics
+    {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final int size;
+        private final long weight;
+
+        private Statistics(long hitCount, long missCount, long evictionCount, int size, long weight)
+        {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        /**
+         * Returns the number of lookups which returned a cached value.
+         *
+         * @return the number of hits
+         */
+        public long getHitCount()
+        {
+            return hitCount;
+        }
+
+        /**
+         * Returns the number of lookups which didn't find a cached value.
+         *
+         * @return the number of misses
+         */
+        public long getMissCount()
+        {
+            return missCount;
+        }
+
+        /**
+         * Returns the number of values which were evicted to keep the weight of the cache within its limit.
+         *
+         * @return the number of evictions
+         */
+        public long getEvictionCount()
+        {
+            return evictionCount;
+        }
+
+        /**
+         * Returns the number of cached values.
+         *
+         * @return the number of cached values
+         */
+        public int getSize()
+        {
+            return size;
+        }
+
+        /**
+         * Returns the total weight of the cached values.
+         *
+         * @return the weight
+         */
+        public long getWeight()
+        {
+            return weight;
+        }
+
+        /**
+         * Returns the ratio of hits to all lookups.
+         *
+         * @return the hit rate, 0 if there wasn't any lookup so far
+         */
+        public double getHitRate()
+        {
+            long lookups = hitCount + missCount;
+            return lookups == 0 ? 0 : (double) hitCount / lookups;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Statistics{hits=" + hitCount + ", misses=" + missCount + ", evictions="
+                    + evictionCount + ", size=" + size + ", weight=" + weight + "}";
+        }
+    }
+}
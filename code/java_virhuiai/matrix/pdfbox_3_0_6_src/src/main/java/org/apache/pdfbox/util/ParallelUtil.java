@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Runs the tasks of the parallel operations of PDFBox, e.g. the parallel rendering of pages or the parallel encoding
+ * of object streams, on pools of daemon threads.
+ *
+ * <p>
+ * This is an internal class which is shared by several packages and isn't meant to be used by applications.
+ * </p>
+ */
+public final class ParallelUtil
+{
+    private static final Log LOG = LogFactory.getLog(ParallelUtil.class);
+
+    /**
+     * Creates the task of an index.
+     *
+     * @param <T> the type of the result of the task
+     */
+    @FunctionalInterface
+    public interface TaskFactory<T>
+    {
+        /**
+         * Creates the task of the given index. This is called by the calling thread in the order of the indices, so
+         * that it may access objects which aren't thread safe.
+         *
+         * @param index the zero-based index of the task
+         * @return the task to be run by a thread of the pool
+         * @throws IOException if the task could not be created
+         */
+        Callable<T> create(int index) throws IOException;
+    }
+
+    /**
+     * Consumes the result of a task.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface ResultConsumer<T>
+    {
+        /**
+         * Consumes the result of the task of the given index. This is called by the calling thread in the order of
+         * the indices.
+         *
+         * @param index the zero-based index of the task
+         * @param result the result of the task
+         * @throws IOException if the result could not be consumed
+         */
+        void accept(int index, T result) throws IOException;
+    }
+
+    private ParallelUtil()
+    {
+    }
+
+    /**
+     * Creates a thread pool with the given number of daemon threads.
+     *
+     * @param name the name of the threads
+     * @param parallelism the number of threads
+     * @return the thread pool, which has to be shut down by the caller
+     */
+    public static ExecutorService newThreadPool(String name, int parallelism)
+    {
+        return Executors.newFixedThreadPool(parallelism, runnable ->
+        {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Waits for the result of the given task. The exception thrown by the task is rethrown as it is if it is an
+     * IOException or an unchecked exception, and wrapped in an IOException otherwise.
+     *
+     * @param <T> the type of the result
+     * @param future the future of the task
+     * @return the result of the task
+     * @throws IOException if the task failed or the calling thread was interrupted
+     */
+    public static <T> T getResult(Future<T> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a parallel task");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Runs the given number of tasks on a new pool of daemon threads and passes their results to the given consumer
+     * in the order of the tasks. Tasks are created ahead of their consumption as long as fewer than twice the
+     * parallelism of them are pending, i.e. the tasks pause if the consumer is slower than the pool.
+     *
+     * <p>
+     * If a task or the consumer fails, the pending tasks which didn't start yet are skipped, and the running ones are
+     * waited for, so that no task is running anymore when this method returns. The results of the running and the
+     * completed pending tasks are passed to the discarder.
+     * </p>
+     *
+     * @param <T> the type of the results
+     * @param name the name of the threads
+     * @param parallelism the number of threads
+     * @param count the number of tasks
+     * @param factory creates the tasks on the calling thread
+     * @param consumer consumes the results on the calling thread
+     * @param discarder is called with the results of tasks which weren't consumed because of a failure, e.g. to close
+     * them, may be null
+     * @throws IOException if a task failed, the consumer failed or the calling thread was interrupted
+     */
+    public static <T> void forEachOrdered(String name, int parallelism, int count, TaskFactory<T> factory,
+            ResultConsumer<? super T> consumer, Consumer<? super T> discarder) throws IOException
+    {
+        ExecutorService executor = newThreadPool(name, parallelism);
+        // set when the remaining tasks shall be skipped
+        AtomicBoolean aborted = new AtomicBoolean();
+        int maxPendingTasks = 2 * parallelism;
+        Deque<Future<T>> pendingTasks = new ArrayDeque<>(maxPendingTasks);
+        try
+        {
+            int nextIndex = 0;
+            for (int index = 0; index < count; index++)
+            {
+                while (nextIndex < count && pendingTasks.size() < maxPendingTasks)
+                {
+                    Callable<T> task = factory.create(nextIndex);
+                    pendingTasks.add(executor.submit(() -> aborted.get() ? null : task.call()));
+                    nextIndex++;
+                }
+                consumer.accept(index, getResult(pendingTasks.poll()));
+            }
+        }
+        finally
+        {
+            // a cancelled future doesn't return the result of a running task, so the tasks aren't cancelled
+            aborted.set(true);
+            for (Future<T> future : pendingTasks)
+            {
+                discard(future, discarder);
+            }
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the given pending task, even if the calling thread is interrupted, and passes its result to the
+     * discarder.
+     */
+    private static <T> void discard(Future<T> future, Consumer<? super T> discarder)
+    {
+        boolean interrupted = false;
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    T result = future.get();
+                    if (discarder != null && result != null)
+                    {
+                        discarder.accept(result);
+                    }
+                    return;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException | RuntimeException e)
+        {
+            LOG.debug("Ignored failure of a pending task", e);
+        }
+        finally
+        {
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
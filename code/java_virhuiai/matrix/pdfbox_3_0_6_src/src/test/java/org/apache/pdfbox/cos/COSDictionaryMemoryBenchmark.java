@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+
+/**
+ * Measures the heap retained by the dictionaries of loaded documents, which store their items in a
+ * {@link CompactLinkedMap}, and the heap they retain after their items have been moved to a {@link LinkedHashMap},
+ * the storage used before. This isn't run as part of the build.
+ *
+ * <p>
+ * Usage: COSDictionaryMemoryBenchmark [file.pdf or directory] ...
+ * </p>
+ * <p>
+ * The PDF files below src/test/resources are measured by default. If there are none, a document with a link
+ * annotation and an action on each of its pages is created and measured instead.
+ * </p>
+ */
+public final class COSDictionaryMemoryBenchmark
+{
+    private COSDictionaryMemoryBenchmark()
+    {
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        List<Path> files = findDocuments(args.length > 0 ? args : new String[] { "src/test/resources" });
+        List<PDDocument> documents = new ArrayList<>();
+        try
+        {
+            long before = usedMemory();
+            if (files.isEmpty())
+            {
+                System.out.println("No PDF files found, measuring a created document with 20000 link annotations");
+                documents.add(Loader.loadPDF(createDocument(20000)));
+            }
+            for (Path file : files)
+            {
+                try
+                {
+                    documents.add(Loader.loadPDF(file.toFile()));
+                }
+                catch (IOException e)
+                {
+                    System.out.println("Skipping " + file + ": " + e.getMessage());
+                }
+            }
+            Set<COSDictionary> dictionaries = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (PDDocument document : documents)
+            {
+                dereference(document.getDocument().getTrailer(), dictionaries);
+            }
+            long compact = usedMemory() - before;
+
+            for (COSDictionary dictionary : dictionaries)
+            {
+                dictionary.items = new LinkedHashMap<>(dictionary.items);
+            }
+            long linked = usedMemory() - before;
+
+            System.out.printf("%d documents, %d dictionaries: LinkedHashMap %.1f MB, CompactLinkedMap %.1f MB, "
+                    + "%.1f MB saved%n", documents.size(), dictionaries.size(), linked / 1e6, compact / 1e6,
+                    (linked - compact) / 1e6);
+        }
+        finally
+        {
+            for (PDDocument document : documents)
+            {
+                document.close();
+            }
+        }
+    }
+
+    private static List<Path> findDocuments(String[] args) throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args)
+        {
+            Path path = Paths.get(arg);
+            if (!Files.isDirectory(path))
+            {
+                files.add(path);
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(path))
+            {
+                files.addAll(paths.filter(p -> p.getFileName().toString().toLowerCase().endsWith(".pdf"))
+                        .sorted().collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Creates a document whose pages have a link annotation with an action, i.e. several small dictionaries.
+     */
+    private static byte[] createDocument(int pageCount) throws IOException
+    {
+        try (PDDocument document = TestDocumentUtil.createDocument(pageCount, (doc, page, i) ->
+        {
+            PDActionURI action = new PDActionURI();
+            action.setURI("https://example.com/" + i);
+            PDAnnotationLink link = new PDAnnotationLink();
+            link.setRectangle(new PDRectangle(10, 10, 100, 20));
+            link.setAction(action);
+            page.getAnnotations().add(link);
+        }))
+        {
+            return TestDocumentUtil.save(document);
+        }
+    }
+
+    /**
+     * Dereferences all objects reachable from the given trailer and adds the dictionaries to the given set.
+     */
+    private static void dereference(COSDictionary trailer, Set<COSDictionary> dictionaries)
+    {
+        Deque<COSBase> pending = new ArrayDeque<>();
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.push(trailer);
+        while (!pending.isEmpty())
+        {
+            COSBase base = pending.pop();
+            if (base instanceof COSObject)
+            {
+                base = ((COSObject) base).getObject();
+            }
+            if (base == null || !visited.add(base))
+            {
+                continue;
+            }
+            if (base instanceof COSDictionary)
+            {
+                dictionaries.add((COSDictionary) base);
+                pending.addAll(((COSDictionary) base).getValues());
+            }
+            else if (base instanceof COSArray)
+            {
+                for (COSBase element : (COSArray) base)
+                {
+                    pending.push(element);
+                }
+            }
+        }
+    }
+
+    private static long usedMemory()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
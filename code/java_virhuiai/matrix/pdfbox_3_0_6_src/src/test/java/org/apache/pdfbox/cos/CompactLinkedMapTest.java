@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+class CompactLinkedMapTest
+{
+    @Test
+    void testInsertionOrderAcrossPromotion()
+    {
+        CompactLinkedMap<String, Integer> map = new CompactLinkedMap<>();
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++)
+        {
+            // keys which aren't sorted
+            String key = "k" + (i * 7 % 20);
+            assertNull(map.put(key, i));
+            expected.put(key, i);
+            assertEquals(expected, map);
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+            assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        }
+        assertEquals(0, map.put("k0", 100).intValue());
+        expected.put("k0", 100);
+        assertEquals(20, map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    void testRemove()
+    {
+        CompactLinkedMap<String, Integer> map = create(5);
+        assertEquals(2, map.remove("k2").intValue());
+        assertNull(map.remove("k2"));
+        assertNull(map.remove("missing"));
+        assertEquals(4, map.size());
+        assertFalse(map.containsKey("k2"));
+        assertTrue(map.containsValue(4));
+        assertFalse(map.containsValue(2));
+        assertEquals(keys(0, 1, 3, 4), new ArrayList<>(map.keySet()));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.put("a", 1));
+        assertEquals(1, map.get("a").intValue());
+    }
+
+    @Test
+    void testNullKeysAndValues()
+    {
+        CompactLinkedMap<String, Integer> map = new CompactLinkedMap<>();
+        map.put(null, 1);
+        map.put("a", null);
+        assertTrue(map.containsKey(null));
+        assertTrue(map.containsKey("a"));
+        assertTrue(map.containsValue(null));
+        assertEquals(1, map.get(null).intValue());
+        assertNull(map.get("a"));
+    }
+
+    @Test
+    void testIteratorRemove()
+    {
+        CompactLinkedMap<String, Integer> map = create(6);
+        Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        while (iterator.hasNext())
+        {
+            if (iterator.next().getValue() % 2 == 0)
+            {
+                iterator.remove();
+            }
+        }
+        assertThrows(NoSuchElementException.class, iterator::next);
+        assertEquals(keys(1, 3, 5), new ArrayList<>(map.keySet()));
+
+        map.values().removeIf(value -> value == 3);
+        map.keySet().remove("k1");
+        assertEquals(keys(5), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    void testEntrySetValue()
+    {
+        CompactLinkedMap<String, Integer> map = create(3);
+        for (Map.Entry<String, Integer> entry : map.entrySet())
+        {
+            entry.setValue(entry.getValue() * 10);
+        }
+        assertEquals(20, map.get("k2").intValue());
+
+        Map.Entry<String, Integer> entry = map.entrySet().iterator().next();
+        map.remove("k0");
+        map.put("k0", 5);
+        // the entry finds its value after it was moved
+        assertEquals(5, entry.getValue().intValue());
+    }
+
+    @Test
+    void testModificationDuringIteration()
+    {
+        CompactLinkedMap<String, Integer> map = create(3);
+        Iterator<String> iterator = map.keySet().iterator();
+        iterator.next();
+        map.put("new", 3);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+
+        assertThrows(ConcurrentModificationException.class, () -> map.forEach((key, value) -> map.remove(key)));
+    }
+
+    @Test
+    void testPromotionDuringIteration()
+    {
+        CompactLinkedMap<String, Integer> map = create(CompactLinkedMap.MAX_ARRAY_SIZE);
+        Iterator<Integer> iterator = map.values().iterator();
+        iterator.next();
+        map.put("new", 0);
+        // the iterator mustn't end silently because the array is gone
+        assertThrows(ConcurrentModificationException.class, iterator::hasNext);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+
+        // iterators created after the promotion iterate over the hash map
+        List<Integer> values = new ArrayList<>(map.values());
+        assertEquals(CompactLinkedMap.MAX_ARRAY_SIZE + 1, values.size());
+    }
+
+    @Test
+    void testPutAll()
+    {
+        CompactLinkedMap<String, Integer> map = create(2);
+        map.putAll(create(4));
+        assertEquals(keys(0, 1, 2, 3), new ArrayList<>(map.keySet()));
+        map.putAll(create(CompactLinkedMap.MAX_ARRAY_SIZE + 2));
+        assertEquals(CompactLinkedMap.MAX_ARRAY_SIZE + 2, map.size());
+        assertEquals(create(CompactLinkedMap.MAX_ARRAY_SIZE + 2), map);
+    }
+
+    private static CompactLinkedMap<String, Integer> create(int size)
+    {
+        CompactLinkedMap<String, Integer> map = new CompactLinkedMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            map.put("k" + i, i);
+        }
+        return map;
+    }
+
+    private static List<String> keys(int... indices)
+    {
+        List<String> keys = new ArrayList<>();
+        for (int index : indices)
+        {
+            keys.add("k" + index);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.junit.jupiter.api.Test;
+
+class PackedNumberListTest
+{
+    private static final COSName NUMBERS = COSName.getPDFName("Numbers");
+
+    // numbers, some of which aren't written as they were read if they are formatted from their float value
+    private static final String[] REALS = { "1.23456789", ".5", "-0.250", "3.0", "0.1", "100", "-7",
+            "12345.678", "2147483647", "0.000001" };
+
+    @Test
+    void testValues() throws IOException
+    {
+        COSArray array = createArray(REALS);
+        assertTrue(array.compactNumbers());
+        assertTrue(array.isCompact());
+        assertEquals(REALS.length, array.size());
+        float[] floats = array.toFloatArray();
+        int[] ints = array.toIntArray();
+        for (int i = 0; i < REALS.length; i++)
+        {
+            assertEquals(Float.parseFloat(REALS[i]), floats[i]);
+            assertEquals((int) Float.parseFloat(REALS[i]), ints[i]);
+            assertEquals(ints[i], array.getInt(i));
+        }
+        assertInstanceOf(COSInteger.class, array.get(5));
+        assertInstanceOf(COSFloat.class, array.get(3));
+        // the created numbers are kept
+        assertSame(array.get(0), array.get(0));
+    }
+
+    @Test
+    void testSourceTextIsKept() throws IOException
+    {
+        COSArray array = createArray(REALS);
+        assertTrue(array.compactNumbers());
+        assertEquals(join(REALS), write(array));
+        // the numbers returned by the iterator aren't kept
+        List<String> texts = new ArrayList<>();
+        for (COSBase base : array)
+        {
+            texts.add(writeNumber(base));
+        }
+        assertArrayEquals(REALS, texts.toArray());
+    }
+
+    @Test
+    void testRemove() throws IOException
+    {
+        COSArray array = createArray(REALS);
+        assertTrue(array.compactNumbers());
+        // removal by the iterator keeps the array compact
+        Iterator<COSBase> iterator = array.iterator();
+        iterator.next();
+        iterator.next();
+        iterator.remove();
+        assertTrue(array.isCompact());
+        assertEquals("1.23456789 -0.250 3.0 0.1 100 -7 12345.678 2147483647 0.000001", write(array));
+        array.remove(1);
+        assertEquals("1.23456789 3.0 0.1 100 -7 12345.678 2147483647 0.000001", write(array));
+
+        // adding converts the array to a list of objects
+        array.add(new COSFloat("0.3333333333"));
+        assertFalse(array.isCompact());
+        assertEquals("1.23456789 3.0 0.1 100 -7 12345.678 2147483647 0.000001 0.3333333333", write(array));
+    }
+
+    @Test
+    void testConcurrentGet() throws Exception
+    {
+        int threadCount = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try
+        {
+            for (int run = 0; run < 20; run++)
+            {
+                COSArray array = new COSArray();
+                for (int i = 0; i < 1000; i++)
+                {
+                    array.add(new COSFloat(i + 0.5f));
+                }
+                assertTrue(array.compactNumbers());
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<COSBase[]>> results = new ArrayList<>();
+                for (int t = 0; t < threadCount; t++)
+                {
+                    results.add(executor.submit(() ->
+                    {
+                        start.await();
+                        COSBase[] numbers = new COSBase[array.size()];
+                        for (int i = 0; i < numbers.length; i++)
+                        {
+                            numbers[i] = array.get(i);
+                        }
+                        return numbers;
+                    }));
+                }
+                start.countDown();
+                // all threads get the same object for an element
+                COSBase[] expected = results.get(0).get();
+                for (Future<COSBase[]> result : results)
+                {
+                    COSBase[] numbers = result.get();
+                    for (int i = 0; i < numbers.length; i++)
+                    {
+                        assertSame(expected[i], numbers[i]);
+                        assertSame(expected[i], array.get(i));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testOtherObjectsAreNotPacked() throws IOException
+    {
+        COSArray array = createArray(REALS);
+        array.add(COSName.A);
+        assertFalse(array.compactNumbers());
+        // an integer which doesn't fit into an int
+        array = createArray(REALS);
+        array.add(COSInteger.get(1L << 40));
+        assertFalse(array.compactNumbers());
+    }
+
+    @Test
+    void testLoadAndSave() throws IOException
+    {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument())
+        {
+            PDPage page = new PDPage();
+            page.getCOSObject().setItem(NUMBERS, createArray(REALS));
+            document.addPage(page);
+            pdf = save(document);
+        }
+        for (int i = 0; i < 2; i++)
+        {
+            try (PDDocument document = Loader.loadPDF(pdf))
+            {
+                COSArray array = document.getPage(0).getCOSObject().getCOSArray(NUMBERS);
+                assertTrue(array.isCompact());
+                pdf = save(document);
+            }
+            assertTrue(new String(pdf, StandardCharsets.ISO_8859_1).contains("[" + join(REALS) + "]"));
+        }
+    }
+
+    private static COSArray createArray(String[] numbers) throws IOException
+    {
+        COSArray array = new COSArray();
+        for (String number : numbers)
+        {
+            array.add(COSNumber.get(number));
+        }
+        return array;
+    }
+
+    private static String write(COSArray array) throws IOException
+    {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < array.size(); i++)
+        {
+            texts.add(writeNumber(array.get(i)));
+        }
+        return String.join(" ", texts);
+    }
+
+    private static String writeNumber(COSBase base) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (base instanceof COSFloat)
+        {
+            ((COSFloat) base).writePDF(output);
+        }
+        else
+        {
+            ((COSInteger) base).writePDF(output);
+        }
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static String join(String[] numbers)
+    {
+        return String.join(" ", numbers);
+    }
+
+    private static byte[] save(PDDocument document) throws IOException
+    {
+        return TestDocumentUtil.save(document, CompressParameters.NO_COMPRESSION);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.multipdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the streaming split mode, which has to create the same documents as the regular split.
+ */
+class SplitterTest
+{
+    private static final int PAGE_COUNT = 60;
+
+    @Test
+    void testStreamingSplit() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(PAGE_COUNT);
+        List<String> expected = new ArrayList<>();
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            Splitter splitter = new Splitter();
+            splitter.setSplitAtPage(7);
+            for (PDDocument part : splitter.split(document))
+            {
+                try (PDDocument closedPart = part)
+                {
+                    expected.add(describe(TestDocumentUtil.save(closedPart)));
+                }
+            }
+        }
+        assertEquals(9, expected.size());
+
+        Splitter splitter = new Splitter();
+        splitter.setSplitAtPage(7);
+        assertEquals(expected, split(pdf, splitter, false));
+    }
+
+    @Test
+    void testStreamingSplitSharedResources() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(PAGE_COUNT);
+        List<String> expected = split(pdf, new Splitter(), false);
+        assertEquals(PAGE_COUNT, expected.size());
+        // the parts share the graphics state and the form of the source, which are written once per part
+        assertEquals(expected, split(pdf, new Splitter(), false));
+        assertEquals(expected, split(pdf, new Splitter(), true));
+    }
+
+    @Test
+    void testFailingOutputStream() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(10);
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            Splitter splitter = new Splitter();
+            IOException exception = assertThrows(IOException.class, () -> splitter.split(document, index ->
+            {
+                if (index == 3)
+                {
+                    throw new IOException("no output " + index);
+                }
+                return new ByteArrayOutputStream();
+            }));
+            assertEquals("no output 3", exception.getMessage());
+            // the source is still usable
+            assertEquals(10, document.getNumberOfPages());
+        }
+    }
+
+    /**
+     * Splits the given document in streaming mode and returns the descriptions of the parts.
+     */
+    private static List<String> split(byte[] pdf, Splitter splitter, boolean concurrent)
+            throws IOException
+    {
+        List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        parser.setConcurrentObjectResolution(concurrent);
+        try (PDDocument document = parser.parse())
+        {
+            int count = splitter.split(document, index ->
+            {
+                assertEquals(outputs.size(), index);
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                outputs.add(output);
+                return output;
+            });
+            assertEquals(outputs.size(), count);
+        }
+        List<String> descriptions = new ArrayList<>();
+        for (ByteArrayOutputStream output : outputs)
+        {
+            descriptions.add(describe(output.toByteArray()));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Describes the pages of the given document by their contents and the resources they use.
+     */
+    private static String describe(byte[] pdf) throws IOException
+    {
+        StringBuilder description = new StringBuilder();
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            for (PDPage page : document.getPages())
+            {
+                description.append(read(page.getContents())).append('|');
+                PDResources resources = page.getResources();
+                for (COSName name : resources.getExtGStateNames())
+                {
+                    description.append(name.getName()).append(' ')
+                            .append(resources.getExtGState(name).getLineWidth()).append('|');
+                }
+                for (COSName name : resources.getXObjectNames())
+                {
+                    PDFormXObject form = (PDFormXObject) resources.getXObject(name);
+                    description.append(name.getName()).append(' ')
+                            .append(read(form.getContents())).append('|');
+                }
+                description.append('\n');
+            }
+        }
+        assertTrue(description.length() > 0);
+        return description.toString();
+    }
+
+    private static String read(InputStream input) throws IOException
+    {
+        try (InputStream closedInput = input)
+        {
+            return new String(IOUtils.toByteArray(closedInput), StandardCharsets.US_ASCII);
+        }
+    }
+}
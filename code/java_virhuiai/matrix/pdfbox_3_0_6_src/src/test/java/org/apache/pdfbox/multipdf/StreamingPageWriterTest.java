@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.multipdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.junit.jupiter.api.Test;
+
+class StreamingPageWriterTest
+{
+    @Test
+    void testCrossReferenceTableAndTrailer() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingPageWriter writer = new StreamingPageWriter(out);
+        writer.writePages(Arrays.asList(createPage(1), createPage(2)));
+        writer.writePages(Collections.singletonList(createPage(3)));
+        COSDictionary info = new COSDictionary();
+        info.setString(COSName.TITLE, "Streaming");
+        writer.finish("1.6", info, null);
+        byte[] pdf = out.toByteArray();
+
+        int size = checkCrossReferenceTable(pdf);
+        String trailer = new String(pdf, StandardCharsets.ISO_8859_1);
+        trailer = trailer.substring(trailer.lastIndexOf("trailer"));
+        assertTrue(trailer.contains("/Size " + size));
+        assertTrue(trailer.contains("/Root 1 0 R"));
+
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            assertEquals(3, document.getNumberOfPages());
+            assertEquals("1.6", document.getDocumentCatalog().getVersion());
+            assertEquals("Streaming", document.getDocumentInformation().getTitle());
+            for (int i = 0; i < 3; i++)
+            {
+                COSDictionary page = document.getPage(i).getCOSObject();
+                assertEquals(i + 1, page.getInt(COSName.ROTATE) / 90);
+                assertSame(document.getPages().getCOSObject(), page.getCOSDictionary(COSName.PARENT));
+            }
+        }
+    }
+
+    @Test
+    void testOnlySharedDictionariesAreIndirect() throws IOException
+    {
+        COSDictionary sharedState = new COSDictionary();
+        sharedState.setItem(COSName.TYPE, COSName.EXT_G_STATE);
+        COSDictionary page1 = createPage(0);
+        COSDictionary page2 = createPage(0);
+        for (COSDictionary page : Arrays.asList(page1, page2))
+        {
+            COSDictionary states = new COSDictionary();
+            states.setItem(COSName.getPDFName("GS0"), sharedState);
+            page.getCOSDictionary(COSName.RESOURCES).setItem(COSName.EXT_G_STATE, states);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingPageWriter writer = new StreamingPageWriter(out);
+        writer.writePages(Arrays.asList(page1, page2));
+        writer.finish(null, null, null);
+        byte[] pdf = out.toByteArray();
+
+        // catalog, page tree, 2 pages, 2 content streams and the shared graphics state
+        assertEquals(7, checkCrossReferenceTable(pdf) - 1);
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            COSBase resources = document.getPage(0).getCOSObject().getItem(COSName.RESOURCES);
+            assertInstanceOf(COSDictionary.class, resources);
+            COSDictionary states1 = document.getPage(0).getResources().getCOSObject()
+                    .getCOSDictionary(COSName.EXT_G_STATE);
+            COSDictionary states2 = document.getPage(1).getResources().getCOSObject()
+                    .getCOSDictionary(COSName.EXT_G_STATE);
+            COSBase state1 = states1.getItem(COSName.getPDFName("GS0"));
+            COSBase state2 = states2.getItem(COSName.getPDFName("GS0"));
+            assertInstanceOf(COSObject.class, state1);
+            assertEquals(((COSObject) state1).getKey(), ((COSObject) state2).getKey());
+        }
+    }
+
+    @Test
+    void testCyclicReferences() throws IOException
+    {
+        COSDictionary page = createPage(0);
+        COSDictionary annotation = new COSDictionary();
+        annotation.setItem(COSName.TYPE, COSName.ANNOT);
+        annotation.setItem(COSName.P, page);
+        COSDictionary self = new COSDictionary();
+        self.setItem(COSName.getPDFName("Self"), self);
+        annotation.setItem(COSName.getPDFName("Loop"), self);
+        COSArray annotations = new COSArray();
+        annotations.add(annotation);
+        page.setItem(COSName.ANNOTS, annotations);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingPageWriter writer = new StreamingPageWriter(out);
+        writer.writePages(Collections.singletonList(page));
+        writer.finish(null, null, null);
+        byte[] pdf = out.toByteArray();
+        checkCrossReferenceTable(pdf);
+
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            COSDictionary loadedPage = document.getPage(0).getCOSObject();
+            COSDictionary loadedAnnotation = (COSDictionary) loadedPage.getCOSArray(COSName.ANNOTS)
+                    .getObject(0);
+            assertSame(loadedPage, loadedAnnotation.getCOSDictionary(COSName.P));
+            COSDictionary loadedSelf = loadedAnnotation.getCOSDictionary(COSName.getPDFName("Loop"));
+            assertSame(loadedSelf, loadedSelf.getCOSDictionary(COSName.getPDFName("Self")));
+        }
+    }
+
+    @Test
+    void testStreamingMerge() throws IOException
+    {
+        byte[] source = TestDocumentUtil.createLineDocument(3, CompressParameters.NO_COMPRESSION);
+        AtomicInteger streamCaches = new AtomicInteger();
+        StreamCacheCreateFunction streamCacheCreateFunction = () ->
+        {
+            streamCaches.incrementAndGet();
+            return IOUtils.createMemoryOnlyStreamCache().create();
+        };
+
+        PDFMergerUtility merger = new PDFMergerUtility();
+        merger.setDocumentMergeMode(PDFMergerUtility.DocumentMergeMode.STREAMING_MODE);
+        merger.addSource(new RandomAccessReadBuffer(source));
+        merger.addSource(new RandomAccessReadBuffer(source));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        merger.setDestinationStream(out);
+        PDDocumentInformation information = new PDDocumentInformation();
+        information.setTitle("Merged");
+        merger.setDestinationDocumentInformation(information);
+        merger.mergeDocuments(streamCacheCreateFunction);
+        byte[] pdf = out.toByteArray();
+        checkCrossReferenceTable(pdf);
+
+        // the sources are loaded using the stream cache as well
+        assertEquals(4, streamCaches.get());
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            assertEquals(6, document.getNumberOfPages());
+            assertEquals("Merged", document.getDocumentInformation().getTitle());
+            for (PDPage page : document.getPages())
+            {
+                COSBase resources = page.getCOSObject().getItem(COSName.RESOURCES);
+                assertInstanceOf(COSDictionary.class, resources);
+                assertTrue(page.getResources().getExtGStateNames().iterator().hasNext());
+            }
+        }
+    }
+
+    @Test
+    void testMissingDestination()
+    {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        merger.setDocumentMergeMode(PDFMergerUtility.DocumentMergeMode.STREAMING_MODE);
+        merger.addSource(new RandomAccessReadBuffer(new byte[0]));
+        assertThrows(IllegalStateException.class, () -> merger.mergeDocuments(null));
+    }
+
+    /**
+     * Checks that every entry of the cross reference table points to its object and returns the size of the table.
+     */
+    private static int checkCrossReferenceTable(byte[] pdf)
+    {
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        String startxref = text.substring(text.lastIndexOf("startxref") + "startxref".length()).trim();
+        int xrefOffset = Integer.parseInt(startxref.substring(0, startxref.indexOf('\n')).trim());
+        assertTrue(text.startsWith("xref", xrefOffset));
+
+        String[] lines = text.substring(xrefOffset).split("\r?\n|\r");
+        String[] subsection = lines[1].trim().split(" ");
+        assertEquals("0", subsection[0]);
+        int size = Integer.parseInt(subsection[1]);
+        assertEquals("0000000000 65535 f", lines[2].trim());
+        for (int number = 1; number < size; number++)
+        {
+            String entry = lines[number + 2].trim();
+            assertTrue(entry.endsWith(" 00000 n"), entry);
+            int offset = Integer.parseInt(entry.substring(0, 10));
+            assertTrue(text.startsWith(number + " 0 obj", offset), "wrong offset of object " + number);
+        }
+        assertNotEquals(-1, text.indexOf("trailer", xrefOffset));
+        return size;
+    }
+
+    private static COSDictionary createPage(int rotation) throws IOException
+    {
+        COSDictionary page = new COSDictionary();
+        page.setItem(COSName.TYPE, COSName.PAGE);
+        COSArray mediaBox = new COSArray();
+        for (int value : new int[] { 0, 0, 612, 792 })
+        {
+            mediaBox.add(COSInteger.get(value));
+        }
+        page.setItem(COSName.MEDIA_BOX, mediaBox);
+        page.setInt(COSName.ROTATE, rotation * 90);
+        page.setItem(COSName.RESOURCES, new COSDictionary());
+        COSStream contents = new COSStream();
+        try (OutputStream output = contents.createOutputStream())
+        {
+            output.write("0 0 m 100 100 l S".getBytes(StandardCharsets.US_ASCII));
+        }
+        page.setItem(COSName.CONTENTS, contents);
+        return page;
+    }
+}
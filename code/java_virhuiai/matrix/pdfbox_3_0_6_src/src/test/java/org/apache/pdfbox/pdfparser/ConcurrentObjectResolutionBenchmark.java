@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+
+/**
+ * Compares the parsing of the content streams of a document page by page on several threads with the serial and the
+ * concurrent object resolution. This isn't run as part of the build.
+ *
+ * <p>
+ * Usage: ConcurrentObjectResolutionBenchmark [pages] [threads] [rounds]
+ * </p>
+ */
+public final class ConcurrentObjectResolutionBenchmark
+{
+    private ConcurrentObjectResolutionBenchmark()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int pageCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        byte[] pdf = TestDocumentUtil.createLineDocument(pageCount);
+        System.out.println(pageCount + " pages, " + pdf.length + " bytes, " + threadCount
+                + " threads");
+        for (int round = 0; round < rounds; round++)
+        {
+            long serial = parseContents(pdf, false, threadCount);
+            long concurrent = parseContents(pdf, true, threadCount);
+            System.out.printf("round %d: serial resolution %d ms, concurrent resolution %d ms%n",
+                    round, serial, concurrent);
+        }
+    }
+
+    private static long parseContents(byte[] pdf, boolean concurrent, int threadCount)
+            throws Exception
+    {
+        long start = System.nanoTime();
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        parser.setConcurrentObjectResolution(concurrent);
+        try (PDDocument document = parser.parse())
+        {
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try
+            {
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int page = 1; page <= document.getNumberOfPages(); page++)
+                {
+                    int pageNumber = page;
+                    results.add(executor.submit(() -> parseContents(document, pageNumber)));
+                }
+                for (Future<Integer> result : results)
+                {
+                    result.get();
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    private static int parseContents(PDDocument document, int pageNumber) throws IOException
+    {
+        PDFStreamParser parser = new PDFStreamParser(document.getPage(pageNumber - 1));
+        return parser.parse().size();
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadView;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the concurrent resolution of indirect objects.
+ */
+class ConcurrentObjectResolutionTest
+{
+    private static final int PAGE_COUNT = 60;
+    private static final int THREAD_COUNT = 4;
+
+    @Test
+    void testConcurrentDereferencing() throws Exception
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(PAGE_COUNT);
+        byte[][] expected;
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            expected = readContents(document);
+        }
+
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        parser.setConcurrentObjectResolution(true);
+        try (PDDocument document = parser.parse())
+        {
+            assertTrue(parser.isConcurrentObjectResolution());
+            assertTrue(document.getDocument().isConcurrentDereferencingSupported());
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+            try
+            {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<byte[][]>> results = new ArrayList<>();
+                for (int i = 0; i < THREAD_COUNT; i++)
+                {
+                    results.add(executor.submit(() ->
+                    {
+                        start.await();
+                        return readContents(document);
+                    }));
+                }
+                start.countDown();
+                for (Future<byte[][]> result : results)
+                {
+                    byte[][] actual = result.get();
+                    for (int i = 0; i < expected.length; i++)
+                    {
+                        assertArrayEquals(expected[i], actual[i], "page " + i);
+                    }
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void testResolversAreClosedWithTheDocument() throws Exception
+    {
+        TrackingSource source = new TrackingSource(TestDocumentUtil.createLineDocument(PAGE_COUNT));
+        PDFParser parser = new PDFParser(source);
+        parser.setConcurrentObjectResolution(true);
+        PDDocument document = parser.parse();
+        // the threads of the pool outlive the document
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try
+        {
+            List<Future<byte[][]>> results = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++)
+            {
+                results.add(executor.submit(() -> readContents(document)));
+            }
+            for (Future<byte[][]> result : results)
+            {
+                assertEquals(PAGE_COUNT, result.get().length);
+            }
+            assertTrue(source.createdViews.get() > 0);
+            assertEquals(0, source.closedViews.get());
+
+            document.close();
+            assertEquals(source.createdViews.get(), source.closedViews.get());
+            assertTrue(parser.isConcurrentObjectResolution());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testViewsOfAllThreadsAreClosed() throws Exception
+    {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) i;
+        }
+        List<RandomAccessReadView> createdViews = new ArrayList<>();
+        RandomAccessReadBuffer source = new RandomAccessReadBuffer(data)
+        {
+            @Override
+            public RandomAccessReadView createView(long startPosition, long streamLength)
+                    throws IOException
+            {
+                RandomAccessReadView view = super.createView(startPosition, streamLength);
+                synchronized (createdViews)
+                {
+                    createdViews.add(view);
+                }
+                return view;
+            }
+        };
+        ConcurrentRandomAccessReadView view = new ConcurrentRandomAccessReadView(source, 100, 500);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try
+        {
+            // every task waits for the others, so that each of them runs on its own thread
+            CountDownLatch running = new CountDownLatch(THREAD_COUNT);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++)
+            {
+                int offset = i * 10;
+                results.add(executor.submit(() ->
+                {
+                    running.countDown();
+                    running.await();
+                    view.seek(offset);
+                    return view.read();
+                }));
+            }
+            for (int i = 0; i < THREAD_COUNT; i++)
+            {
+                assertEquals(100 + i * 10, results.get(i).get());
+            }
+            // the views of the pool threads are closed by the calling thread
+            assertEquals(THREAD_COUNT, createdViews.size());
+            view.close();
+            for (RandomAccessReadView createdView : createdViews)
+            {
+                assertTrue(createdView.isClosed());
+            }
+            assertThrows(IOException.class, view::read);
+            assertEquals(THREAD_COUNT, createdViews.size());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSerialResolutionIsDefault() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(2, CompressParameters.NO_COMPRESSION);
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        assertFalse(parser.isConcurrentObjectResolution());
+        try (PDDocument document = parser.parse())
+        {
+            assertFalse(document.getDocument().isConcurrentDereferencingSupported());
+        }
+    }
+
+    @Test
+    void testModeCannotBeChangedAfterParsing() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(2, CompressParameters.NO_COMPRESSION);
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        try (PDDocument document = parser.parse())
+        {
+            assertThrows(IllegalArgumentException.class,
+                    () -> parser.setConcurrentObjectResolution(true));
+        }
+    }
+
+    /**
+     * A source which counts the views of the whole file, which are created for the per thread parsers, and the
+     * ones which were closed.
+     */
+    private static final class TrackingSource extends RandomAccessReadBuffer
+    {
+        private final AtomicInteger createdViews = new AtomicInteger();
+        private final AtomicInteger closedViews = new AtomicInteger();
+
+        private TrackingSource(byte[] input)
+        {
+            super(input);
+        }
+
+        @Override
+        public RandomAccessReadView createView(long startPosition, long streamLength) throws IOException
+        {
+            RandomAccessReadView view = super.createView(startPosition, streamLength);
+            if (startPosition > 0 || streamLength < length())
+            {
+                return view;
+            }
+            createdViews.incrementAndGet();
+            return new RandomAccessReadView(view, 0, streamLength, true)
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    if (!isClosed())
+                    {
+                        closedViews.incrementAndGet();
+                    }
+                    super.close();
+                }
+            };
+        }
+    }
+
+    private static byte[][] readContents(PDDocument document) throws IOException
+    {
+        byte[][] contents = new byte[document.getNumberOfPages()][];
+        for (int i = 0; i < contents.length; i++)
+        {
+            try (InputStream in = document.getPage(i).getContents())
+            {
+                contents[i] = IOUtils.toByteArray(in);
+            }
+        }
+        return contents;
+    }
+}
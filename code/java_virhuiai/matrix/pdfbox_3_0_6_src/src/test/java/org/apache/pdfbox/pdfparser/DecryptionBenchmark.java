@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * Compares the loading of encrypted documents and the reading of all their content streams with the serial and the
+ * parallel decryption of object streams. This isn't run as part of the build.
+ *
+ * <p>
+ * Usage: DecryptionBenchmark [pages] [rounds]
+ * </p>
+ */
+public final class DecryptionBenchmark
+{
+    private DecryptionBenchmark()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int pageCount = args.length > 0 ? Integer.parseInt(args[0]) : 1500;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        for (int keyLength : new int[] { 40, 128, 256 })
+        {
+            byte[] pdf = DecryptionTest.createDocument(pageCount, keyLength, true);
+            System.out.println(pageCount + " pages, " + keyLength + " bit key, " + pdf.length
+                    + " bytes");
+            for (int round = 0; round < rounds; round++)
+            {
+                long serial = readContents(pdf, false);
+                long parallel = readContents(pdf, true);
+                System.out.printf("round %d: serial decryption %d ms, parallel decryption %d ms%n",
+                        round, serial, parallel);
+            }
+        }
+    }
+
+    private static long readContents(byte[] pdf, boolean parallel) throws IOException
+    {
+        long start = System.nanoTime();
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf), "user");
+        parser.setParallelDecryption(parallel);
+        try (PDDocument document = parser.parse())
+        {
+            for (PDPage page : document.getPages())
+            {
+                try (InputStream in = page.getContents())
+                {
+                    IOUtils.toByteArray(in);
+                }
+            }
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+}
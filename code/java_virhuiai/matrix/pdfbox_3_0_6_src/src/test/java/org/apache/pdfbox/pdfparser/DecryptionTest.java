@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.SecurityHandler;
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the decryption of documents with the parallel decryption of object streams and with several threads
+ * dereferencing objects at the same time.
+ */
+class DecryptionTest
+{
+    private static final COSName LABEL = COSName.getPDFName("Label");
+    private static final String PASSWORD = "user";
+    private static final int PAGE_COUNT = 40;
+    private static final int THREAD_COUNT = 4;
+
+    @Test
+    void testParallelDecryption() throws IOException
+    {
+        for (int keyLength : new int[] { 40, 128, 256 })
+        {
+            byte[] pdf = createDocument(PAGE_COUNT, keyLength, true);
+            PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf), PASSWORD);
+            parser.setParallelDecryption(true);
+            parser.setDecryptionParallelism(THREAD_COUNT);
+            assertTrue(parser.isParallelDecryption());
+            assertEquals(THREAD_COUNT, parser.getDecryptionParallelism());
+            try (PDDocument document = parser.parse())
+            {
+                assertTrue(document.isEncrypted());
+                checkDocument(document, readContents(document));
+            }
+        }
+    }
+
+    @Test
+    void testParallelDecryptionIsDefault() throws IOException
+    {
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(createDocument(2, 128, true)),
+                PASSWORD);
+        assertFalse(parser.isParallelDecryption());
+        assertThrows(IllegalArgumentException.class, () -> parser.setDecryptionParallelism(0));
+        try (PDDocument document = parser.parse())
+        {
+            assertThrows(IllegalArgumentException.class, () -> parser.setParallelDecryption(true));
+            assertThrows(IllegalArgumentException.class, () -> parser.setDecryptionParallelism(2));
+            checkDocument(document, readContents(document));
+        }
+    }
+
+    @Test
+    void testConcurrentDecryption() throws Exception
+    {
+        for (int keyLength : new int[] { 40, 128, 256 })
+        {
+            for (boolean compress : new boolean[] { false, true })
+            {
+                byte[] pdf = createDocument(PAGE_COUNT, keyLength, compress);
+                PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf), PASSWORD);
+                parser.setConcurrentObjectResolution(true);
+                try (PDDocument document = parser.parse())
+                {
+                    readConcurrently(document);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentReadsOfDecryptedStream() throws Exception
+    {
+        byte[] pdf = createDocument(1, 128, false);
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf), PASSWORD);
+        parser.setConcurrentObjectResolution(true);
+        try (PDDocument document = parser.parse())
+        {
+            COSStream contents = document.getPage(0).getCOSObject().getCOSStream(COSName.CONTENTS);
+            String expected = createContents(0);
+            // the decrypted data is read from a buffer which is shared by the input streams of all threads
+            ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+            try
+            {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> results = new ArrayList<>();
+                for (int i = 0; i < THREAD_COUNT; i++)
+                {
+                    results.add(executor.submit(() ->
+                    {
+                        start.await();
+                        for (int n = 0; n < 5000; n++)
+                        {
+                            try (InputStream in = contents.createInputStream())
+                            {
+                                assertEquals(expected, readByteByByte(in));
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> result : results)
+                {
+                    result.get();
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void testObjectKeysClearedOnClose() throws IOException
+    {
+        for (int keyLength : new int[] { 40, 128 })
+        {
+            byte[] pdf = createDocument(PAGE_COUNT, keyLength, false);
+            SecurityHandler<?> handler;
+            try (PDDocument document = Loader.loadPDF(pdf, PASSWORD))
+            {
+                handler = document.getEncryption().getSecurityHandler();
+                String[] contents = readContents(document);
+                assertTrue(handler.getObjectKeyStatistics().getSize() > 0);
+
+                // the keys are calculated again and the ciphers are initialized anew after they were cleared
+                handler.clearKeys();
+                assertEquals(0, handler.getObjectKeyStatistics().getSize());
+                checkDocument(document, contents);
+                try (InputStream in = document.getPage(PAGE_COUNT - 1).getContents())
+                {
+                    assertEquals(createContents(PAGE_COUNT - 1),
+                            new String(IOUtils.toByteArray(in), StandardCharsets.US_ASCII));
+                }
+            }
+            assertEquals(0, handler.getObjectKeyStatistics().getSize());
+        }
+    }
+
+    private static String readByteByByte(InputStream in) throws IOException
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int b = in.read(); b != -1; b = in.read())
+        {
+            builder.append((char) b);
+        }
+        return builder.toString();
+    }
+
+    private static void readConcurrently(PDDocument document) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try
+        {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String[]>> results = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++)
+            {
+                results.add(executor.submit(() ->
+                {
+                    start.await();
+                    return readContents(document);
+                }));
+            }
+            start.countDown();
+            for (Future<String[]> result : results)
+            {
+                checkDocument(document, result.get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void checkDocument(PDDocument document, String[] contents)
+    {
+        assertEquals("Encrypted", document.getDocumentInformation().getTitle());
+        assertEquals(2 * document.getNumberOfPages(), contents.length);
+        for (int i = 0; i < contents.length / 2; i++)
+        {
+            assertEquals("page " + i, contents[2 * i]);
+            assertEquals(createContents(i), contents[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Reads the label and the content stream of every page.
+     */
+    private static String[] readContents(PDDocument document) throws IOException
+    {
+        String[] contents = new String[2 * document.getNumberOfPages()];
+        for (int i = 0; i < document.getNumberOfPages(); i++)
+        {
+            PDPage page = document.getPage(i);
+            contents[2 * i] = page.getCOSObject().getString(LABEL);
+            try (InputStream in = page.getContents())
+            {
+                contents[2 * i + 1] = new String(IOUtils.toByteArray(in), StandardCharsets.US_ASCII);
+            }
+        }
+        return contents;
+    }
+
+    private static String createContents(int pageIndex)
+    {
+        StringBuilder contents = new StringBuilder();
+        for (int line = 0; line < 20; line++)
+        {
+            contents.append(20 + pageIndex).append(' ').append(750 - line * 9).append(" m\n");
+            contents.append(300 + line).append(' ').append(750 - line * 9).append(" l\n");
+        }
+        return contents.append("S\n").toString();
+    }
+
+    /**
+     * Creates an encrypted document, using RC4 for a key length of 40 and AES otherwise.
+     */
+    static byte[] createDocument(int pageCount, int keyLength, boolean compress) throws IOException
+    {
+        try (PDDocument document = TestDocumentUtil.createDocument(pageCount, (doc, page, p) ->
+        {
+            page.getCOSObject().setString(LABEL, "page " + p);
+            byte[] contents = createContents(p).getBytes(StandardCharsets.US_ASCII);
+            page.setContents(new PDStream(doc, new ByteArrayInputStream(contents)));
+        }))
+        {
+            document.getDocumentInformation().setTitle("Encrypted");
+            StandardProtectionPolicy policy = new StandardProtectionPolicy("owner", PASSWORD,
+                    new AccessPermission());
+            policy.setEncryptionKeyLength(keyLength);
+            policy.setPreferAES(keyLength > 40);
+            document.protect(policy);
+            return TestDocumentUtil.save(document, compress ? CompressParameters.DEFAULT_COMPRESSION
+                    : CompressParameters.NO_COMPRESSION);
+        }
+    }
+}
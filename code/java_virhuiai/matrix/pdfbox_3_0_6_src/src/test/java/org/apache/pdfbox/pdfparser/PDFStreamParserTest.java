@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.OperandList;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the tokens of {@link PDFStreamParser#parseNextToken(OperandList)}, which keeps numbers as primitives and
+ * reads short operators without creating strings, with the ones of {@link PDFStreamParser#parseNextToken()}.
+ */
+class PDFStreamParserTest
+{
+    @Test
+    void testNumbers() throws IOException
+    {
+        assertSameTokens("1 -1 +1 0 -0 007 --1 --5.5 5. -5. .5 -.5 +.5 0.0 -0.0 1.5 -2.25 +3.75 S");
+        assertSameTokens("1.2.3 -1.2.3 1-2 1.5-2 12-.5 S");
+        // longer than a primitive number, more fraction digits than the powers of ten, tiny values
+        assertSameTokens("123456789012345 1234567890123456 123456789012345678901234 -99999999999999999999 S");
+        assertSameTokens("0.000000001 0.123456789012 1.00000000000000000001 0.0000000000000000000000000000000000000001 "
+                + "-0.0000000000000000000000000000000000000001 S");
+        // numbers followed directly by delimiters and operators
+        assertSameTokens("5[1 2]6(a)7<41>8/N 9%comment\n10 0 0 10 0 0cm 1 2Td 3 4TD 5d0 5 6 7 8 9 10d1 1.5re");
+        // isolated signs and dots
+        assertSameTokens("+ 1 . S");
+    }
+
+    @Test
+    void testShortOperators() throws IOException
+    {
+        assertSameTokens("q 1 0 0 1 0 0 cm BT /F1 12 Tf 1 2 Td 3 4 TD [(a) 1 (b)] TJ (c) Tj ET Q");
+        assertSameTokens("0 0 m 1 1 l h S f* B* b* W n W* n re");
+        // Type3 glyph descriptions, and operators which end with a 'd' followed by a digit
+        assertSameTokens("0 0 d0 1 0 0 0 1 1 d1 [] 0 d Td0 Td1 1 Td2 d2 d0.5 d10");
+        // operators which aren't registered and non-ASCII bytes
+        assertSameTokens("zz Z 1 zzz 2 ~~ é éé aé ' \" ");
+        assertSameTokens("Tdx dd q\rQ\tq\fQ");
+    }
+
+    @Test
+    void testSlowPathFallback() throws IOException
+    {
+        // tokens which are only parsed by parseNextToken()
+        assertSameTokens("true false null nullx trueish BT ET ] /Name <41> <</A 1>> [1 2] (s) %comment\n S");
+        assertSameTokens("BI /W 1 /H 1 /BPC 8 /CS /G ID \u0000 EI Q");
+        assertSameTokens("Tdf 1 BDC EMC Tc Tz TL");
+        assertSameTokens("");
+    }
+
+    @Test
+    void testShortOperatorsAreTheCachedOperators() throws IOException
+    {
+        List<Object> tokens = parseFast("q 1 2 Td d0 Td Q zz");
+        assertSame(Operator.getOperator("q"), tokens.get(0));
+        assertSame(Operator.getOperator("Td"), tokens.get(3));
+        assertSame(Operator.getOperator("d0"), tokens.get(4));
+        assertSame(tokens.get(3), tokens.get(5));
+        assertSame(Operator.getOperator("zz"), tokens.get(7));
+    }
+
+    @Test
+    void testOperatorIndex()
+    {
+        Operator unknown = Operator.getOperator("PDFStreamParserTestOperator");
+        assertSame(unknown, Operator.getOperator("PDFStreamParserTestOperator"));
+        assertTrue(unknown.getIndex() >= 0);
+        assertEquals(Operator.getOperator("Td").getIndex(), Operator.getOperator("Td").getIndex());
+        assertNotEquals(Operator.getOperator("Td").getIndex(), Operator.getOperator("TD").getIndex());
+        assertNotEquals(Operator.getOperator("Td").getIndex(), unknown.getIndex());
+        // the inline image operators aren't cached
+        assertEquals(-1, Operator.getOperator("BI").getIndex());
+        assertEquals(-1, Operator.getOperator("ID").getIndex());
+    }
+
+    @Test
+    void testOperatorDispatch() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            PDPage page = new PDPage();
+            PDStream contents = new PDStream(document);
+            try (OutputStream out = contents.createOutputStream())
+            {
+                out.write("q 1 2 Td zz 3 Q Td yy 4.5 Td\n".getBytes(StandardCharsets.ISO_8859_1));
+            }
+            page.setContents(contents);
+
+            RecordingEngine engine = new RecordingEngine();
+            engine.addOperator(new RecordingProcessor(engine, "Td", "first"));
+            engine.addOperator(new RecordingProcessor(engine, "q", "first"));
+            engine.processPage(page);
+            assertEquals(Arrays.asList("q first []", "Td first [1, 2]", "unsupported zz []",
+                    "unsupported Q [3]", "Td first []", "unsupported yy []", "Td first [4.5]"),
+                    engine.calls);
+
+            // the processors cached by the index of the operators are replaced
+            engine.calls.clear();
+            engine.addOperator(new RecordingProcessor(engine, "Td", "second"));
+            engine.addOperator(new RecordingProcessor(engine, "zz", "second"));
+            engine.processPage(page);
+            assertEquals(Arrays.asList("q first []", "Td second [1, 2]", "zz second []",
+                    "unsupported Q [3]", "Td second []", "unsupported yy []", "Td second [4.5]"),
+                    engine.calls);
+        }
+    }
+
+    private static void assertSameTokens(String contents) throws IOException
+    {
+        List<String> expected = new ArrayList<>();
+        PDFStreamParser parser = new PDFStreamParser(contents.getBytes(StandardCharsets.ISO_8859_1));
+        for (Object token = parser.parseNextToken(); token != null; token = parser.parseNextToken())
+        {
+            expected.add(describe(token));
+        }
+        List<String> actual = new ArrayList<>();
+        for (Object token : parseFast(contents))
+        {
+            actual.add(describe(token));
+        }
+        assertEquals(expected, actual, contents);
+    }
+
+    /**
+     * Parses the given contents like PDFStreamEngine and returns the operands and operators in their order.
+     */
+    private static List<Object> parseFast(String contents) throws IOException
+    {
+        List<Object> tokens = new ArrayList<>();
+        OperandList operands = new OperandList();
+        PDFStreamParser parser = new PDFStreamParser(contents.getBytes(StandardCharsets.ISO_8859_1));
+        for (Object token = parser.parseNextToken(operands); token != null; token = parser.parseNextToken(operands))
+        {
+            if (token instanceof Operator)
+            {
+                tokens.addAll(operands);
+                operands.clear();
+                tokens.add(token);
+            }
+            else
+            {
+                operands.add((COSBase) token);
+            }
+        }
+        tokens.addAll(operands);
+        return tokens;
+    }
+
+    private static String describe(Object token)
+    {
+        if (token instanceof COSInteger)
+        {
+            return "integer " + ((COSInteger) token).longValue();
+        }
+        if (token instanceof COSFloat)
+        {
+            // the exact bits, so that 0 and -0 differ
+            float value = ((COSFloat) token).floatValue();
+            return "float " + value + " " + Integer.toHexString(Float.floatToRawIntBits(value));
+        }
+        if (token instanceof Operator)
+        {
+            Operator operator = (Operator) token;
+            byte[] imageData = operator.getImageData();
+            return "operator " + operator.getName() + (imageData != null ? " " + Arrays.toString(imageData) : "");
+        }
+        return token.getClass().getSimpleName() + " " + token;
+    }
+
+    private static final class RecordingEngine extends PDFStreamEngine
+    {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        protected void unsupportedOperator(Operator operator, List<COSBase> operands)
+        {
+            calls.add("unsupported " + operator.getName() + " " + describeOperands(operands));
+        }
+    }
+
+    private static final class RecordingProcessor extends OperatorProcessor
+    {
+        private final String name;
+        private final String label;
+
+        private RecordingProcessor(RecordingEngine engine, String name, String label)
+        {
+            super(engine);
+            this.name = name;
+            this.label = label;
+        }
+
+        @Override
+        public void process(Operator operator, List<COSBase> operands)
+        {
+            ((RecordingEngine) getContext()).calls.add(name + " " + label + " " + describeOperands(operands));
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    private static String describeOperands(List<COSBase> operands)
+    {
+        List<String> values = new ArrayList<>();
+        for (COSBase operand : operands)
+        {
+            values.add(operand instanceof COSInteger ? String.valueOf(((COSInteger) operand).longValue())
+                    : String.valueOf(((COSFloat) operand).floatValue()));
+        }
+        return values.toString();
+    }
+}
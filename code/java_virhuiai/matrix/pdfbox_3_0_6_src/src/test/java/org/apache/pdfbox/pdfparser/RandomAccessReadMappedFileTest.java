@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadView;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RandomAccessReadMappedFileTest
+{
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadAcrossSegments() throws IOException
+    {
+        byte[] data = createData(100);
+        // segments of 16 bytes
+        try (RandomAccessReadMappedFile file = new RandomAccessReadMappedFile(write(data), 4))
+        {
+            assertEquals(100, file.length());
+            assertEquals(0, file.read());
+            byte[] buffer = new byte[40];
+            file.seek(10);
+            assertEquals(40, file.read(buffer, 0, 40));
+            assertArrayEquals(slice(data, 10, 40), buffer);
+            assertEquals(50, file.getPosition());
+
+            file.seek(90);
+            assertEquals(10, file.read(buffer, 0, 40));
+            assertTrue(file.isEOF());
+            assertEquals(-1, file.read());
+            assertEquals(-1, file.read(buffer, 0, 40));
+
+            // seeking beyond the end positions at the end
+            file.seek(1000);
+            assertEquals(100, file.getPosition());
+            assertThrows(IOException.class, () -> file.seek(-1));
+        }
+    }
+
+    @Test
+    void testEmptyFile() throws IOException
+    {
+        try (RandomAccessReadMappedFile file = new RandomAccessReadMappedFile(write(new byte[0])))
+        {
+            assertEquals(0, file.length());
+            assertTrue(file.isEOF());
+            assertEquals(-1, file.read());
+        }
+    }
+
+    @Test
+    void testViewOutlivesFile() throws IOException
+    {
+        byte[] data = createData(100);
+        RandomAccessReadMappedFile file = new RandomAccessReadMappedFile(write(data), 4);
+        RandomAccessReadView view = file.createView(20, 30);
+        file.close();
+        assertTrue(file.isClosed());
+        assertThrows(IOException.class, file::length);
+        assertThrows(IOException.class, () -> file.createView(0, 10));
+
+        // the mapping is kept until the last view is closed
+        assertFalse(view.isClosed());
+        byte[] buffer = new byte[30];
+        assertEquals(30, view.read(buffer, 0, 30));
+        assertArrayEquals(slice(data, 20, 30), buffer);
+        view.close();
+        assertTrue(view.isClosed());
+    }
+
+    @Test
+    void testConcurrentViews() throws Exception
+    {
+        byte[] data = createData(100000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (RandomAccessReadMappedFile file = new RandomAccessReadMappedFile(write(data), 12))
+        {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++)
+            {
+                RandomAccessReadView view = file.createView(i * 5000L, 5000);
+                futures.add(executor.submit(() ->
+                {
+                    try (RandomAccessReadView closedView = view)
+                    {
+                        byte[] buffer = new byte[5000];
+                        int offset = 0;
+                        while (offset < buffer.length)
+                        {
+                            offset += closedView.read(buffer, offset, buffer.length - offset);
+                        }
+                        return buffer;
+                    }
+                }));
+            }
+            for (int i = 0; i < 20; i++)
+            {
+                assertArrayEquals(slice(data, i * 5000, 5000), futures.get(i).get());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testLoaderUsesMappedFile() throws IOException
+    {
+        File pdf = write(TestDocumentUtil.createLineDocument(2)).toFile();
+        System.setProperty(Loader.SYSPROP_MEMORY_MAPPED_FILES, "true");
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            assertEquals(2, document.getNumberOfPages());
+            try (InputStream contents = document.getPage(1).getContents())
+            {
+                assertTrue(contents.read() != -1);
+            }
+        }
+        finally
+        {
+            System.clearProperty(Loader.SYSPROP_MEMORY_MAPPED_FILES);
+        }
+    }
+
+    private Path write(byte[] data) throws IOException
+    {
+        Path path = Files.createTempFile(tempDir, "mapped", ".bin");
+        Files.write(path, data);
+        return path;
+    }
+
+    private static byte[] createData(int length)
+    {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            data[i] = (byte) (i * 31 + i / 256);
+        }
+        return data;
+    }
+
+    private static byte[] slice(byte[] data, int offset, int length)
+    {
+        byte[] slice = new byte[length];
+        System.arraycopy(data, offset, slice, 0, length);
+        return slice;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XrefIndexCacheTest
+{
+    private static final COSName MARKER = COSName.getPDFName("XrefIndexTest");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIndexIsStoredAndUsed() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(5, CompressParameters.NO_COMPRESSION);
+        XrefIndexCache cache = new XrefIndexCache(tempDir.resolve("index"));
+        Map<COSObjectKey, Long> xrefTable;
+        try (PDDocument document = parse(pdf, cache))
+        {
+            xrefTable = new HashMap<>(document.getDocument().getXrefTable());
+        }
+        XrefIndexCache.Key key = createKey(pdf, -1);
+        XrefIndexCache.Entry entry = cache.load(key);
+        assertNotNull(entry);
+        assertEquals(xrefTable, entry.xrefTable);
+
+        // mark the cached trailer to see whether the index is used
+        markTrailer(entry);
+        cache.store(key, entry);
+        try (PDDocument document = parse(pdf, cache))
+        {
+            assertTrue(document.getDocument().getTrailer().getBoolean(MARKER, false));
+            assertEquals(5, document.getNumberOfPages());
+            assertPageContents(pdf, document);
+        }
+    }
+
+    @Test
+    void testKeyCoversContentAndModificationTime() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(5, CompressParameters.NO_COMPRESSION);
+        byte[] modified = pdf.clone();
+        // a modification in the middle which keeps the length
+        int middle = modified.length / 2;
+        modified[middle] = (byte) (modified[middle] == ' ' ? '\n' : ' ');
+
+        XrefIndexCache cache = new XrefIndexCache(tempDir);
+        cache.store(createKey(pdf, 1000), createEntry(pdf));
+        assertNotNull(cache.load(createKey(pdf, 1000)));
+        assertNull(cache.load(createKey(modified, 1000)));
+        assertNull(cache.load(createKey(pdf, 2000)));
+        assertNull(cache.load(createKey(pdf, -1)));
+    }
+
+    @Test
+    void testKeyOfBigFileReadsBoundedRegions() throws IOException
+    {
+        int length = 8 * 1024 * 1024;
+        int xrefOffset = 3 * 1024 * 1024;
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) ' ');
+        byte[] tail = ("startxref\n" + xrefOffset + "\n%%EOF\n").getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(tail, 0, data, length - tail.length, tail.length);
+
+        long[] readBytes = new long[1];
+        XrefIndexCache.Key key;
+        try (RandomAccessRead source = new RandomAccessReadBuffer(data)
+        {
+            @Override
+            public int read(byte[] b, int offset, int len) throws IOException
+            {
+                int read = super.read(b, offset, len);
+                readBytes[0] += Math.max(0, read);
+                return read;
+            }
+        })
+        {
+            key = XrefIndexCache.createKey(source, 1000);
+        }
+        assertTrue(readBytes[0] <= 3 * 65536, "read " + readBytes[0] + " bytes");
+
+        XrefIndexCache cache = new XrefIndexCache(tempDir);
+        cache.store(key, createEntry(TestDocumentUtil.createLineDocument(1, CompressParameters.NO_COMPRESSION)));
+        // the head, the tail and the region of the last xref section are part of the key
+        for (int offset : new int[] { 10, length - tail.length - 10, xrefOffset + 10 })
+        {
+            byte[] modified = data.clone();
+            modified[offset] = 'x';
+            assertNull(cache.load(createKey(modified, 1000)), "modification at " + offset);
+        }
+        // other modifications keeping length and modification time are caught by checking the offsets
+        byte[] modified = data.clone();
+        modified[length / 2] = 'x';
+        assertNotNull(cache.load(createKey(modified, 1000)));
+    }
+
+    @Test
+    void testStaleOffsetsAreRejected() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(5, CompressParameters.NO_COMPRESSION);
+        XrefIndexCache cache = new XrefIndexCache(tempDir);
+        XrefIndexCache.Entry entry = createEntry(pdf);
+        markTrailer(entry);
+        // e.g. objects which moved in a modified file
+        entry.xrefTable.replaceAll((objectKey, offset) -> offset > 0 ? offset + 2 : offset);
+        cache.store(createKey(pdf, -1), entry);
+
+        try (PDDocument document = parse(pdf, cache))
+        {
+            assertFalse(document.getDocument().getTrailer().getBoolean(MARKER, false));
+            assertEquals(5, document.getNumberOfPages());
+            assertPageContents(pdf, document);
+        }
+    }
+
+    @Test
+    void testInvalidIndexIsIgnored() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(2, CompressParameters.NO_COMPRESSION);
+        XrefIndexCache cache = new XrefIndexCache(tempDir);
+        XrefIndexCache.Key key = createKey(pdf, -1);
+        cache.store(key, createEntry(pdf));
+        try (Stream<Path> files = Files.list(tempDir))
+        {
+            Path indexFile = files.findFirst().get();
+            Files.write(indexFile, "garbage".getBytes(StandardCharsets.US_ASCII));
+        }
+        assertNull(cache.load(key));
+        try (PDDocument document = parse(pdf, cache))
+        {
+            assertEquals(2, document.getNumberOfPages());
+        }
+        // the index is replaced
+        assertNotNull(cache.load(key));
+    }
+
+    @Test
+    void testDamagedIndexIsIgnored() throws IOException
+    {
+        byte[] pdf = TestDocumentUtil.createLineDocument(2, CompressParameters.NO_COMPRESSION);
+        XrefIndexCache cache = new XrefIndexCache(tempDir);
+        XrefIndexCache.Key key = createKey(pdf, -1);
+        cache.store(key, createEntry(pdf));
+        Path indexFile;
+        try (Stream<Path> files = Files.list(tempDir))
+        {
+            indexFile = files.findFirst().get();
+        }
+        byte[] index = Files.readAllBytes(indexFile);
+        // the fixed fields and the digest are followed by the length of the trailer
+        int trailerLengthOffset = 4 + 4 + 8 + 8 + 32 + 8 + 8 + 1 + 1 + 1;
+        int trailerLength = ByteBuffer.wrap(index, trailerLengthOffset, 4).getInt();
+        int countOffset = trailerLengthOffset + 4 + trailerLength;
+
+        // a huge trailer length and number of offsets
+        for (int offset : new int[] { trailerLengthOffset, countOffset })
+        {
+            byte[] damaged = index.clone();
+            ByteBuffer.wrap(damaged, offset, 4).putInt(Integer.MAX_VALUE);
+            Files.write(indexFile, damaged);
+            assertNull(cache.load(key), "damaged at " + offset);
+        }
+        // a truncated index
+        for (int length : new int[] { 20, trailerLengthOffset + 2, countOffset + 2, index.length - 5 })
+        {
+            Files.write(indexFile, Arrays.copyOf(index, length));
+            assertNull(cache.load(key), "truncated to " + length);
+        }
+        Files.write(indexFile, index);
+        assertNotNull(cache.load(key));
+    }
+
+    private static PDDocument parse(byte[] pdf, XrefIndexCache cache) throws IOException
+    {
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        parser.setXrefIndexCache(cache);
+        return parser.parse();
+    }
+
+    private static XrefIndexCache.Key createKey(byte[] pdf, long lastModified) throws IOException
+    {
+        try (RandomAccessRead source = new RandomAccessReadBuffer(pdf))
+        {
+            return XrefIndexCache.createKey(source, lastModified);
+        }
+    }
+
+    // creates the index of the given pdf by parsing it without a cache
+    private static XrefIndexCache.Entry createEntry(byte[] pdf) throws IOException
+    {
+        try (PDDocument document = new PDFParser(new RandomAccessReadBuffer(pdf)).parse())
+        {
+            XrefIndexCache.Entry entry = new XrefIndexCache.Entry();
+            entry.startXref = document.getDocument().getStartXref();
+            entry.highestXRefObjectNumber = document.getDocument().getHighestXRefObjectNumber();
+            entry.trailer = XrefIndexCache.serializeTrailer(document.getDocument().getTrailer());
+            entry.xrefTable = new HashMap<>(document.getDocument().getXrefTable());
+            return entry;
+        }
+    }
+
+    private static void markTrailer(XrefIndexCache.Entry entry) throws IOException
+    {
+        try (RandomAccessRead source = new RandomAccessReadBuffer(entry.trailer))
+        {
+            COSDictionary trailer = new COSParser(source).parseCOSDictionary(true);
+            trailer.setBoolean(MARKER, true);
+            entry.trailer = XrefIndexCache.serializeTrailer(trailer);
+        }
+    }
+
+    private static void assertPageContents(byte[] pdf, PDDocument document) throws IOException
+    {
+        try (PDDocument expected = new PDFParser(new RandomAccessReadBuffer(pdf)).parse())
+        {
+            for (int i = 0; i < expected.getNumberOfPages(); i++)
+            {
+                try (InputStream expectedContents = expected.getPage(i).getContents();
+                     InputStream contents = document.getPage(i).getContents())
+                {
+                    assertArrayEquals(IOUtils.toByteArray(expectedContents), IOUtils.toByteArray(contents));
+                }
+            }
+        }
+    }
+}
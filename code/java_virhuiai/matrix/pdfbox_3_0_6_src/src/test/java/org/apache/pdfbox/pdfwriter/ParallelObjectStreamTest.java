@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfwriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that object streams which are encoded by several threads are written exactly like the ones of the single
+ * threaded writer.
+ */
+class ParallelObjectStreamTest
+{
+    private static final COSName OBJECT_STREAM = COSName.getPDFName("ObjStm");
+
+    @Test
+    void testDefaultObjectStreamSize() throws IOException
+    {
+        // more objects than fit into a single object stream of the default size
+        byte[] pdf = createDocument(300);
+        byte[] expected = save(pdf, new CompressParameters(CompressParameters.DEFAULT_OBJECT_STREAM_SIZE, 1));
+        assertTrue(countObjectStreams(expected) > 1);
+        for (int parallelism : new int[] { 2, 4 })
+        {
+            byte[] actual = save(pdf, new CompressParameters(CompressParameters.DEFAULT_OBJECT_STREAM_SIZE,
+                    parallelism));
+            assertArrayEquals(expected, actual, "parallelism " + parallelism);
+        }
+        // the parallelism is only a setting of the compression, the default is the single threaded one
+        assertArrayEquals(expected, save(pdf, CompressParameters.DEFAULT_COMPRESSION));
+        assertPages(expected, 300);
+    }
+
+    @Test
+    void testManySmallObjectStreams() throws IOException
+    {
+        byte[] pdf = createDocument(40);
+        byte[] expected = save(pdf, new CompressParameters(3, 1));
+        assertTrue(countObjectStreams(expected) > 10);
+        // more threads than object streams as well
+        for (int parallelism : new int[] { 3, 64 })
+        {
+            assertArrayEquals(expected, save(pdf, new CompressParameters(3, parallelism)),
+                    "parallelism " + parallelism);
+        }
+        assertPages(expected, 40);
+    }
+
+    private static void assertPages(byte[] pdf, int pageCount) throws IOException
+    {
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            assertEquals(pageCount, document.getNumberOfPages());
+            for (int i = 0; i < pageCount; i++)
+            {
+                PDAnnotationLink link = (PDAnnotationLink) document.getPage(i).getAnnotations().get(0);
+                assertEquals("https://example.com/" + i, ((PDActionURI) link.getAction()).getURI());
+            }
+        }
+    }
+
+    private static int countObjectStreams(byte[] pdf)
+    {
+        // the dictionaries of the object streams aren't compressed
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        String type = "/" + OBJECT_STREAM.getName();
+        int count = 0;
+        for (int i = text.indexOf(type); i >= 0; i = text.indexOf(type, i + 1))
+        {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Loads the given document and saves it with the given parameters. The ID of the document is kept, so that
+     * every save of the same document gives the same bytes.
+     */
+    private static byte[] save(byte[] pdf, CompressParameters parameters) throws IOException
+    {
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            return TestDocumentUtil.save(document, parameters);
+        }
+    }
+
+    /**
+     * Creates a document whose pages have a content stream and a link annotation with an action, so that there are
+     * several dictionaries per page which are written to object streams.
+     */
+    private static byte[] createDocument(int pageCount) throws IOException
+    {
+        try (PDDocument document = TestDocumentUtil.createDocument(pageCount, (doc, page, i) ->
+        {
+            COSStream contents = doc.getDocument().createCOSStream();
+            try (OutputStream output = contents.createOutputStream(COSName.FLATE_DECODE))
+            {
+                output.write(("BT 12 TL (" + i + ") Tj ET").getBytes(StandardCharsets.US_ASCII));
+            }
+            page.getCOSObject().setItem(COSName.CONTENTS, contents);
+
+            PDActionURI action = new PDActionURI();
+            action.setURI("https://example.com/" + i);
+            PDAnnotationLink link = new PDAnnotationLink();
+            link.setRectangle(new PDRectangle(10, 10, 100, 20));
+            link.setAction(action);
+            page.getAnnotations().add(link);
+        }))
+        {
+            document.setDocumentId(0L);
+            return TestDocumentUtil.save(document, CompressParameters.NO_COMPRESSION);
+        }
+    }
+}
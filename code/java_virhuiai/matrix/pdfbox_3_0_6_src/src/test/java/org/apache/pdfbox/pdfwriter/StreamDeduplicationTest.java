@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfwriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.junit.jupiter.api.Test;
+
+class StreamDeduplicationTest
+{
+    private static final String CONTENTS = "0 0 m 100 100 l S";
+
+    @Test
+    void testDuplicatesAreWrittenOnce() throws IOException
+    {
+        for (CompressParameters parameters : Arrays.asList(CompressParameters.DEFAULT_COMPRESSION,
+                CompressParameters.NO_COMPRESSION))
+        {
+            try (PDDocument document = Loader.loadPDF(createDocument(3)))
+            {
+                document.setStreamDeduplication(true);
+                byte[] pdf = TestDocumentUtil.save(document, parameters);
+                assertEquals(2L * CONTENTS.length(), document.getDeduplicatedBytes());
+                try (PDDocument saved = Loader.loadPDF(pdf))
+                {
+                    assertEquals(1, getContentsKeys(saved).size());
+                    assertPageContents(saved, 3);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testReferencesAreNotModified() throws IOException
+    {
+        try (PDDocument document = Loader.loadPDF(createDocument(3)))
+        {
+            List<COSObjectKey> keys = getContentsReferenceKeys(document);
+            document.setStreamDeduplication(true);
+            TestDocumentUtil.save(document, CompressParameters.DEFAULT_COMPRESSION);
+            // the keys of the references to the duplicates aren't replaced with the key of the written stream
+            assertEquals(keys, getContentsReferenceKeys(document));
+        }
+    }
+
+    @Test
+    void testSaveWithoutDeduplicationAfterwards() throws IOException
+    {
+        for (CompressParameters parameters : Arrays.asList(CompressParameters.DEFAULT_COMPRESSION,
+                CompressParameters.NO_COMPRESSION))
+        {
+            try (PDDocument document = Loader.loadPDF(createDocument(3)))
+            {
+                assertEquals(3, getContentsKeys(document).size());
+                document.setStreamDeduplication(true);
+                TestDocumentUtil.save(document, parameters);
+                assertEquals(3, getContentsKeys(document).size());
+
+                // a following save without deduplication writes every stream
+                document.setStreamDeduplication(false);
+                byte[] pdf = TestDocumentUtil.save(document, parameters);
+                assertEquals(0, document.getDeduplicatedBytes());
+                try (PDDocument saved = Loader.loadPDF(pdf))
+                {
+                    assertEquals(3, getContentsKeys(saved).size());
+                    assertPageContents(saved, 3);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDifferentDictionariesAreKept() throws IOException
+    {
+        try (PDDocument document = Loader.loadPDF(createDocument(2)))
+        {
+            // same data, but a different dictionary
+            COSStream contents = (COSStream) document.getPage(1).getCOSObject()
+                    .getDictionaryObject(COSName.CONTENTS);
+            contents.setName(COSName.getPDFName("Marker"), "Second");
+            document.setStreamDeduplication(true);
+            byte[] pdf = TestDocumentUtil.save(document, CompressParameters.DEFAULT_COMPRESSION);
+            assertEquals(0, document.getDeduplicatedBytes());
+            try (PDDocument saved = Loader.loadPDF(pdf))
+            {
+                assertEquals(2, getContentsKeys(saved).size());
+            }
+        }
+    }
+
+    private static List<COSObjectKey> getContentsReferenceKeys(PDDocument document)
+    {
+        List<COSObjectKey> keys = new ArrayList<>();
+        for (PDPage page : document.getPages())
+        {
+            COSBase contents = page.getCOSObject().getItem(COSName.CONTENTS);
+            assertInstanceOf(COSObject.class, contents);
+            keys.add(contents.getKey());
+        }
+        return keys;
+    }
+
+    private static Set<COSObjectKey> getContentsKeys(PDDocument document)
+    {
+        return new HashSet<>(getContentsReferenceKeys(document));
+    }
+
+    private static void assertPageContents(PDDocument document, int pageCount) throws IOException
+    {
+        assertEquals(pageCount, document.getNumberOfPages());
+        for (PDPage page : document.getPages())
+        {
+            try (InputStream contents = page.getContents())
+            {
+                assertEquals(CONTENTS, new String(IOUtils.toByteArray(contents), StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    /**
+     * Creates a document whose pages have content streams with the same data.
+     */
+    private static byte[] createDocument(int pageCount) throws IOException
+    {
+        try (PDDocument document = TestDocumentUtil.createDocument(pageCount, (doc, page, p) ->
+        {
+            COSStream contents = doc.getDocument().createCOSStream();
+            try (OutputStream output = contents.createRawOutputStream())
+            {
+                output.write(CONTENTS.getBytes(StandardCharsets.US_ASCII));
+            }
+            page.getCOSObject().setItem(COSName.CONTENTS, contents);
+        }))
+        {
+            return TestDocumentUtil.save(document, CompressParameters.NO_COMPRESSION);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.BoundedResourceCache.ResourceType;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.junit.jupiter.api.Test;
+
+class BoundedResourceCacheTest
+{
+    @Test
+    void testLimit()
+    {
+        BoundedResourceCache cache = new BoundedResourceCache(2);
+        COSObject[] objects = new COSObject[3];
+        PDExtendedGraphicsState[] states = new PDExtendedGraphicsState[3];
+        for (int i = 0; i < 3; i++)
+        {
+            objects[i] = new COSObject(new COSDictionary());
+            states[i] = new PDExtendedGraphicsState();
+            cache.put(objects[i], states[i]);
+        }
+        assertNull(cache.getExtGState(objects[0]));
+        assertSame(states[1], cache.getExtGState(objects[1]));
+        assertSame(states[2], cache.getExtGState(objects[2]));
+        // the limit applies to each type of resources
+        assertNull(cache.getFont(objects[1]));
+
+        assertEquals(2, cache.getStatistics(ResourceType.EXT_G_STATE).getHitCount());
+        assertEquals(1, cache.getStatistics(ResourceType.EXT_G_STATE).getMissCount());
+        assertEquals(1, cache.getStatistics(ResourceType.EXT_G_STATE).getEvictionCount());
+        assertEquals(2, cache.getStatistics(ResourceType.EXT_G_STATE).getSize());
+        assertEquals(1, cache.getStatistics(ResourceType.FONT).getMissCount());
+
+        cache.setMaxEntries(ResourceType.EXT_G_STATE, 1);
+        assertEquals(1, cache.getMaxEntries(ResourceType.EXT_G_STATE));
+        assertNull(cache.getExtGState(objects[1]));
+        assertSame(states[2], cache.getExtGState(objects[2]));
+    }
+
+    @Test
+    void testRemove()
+    {
+        BoundedResourceCache cache = new BoundedResourceCache();
+        COSObject object = new COSObject(new COSDictionary());
+        PDExtendedGraphicsState state = new PDExtendedGraphicsState();
+        cache.put(object, state);
+        assertSame(state, cache.removeExtState(object));
+        assertNull(cache.getExtGState(object));
+
+        cache.put(object, state);
+        // null removes the cached resource
+        cache.put(object, (PDExtendedGraphicsState) null);
+        assertNull(cache.getExtGState(object));
+
+        cache.put(object, state);
+        cache.clear();
+        assertNull(cache.getExtGState(object));
+    }
+
+    @Test
+    void testIdentity()
+    {
+        BoundedResourceCache cache = new BoundedResourceCache();
+        COSDictionary dictionary = new COSDictionary();
+        COSObject object = new COSObject(dictionary);
+        cache.put(object, new PDExtendedGraphicsState());
+        // another indirect object of the same content is a different resource
+        assertNull(cache.getExtGState(new COSObject(dictionary)));
+    }
+
+    @Test
+    void testUnreferencedObjectsAreReleased() throws InterruptedException
+    {
+        BoundedResourceCache cache = new BoundedResourceCache();
+        cache.put(new COSObject(new COSDictionary()), new PDExtendedGraphicsState());
+        COSObject object = new COSObject(new COSDictionary());
+        cache.put(object, new PDExtendedGraphicsState());
+        for (int i = 0; i < 50
+                && cache.getStatistics(ResourceType.EXT_G_STATE).getSize() > 1; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+            // stale entries are removed by any access
+            cache.getExtGState(object);
+        }
+        assertEquals(1, cache.getStatistics(ResourceType.EXT_G_STATE).getSize());
+    }
+}
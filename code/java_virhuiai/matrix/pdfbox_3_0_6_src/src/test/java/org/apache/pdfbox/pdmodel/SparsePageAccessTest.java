@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the sparse access to the page tree, which has to return the same pages as the regular access.
+ */
+class SparsePageAccessTest
+{
+    private static final COSName NUMBER = COSName.getPDFName("Number");
+
+    @Test
+    void testEmptyPageTreeNode() throws IOException
+    {
+        // the root has as many kids as pages, but not all of them are pages
+        COSDictionary root = createNode(createNode(createPage(0), createPage(1)), createPage(2),
+                createNode());
+        assertEquals(3, root.getInt(COSName.COUNT));
+        checkPages(root, 3);
+    }
+
+    @Test
+    void testNestedPageTree() throws IOException
+    {
+        COSDictionary root = createNode(createPage(0),
+                createNode(createNode(), createPage(1), createNode(createPage(2), createPage(3))),
+                createNode(createPage(4)), createPage(5), createNode(createNode(createNode())),
+                createPage(6));
+        checkPages(root, 7);
+    }
+
+    @Test
+    void testInvalidIndex() throws IOException
+    {
+        COSDictionary root = createNode(createNode(createPage(0), createPage(1)), createNode());
+        try (PDDocument document = new PDDocument())
+        {
+            document.setSparsePageAccess(true);
+            PDPageTree tree = new PDPageTree(root, document);
+            assertThrows(IndexOutOfBoundsException.class, () -> tree.get(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> tree.get(2));
+        }
+    }
+
+    @Test
+    void testIterator() throws IOException
+    {
+        COSDictionary root = createNode(createNode(), createPage(0), createNode(createPage(1)));
+        // the iterator skips invalid kids
+        root.getCOSArray(COSName.KIDS).add(new COSDictionary());
+        try (PDDocument document = new PDDocument())
+        {
+            document.setSparsePageAccess(true);
+            Iterator<PDPage> pages = new PDPageTree(root, document).iterator();
+            assertTrue(pages.hasNext());
+            assertTrue(pages.hasNext());
+            assertEquals(0, pages.next().getCOSObject().getInt(NUMBER));
+            assertEquals(1, pages.next().getCOSObject().getInt(NUMBER));
+            assertFalse(pages.hasNext());
+            assertThrows(NoSuchElementException.class, pages::next);
+        }
+    }
+
+    @Test
+    void testIteratorDetectsLoops() throws IOException
+    {
+        COSDictionary node = createNode(createPage(1));
+        COSDictionary root = createNode(createPage(0), node);
+        node.getCOSArray(COSName.KIDS).add(root);
+        try (PDDocument document = new PDDocument())
+        {
+            document.setSparsePageAccess(true);
+            List<Integer> numbers = new ArrayList<>();
+            new PDPageTree(root, document).forEach(page -> numbers.add(page.getCOSObject().getInt(NUMBER)));
+            assertEquals(Arrays.asList(0, 1), numbers);
+        }
+    }
+
+    @Test
+    void testOnlyRequestedPagesAreParsed() throws IOException
+    {
+        byte[] pdf;
+        try (PDDocument document = TestDocumentUtil.createDocument(100, (doc, page, i) -> { }))
+        {
+            pdf = TestDocumentUtil.save(document, CompressParameters.NO_COMPRESSION);
+        }
+        int regularCount;
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            document.getPage(2);
+            regularCount = document.getDocument().getMaterializedObjectCount();
+        }
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            document.setSparsePageAccess(true);
+            PDPage page = document.getPage(2);
+            assertTrue(document.getDocument().getMaterializedObjectCount() < regularCount);
+            assertSame(page.getCOSObject(), document.getPages().getCOSObject()
+                    .getCOSArray(COSName.KIDS).getObject(2));
+        }
+    }
+
+    /**
+     * Compares the pages returned by the sparse access with the ones of the regular access.
+     */
+    private static void checkPages(COSDictionary root, int pageCount) throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            PDPageTree regularTree = new PDPageTree(root, document);
+            assertEquals(pageCount, regularTree.getCount());
+            document.setSparsePageAccess(true);
+            PDPageTree sparseTree = new PDPageTree(root, document);
+            int index = 0;
+            for (PDPage page : sparseTree)
+            {
+                assertEquals(index, page.getCOSObject().getInt(NUMBER));
+                assertSame(regularTree.get(index).getCOSObject(), page.getCOSObject());
+                index++;
+            }
+            assertEquals(pageCount, index);
+            for (int i = 0; i < pageCount; i++)
+            {
+                assertEquals(i, sparseTree.get(i).getCOSObject().getInt(NUMBER), "page " + i);
+            }
+        }
+    }
+
+    private static COSDictionary createPage(int number)
+    {
+        COSDictionary page = new COSDictionary();
+        page.setItem(COSName.TYPE, COSName.PAGE);
+        page.setInt(NUMBER, number);
+        return page;
+    }
+
+    /**
+     * Creates a page tree node with the given kids and the correct Count.
+     */
+    private static COSDictionary createNode(COSDictionary... kids)
+    {
+        COSDictionary node = new COSDictionary();
+        node.setItem(COSName.TYPE, COSName.PAGES);
+        COSArray array = new COSArray();
+        int count = 0;
+        for (COSDictionary kid : kids)
+        {
+            array.add(kid);
+            kid.setItem(COSName.PARENT, node);
+            count += COSName.PAGES.equals(kid.getCOSName(COSName.TYPE))
+                    ? kid.getInt(COSName.COUNT) : 1;
+        }
+        node.setItem(COSName.KIDS, array);
+        node.setInt(COSName.COUNT, count);
+        return node;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+/**
+ * Creates the documents used by the tests, as there are no PDF files among the test resources.
+ */
+public final class TestDocumentUtil
+{
+    /**
+     * Writes the contents of a page of a created document.
+     */
+    @FunctionalInterface
+    public interface PageWriter
+    {
+        /**
+         * Writes the contents of the given page, which has already been added to the document.
+         *
+         * @param document the document
+         * @param page the page
+         * @param pageIndex the 0-based index of the page
+         * @throws IOException if the contents could not be written
+         */
+        void write(PDDocument document, PDPage page, int pageIndex) throws IOException;
+    }
+
+    private TestDocumentUtil()
+    {
+    }
+
+    /**
+     * Creates a document whose pages stroke lines with a shared graphics state and draw a shared form. The lines are
+     * different on each page. The document is saved with the default compression.
+     *
+     * @param pageCount the number of pages
+     * @return the saved document
+     * @throws IOException if the document could not be created
+     */
+    public static byte[] createLineDocument(int pageCount) throws IOException
+    {
+        return createLineDocument(pageCount, CompressParameters.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a document whose pages stroke lines with a shared graphics state and draw a shared form. The lines are
+     * different on each page.
+     *
+     * @param pageCount the number of pages
+     * @param compressParameters the parameters used to save the document
+     * @return the saved document
+     * @throws IOException if the document could not be created
+     */
+    public static byte[] createLineDocument(int pageCount, CompressParameters compressParameters)
+            throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            PDExtendedGraphicsState state = new PDExtendedGraphicsState();
+            state.setLineWidth(3f);
+            PDFormXObject form = new PDFormXObject(document);
+            form.setBBox(new PDRectangle(20, 20));
+            try (OutputStream output = form.getContentStream().createOutputStream())
+            {
+                output.write("0 0 m 20 20 l S".getBytes(StandardCharsets.US_ASCII));
+            }
+            addPages(document, pageCount, (doc, page, pageIndex) ->
+            {
+                try (PDPageContentStream contents = new PDPageContentStream(doc, page))
+                {
+                    contents.setGraphicsStateParameters(state);
+                    for (int line = 0; line < 40; line++)
+                    {
+                        contents.moveTo(20 + pageIndex, 750 - line * 9);
+                        contents.lineTo(300 + line, 750 - line * 9);
+                    }
+                    contents.stroke();
+                    contents.drawForm(form);
+                }
+            });
+            return save(document, compressParameters);
+        }
+    }
+
+    /**
+     * Creates a document with the given number of pages.
+     *
+     * @param pageCount the number of pages
+     * @param writer writes the contents of each page
+     * @return the document, which has to be closed by the caller
+     * @throws IOException if a page could not be written
+     */
+    public static PDDocument createDocument(int pageCount, PageWriter writer) throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            addPages(document, pageCount, writer);
+            return document;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            IOUtils.closeQuietly(document);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds pages with a letter size media box to the given document.
+     *
+     * @param document the document
+     * @param pageCount the number of pages
+     * @param writer writes the contents of each page
+     * @throws IOException if a page could not be written
+     */
+    public static void addPages(PDDocument document, int pageCount, PageWriter writer) throws IOException
+    {
+        for (int i = 0; i < pageCount; i++)
+        {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            writer.write(document, page, i);
+        }
+    }
+
+    /**
+     * Saves the given document with the default compression.
+     *
+     * @param document the document
+     * @return the saved document
+     * @throws IOException if the document could not be saved
+     */
+    public static byte[] save(PDDocument document) throws IOException
+    {
+        return save(document, CompressParameters.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Saves the given document.
+     *
+     * @param document the document
+     * @param compressParameters the parameters used to save the document
+     * @return the saved document
+     * @throws IOException if the document could not be saved
+     */
+    public static byte[] save(PDDocument document, CompressParameters compressParameters) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out, compressParameters);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CompiledInstructionSequenceTest
+{
+    private static final String[] OPERATORS = { "abs", "add", "atan", "ceiling", "cos", "cvi", "cvr",
+            "div", "exp", "floor", "idiv", "ln", "log", "mod", "mul", "neg", "round", "sin", "sqrt",
+            "sub", "truncate", "and", "bitshift", "eq", "false", "ge", "gt", "le", "lt", "ne", "not",
+            "or", "true", "xor", "copy", "dup", "exch", "index", "pop", "roll" };
+
+    private static final int SAMPLES = 300000;
+
+    @Test
+    void testUsualFunctions()
+    {
+        assertSameResults("{ dup 0.84 mul exch dup 0.0 mul exch dup 0.73 mul exch 0.12 mul }",
+                0.5f);
+        assertSameResults("{ 2 copy gt { exch pop } { pop } ifelse dup 0.5 lt { 2 mul } "
+                + "{ 1 exch sub 2 mul 1 exch sub } ifelse dup dup 3 1 roll add mul }", 0.25f, 0.75f);
+        assertSameResults("{ 360 mul sin 2 div exch 360 mul sin 2 div add }", 0.1f, 0.3f);
+        assertSameResults("{ 1 exch sub 3 1 roll 1 exch sub 3 1 roll 1 exch sub 3 1 roll 0 }",
+                0.2f, 0.4f, 0.6f);
+        // integer overflows
+        assertSameResults("{ 2147483647 1 add 2 mul -2147483648 1 sub }");
+        assertSameResults("{ 7 3 mod -7 3 idiv 1.5 cvi 2.5 round -2.5 truncate }");
+    }
+
+    @Test
+    void testUnsupportedPrograms()
+    {
+        // procedures which aren't operands of "if" or "ifelse"
+        assertNull(compile("{ { 1 } pop }"));
+        assertNull(compile("{ 1 { 2 } }"));
+        // unknown operators
+        assertNull(compile("{ 1 foo }"));
+        assertNotNull(compile("{ true { 1 } if }"));
+    }
+
+    @Test
+    void testErrors()
+    {
+        // errors are reported by unchecked exceptions so that the interpreter can be used instead
+        assertThrows(RuntimeException.class, () -> compile("{ pop }").execute(new float[0], 0));
+        assertThrows(RuntimeException.class, () -> compile("{ 1.5 2 idiv }").execute(new float[0], 1));
+        assertThrows(RuntimeException.class, () -> compile("{ 1 { 2 } if }").execute(new float[0], 1));
+        assertThrows(RuntimeException.class, () -> compile("{ 1 }").execute(new float[0], 2));
+    }
+
+    /**
+     * Compares the compiled programs with the interpreter for random programs and inputs. The results of the
+     * compiled programs must be bitwise identical to the ones of the interpreter whenever the compiled program
+     * succeeds, and the compiled program must fail whenever the interpreter fails.
+     */
+    @Test
+    void testRandomProgramsMatchInterpreter()
+    {
+        Random random = new Random(42);
+        int compared = 0;
+        for (int sample = 0; sample < SAMPLES; sample++)
+        {
+            String program = "{ " + createProgram(random, 0, 1 + random.nextInt(12)) + "}";
+            CompiledInstructionSequence compiled = compile(program);
+            if (compiled == null)
+            {
+                continue;
+            }
+            float[] input = new float[random.nextInt(4)];
+            for (int i = 0; i < input.length; i++)
+            {
+                input[i] = random.nextFloat() * (random.nextBoolean() ? 1 : 50);
+            }
+            int outputCount = random.nextInt(3);
+            float[] expected = interpret(program, input, outputCount);
+            float[] actual;
+            try
+            {
+                actual = compiled.execute(input, outputCount);
+            }
+            catch (RuntimeException e)
+            {
+                // the interpreter is used in this case
+                continue;
+            }
+            if (expected == null)
+            {
+                fail("the interpreter fails but the compiled program succeeds: " + program + " "
+                        + Arrays.toString(input));
+            }
+            for (int i = 0; i < outputCount; i++)
+            {
+                assertEquals(Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]),
+                        () -> program + " " + Arrays.toString(input));
+            }
+            compared++;
+        }
+        // most programs fail because of random stack underflows or type errors
+        assertTrue(compared > SAMPLES / 20, "only " + compared + " programs were compared");
+    }
+
+    private static void assertSameResults(String program, float... input)
+    {
+        CompiledInstructionSequence compiled = compile(program);
+        assertNotNull(compiled, program);
+        int outputCount = interpretAll(program, input).length;
+        assertArrayEquals(interpret(program, input, outputCount), compiled.execute(input, outputCount),
+                program);
+    }
+
+    private static CompiledInstructionSequence compile(String program)
+    {
+        return CompiledInstructionSequence.compile(InstructionSequenceBuilder.parse(program));
+    }
+
+    /**
+     * Returns the topmost values of the stack after running the interpreter, or null if it fails.
+     */
+    private static float[] interpret(String program, float[] input, int outputCount)
+    {
+        try
+        {
+            ExecutionContext context = execute(program, input);
+            if (context.getStack().size() < outputCount)
+            {
+                return null;
+            }
+            float[] output = new float[outputCount];
+            for (int i = outputCount - 1; i >= 0; i--)
+            {
+                output[i] = context.popReal();
+            }
+            return output;
+        }
+        catch (RuntimeException e)
+        {
+            return null;
+        }
+    }
+
+    private static float[] interpretAll(String program, float[] input)
+    {
+        return interpret(program, input, execute(program, input).getStack().size());
+    }
+
+    private static ExecutionContext execute(String program, float[] input)
+    {
+        ExecutionContext context = new ExecutionContext(new Operators());
+        for (float value : input)
+        {
+            context.getStack().push(value);
+        }
+        InstructionSequenceBuilder.parse(program).execute(context);
+        return context;
+    }
+
+    private static String createProgram(Random random, int depth, int length)
+    {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < length; i++)
+        {
+            int kind = random.nextInt(12);
+            if (depth < 3 && kind == 0)
+            {
+                program.append("{ ").append(createProgram(random, depth + 1, random.nextInt(5)))
+                        .append("} if ");
+            }
+            else if (depth < 3 && kind == 1)
+            {
+                program.append("{ ").append(createProgram(random, depth + 1, random.nextInt(5)))
+                        .append("} { ").append(createProgram(random, depth + 1, random.nextInt(5)))
+                        .append("} ifelse ");
+            }
+            else
+            {
+                program.append(createToken(random)).append(' ');
+            }
+        }
+        return program.toString();
+    }
+
+    private static String createToken(Random random)
+    {
+        int kind = random.nextInt(10);
+        if (kind < 5)
+        {
+            return OPERATORS[random.nextInt(OPERATORS.length)];
+        }
+        if (kind < 7)
+        {
+            // small integers, e.g. for copy, index and roll
+            return String.valueOf(random.nextInt(11) - 3);
+        }
+        if (kind < 8)
+        {
+            // integers close to the overflow
+            return String.valueOf(random.nextInt(1 << 30) * (random.nextBoolean() ? 4 : 1));
+        }
+        return String.valueOf((random.nextFloat() - 0.3f) * (random.nextBoolean() ? 10 : 100000));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+/**
+ * Compares the evaluation of type 4 functions by the interpreter and by the compiled programs. This isn't run as
+ * part of the build.
+ *
+ * <p>
+ * Usage: Type4FunctionBenchmark [evaluations] [rounds]
+ * </p>
+ */
+public final class Type4FunctionBenchmark
+{
+    private static final String[] PROGRAMS = {
+            // a tint transform of a separation color space
+            "{ dup 0.84 mul exch dup 0.0 mul exch dup 0.73 mul exch 0.12 mul }",
+            // a function with conditionals
+            "{ 2 copy gt { exch pop } { pop } ifelse dup 0.5 lt { 2 mul } "
+                    + "{ 1 exch sub 2 mul 1 exch sub } ifelse dup dup 3 1 roll add mul }",
+            // a spot function
+            "{ 360 mul sin 2 div exch 360 mul sin 2 div add }" };
+
+    private Type4FunctionBenchmark()
+    {
+    }
+
+    public static void main(String[] args)
+    {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Operators operators = new Operators();
+        for (String program : PROGRAMS)
+        {
+            InstructionSequence sequence = InstructionSequenceBuilder.parse(program);
+            CompiledInstructionSequence compiled = CompiledInstructionSequence.compile(sequence);
+            System.out.println(program);
+            // the sum of the results keeps the evaluations from being optimized away
+            float sum = 0;
+            for (int round = 0; round < rounds; round++)
+            {
+                long start = System.nanoTime();
+                for (int i = 0; i < evaluations; i++)
+                {
+                    ExecutionContext context = new ExecutionContext(operators);
+                    context.getStack().push(i / (float) evaluations);
+                    context.getStack().push(0.3f);
+                    sequence.execute(context);
+                    sum += context.popReal();
+                }
+                long interpreted = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int i = 0; i < evaluations; i++)
+                {
+                    sum += compiled.execute(new float[] { i / (float) evaluations, 0.3f }, 1)[0];
+                }
+                long compiledTime = System.nanoTime() - start;
+                System.out.printf("round %d: interpreted %.0f ns/eval, compiled %.0f ns/eval%n", round,
+                        interpreted / (double) evaluations, compiledTime / (double) evaluations);
+            }
+            System.out.println("checksum " + sum);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the binary disk cache of the font provider. The provider scans only a temporary font directory, not the font
+ * directories of the system.
+ */
+class FileSystemFontProviderTest
+{
+    private static final Path FONTS = Paths.get("src/test/resources/ttf");
+
+    @TempDir
+    Path tempDir;
+
+    private Path fontDirectory;
+    private Path cacheFile;
+    private String fontCache;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        fontCache = System.getProperty("pdfbox.fontcache");
+        fontDirectory = Files.createDirectory(tempDir.resolve("fonts"));
+        Path cacheDirectory = Files.createDirectory(tempDir.resolve("cache"));
+        cacheFile = cacheDirectory.resolve(".pdfbox.cache.bin");
+        System.setProperty("pdfbox.fontcache", cacheDirectory.toString());
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        if (fontCache != null)
+        {
+            System.setProperty("pdfbox.fontcache", fontCache);
+        }
+        else
+        {
+            System.clearProperty("pdfbox.fontcache");
+        }
+    }
+
+    @Test
+    void testModifiedFileInUnmodifiedDirectory() throws IOException
+    {
+        Path font = fontDirectory.resolve("font.ttf");
+        Files.copy(FONTS.resolve("LiberationSans-Regular.ttf"), font);
+        assertTrue(getFontNames().contains("LiberationSans"));
+        assertTrue(Files.isRegularFile(cacheFile));
+
+        // overwrite the font file without changing the modification time of its directory
+        FileTime directoryTime = Files.getLastModifiedTime(fontDirectory);
+        FileTime fontTime = Files.getLastModifiedTime(font);
+        Files.copy(FONTS.resolve("Lohit-Bengali.ttf"), font, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(font, FileTime.fromMillis(fontTime.toMillis() + 10000));
+        Files.setLastModifiedTime(fontDirectory, directoryTime);
+
+        List<String> names = getFontNames();
+        assertFalse(names.contains("LiberationSans"));
+        assertTrue(names.stream().anyMatch(name -> name.startsWith("Lohit")), names::toString);
+        // the updated cache is used
+        assertEquals(names, getFontNames());
+    }
+
+    @Test
+    void testCacheIsReplaced() throws IOException
+    {
+        Files.copy(FONTS.resolve("LiberationSans-Regular.ttf"), fontDirectory.resolve("font1.ttf"));
+        getFontNames();
+        byte[] cache = Files.readAllBytes(cacheFile);
+
+        Files.copy(FONTS.resolve("Lohit-Bengali.ttf"), fontDirectory.resolve("font2.ttf"));
+        Files.setLastModifiedTime(fontDirectory,
+                FileTime.fromMillis(Files.getLastModifiedTime(fontDirectory).toMillis() + 10000));
+        List<String> names = getFontNames();
+        assertTrue(names.contains("LiberationSans"));
+        assertTrue(Files.readAllBytes(cacheFile).length > cache.length);
+    }
+
+    @Test
+    void testInvalidLengthInCache() throws IOException
+    {
+        Files.copy(FONTS.resolve("LiberationSans-Regular.ttf"), fontDirectory.resolve("font.ttf"));
+        List<String> names = getFontNames();
+
+        // the length of the path of the first font directory, after the magic, the version and the count
+        byte[] cache = Files.readAllBytes(cacheFile);
+        ByteBuffer.wrap(cache).putInt(12, Integer.MAX_VALUE - 8);
+        Files.write(cacheFile, cache);
+        assertEquals(names, getFontNames());
+        // the cache is rebuilt
+        assertTrue(ByteBuffer.wrap(Files.readAllBytes(cacheFile)).getInt(12) < cache.length);
+
+        // an invalid number of directories
+        ByteBuffer.wrap(cache).putInt(8, -1);
+        Files.write(cacheFile, cache);
+        assertEquals(names, getFontNames());
+    }
+
+    private List<String> getFontNames()
+    {
+        FileSystemFontProvider provider = new FileSystemFontProvider(new FontCache(),
+                () -> Collections.singletonList(fontDirectory.toFile()));
+        return provider.getFontInfo().stream().map(FontInfo::getPostScriptName)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.junit.jupiter.api.Test;
+
+class ColorConversionCacheTest
+{
+    @Test
+    void testSeparation() throws IOException
+    {
+        COSArray separation = new COSArray();
+        separation.add(COSName.SEPARATION);
+        separation.add(COSName.getPDFName("Spot"));
+        separation.add(COSName.DEVICERGB);
+        separation.add(createFunction(1, "{ dup 0.84 mul exch dup 0.3 mul exch 0.73 mul }"));
+        assertSameConversion(() -> new PDSeparation(separation), 1);
+    }
+
+    @Test
+    void testDeviceN() throws IOException
+    {
+        COSArray deviceN = new COSArray();
+        deviceN.add(COSName.DEVICEN);
+        COSArray colorants = new COSArray();
+        colorants.add(COSName.getPDFName("Spot1"));
+        colorants.add(COSName.getPDFName("Spot2"));
+        deviceN.add(colorants);
+        deviceN.add(COSName.DEVICERGB);
+        deviceN.add(createFunction(2, "{ 2 copy add 2 div 3 1 roll mul exch dup 0.5 mul }"));
+        assertSameConversion(() -> new PDDeviceN(deviceN), 2);
+    }
+
+    @Test
+    void testLab() throws IOException
+    {
+        assertSameConversion(PDLab::new, 3);
+    }
+
+    @Test
+    void testCache()
+    {
+        ColorLookupCache cache = new ColorLookupCache(3);
+        assertEquals(-1, cache.get(42));
+        for (int i = 0; i < 5; i++)
+        {
+            cache.put(i * 1000L, ColorLookupCache.packRGB(i, 2 * i, 0));
+        }
+        // further colors aren't added once the cache is full
+        assertEquals(3, cache.size());
+        assertEquals(0x020400, cache.get(2000));
+        assertEquals(-1, cache.get(3000));
+        // black is a valid value
+        assertEquals(0, cache.get(0));
+    }
+
+    /**
+     * Checks that the conversion with the cache enabled gives the same pixels as the regular
+     * conversion, also for a second image using the cache filled by the first one.
+     */
+    private static void assertSameConversion(ColorSpaceFactory factory, int numBands)
+            throws IOException
+    {
+        PDColorSpace uncached = factory.create();
+        PDColorSpace cached = factory.create();
+        assertFalse(uncached.isConversionCacheEnabled());
+        cached.setConversionCacheEnabled(true);
+        assertTrue(cached.isConversionCacheEnabled());
+
+        Random random = new Random(numBands);
+        for (int image = 0; image < 2; image++)
+        {
+            WritableRaster raster = createRaster(random, numBands);
+            BufferedImage expected = uncached.toRGBImage(raster);
+            BufferedImage actual = cached.toRGBImage(raster);
+            for (int y = 0; y < raster.getHeight(); y++)
+            {
+                for (int x = 0; x < raster.getWidth(); x++)
+                {
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y),
+                            "pixel " + x + "," + y + " of image " + image);
+                }
+            }
+        }
+    }
+
+    private static WritableRaster createRaster(Random random, int numBands)
+    {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 64, 64,
+                numBands, new Point(0, 0));
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                for (int b = 0; b < numBands; b++)
+                {
+                    // few distinct values so that colors repeat
+                    raster.setSample(x, y, b, random.nextInt(8) * 36);
+                }
+            }
+        }
+        return raster;
+    }
+
+    private static COSStream createFunction(int numInputs, String program) throws IOException
+    {
+        COSStream function = new COSStream();
+        function.setInt(COSName.FUNCTION_TYPE, 4);
+        function.setItem(COSName.DOMAIN, createRange(numInputs));
+        function.setItem(COSName.RANGE, createRange(3));
+        try (OutputStream out = function.createOutputStream())
+        {
+            out.write(program.getBytes(StandardCharsets.US_ASCII));
+        }
+        return function;
+    }
+
+    private static COSArray createRange(int count)
+    {
+        COSArray range = new COSArray();
+        for (int i = 0; i < count; i++)
+        {
+            range.add(COSInteger.ZERO);
+            range.add(new COSFloat(1));
+        }
+        return range;
+    }
+
+    @FunctionalInterface
+    private interface ColorSpaceFactory
+    {
+        PDColorSpace create() throws IOException;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.filter.DecodeOptions;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a region of a Flate encoded image, which is only inflated up to the last row of the region, is the same
+ * as the region of the whole image.
+ */
+class FlateImageRegionTest
+{
+    private static final int WIDTH = 101;
+    private static final int HEIGHT = 67;
+    private static final int[] SUBSAMPLINGS = { 1, 2, 3 };
+
+    @Test
+    void testRGB() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            checkRegions(createImage(document, PDDeviceRGB.INSTANCE, 8, WIDTH, HEIGHT));
+        }
+    }
+
+    @Test
+    void testGray() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            checkRegions(createImage(document, PDDeviceGray.INSTANCE, 8, WIDTH, HEIGHT));
+        }
+    }
+
+    @Test
+    void testBitonal() throws IOException
+    {
+        // the rows don't end at a byte boundary
+        try (PDDocument document = new PDDocument())
+        {
+            checkRegions(createImage(document, PDDeviceGray.INSTANCE, 1, WIDTH, HEIGHT));
+        }
+    }
+
+    @Test
+    void testPredictor() throws IOException
+    {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++)
+        {
+            for (int x = 0; x < WIDTH; x++)
+            {
+                image.setRGB(x, y, sample(x, y, 0) << 16 | sample(x, y, 1) << 8 | sample(x, y, 2));
+            }
+        }
+        try (PDDocument document = new PDDocument())
+        {
+            PDImageXObject ximage = LosslessFactory.createFromImage(document, image);
+            // the rows are decoded by the predictor after inflating them
+            assertEquals(COSName.FLATE_DECODE, ximage.getCOSObject().getFilters());
+            assertEquals(15, ximage.getCOSObject().getCOSDictionary(COSName.DECODE_PARMS)
+                    .getInt(COSName.PREDICTOR));
+            checkRegions(ximage);
+        }
+    }
+
+    private static void checkRegions(PDImageXObject ximage) throws IOException
+    {
+        int width = ximage.getWidth();
+        int height = ximage.getHeight();
+        BufferedImage full = ximage.getImage();
+        byte[] decoded;
+        try (InputStream in = ximage.createInputStream())
+        {
+            decoded = IOUtils.toByteArray(in);
+        }
+        int rowLength = (width * ximage.getColorSpace().getNumberOfComponents()
+                * ximage.getBitsPerComponent() + 7) / 8;
+        assertEquals(rowLength * height, decoded.length);
+
+        // the rows and columns are subsampled from the origin of the image, so the regions start at a multiple of
+        // every subsampling, except for the ones which aren't subsampled
+        Rectangle[] regions = { new Rectangle(0, 0, width, height), new Rectangle(0, 0, width, 1),
+                new Rectangle(18, 6, 20, 11), new Rectangle(18, 0, 1, 40),
+                // ending at the last row of the image
+                new Rectangle(96, 60, 5, 7), new Rectangle(12, 66, 30, 1),
+                // partially outside of the image
+                new Rectangle(96, 60, 20, 20),
+                new Rectangle(3, 5, 20, 11), new Rectangle(17, 1, 1, 40), new Rectangle(width - 7, height - 9, 7, 9),
+                new Rectangle(10, height - 1, 30, 1), new Rectangle(width - 5, height - 5, 20, 20) };
+        for (Rectangle region : regions)
+        {
+            Rectangle clipped = region.intersection(new Rectangle(0, 0, width, height));
+            boolean aligned = clipped.x % 6 == 0 && clipped.y % 6 == 0;
+            for (int subsampling : aligned ? SUBSAMPLINGS : new int[] { 1 })
+            {
+                String message = region + ", subsampling " + subsampling;
+                BufferedImage actual = ximage.getImage(region, subsampling);
+                assertEquals((clipped.width + subsampling - 1) / subsampling, actual.getWidth(), message);
+                assertEquals((clipped.height + subsampling - 1) / subsampling, actual.getHeight(), message);
+                for (int y = 0; y < actual.getHeight(); y++)
+                {
+                    for (int x = 0; x < actual.getWidth(); x++)
+                    {
+                        assertEquals(full.getRGB(clipped.x + x * subsampling, clipped.y + y * subsampling),
+                                actual.getRGB(x, y), message + ", pixel " + x + "," + y);
+                    }
+                }
+
+                // the stream ends with the last row of the region, which is complete
+                DecodeOptions options = new DecodeOptions(subsampling);
+                options.setSourceRegion(clipped);
+                options.setDecodedRowLength(rowLength);
+                byte[] partial;
+                try (InputStream in = ximage.createInputStream(options))
+                {
+                    partial = IOUtils.toByteArray(in);
+                }
+                assertArrayEquals(Arrays.copyOf(decoded, (clipped.y + clipped.height) * rowLength), partial,
+                        message);
+            }
+        }
+    }
+
+    /**
+     * Creates a Flate encoded image without a predictor.
+     */
+    private static PDImageXObject createImage(PDDocument document, PDColorSpace colorSpace,
+            int bitsPerComponent, int width, int height) throws IOException
+    {
+        int components = colorSpace.getNumberOfComponents();
+        int rowLength = (width * components * bitsPerComponent + 7) / 8;
+        byte[] samples = new byte[rowLength * height];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                for (int c = 0; c < components; c++)
+                {
+                    int value = sample(x, y, c);
+                    if (bitsPerComponent == 8)
+                    {
+                        samples[y * rowLength + x * components + c] = (byte) value;
+                    }
+                    else if (value >= 128)
+                    {
+                        samples[y * rowLength + x / 8] |= (byte) (0x80 >> (x % 8));
+                    }
+                }
+            }
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(encoded))
+        {
+            out.write(samples);
+        }
+        return new PDImageXObject(document, new ByteArrayInputStream(encoded.toByteArray()),
+                COSName.FLATE_DECODE, width, height, bitsPerComponent, colorSpace);
+    }
+
+    private static int sample(int x, int y, int component)
+    {
+        return (x * 7 + y * 13 + component * 85 ^ x * y) & 0xff;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the batch encoding of {@link LosslessFactory#createFromImages} and {@link JPEGFactory#createFromImages}.
+ */
+class ImageBatchEncoderTest
+{
+    private static final int IMAGE_COUNT = 20;
+    private static final int PARALLELISM = 4;
+
+    @Test
+    void testLosslessOrder() throws IOException
+    {
+        for (int parallelism : new int[] { 1, PARALLELISM })
+        {
+            try (PDDocument document = new PDDocument())
+            {
+                Thread callingThread = Thread.currentThread();
+                List<Integer> indexes = new ArrayList<>();
+                LosslessFactory.createFromImages(document, IMAGE_COUNT, ImageBatchEncoderTest::loadImage,
+                        parallelism, (index, image) ->
+                        {
+                            assertSame(callingThread, Thread.currentThread());
+                            indexes.add(index);
+                            assertImage(index, image, 0);
+                            addPage(document, image);
+                        });
+                assertEquals(range(IMAGE_COUNT), indexes, "parallelism " + parallelism);
+                assertSaved(document, 0);
+            }
+        }
+    }
+
+    @Test
+    void testJPEGOrder() throws IOException
+    {
+        for (int parallelism : new int[] { 1, PARALLELISM })
+        {
+            try (PDDocument document = new PDDocument())
+            {
+                Thread callingThread = Thread.currentThread();
+                List<Integer> indexes = new ArrayList<>();
+                JPEGFactory.createFromImages(document, IMAGE_COUNT, ImageBatchEncoderTest::loadImage, 0.9f,
+                        parallelism, (index, image) ->
+                        {
+                            assertSame(callingThread, Thread.currentThread());
+                            indexes.add(index);
+                            assertEquals(COSName.DCT_DECODE, image.getCOSObject().getFilters());
+                            // the colors of a JPEG aren't exact
+                            assertImage(index, image, 8);
+                            addPage(document, image);
+                        });
+                assertEquals(range(IMAGE_COUNT), indexes, "parallelism " + parallelism);
+                assertSaved(document, 8);
+            }
+        }
+    }
+
+    @Test
+    void testLoaderFailure() throws IOException
+    {
+        IOException failure = new IOException("image 3 not found");
+        for (int parallelism : new int[] { 1, PARALLELISM })
+        {
+            try (PDDocument document = new PDDocument())
+            {
+                Set<Integer> loaded = ConcurrentHashMap.newKeySet();
+                List<Integer> indexes = new ArrayList<>();
+                assertSame(failure, assertThrows(IOException.class,
+                        () -> LosslessFactory.createFromImages(document, IMAGE_COUNT, index ->
+                        {
+                            loaded.add(index);
+                            if (index == 3)
+                            {
+                                throw failure;
+                            }
+                            return loadImage(index);
+                        }, parallelism, (index, image) -> indexes.add(index))));
+                // the images before the failed one are consumed, the following ones aren't
+                assertEquals(Arrays.asList(0, 1, 2), indexes, "parallelism " + parallelism);
+                // at most twice the parallelism of images are loaded ahead of the consumer
+                assertTrue(Collections.max(loaded) < 3 + 2 * parallelism, "loaded " + loaded);
+            }
+        }
+    }
+
+    @Test
+    void testEncoderFailure() throws IOException
+    {
+        // the encoder fails with a runtime exception on a missing image, which is thrown as it is
+        try (PDDocument document = new PDDocument())
+        {
+            List<Integer> indexes = new ArrayList<>();
+            assertThrows(NullPointerException.class,
+                    () -> JPEGFactory.createFromImages(document, IMAGE_COUNT,
+                            index -> index == 5 ? null : loadImage(index),
+                            0.9f, PARALLELISM, (index, image) -> indexes.add(index)));
+            assertEquals(range(5), indexes);
+        }
+    }
+
+    @Test
+    void testConsumerFailure() throws IOException
+    {
+        IOException failure = new IOException("consumer failed");
+        try (PDDocument document = new PDDocument())
+        {
+            List<Integer> indexes = new ArrayList<>();
+            assertSame(failure, assertThrows(IOException.class,
+                    () -> LosslessFactory.createFromImages(document, IMAGE_COUNT,
+                            ImageBatchEncoderTest::loadImage, PARALLELISM, (index, image) ->
+                            {
+                                indexes.add(index);
+                                if (index == 7)
+                                {
+                                    throw failure;
+                                }
+                            })));
+            assertEquals(range(8), indexes);
+        }
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            ImageXObjectConsumer consumer = (index, image) -> { throw new AssertionError("no image expected"); };
+            assertThrows(IllegalArgumentException.class, () -> LosslessFactory.createFromImages(document, -1,
+                    ImageBatchEncoderTest::loadImage, PARALLELISM, consumer));
+            assertThrows(IllegalArgumentException.class, () -> JPEGFactory.createFromImages(document, 1,
+                    ImageBatchEncoderTest::loadImage, 0.9f, 0, consumer));
+            LosslessFactory.createFromImages(document, 0, ImageBatchEncoderTest::loadImage, PARALLELISM, consumer);
+        }
+    }
+
+    /**
+     * Returns an image of a size and color which depend on the index. The first images are loaded slowest, so that
+     * the later ones are encoded first with several threads.
+     */
+    private static BufferedImage loadImage(int index) throws IOException
+    {
+        try
+        {
+            Thread.sleep(Math.max(0, 10 - index) * 5L);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        BufferedImage image = new BufferedImage(60 + index, 40, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(getColor(index));
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+        return image;
+    }
+
+    private static Color getColor(int index)
+    {
+        return new Color(index * 12, 255 - index * 12, 128);
+    }
+
+    private static void assertImage(int index, PDImageXObject image, int tolerance) throws IOException
+    {
+        assertEquals(60 + index, image.getWidth());
+        assertEquals(40, image.getHeight());
+        Color expected = getColor(index);
+        Color actual = new Color(image.getImage().getRGB(image.getWidth() / 2, image.getHeight() / 2));
+        String message = "image " + index + ": " + actual;
+        assertTrue(Math.abs(expected.getRed() - actual.getRed()) <= tolerance, message);
+        assertTrue(Math.abs(expected.getGreen() - actual.getGreen()) <= tolerance, message);
+        assertTrue(Math.abs(expected.getBlue() - actual.getBlue()) <= tolerance, message);
+    }
+
+    private static void addPage(PDDocument document, PDImageXObject image) throws IOException
+    {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream contents = new PDPageContentStream(document, page))
+        {
+            contents.drawImage(image, 0, 0);
+        }
+    }
+
+    /**
+     * Checks that the images which were created on several threads are saved to the pages in their order.
+     */
+    private static void assertSaved(PDDocument document, int tolerance) throws IOException
+    {
+        try (PDDocument saved = Loader.loadPDF(TestDocumentUtil.save(document)))
+        {
+            assertEquals(IMAGE_COUNT, saved.getNumberOfPages());
+            for (int i = 0; i < IMAGE_COUNT; i++)
+            {
+                PDResources resources = saved.getPage(i).getResources();
+                COSName name = resources.getXObjectNames().iterator().next();
+                assertImage(i, (PDImageXObject) resources.getXObject(name), tolerance);
+            }
+        }
+    }
+
+    private static List<Integer> range(int count)
+    {
+        List<Integer> range = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            range.add(i);
+        }
+        return range;
+    }
+}
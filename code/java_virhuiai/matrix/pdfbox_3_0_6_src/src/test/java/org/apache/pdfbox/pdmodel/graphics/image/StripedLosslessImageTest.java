@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that large images which are compressed in stripes by {@link LosslessFactory} are decoded to the same pixels
+ * and the same samples as the sequentially compressed ones.
+ */
+class StripedLosslessImageTest
+{
+    // enough threads for several stripes, the stripes are compressed correctly with fewer threads as well
+    private static final int PARALLELISM = 4;
+
+    @Test
+    void testRGB() throws IOException
+    {
+        // predictor encoded, 3.6 MB of samples
+        BufferedImage image = createImage(1200, 1000, BufferedImage.TYPE_INT_RGB);
+        try (PDDocument document = new PDDocument())
+        {
+            PDImageXObject striped = encode(document, image, PARALLELISM);
+            PDImageXObject sequential = encode(document, image, 1);
+            assertNull(striped.getCOSObject().getCOSStream(COSName.SMASK));
+            assertStriped(sequential.getCOSObject(), striped.getCOSObject());
+            assertPixels(image, striped.getImage());
+        }
+    }
+
+    @Test
+    void testGray() throws IOException
+    {
+        // plain Flate, 2.2 MB of samples
+        BufferedImage image = createImage(1600, 1400, BufferedImage.TYPE_BYTE_GRAY);
+        try (PDDocument document = new PDDocument())
+        {
+            PDImageXObject striped = encode(document, image, PARALLELISM);
+            PDImageXObject sequential = encode(document, image, 1);
+            assertEquals(8, striped.getBitsPerComponent());
+            assertStriped(sequential.getCOSObject(), striped.getCOSObject());
+            assertPixels(image, striped.getImage());
+        }
+    }
+
+    @Test
+    void testAlpha() throws IOException
+    {
+        // predictor encoded colors and a plain Flate soft mask of 2.1 MB
+        BufferedImage image = createImage(1500, 1400, BufferedImage.TYPE_INT_ARGB);
+        try (PDDocument document = new PDDocument())
+        {
+            PDImageXObject striped = encode(document, image, PARALLELISM);
+            PDImageXObject sequential = encode(document, image, 1);
+            assertStriped(sequential.getCOSObject(), striped.getCOSObject());
+            COSStream mask = striped.getCOSObject().getCOSStream(COSName.SMASK);
+            assertNotNull(mask);
+            assertStriped(sequential.getCOSObject().getCOSStream(COSName.SMASK), mask);
+            assertPixels(image, striped.getImage());
+        }
+    }
+
+    @Test
+    void testStripeCount() throws Exception
+    {
+        assertEquals(1, StripedFlateEncoder.getStripeCount(100L << 20, 1));
+        // at least one MB per stripe, at most two stripes per thread
+        assertEquals(1, StripedFlateEncoder.getStripeCount((1 << 20) * 2 - 1, PARALLELISM));
+        assertEquals(2, StripedFlateEncoder.getStripeCount((1 << 20) * 2, PARALLELISM));
+        assertEquals(PARALLELISM * 2, StripedFlateEncoder.getStripeCount(100L << 20, PARALLELISM));
+        // the stripes are compressed on the pool of the calling task
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try
+        {
+            assertEquals(PARALLELISM, (int) pool.submit(StripedFlateEncoder::getParallelism).get());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    // compresses the image on a pool with the given number of threads
+    private static PDImageXObject encode(PDDocument document, BufferedImage image, int threads)
+            throws IOException
+    {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            return pool.submit(() -> LosslessFactory.createFromImage(document, image)).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Checks that the striped stream was compressed differently, but is inflated to the same data, and that its
+     * checksum is the one of the whole data.
+     */
+    private static void assertStriped(COSStream sequential, COSStream striped) throws IOException
+    {
+        byte[] expected = inflate(sequential);
+        byte[] actual = inflate(striped);
+        assertTrue(expected.length > 2 << 20);
+        assertArrayEquals(expected, actual);
+        assertFalse(Arrays.equals(raw(sequential), raw(striped)), "the data wasn't compressed in stripes");
+        try (InputStream in = striped.createInputStream())
+        {
+            try (InputStream expectedIn = sequential.createInputStream())
+            {
+                assertArrayEquals(IOUtils.toByteArray(expectedIn), IOUtils.toByteArray(in));
+            }
+        }
+    }
+
+    // inflates the stream with a zlib inflater, which verifies the checksum
+    private static byte[] inflate(COSStream stream) throws IOException
+    {
+        try (InputStream in = new InflaterInputStream(stream.createRawInputStream()))
+        {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static byte[] raw(COSStream stream) throws IOException
+    {
+        try (InputStream in = stream.createRawInputStream())
+        {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static void assertPixels(BufferedImage expected, BufferedImage actual)
+    {
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        assertEquals(width, actual.getWidth());
+        assertEquals(height, actual.getHeight());
+        assertEquals(expected.getColorModel().hasAlpha(), actual.getColorModel().hasAlpha());
+        assertArrayEquals(expected.getRGB(0, 0, width, height, null, 0, width),
+                actual.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    private static BufferedImage createImage(int width, int height, int type)
+    {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                int red = (x * 3 + y) & 0xff;
+                int green = (x ^ y) & 0xff;
+                int blue = (x * y >> 4) & 0xff;
+                int alpha = (x + y * 7) & 0xff;
+                if (type == BufferedImage.TYPE_BYTE_GRAY)
+                {
+                    image.getRaster().setSample(x, y, 0, green);
+                }
+                else
+                {
+                    image.setRGB(x, y, alpha << 24 | red << 16 | green << 8 | blue);
+                }
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.shading;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the pixel tables of {@link TriangleBasedShadingContext}.
+ */
+class TriangleBasedShadingContextTest
+{
+    private static final int SIZE = 300;
+    private static final int GRID = 10;
+    private static final Rectangle DEVICE_BOUNDS = new Rectangle(0, 0, SIZE, SIZE);
+
+    @Test
+    void testParallelCalculationMatchesSequential() throws Exception
+    {
+        // a pool with several threads enables the calculation in bands
+        int[] expected = getPixels(createContext(createShading(COSName.DEVICERGB, false)));
+        // the whole area is covered by the mesh
+        assertEquals(255, expected[expected.length - 1]);
+        assertEquals(255, expected[3]);
+        int[] actual = calculateInPool(COSName.DEVICERGB, false);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void testShadingWithFunction() throws Exception
+    {
+        // every band evaluates its own copy of the function
+        int[] expected = getPixels(createContext(createShading(COSName.DEVICERGB, true)));
+        int[] actual = calculateInPool(COSName.DEVICERGB, true);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void testShadingWithCMYK() throws Exception
+    {
+        int[] expected = getPixels(createContext(createShading(COSName.DEVICECMYK, false)));
+        int[] actual = calculateInPool(COSName.DEVICECMYK, false);
+        assertArrayEquals(expected, actual);
+        expected = getPixels(createContext(createShading(COSName.DEVICECMYK, true)));
+        actual = calculateInPool(COSName.DEVICECMYK, true);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void testPixelTableIsReused() throws IOException
+    {
+        PDShadingType4 shading = createShading(COSName.DEVICERGB, false);
+        int[] expected = getPixels(createContext(shading));
+        TriangleBasedShadingContext.PixelTable pixelTable = shading.getPixelTable();
+        assertNotNull(pixelTable);
+        assertArrayEquals(expected, getPixels(createContext(shading)));
+        assertSame(pixelTable, shading.getPixelTable());
+    }
+
+    @Test
+    void testPixelTableIsRecalculatedForBackground() throws IOException
+    {
+        PDShadingType4 shading = createShading(COSName.DEVICERGB, false);
+        getPixels(createContext(shading));
+        TriangleBasedShadingContext.PixelTable pixelTable = shading.getPixelTable();
+        assertNotNull(pixelTable);
+        shading.setBackground(createArray(1, 0, 0));
+        getPixels(createContext(shading));
+        assertNotSame(pixelTable, shading.getPixelTable());
+        pixelTable = shading.getPixelTable();
+        getPixels(createContext(shading));
+        assertSame(pixelTable, shading.getPixelTable());
+    }
+
+    private static int[] calculateInPool(COSName colorSpace, boolean withFunction)
+            throws Exception
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            return pool.submit(
+                    () -> getPixels(createContext(createShading(colorSpace, withFunction))))
+                    .get();
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    private static TriangleBasedShadingContext createContext(PDShadingType4 shading)
+            throws IOException
+    {
+        return new Type4ShadingContext(shading, ColorModel.getRGBdefault(), new AffineTransform(),
+                new Matrix(), DEVICE_BOUNDS);
+    }
+
+    private static int[] getPixels(TriangleBasedShadingContext context)
+    {
+        Raster raster = context.getRaster(0, 0, SIZE, SIZE);
+        return raster.getPixels(0, 0, SIZE, SIZE, (int[]) null);
+    }
+
+    /**
+     * Creates a free-form triangle mesh of a grid covering the device bounds, with RGB or CMYK
+     * colors at the vertices, or with a single value per vertex and a function.
+     */
+    private static PDShadingType4 createShading(COSName colorSpace, boolean withFunction)
+            throws IOException
+    {
+        boolean cmyk = COSName.DEVICECMYK.equals(colorSpace);
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.SHADING_TYPE, 4);
+        stream.setItem(COSName.COLORSPACE, colorSpace);
+        stream.setInt(COSName.BITS_PER_COORDINATE, 16);
+        stream.setInt(COSName.BITS_PER_COMPONENT, 8);
+        stream.setInt(COSName.BITS_PER_FLAG, 8);
+        int components = withFunction ? 1 : cmyk ? 4 : 3;
+        COSArray decode = new COSArray();
+        for (int i = 0; i < 2; i++)
+        {
+            decode.add(COSInteger.ZERO);
+            decode.add(COSInteger.get(SIZE));
+        }
+        for (int i = 0; i < components; i++)
+        {
+            decode.add(COSInteger.ZERO);
+            decode.add(COSInteger.ONE);
+        }
+        stream.setItem(COSName.DECODE, decode);
+        if (withFunction)
+        {
+            COSDictionary function = new COSDictionary();
+            function.setInt(COSName.FUNCTION_TYPE, 2);
+            function.setItem(COSName.DOMAIN, createArray(0, 1));
+            function.setItem(COSName.C0, cmyk ? createArray(0, 0.2f, 1, 0.1f)
+                    : createArray(0, 0.2f, 1));
+            function.setItem(COSName.C1, cmyk ? createArray(1, 0.8f, 0, 0.3f)
+                    : createArray(1, 0.8f, 0));
+            function.setInt(COSName.N, 1);
+            stream.setItem(COSName.FUNCTION, function);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(stream.createOutputStream()))
+        {
+            int cell = 65535 / GRID;
+            for (int row = 0; row < GRID; row++)
+            {
+                for (int column = 0; column < GRID; column++)
+                {
+                    int x0 = column * cell;
+                    int y0 = row * cell;
+                    int[][] corners = { { x0, y0 }, { x0 + cell, y0 }, { x0, y0 + cell },
+                            { x0 + cell, y0 }, { x0 + cell, y0 + cell }, { x0, y0 + cell } };
+                    for (int[] corner : corners)
+                    {
+                        out.writeByte(0);
+                        out.writeShort(corner[0]);
+                        out.writeShort(corner[1]);
+                        for (int c = 0; c < components; c++)
+                        {
+                            out.writeByte((corner[0] / 257 + corner[1] / 513 + c * 80) & 0xff);
+                        }
+                    }
+                }
+            }
+        }
+        return new PDShadingType4(stream);
+    }
+
+    private static COSArray createArray(float... values)
+    {
+        COSArray array = new COSArray();
+        for (float value : values)
+        {
+            array.add(new COSFloat(value));
+        }
+        return array;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.interactive.form;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDestinationNameTreeNode;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDStructureTreeRoot;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the filling and flattening of compiled templates.
+ */
+class AcroFormTemplateTest
+{
+    private static final int PAGE_COUNT = 3;
+    private static final int THREAD_COUNT = 4;
+
+    @Test
+    void testCatalogEntriesReferToFilledPages() throws IOException
+    {
+        try (PDDocument template = Loader.loadPDF(createTemplate()))
+        {
+            AcroFormTemplate compiled = AcroFormTemplate.compile(template);
+            assertEquals(Collections.singleton("name"), compiled.getFieldNames());
+            try (PDDocument filled = Loader.loadPDF(fill(compiled, "Alice")))
+            {
+                assertEquals(PAGE_COUNT, filled.getNumberOfPages());
+                PDDocumentCatalog catalog = filled.getDocumentCatalog();
+                assertNull(catalog.getAcroForm());
+                assertNull(catalog.getStructureTreeRoot());
+                assertEquals("en", catalog.getLanguage());
+
+                List<PDOutlineItem> items = new ArrayList<>();
+                catalog.getDocumentOutline().children().forEach(items::add);
+                assertEquals(2, items.size());
+                for (int i = 0; i < items.size(); i++)
+                {
+                    PDPageDestination destination = (PDPageDestination) items.get(i).getDestination();
+                    assertSame(filled.getPage(i + 1).getCOSObject(), destination.getPage().getCOSObject());
+                }
+                PDPageDestination named = catalog.getNames().getDests().getValue("last");
+                assertSame(filled.getPage(2).getCOSObject(), named.getPage().getCOSObject());
+                PDPageDestination openAction = (PDPageDestination) catalog.getOpenAction();
+                assertSame(filled.getPage(1).getCOSObject(), openAction.getPage().getCOSObject());
+            }
+            // the template isn't modified
+            assertEquals(PAGE_COUNT, template.getNumberOfPages());
+            assertEquals("initial", template.getDocumentCatalog().getAcroForm().getField("name")
+                    .getValueAsString());
+        }
+    }
+
+    @Test
+    void testInvalidFieldName() throws IOException
+    {
+        try (PDDocument template = Loader.loadPDF(createTemplate()))
+        {
+            AcroFormTemplate compiled = AcroFormTemplate.compile(template);
+            assertThrows(IllegalArgumentException.class, () -> compiled.fillAndFlatten(
+                    Collections.singletonMap("unknown", "value"), new ByteArrayOutputStream()));
+        }
+    }
+
+    @Test
+    void testConcurrentFills() throws Exception
+    {
+        byte[] pdf = createTemplate();
+        String[] values = new String[20];
+        String[] expected = new String[values.length];
+        try (PDDocument template = Loader.loadPDF(pdf))
+        {
+            AcroFormTemplate compiled = AcroFormTemplate.compile(template);
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = "Value " + i;
+                expected[i] = describe(fill(compiled, values[i]));
+            }
+        }
+        assertNotEquals(expected[0], expected[1]);
+
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        parser.setConcurrentObjectResolution(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try (PDDocument template = parser.parse())
+        {
+            AcroFormTemplate compiled = AcroFormTemplate.compile(template);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (String value : values)
+            {
+                results.add(executor.submit(() ->
+                {
+                    start.await();
+                    return describe(fill(compiled, value));
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < values.length; i++)
+            {
+                assertEquals(expected[i], results.get(i).get(), values[i]);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] fill(AcroFormTemplate template, String value) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        template.fillAndFlatten(Collections.singletonMap("name", value), output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Describes the contents of the pages of a filled document, including the forms drawn by them.
+     */
+    private static String describe(byte[] pdf) throws IOException
+    {
+        StringBuilder description = new StringBuilder();
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            for (PDPage page : document.getPages())
+            {
+                description.append(read(page.getContents())).append('\n');
+                PDResources resources = page.getResources();
+                if (resources == null)
+                {
+                    continue;
+                }
+                for (COSName name : resources.getXObjectNames())
+                {
+                    description.append(name.getName()).append(": ")
+                            .append(read(resources.getXObject(name).getCOSObject().createInputStream()))
+                            .append('\n');
+                }
+            }
+        }
+        return description.toString();
+    }
+
+    private static String read(InputStream input) throws IOException
+    {
+        try (InputStream closedInput = input)
+        {
+            return new String(IOUtils.toByteArray(closedInput), "ISO-8859-1");
+        }
+    }
+
+    /**
+     * Creates a template with a text field on the first page, an outline, named destinations, an open action and a
+     * structure tree.
+     */
+    private static byte[] createTemplate() throws IOException
+    {
+        try (PDDocument document = TestDocumentUtil.createDocument(PAGE_COUNT, (doc, page, i) -> { }))
+        {
+            PDDocumentCatalog catalog = document.getDocumentCatalog();
+            catalog.setLanguage("en");
+
+            PDAcroForm acroForm = new PDAcroForm(document);
+            catalog.setAcroForm(acroForm);
+            PDResources resources = new PDResources();
+            // embedded completely, so that the field can use it before the document is saved
+            PDType0Font font;
+            try (InputStream input = new FileInputStream("src/test/resources/ttf/LiberationSans-Regular.ttf"))
+            {
+                font = PDType0Font.load(document, input, false);
+            }
+            // the embedded font is used for the default fonts as well, so that the standard 14 fonts aren't needed
+            resources.put(COSName.HELV, font);
+            resources.put(COSName.ZA_DB, font);
+            acroForm.setDefaultResources(resources);
+            acroForm.setDefaultAppearance("/Helv 12 Tf 0 g");
+            PDTextField field = new PDTextField(acroForm);
+            field.setPartialName("name");
+            acroForm.getFields().add(field);
+            PDAnnotationWidget widget = field.getWidgets().get(0);
+            widget.setRectangle(new PDRectangle(50, 700, 200, 20));
+            widget.setPage(document.getPage(0));
+            document.getPage(0).getAnnotations().add(widget);
+            field.setValue("initial");
+
+            PDDocumentOutline outline = new PDDocumentOutline();
+            for (int i = 1; i < PAGE_COUNT; i++)
+            {
+                PDOutlineItem item = new PDOutlineItem();
+                item.setTitle("Page " + (i + 1));
+                item.setDestination(createDestination(document, i));
+                outline.addLast(item);
+            }
+            catalog.setDocumentOutline(outline);
+            PDDestinationNameTreeNode destinations = new PDDestinationNameTreeNode();
+            destinations.setNames(Collections.singletonMap("last",
+                    createDestination(document, PAGE_COUNT - 1)));
+            PDDocumentNameDictionary names = new PDDocumentNameDictionary(catalog);
+            names.setDests(destinations);
+            catalog.setNames(names);
+            catalog.setOpenAction(createDestination(document, 1));
+            catalog.setStructureTreeRoot(new PDStructureTreeRoot());
+            return TestDocumentUtil.save(document);
+        }
+    }
+
+    private static PDPageDestination createDestination(PDDocument document, int pageIndex)
+    {
+        PDPageFitDestination destination = new PDPageFitDestination();
+        destination.setPage(document.getPage(pageIndex));
+        return destination;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.BoundedResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link PDFRenderer#renderImagesWithDPI(int, int, float, ImageType, int, PageImageConsumer)}.
+ */
+class ParallelRenderingTest
+{
+    private static final int PAGE_COUNT = 12;
+
+    @Test
+    void testParallelRendering() throws IOException
+    {
+        byte[] pdf = createDocument();
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        parser.setConcurrentObjectResolution(true);
+        try (PDDocument document = parser.parse())
+        {
+            ResourceCache resourceCache = new BoundedResourceCache();
+            document.setResourceCache(resourceCache);
+            assertRendering(document, 4);
+            // the cache of the document is used by the rendering threads
+            assertSame(resourceCache, document.getResourceCache());
+        }
+    }
+
+    @Test
+    void testFallbackToSerialRendering() throws IOException
+    {
+        // neither the default resource cache nor the default object resolution are thread safe
+        try (PDDocument document = new PDFParser(new RandomAccessReadBuffer(createDocument()))
+                .parse())
+        {
+            assertRendering(document, 4);
+        }
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException
+    {
+        try (PDDocument document = new PDFParser(new RandomAccessReadBuffer(createDocument()))
+                .parse())
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            assertThrows(IllegalArgumentException.class, () -> renderer.renderImagesWithDPI(0,
+                    PAGE_COUNT, 72, ImageType.RGB, 2, (index, image) -> { }));
+            assertThrows(IllegalArgumentException.class, () -> renderer.renderImagesWithDPI(1, 0,
+                    72, ImageType.RGB, 2, (index, image) -> { }));
+            assertThrows(IllegalArgumentException.class, () -> renderer.renderImagesWithDPI(0, 1,
+                    72, ImageType.RGB, 0, (index, image) -> { }));
+        }
+    }
+
+    // renders the pages in parallel and compares them with the pages rendered one by one
+    private static void assertRendering(PDDocument document, int parallelism) throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(document);
+        List<Integer> indices = new ArrayList<>();
+        List<BufferedImage> images = new ArrayList<>();
+        renderer.renderImagesWithDPI(0, PAGE_COUNT - 1, 36, ImageType.RGB, parallelism,
+                (index, image) ->
+                {
+                    indices.add(index);
+                    images.add(image);
+                });
+        assertEquals(PAGE_COUNT, images.size());
+        for (int i = 0; i < PAGE_COUNT; i++)
+        {
+            assertEquals(i, indices.get(i));
+            BufferedImage expected = renderer.renderImageWithDPI(i, 36, ImageType.RGB);
+            BufferedImage actual = images.get(i);
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            assertArrayEquals(
+                    expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0,
+                            expected.getWidth()),
+                    actual.getRGB(0, 0, actual.getWidth(), actual.getHeight(), null, 0,
+                            actual.getWidth()), "page " + i);
+        }
+    }
+
+    private static byte[] createDocument() throws IOException
+    {
+        try (PDDocument document = TestDocumentUtil.createDocument(PAGE_COUNT, (doc, page, i) ->
+        {
+            page.setMediaBox(PDRectangle.A6);
+            try (PDPageContentStream contents = new PDPageContentStream(doc, page))
+            {
+                contents.setNonStrokingColor(new Color(20 * i, 100, 255 - 20 * i));
+                contents.addRect(10 + i * 5, 10, 100, 50 + i * 10);
+                contents.fill();
+            }
+        }))
+        {
+            return TestDocumentUtil.save(document);
+        }
+    }
+}
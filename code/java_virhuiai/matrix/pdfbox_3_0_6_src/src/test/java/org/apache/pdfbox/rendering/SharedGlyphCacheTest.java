@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.geom.GeneralPath;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDVectorFont;
+import org.junit.jupiter.api.Test;
+
+class SharedGlyphCacheTest
+{
+    private static final File FONT_FILE = new File("src/test/resources/ttf/LiberationSans-Regular.ttf");
+
+    @Test
+    void testSubsetTagIsIgnored() throws IOException
+    {
+        byte[] pdf = createDocument();
+        try (PDDocument document1 = Loader.loadPDF(pdf);
+             PDDocument document2 = Loader.loadPDF(pdf))
+        {
+            PDFont font1 = getFont(document1, "ABCDEF+LiberationSans");
+            PDFont font2 = getFont(document2, "GHIJKL+LiberationSans");
+            SharedGlyphCache cache = new SharedGlyphCache();
+            String key1 = cache.getFontKey((PDVectorFont) font1);
+            assertNotNull(key1);
+            assertEquals(key1, cache.getFontKey((PDVectorFont) font2));
+
+            GeneralPath path = new GeneralPath();
+            path.moveTo(0, 0);
+            path.lineTo(10, 10);
+            cache.putPath(key1, 36, path);
+            assertSame(path, cache.getPath(cache.getFontKey((PDVectorFont) font2), 36));
+            assertNull(cache.getPath(key1, 37));
+            assertEquals(1, cache.getStatistics().getHitCount());
+            assertEquals(1, cache.getStatistics().getMissCount());
+        }
+    }
+
+    @Test
+    void testDifferentFontsAreNotShared() throws IOException
+    {
+        byte[] pdf = createDocument();
+        try (PDDocument document1 = Loader.loadPDF(pdf);
+             PDDocument document2 = Loader.loadPDF(pdf))
+        {
+            PDFont font1 = getFont(document1, "ABCDEF+LiberationSans");
+            PDFont font2 = getFont(document2, "ABCDEF+LiberationSans2");
+            SharedGlyphCache cache = new SharedGlyphCache();
+            assertNotEquals(cache.getFontKey((PDVectorFont) font1),
+                    cache.getFontKey((PDVectorFont) font2));
+        }
+    }
+
+    @Test
+    void testEviction()
+    {
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.lineTo(10, 10);
+        SharedGlyphCache cache = new SharedGlyphCache(1000);
+        for (int code = 0; code < 100; code++)
+        {
+            cache.putPath("font", code, path);
+        }
+        assertNotNull(cache.getPath("font", 99));
+        assertNull(cache.getPath("font", 0));
+        assertEquals(1000, cache.getMaxSize());
+        assertEquals(true, cache.getStatistics().getWeight() <= 1000);
+        assertEquals(true, cache.getStatistics().getEvictionCount() > 0);
+    }
+
+    // returns the font of the first page after renaming it
+    private static PDFont getFont(PDDocument document, String name) throws IOException
+    {
+        PDPage page = document.getPage(0);
+        COSName fontName = page.getResources().getFontNames().iterator().next();
+        PDFont font = page.getResources().getFont(fontName);
+        font.getCOSObject().setName(COSName.BASE_FONT, name);
+        COSDictionary descendant = (COSDictionary) font.getCOSObject()
+                .getCOSArray(COSName.DESCENDANT_FONTS).getObject(0);
+        descendant.setName(COSName.BASE_FONT, name);
+        descendant.getCOSDictionary(COSName.FONT_DESC).setName(COSName.FONT_NAME, name);
+        return font;
+    }
+
+    private static byte[] createDocument() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            PDFont font = PDType0Font.load(document, FONT_FILE);
+            TestDocumentUtil.addPages(document, 1, (doc, page, i) ->
+            {
+                try (PDPageContentStream contents = new PDPageContentStream(doc, page))
+                {
+                    contents.beginText();
+                    contents.setFont(font, 12);
+                    contents.newLineAtOffset(20, 700);
+                    contents.showText("Hello");
+                    contents.endText();
+                }
+            });
+            return TestDocumentUtil.save(document);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.blend.BlendMode;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroupAttributes;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.util.LRUCache;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link PDFRenderer#renderTile(int, float, int, int, int, ImageType)} and {@link TileCache}.
+ */
+class TileRenderingTest
+{
+    private static final float SCALE = 1.7f;
+    private static final int TILE_SIZE = 64;
+
+    @Test
+    void testStitchedTilesMatchPageImage() throws IOException
+    {
+        try (PDDocument document = createDocument())
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage pageImage = renderer.renderImage(0, SCALE, ImageType.RGB);
+            int columns = (pageImage.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+            int rows = (pageImage.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+            for (int tileY = 0; tileY < rows; tileY++)
+            {
+                for (int tileX = 0; tileX < columns; tileX++)
+                {
+                    BufferedImage tile = renderer.renderTile(0, SCALE, tileX, tileY, TILE_SIZE,
+                            ImageType.RGB);
+                    assertEquals(Math.min(TILE_SIZE, pageImage.getWidth() - tileX * TILE_SIZE),
+                            tile.getWidth());
+                    assertEquals(Math.min(TILE_SIZE, pageImage.getHeight() - tileY * TILE_SIZE),
+                            tile.getHeight());
+                    for (int y = 0; y < tile.getHeight(); y++)
+                    {
+                        for (int x = 0; x < tile.getWidth(); x++)
+                        {
+                            int pageX = tileX * TILE_SIZE + x;
+                            int pageY = tileY * TILE_SIZE + y;
+                            assertEquals(pageImage.getRGB(pageX, pageY), tile.getRGB(x, y),
+                                    "pixel " + pageX + "," + pageY);
+                        }
+                    }
+                }
+            }
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.renderTile(0, SCALE, columns, 0, TILE_SIZE, ImageType.RGB));
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.renderTile(0, SCALE, 0, 0, 0, ImageType.RGB));
+        }
+    }
+
+    @Test
+    void testCachedTilesAreCopies() throws IOException
+    {
+        try (PDDocument document = createDocument())
+        {
+            TileCache cache = new TileCache();
+            PDFRenderer renderer = new PDFRenderer(document);
+            renderer.setTileCache(cache);
+            BufferedImage tile = renderer.renderTile(0, SCALE, 1, 1, TILE_SIZE, ImageType.RGB);
+            int rgb = tile.getRGB(0, 0);
+            tile.setRGB(0, 0, ~rgb);
+
+            BufferedImage cached = renderer.renderTile(0, SCALE, 1, 1, TILE_SIZE, ImageType.RGB);
+            assertNotSame(tile, cached);
+            assertEquals(rgb, cached.getRGB(0, 0));
+            cached.setRGB(0, 0, ~rgb);
+            assertEquals(rgb, renderer.renderTile(0, SCALE, 1, 1, TILE_SIZE, ImageType.RGB)
+                    .getRGB(0, 0));
+
+            LRUCache.Statistics statistics = cache.getStatistics();
+            assertEquals(2, statistics.getHitCount());
+            assertEquals(1, statistics.getMissCount());
+
+            cache.remove(document);
+            renderer.renderTile(0, SCALE, 1, 1, TILE_SIZE, ImageType.RGB);
+            assertEquals(2, cache.getStatistics().getMissCount());
+        }
+    }
+
+    @Test
+    void testCacheDoesNotKeepDocument() throws IOException, InterruptedException
+    {
+        TileCache cache = new TileCache();
+        WeakReference<PDDocument> reference = renderCachedTile(cache);
+        for (int i = 0; i < 50 && reference.get() != null; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        assertEquals(1, cache.getStatistics().getSize());
+    }
+
+    private static WeakReference<PDDocument> renderCachedTile(TileCache cache) throws IOException
+    {
+        try (PDDocument document = createDocument())
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            renderer.setTileCache(cache);
+            renderer.renderTile(0, SCALE, 0, 0, TILE_SIZE, ImageType.RGB);
+            return new WeakReference<>(document);
+        }
+    }
+
+    /**
+     * Creates a page with a non isolated transparency group using a blend mode, which crosses the
+     * borders of the tiles and isn't aligned to the pixels.
+     */
+    private static PDDocument createDocument() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        PDPage page = new PDPage(new PDRectangle(200, 150));
+        document.addPage(page);
+
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(new PDRectangle(30.3f, 20.6f, 140.2f, 110.1f));
+        form.setGroup(new PDTransparencyGroupAttributes());
+        PDExtendedGraphicsState state = new PDExtendedGraphicsState();
+        state.setBlendMode(BlendMode.MULTIPLY);
+        state.setNonStrokingAlphaConstant(0.6f);
+        PDResources resources = new PDResources();
+        COSName stateName = resources.add(state);
+        form.setResources(resources);
+        try (OutputStream out = form.getContentStream().createOutputStream())
+        {
+            String contents = "/" + stateName.getName() + " gs 0 0 1 rg 25.5 15.25 100.3 80.7 re f "
+                    + "0 1 0 rg 70.7 50.1 110.4 70.9 re f";
+            out.write(contents.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        try (PDPageContentStream contents = new PDPageContentStream(document, page))
+        {
+            contents.setNonStrokingColor(Color.ORANGE);
+            contents.addRect(10.2f, 10.4f, 120.5f, 90.3f);
+            contents.fill();
+            contents.drawForm(form);
+        }
+        return document;
+    }
+}
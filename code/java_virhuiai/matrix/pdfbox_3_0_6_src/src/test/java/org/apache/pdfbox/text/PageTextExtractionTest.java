@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.BoundedResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the page by page text extraction of {@link PDFTextStripper} with a {@link PageTextConsumer}.
+ */
+class PageTextExtractionTest
+{
+    private static final File FONT_FILE = new File("src/test/resources/ttf/LiberationSans-Regular.ttf");
+    private static final int PAGE_COUNT = 12;
+    // a page without contents, which is skipped
+    private static final int EMPTY_PAGE = 5;
+    private static final int PARALLELISM = 4;
+
+    private static byte[] pdf;
+    private static Map<Integer, String> expected;
+
+    @BeforeAll
+    static void setUp() throws IOException
+    {
+        pdf = createDocument();
+        expected = new LinkedHashMap<>();
+        try (PDDocument document = loadConcurrently())
+        {
+            for (int pageNo = 1; pageNo <= PAGE_COUNT; pageNo++)
+            {
+                if (pageNo != EMPTY_PAGE)
+                {
+                    PDFTextStripper stripper = new PDFTextStripper();
+                    stripper.setStartPage(pageNo);
+                    stripper.setEndPage(pageNo);
+                    expected.put(pageNo, stripper.getText(document));
+                }
+            }
+            assertTrue(expected.get(1).contains("Page 1"));
+            assertEquals(String.join("", expected.values()), new PDFTextStripper().getText(document));
+        }
+    }
+
+    @Test
+    void testSequentialExtraction() throws IOException
+    {
+        try (PDDocument document = loadConcurrently())
+        {
+            PDFTextStripper stripper = new PDFTextStripper();
+            Map<Integer, String> actual = new LinkedHashMap<>();
+            stripper.extractText(document, (pageNo, text, articles) ->
+            {
+                actual.put(pageNo, text);
+                assertEquals(text.trim(), toString(articles));
+            });
+            assertPages(actual);
+
+            // the stripper can be used again
+            assertEquals(String.join("", expected.values()), stripper.getText(document));
+        }
+    }
+
+    @Test
+    void testParallelExtraction() throws IOException
+    {
+        for (int parallelism : new int[] { 1, PARALLELISM })
+        {
+            try (PDDocument document = loadConcurrently())
+            {
+                Thread callingThread = Thread.currentThread();
+                Map<Integer, String> actual = new LinkedHashMap<>();
+                PDFTextStripper.extractText(document, PDFTextStripper::new, parallelism,
+                        (pageNo, text, articles) ->
+                        {
+                            assertSame(callingThread, Thread.currentThread());
+                            actual.put(pageNo, text);
+                            assertEquals(text.trim(), toString(articles));
+                        });
+                assertPages(actual);
+            }
+        }
+    }
+
+    @Test
+    void testParallelExtractionWithoutConcurrentResolution() throws IOException
+    {
+        // the pages are processed by the calling thread
+        try (PDDocument document = new PDFParser(new RandomAccessReadBuffer(pdf)).parse())
+        {
+            Map<Integer, String> actual = new LinkedHashMap<>();
+            PDFTextStripper.extractText(document, PDFTextStripper::new, PARALLELISM,
+                    (pageNo, text, articles) -> actual.put(pageNo, text));
+            assertPages(actual);
+        }
+    }
+
+    @Test
+    void testFailingConsumer() throws IOException
+    {
+        IOException failure = new IOException("consumer failed");
+        PageTextConsumer consumer = (pageNo, text, articles) ->
+        {
+            if (pageNo == 3)
+            {
+                throw failure;
+            }
+        };
+        try (PDDocument document = loadConcurrently())
+        {
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<Integer> pages = new ArrayList<>();
+            assertSame(failure, assertThrows(IOException.class, () -> stripper.extractText(document,
+                    (pageNo, text, articles) ->
+                    {
+                        pages.add(pageNo);
+                        consumer.accept(pageNo, text, articles);
+                    })));
+            assertEquals(Arrays.asList(1, 2, 3), pages);
+            // the consumer isn't kept after the failure
+            assertEquals(String.join("", expected.values()), stripper.getText(document));
+        }
+        for (int parallelism : new int[] { 1, PARALLELISM })
+        {
+            try (PDDocument document = loadConcurrently())
+            {
+                List<Integer> pages = new ArrayList<>();
+                assertSame(failure, assertThrows(IOException.class, () -> PDFTextStripper.extractText(document,
+                        PDFTextStripper::new, parallelism, (pageNo, text, articles) ->
+                        {
+                            pages.add(pageNo);
+                            consumer.accept(pageNo, text, articles);
+                        })));
+                assertEquals(Arrays.asList(1, 2, 3), pages, "parallelism " + parallelism);
+            }
+        }
+    }
+
+    private static void assertPages(Map<Integer, String> actual)
+    {
+        // same pages in the same order
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        for (Map.Entry<Integer, String> entry : expected.entrySet())
+        {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()), "page " + entry.getKey());
+        }
+    }
+
+    private static String toString(List<List<TextPosition>> articles)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (List<TextPosition> article : articles)
+        {
+            for (TextPosition position : article)
+            {
+                builder.append(position.getUnicode());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static PDDocument loadConcurrently() throws IOException
+    {
+        PDFParser parser = new PDFParser(new RandomAccessReadBuffer(pdf));
+        parser.setConcurrentObjectResolution(true);
+        PDDocument document = parser.parse();
+        document.setResourceCache(new BoundedResourceCache());
+        return document;
+    }
+
+    /**
+     * Creates a document with a single line of text on each page, except for the empty page.
+     */
+    private static byte[] createDocument() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            PDFont font = PDType0Font.load(document, FONT_FILE);
+            TestDocumentUtil.addPages(document, PAGE_COUNT, (doc, page, i) ->
+            {
+                int pageNo = i + 1;
+                if (pageNo == EMPTY_PAGE)
+                {
+                    return;
+                }
+                try (PDPageContentStream contents = new PDPageContentStream(doc, page))
+                {
+                    contents.beginText();
+                    contents.setFont(font, 12);
+                    contents.newLineAtOffset(72, 700);
+                    contents.showText("Page " + pageNo + " of the document");
+                    contents.endText();
+                }
+            });
+            return TestDocumentUtil.save(document);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.TestDocumentUtil;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDSimpleFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the text positions of {@link LegacyPDFStreamEngine} with the ones calculated with the matrices of the
+ * previous implementation, for rotated and scaled text, character and word spacing, horizontal scaling, cropped and
+ * rotated pages and simple, composite and Type3 fonts.
+ */
+class TextPositionTest
+{
+    private static final File FONT_FILE = new File("src/test/resources/ttf/LiberationSans-Regular.ttf");
+    private static final String TYPE0_TEXT = "Composite text";
+
+    private static GlyphList glyphList;
+
+    @BeforeAll
+    static void setUp() throws IOException
+    {
+        // the glyph list of LegacyPDFStreamEngine
+        try (InputStream input = GlyphList.class
+                .getResourceAsStream("/org/apache/pdfbox/resources/glyphlist/additional.txt"))
+        {
+            glyphList = new GlyphList(GlyphList.getAdobeGlyphList(), input);
+        }
+    }
+
+    @Test
+    void testTextPositions() throws IOException
+    {
+        try (PDDocument document = Loader.loadPDF(createDocument()))
+        {
+            RecordingStripper stripper = new RecordingStripper();
+            // every text position is recorded, including the overlapping ones
+            stripper.setSuppressDuplicateOverlappingText(false);
+            String text = stripper.getText(document);
+
+            assertEquals(stripper.expected.size(), stripper.actual.size());
+            assertTrue(stripper.actual.size() > 100);
+            for (int i = 0; i < stripper.expected.size(); i++)
+            {
+                assertEquals(describe(stripper.expected.get(i)), describe(stripper.actual.get(i)),
+                        "text position " + i);
+            }
+
+            // the unicode of the simple fonts without a mapping is the character code
+            String unicode = toString(stripper.actual);
+            String page = "Hello WorldKernedtextRotated textVertical up" + TYPE0_TEXT + "abccabbacscaled";
+            assertEquals(page + page + page, unicode);
+            assertTrue(text.contains("Hello World"));
+            assertTrue(text.contains("abccab"));
+        }
+    }
+
+    @Test
+    void testWidths()
+    {
+        TextPosition position = createPosition("a", 100, 10);
+        assertArrayEquals(new float[] { 10 }, position.getIndividualWidths());
+        assertSame(position.getIndividualWidths(), position.getIndividualWidths());
+        assertEquals(10, position.getWidthDirAdj());
+
+        // the widths of a position with a diacritic
+        TextPosition base = createPosition("a", 100, 10);
+        TextPosition diacritic = createPosition("\u00B4", 102, 4);
+        assertTrue(diacritic.isDiacritic());
+        base.mergeDiacritic(diacritic);
+        assertEquals("a\u0301", base.getUnicode());
+        assertArrayEquals(new float[] { 10, 0 }, base.getIndividualWidths());
+        assertArrayEquals(new float[] { 4 }, diacritic.getIndividualWidths());
+
+        // a diacritic after the end of the position is appended
+        base = createPosition("a", 100, 10);
+        base.mergeDiacritic(createPosition("\u00A8", 111, 4));
+        assertEquals("a\u0308", base.getUnicode());
+        assertArrayEquals(new float[] { 10, 0 }, base.getIndividualWidths());
+        assertFalse(base.isDiacritic());
+    }
+
+    @Test
+    void testDuplicateOverlappingText() throws IOException
+    {
+        // every line is shown three times: twice at the same position and once slightly moved, with the lines in
+        // an order which isn't sorted by x, so that a page has several thousand positions of the same character
+        int lineCount = 60;
+        String line = "oooooooooooooooooooooooooooooooooooooooooooooooooo";
+        StringBuilder contents = new StringBuilder("BT /F1 6 Tf\n");
+        for (int pass = 0; pass < 3; pass++)
+        {
+            for (int i = 0; i < lineCount; i++)
+            {
+                float x = 30 + (i * 7 % lineCount) + (pass == 2 ? 0.3f : 0);
+                float y = 750 - i * 12;
+                contents.append("1 0 0 1 ").append(x).append(' ').append(y).append(" Tm (").append(line)
+                        .append(") Tj\n");
+            }
+        }
+        contents.append("ET\n");
+        byte[] pdf;
+        try (PDDocument document = TestDocumentUtil.createDocument(1, (doc, page, i) ->
+        {
+            PDResources resources = new PDResources();
+            resources.put(COSName.getPDFName("F1"),
+                    PDTrueTypeFont.load(doc, FONT_FILE, WinAnsiEncoding.INSTANCE));
+            page.setResources(resources);
+            COSStream stream = doc.getDocument().createCOSStream();
+            try (OutputStream out = stream.createOutputStream())
+            {
+                out.write(contents.toString().getBytes(StandardCharsets.ISO_8859_1));
+            }
+            page.getCOSObject().setItem(COSName.CONTENTS, stream);
+        }))
+        {
+            pdf = TestDocumentUtil.save(document);
+        }
+        try (PDDocument document = Loader.loadPDF(pdf))
+        {
+            PDFTextStripper stripper = new PDFTextStripper();
+            assertEquals(lineCount * line.length(), countLetters(stripper.getText(document)));
+            stripper.setSuppressDuplicateOverlappingText(false);
+            assertEquals(3 * lineCount * line.length(), countLetters(stripper.getText(document)));
+        }
+    }
+
+    private static int countLetters(String text)
+    {
+        return (int) text.chars().filter(c -> c == 'o').count();
+    }
+
+    private static TextPosition createPosition(String unicode, float x, float width)
+    {
+        return new TextPosition(0, 612, 792, Matrix.getTranslateInstance(x, 700), x + width, 700, 8, width, 3,
+                unicode, new int[] { unicode.charAt(0) }, null, 12, 12);
+    }
+
+    private static List<Object> describe(TextPosition position)
+    {
+        return Arrays.asList(position.getUnicode(), Arrays.toString(position.getCharacterCodes()),
+                position.getTextMatrix(), position.getX(), position.getY(), position.getXDirAdj(),
+                position.getYDirAdj(), position.getEndX(), position.getEndY(), position.getWidth(),
+                position.getWidthDirAdj(), position.getHeight(), position.getHeightDir(),
+                position.getWidthOfSpace(), Arrays.toString(position.getIndividualWidths()), position.getDir(),
+                position.getRotation(), position.getPageWidth(), position.getPageHeight(), position.getFont(),
+                position.getFontSize(), position.getFontSizeInPt(), position.getXScale(), position.getYScale());
+    }
+
+    private static String toString(List<TextPosition> positions)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (TextPosition position : positions)
+        {
+            builder.append(position.getUnicode());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Records the text positions, and the ones calculated like the previous implementation of
+     * {@link LegacyPDFStreamEngine#showGlyph}.
+     */
+    private static final class RecordingStripper extends PDFTextStripper
+    {
+        private final List<TextPosition> expected = new ArrayList<>();
+        private final List<TextPosition> actual = new ArrayList<>();
+        private PDPage page;
+
+        @Override
+        public void processPage(PDPage page) throws IOException
+        {
+            this.page = page;
+            super.processPage(page);
+        }
+
+        @Override
+        protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement)
+                throws IOException
+        {
+            assertFalse(font.isVertical());
+            PDGraphicsState state = getGraphicsState();
+            Matrix ctm = state.getCurrentTransformationMatrix();
+            float fontSize = state.getTextState().getFontSize();
+            float horizontalScaling = state.getTextState().getHorizontalScaling() / 100f;
+            Matrix textMatrix = getTextMatrix();
+
+            float tx = displacement.getX() * fontSize * horizontalScaling;
+            float ty = displacement.getY() * fontSize;
+            Matrix td = Matrix.getTranslateInstance(tx, ty);
+            Matrix nextTextRenderingMatrix = td.multiply(textMatrix).multiply(ctm);
+            float nextX = nextTextRenderingMatrix.getTranslateX();
+            float nextY = nextTextRenderingMatrix.getTranslateY();
+            float dxDisplay = nextX - textRenderingMatrix.getTranslateX();
+            float dyDisplay = computeFontHeight(font) * textRenderingMatrix.getScalingFactorY();
+
+            float glyphSpaceToTextSpaceFactor = 1 / 1000f;
+            if (font instanceof PDType3Font)
+            {
+                glyphSpaceToTextSpaceFactor = font.getFontMatrix().getScaleX();
+            }
+            float spaceWidthText = font.getSpaceWidth() * glyphSpaceToTextSpaceFactor;
+            if (Float.compare(spaceWidthText, 0) == 0)
+            {
+                spaceWidthText = font.getAverageFontWidth() * glyphSpaceToTextSpaceFactor;
+                spaceWidthText *= .80f;
+            }
+            if (Float.compare(spaceWidthText, 0) == 0)
+            {
+                spaceWidthText = 1.0f;
+            }
+            float spaceWidthDisplay = spaceWidthText * textRenderingMatrix.getScalingFactorX();
+
+            String unicode = font.toUnicode(code, glyphList);
+            if (unicode == null && font instanceof PDSimpleFont)
+            {
+                unicode = new String(new char[] { (char) code });
+            }
+            if (unicode != null)
+            {
+                PDRectangle pageSize = page.getCropBox();
+                Matrix translatedTextRenderingMatrix = textRenderingMatrix;
+                if (Float.compare(pageSize.getLowerLeftX(), 0) != 0
+                        || Float.compare(pageSize.getLowerLeftY(), 0) != 0)
+                {
+                    translatedTextRenderingMatrix = Matrix.concatenate(
+                            Matrix.getTranslateInstance(-pageSize.getLowerLeftX(), -pageSize.getLowerLeftY()),
+                            textRenderingMatrix);
+                    nextX -= pageSize.getLowerLeftX();
+                    nextY -= pageSize.getLowerLeftY();
+                }
+                expected.add(new TextPosition(page.getRotation(), pageSize.getWidth(), pageSize.getHeight(),
+                        translatedTextRenderingMatrix, nextX, nextY, Math.abs(dyDisplay), dxDisplay,
+                        Math.abs(spaceWidthDisplay), unicode, new int[] { code }, font, fontSize,
+                        (int) (fontSize * textMatrix.getScalingFactorX())));
+            }
+            super.showGlyph(textRenderingMatrix, font, code, displacement);
+        }
+
+        @Override
+        protected void processTextPosition(TextPosition text)
+        {
+            actual.add(text);
+            super.processTextPosition(text);
+        }
+    }
+
+    /**
+     * Creates a document with the same text on a plain page, a rotated page and a cropped page.
+     */
+    private static byte[] createDocument() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            PDFont simpleFont = PDTrueTypeFont.load(document, FONT_FILE, WinAnsiEncoding.INSTANCE);
+            PDType0Font compositeFont = PDType0Font.load(document, FONT_FILE);
+            PDType3Font type3Font = new PDType3Font(createType3Font());
+
+            StringBuilder hex = new StringBuilder();
+            for (byte b : compositeFont.encode(TYPE0_TEXT))
+            {
+                hex.append(String.format("%02X", b & 0xff));
+            }
+            String contents = "BT\n"
+                    // character and word spacing and horizontal scaling
+                    + "/F1 12 Tf 0.5 Tc 2 Tw 80 Tz 72 700 Td (Hello World) Tj\n"
+                    + "[(Kerned) -250 (text)] TJ\n"
+                    // rotated text
+                    + "0.866 0.5 -0.5 0.866 200 400 Tm 1.5 Tc (Rotated text) Tj\n"
+                    + "0 1 -1 0 300 300 Tm 150 Tz 3 Tw (Vertical up) Tj\n"
+                    + "1 0 0 1 72 600 Tm 100 Tz 0 Tc 0 Tw /F2 14 Tf <" + hex + "> Tj\n"
+                    // a Type3 font with a glyph without a unicode mapping
+                    + "/F3 10 Tf 0.25 Tc 1 Tw 90 Tz 72 200 Td (abccab) Tj\n"
+                    + "-0.707 0.707 -0.707 -0.707 400 200 Tm (bac) Tj\n"
+                    + "ET\n"
+                    // scaled and rotated by the current transformation matrix, with a text rise
+                    + "q 0.8 0 0 0.8 20 30 cm 0.9848 0.1736 -0.1736 0.9848 0 0 cm\n"
+                    + "BT /F1 9 Tf 3 Ts 72 100 Td (scaled) Tj ET Q\n";
+
+            TestDocumentUtil.addPages(document, 3, (doc, page, i) ->
+            {
+                if (i == 1)
+                {
+                    page.setRotation(90);
+                }
+                else if (i == 2)
+                {
+                    page.setCropBox(new PDRectangle(30, 50, 500, 700));
+                }
+                PDResources resources = new PDResources();
+                resources.put(COSName.getPDFName("F1"), simpleFont);
+                resources.put(COSName.getPDFName("F2"), compositeFont);
+                resources.put(COSName.getPDFName("F3"), type3Font);
+                page.setResources(resources);
+                COSStream stream = doc.getDocument().createCOSStream();
+                try (OutputStream out = stream.createOutputStream())
+                {
+                    out.write(contents.getBytes(StandardCharsets.ISO_8859_1));
+                }
+                page.getCOSObject().setItem(COSName.CONTENTS, stream);
+            });
+            return TestDocumentUtil.save(document);
+        }
+    }
+
+    /**
+     * Creates a Type3 font with the glyphs "a", "b" and "g1" for the codes of "a", "b" and "c", and a font matrix
+     * which isn't the default one of other fonts.
+     */
+    private static COSDictionary createType3Font() throws IOException
+    {
+        COSDictionary font = new COSDictionary();
+        font.setItem(COSName.TYPE, COSName.FONT);
+        font.setItem(COSName.SUBTYPE, COSName.TYPE3);
+        font.setItem(COSName.FONT_BBOX, new PDRectangle(0, 0, 350, 500).getCOSArray());
+        COSArray fontMatrix = new COSArray();
+        for (float value : new float[] { 0.002f, 0, 0, 0.002f, 0, 0 })
+        {
+            fontMatrix.add(new COSFloat(value));
+        }
+        font.setItem(COSName.FONT_MATRIX, fontMatrix);
+
+        COSDictionary charProcs = new COSDictionary();
+        COSArray differences = new COSArray();
+        differences.add(COSInteger.get('a'));
+        COSArray widths = new COSArray();
+        int width = 250;
+        for (String name : new String[] { "a", "b", "g1" })
+        {
+            COSStream charProc = new COSStream();
+            try (OutputStream out = charProc.createOutputStream())
+            {
+                out.write((width + " 0 0 0 " + width + " 500 d1 0 0 " + width + " 500 re f")
+                        .getBytes(StandardCharsets.US_ASCII));
+            }
+            charProcs.setItem(COSName.getPDFName(name), charProc);
+            differences.add(COSName.getPDFName(name));
+            widths.add(COSInteger.get(width));
+            width += 50;
+        }
+        font.setItem(COSName.CHAR_PROCS, charProcs);
+        COSDictionary encoding = new COSDictionary();
+        encoding.setItem(COSName.TYPE, COSName.ENCODING);
+        encoding.setItem(COSName.DIFFERENCES, differences);
+        font.setItem(COSName.ENCODING, encoding);
+        font.setInt(COSName.FIRST_CHAR, 'a');
+        font.setInt(COSName.LAST_CHAR, 'c');
+        font.setItem(COSName.WIDTHS, widths);
+        font.setItem(COSName.RESOURCES, new COSDictionary());
+        return font;
+    }
+}
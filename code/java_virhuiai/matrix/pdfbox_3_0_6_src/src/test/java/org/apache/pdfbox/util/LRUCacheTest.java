@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class LRUCacheTest
+{
+    @Test
+    void testEvictsLeastRecentlyUsed()
+    {
+        LRUCache<Integer, String> cache = new LRUCache<>(3, String::length);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        // 1 becomes the most recently used one
+        assertEquals("a", cache.get(1));
+        cache.put(4, "d");
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+        assertEquals("c", cache.get(3));
+        assertEquals("d", cache.get(4));
+
+        LRUCache.Statistics statistics = cache.getStatistics();
+        assertEquals(4, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getEvictionCount());
+        assertEquals(3, statistics.getSize());
+        assertEquals(3, statistics.getWeight());
+        assertEquals(0.8, statistics.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testWeight()
+    {
+        LRUCache<Integer, String> cache = new LRUCache<>(5, String::length);
+        cache.put(1, "aa");
+        cache.put(2, "bbb");
+        assertEquals(5, cache.getStatistics().getWeight());
+        // replacing a value replaces its weight
+        cache.put(2, "b");
+        assertEquals(3, cache.getStatistics().getWeight());
+        cache.put(3, "cc");
+        assertEquals(5, cache.getStatistics().getWeight());
+        assertEquals(0, cache.getStatistics().getEvictionCount());
+        // a value heavier than the limit isn't kept
+        cache.put(4, "dddddd");
+        assertNull(cache.get(4));
+        assertEquals(0, cache.getStatistics().getSize());
+        assertEquals(0, cache.getStatistics().getWeight());
+    }
+
+    @Test
+    void testRemove()
+    {
+        LRUCache<Integer, String> cache = new LRUCache<>(20, String::length);
+        for (int i = 0; i < 6; i++)
+        {
+            cache.put(i, "v" + i);
+        }
+        assertEquals("v0", cache.remove(0));
+        assertNull(cache.remove(0));
+        cache.removeIf(key -> key % 2 == 0);
+        assertEquals(3, cache.getStatistics().getSize());
+        assertEquals(6, cache.getStatistics().getWeight());
+        cache.clear();
+        assertEquals(0, cache.getStatistics().getSize());
+        assertEquals(0, cache.getStatistics().getWeight());
+    }
+
+    @Test
+    void testMaxWeight()
+    {
+        LRUCache<Integer, String> cache = new LRUCache<>(4, value -> 1);
+        for (int i = 0; i < 4; i++)
+        {
+            cache.put(i, "v" + i);
+        }
+        cache.setMaxWeight(2);
+        assertNull(cache.get(0));
+        assertNull(cache.get(1));
+        assertEquals("v2", cache.get(2));
+        assertEquals(2, cache.getStatistics().getEvictionCount());
+
+        // 0 disables caching
+        cache.setMaxWeight(0);
+        cache.put(5, "v5");
+        assertNull(cache.get(5));
+        assertEquals(0, cache.getStatistics().getSize());
+
+        assertThrows(IllegalArgumentException.class, () -> cache.setMaxWeight(-1));
+        assertThrows(IllegalArgumentException.class, () -> new LRUCache<>(-1, value -> 1));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelUtilTest
+{
+    @Test
+    void testResultsAreConsumedInOrder() throws IOException
+    {
+        List<Integer> results = new ArrayList<>();
+        ParallelUtil.forEachOrdered("test", 4, 100, index -> () ->
+        {
+            // later tasks finish earlier
+            Thread.sleep((100 - index) % 5);
+            return index * 2;
+        }, (index, result) ->
+        {
+            assertEquals(index * 2, result.intValue());
+            results.add(index);
+        }, null);
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(i, results.get(i).intValue());
+        }
+    }
+
+    @Test
+    void testPendingTasksAreBounded() throws IOException
+    {
+        AtomicInteger created = new AtomicInteger();
+        ParallelUtil.forEachOrdered("test", 2, 50, index ->
+        {
+            created.incrementAndGet();
+            return () -> index;
+        }, (index, result) -> assertTrue(created.get() <= index + 4), null);
+        assertEquals(50, created.get());
+    }
+
+    @Test
+    void testExceptionsAreUnwrapped()
+    {
+        IOException ioException = new IOException("task failed");
+        IOException thrown = assertThrows(IOException.class, () ->
+                ParallelUtil.forEachOrdered("test", 2, 10, index -> () ->
+                {
+                    if (index == 3)
+                    {
+                        throw ioException;
+                    }
+                    return index;
+                }, (index, result) -> { }, null));
+        assertSame(ioException, thrown);
+
+        IllegalStateException runtimeException = new IllegalStateException();
+        assertSame(runtimeException, assertThrows(IllegalStateException.class, () ->
+                ParallelUtil.forEachOrdered("test", 2, 10, index -> () ->
+                {
+                    throw runtimeException;
+                }, (index, result) -> { }, null)));
+
+        // checked exceptions other than IOException are wrapped
+        Exception exception = new Exception();
+        assertSame(exception, assertThrows(IOException.class, () ->
+                ParallelUtil.forEachOrdered("test", 2, 10, index -> () ->
+                {
+                    throw exception;
+                }, (index, result) -> { }, null)).getCause());
+    }
+
+    @Test
+    void testUnconsumedResultsAreDiscarded()
+    {
+        List<Integer> consumed = new ArrayList<>();
+        List<Integer> discarded = new ArrayList<>();
+        assertThrows(IOException.class, () ->
+                ParallelUtil.forEachOrdered("test", 2, 10, index -> () -> index, (index, result) ->
+                {
+                    if (index == 1)
+                    {
+                        throw new IOException("consumer failed");
+                    }
+                    consumed.add(result);
+                }, discarded::add));
+        assertEquals(1, consumed.size());
+        // the failed result belongs to the consumer, completed pending ones to the discarder
+        assertTrue(!discarded.contains(0) && !discarded.contains(1));
+        discarded.forEach(result -> assertTrue(result >= 2 && result < 5));
+    }
+
+    @Test
+    void testResultsOfRunningTasksAreDiscarded() throws Exception
+    {
+        AtomicInteger produced = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        List<Integer> discarded = Collections.synchronizedList(new ArrayList<>());
+        assertThrows(IOException.class, () ->
+                ParallelUtil.forEachOrdered("test", 2, 10, index -> () ->
+                {
+                    running.incrementAndGet();
+                    if (index > 0)
+                    {
+                        started.countDown();
+                        // still running when the consumer fails
+                        Thread.sleep(200);
+                    }
+                    produced.incrementAndGet();
+                    running.decrementAndGet();
+                    return index;
+                }, (index, result) ->
+                {
+                    // wait until the following tasks run
+                    try
+                    {
+                        started.await(5, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("consumer failed");
+                }, discarded::add));
+        // no task is running anymore and each produced result, except the failed one, was discarded
+        assertEquals(0, running.get());
+        assertTrue(discarded.size() >= 2);
+        assertEquals(produced.get() - 1, discarded.size());
+        assertFalse(discarded.contains(0));
+    }
+
+    @Test
+    void testThreadsAreDaemons() throws Exception
+    {
+        ExecutorService executor = ParallelUtil.newThreadPool("test", 1);
+        try
+        {
+            Future<Boolean> daemon = executor.submit(() -> Thread.currentThread().isDaemon());
+            assertTrue(ParallelUtil.getResult(daemon));
+            assertEquals("test", executor.submit(() -> Thread.currentThread().getName()).get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}